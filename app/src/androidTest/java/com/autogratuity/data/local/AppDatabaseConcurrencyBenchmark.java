@@ -0,0 +1,135 @@
+package com.autogratuity.data.local;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Read throughput of the tuned database configuration against Room's defaults with a
+ * rollback journal, while a writer keeps committing batches: the load the capture
+ * services, the UI and the sync worker put on the database together.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppDatabaseConcurrencyBenchmark {
+
+    private static final String TAG = "DbBenchmark";
+    private static final String USER_ID = "bench-user";
+    private static final int SEED_ROWS = 2000;
+    private static final int WRITE_BATCH = 20;
+    private static final long RUN_MS = 3000;
+
+    @Test
+    public void tunedConfigurationReadsMoreUnderWriteLoad() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        Result baseline = run(context, "bench-baseline",
+                Room.databaseBuilder(context, AppDatabase.class, "bench-baseline")
+                        .setJournalMode(RoomDatabase.JournalMode.TRUNCATE));
+        Result tuned = run(context, "bench-tuned",
+                AppDatabase.tune(Room.databaseBuilder(context, AppDatabase.class, "bench-tuned")));
+
+        Log.i(TAG, "baseline " + baseline + ", tuned " + tuned);
+        assertTrue("tuned " + tuned + " vs baseline " + baseline, tuned.reads > baseline.reads);
+    }
+
+    private Result run(Context context, String name, RoomDatabase.Builder<AppDatabase> builder)
+            throws InterruptedException {
+        context.deleteDatabase(name);
+        AppDatabase db = builder.build();
+        try {
+            DeliveryDao dao = db.deliveryDao();
+            dao.upsertAll(deliveries(0, SEED_ROWS));
+
+            Calendar cal = Calendar.getInstance();
+            Date now = cal.getTime();
+            cal.add(Calendar.DAY_OF_YEAR, -30);
+            Date monthAgo = cal.getTime();
+
+            int readers = AppDatabase.QUERY_THREADS;
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong reads = new AtomicLong();
+            AtomicLong writes = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(readers + 1);
+
+            for (int i = 0; i < readers; i++) {
+                new Thread(() -> {
+                    while (running.get()) {
+                        dao.getRecentDeliveries(USER_ID, 50);
+                        dao.getDailyStats(USER_ID, monthAgo, now);
+                        reads.addAndGet(2);
+                    }
+                    done.countDown();
+                }).start();
+            }
+            new Thread(() -> {
+                int next = SEED_ROWS;
+                while (running.get()) {
+                    dao.upsertAll(deliveries(next, WRITE_BATCH));
+                    next += WRITE_BATCH;
+                    writes.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+
+            Thread.sleep(RUN_MS);
+            running.set(false);
+            done.await(10, TimeUnit.SECONDS);
+            return new Result(reads.get(), writes.get());
+        } finally {
+            db.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    private static List<DeliveryEntity> deliveries(int from, int count) {
+        List<DeliveryEntity> deliveries = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = from; i < from + count; i++) {
+            DeliveryEntity entity = new DeliveryEntity();
+            entity.setDocumentId("delivery-" + i);
+            entity.setOrderId("order-" + i);
+            entity.setUserId(USER_ID);
+            entity.setAddressId("address-" + (i % 200));
+            entity.setAddress(i + " Main St");
+            entity.setTipAmount(i % 3 == 0 ? 0 : 4.5);
+            entity.setDeliveryDate(new Date(now - (i % 30) * TimeUnit.DAYS.toMillis(1)));
+            entity.setCompleted(true);
+            entity.setJsonData("{}");
+            deliveries.add(entity);
+        }
+        return deliveries;
+    }
+
+    private static final class Result {
+        final long reads;
+        final long writes;
+
+        Result(long reads, long writes) {
+            this.reads = reads;
+            this.writes = writes;
+        }
+
+        @Override
+        public String toString() {
+            return reads + " reads / " + writes + " write batches in " + RUN_MS + " ms";
+        }
+    }
+}
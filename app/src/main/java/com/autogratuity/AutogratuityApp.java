@@ -1,8 +1,12 @@
 package com.autogratuity;
 
 import android.app.Application;
+import android.content.Intent;
 import android.util.Log;
 
+import com.autogratuity.data.local.AppDatabase;
+import com.autogratuity.data.local.LocalDataStore;
+import com.autogratuity.receivers.CaptureProcessReceiver;
 import com.autogratuity.data.repository.core.RepositoryProvider;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
@@ -31,11 +35,17 @@ public class AutogratuityApp extends Application {
             Log.e(TAG, "Error initializing Firebase", e);
         }
         
+        // Open the local database and compile hot statements off the main thread
+        AppDatabase.warmUp(this);
+        
         // Initialize Repository with new domain-based implementation
         initializeRepositories();
         
         // Set up authentication state listener to handle login/logout
         setupAuthStateListener();
+        
+        // Apply waiting tips as soon as their deliveries are stored
+        watchTipsReady();
     }
     
     /**
@@ -52,6 +62,23 @@ public class AutogratuityApp extends Application {
         }
     }
     
+    /**
+     * Run the capture processor whenever a stored delivery wakes tips that were waiting
+     * for it, wherever the delivery came from (capture, import or sync)
+     */
+    private void watchTipsReady() {
+        disposables.add(
+            LocalDataStore.getInstance(this).observeTipsReady()
+                .subscribe(
+                    count -> {
+                        Log.d(TAG, count + " waiting tips matched a stored delivery");
+                        sendBroadcast(new Intent(this, CaptureProcessReceiver.class));
+                    },
+                    error -> Log.e(TAG, "Error watching for matched tips", error)
+                )
+        );
+    }
+    
     /**
      * Set up authentication state listener to handle login/logout
      */
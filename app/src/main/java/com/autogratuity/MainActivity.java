@@ -1,6 +1,7 @@
 package com.autogratuity;
 
 import android.content.Intent;
+import android.graphics.Typeface;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -8,10 +9,12 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.ImageView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.fragment.app.Fragment;
@@ -137,6 +140,14 @@ public class MainActivity extends AppCompatActivity {
                 Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
             }
         });
+        
+        // Observe sync metrics dump (debug builds only)
+        viewModel.getSyncMetricsDump().observe(this, dump -> {
+            if (dump != null) {
+                showSyncDiagnostics(dump);
+                viewModel.clearSyncMetricsDump();
+            }
+        });
     }
 
     /**
@@ -220,6 +231,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_sync_diagnostics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -247,6 +259,9 @@ public class MainActivity extends AppCompatActivity {
             // Handle sign out (should clear user data and navigate to login)
             handleSignOut();
             return true;
+        } else if (id == R.id.action_sync_diagnostics) {
+            viewModel.loadSyncMetricsDump();
+            return true;
         }
         
         return super.onOptionsItemSelected(item);
@@ -266,6 +281,35 @@ public class MainActivity extends AppCompatActivity {
         finish();
     }
 
+    /**
+     * Shows the sync metrics dump in a dialog with an option to share it
+     *
+     * @param dump Plain-text metrics dump
+     */
+    private void showSyncDiagnostics(String dump) {
+        TextView content = new TextView(this);
+        content.setText(dump);
+        content.setTypeface(Typeface.MONOSPACE);
+        content.setTextIsSelectable(true);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        content.setPadding(padding, padding, padding, padding);
+
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(content);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Sync Diagnostics")
+                .setView(scrollView)
+                .setPositiveButton("Close", null)
+                .setNeutralButton("Share", (dialog, which) -> {
+                    Intent share = new Intent(Intent.ACTION_SEND);
+                    share.setType("text/plain");
+                    share.putExtra(Intent.EXTRA_TEXT, dump);
+                    startActivity(Intent.createChooser(share, "Share sync metrics"));
+                })
+                .show();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
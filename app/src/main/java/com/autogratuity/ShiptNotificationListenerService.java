@@ -8,10 +8,15 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.os.Bundle;
 
+import com.autogratuity.data.local.CaptureEntity;
+import com.autogratuity.data.local.LocalDataStore;
 import com.autogratuity.data.model.Delivery;
 import com.autogratuity.data.repository.core.RepositoryProvider;
 import com.autogratuity.data.repository.delivery.DeliveryRepository;
 import com.autogratuity.data.repository.preference.PreferenceRepository;
+import com.autogratuity.utils.NotificationPatternMatcher;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
@@ -19,10 +24,7 @@ import io.reactivex.schedulers.Schedulers;
 import io.reactivex.Single;
 import io.reactivex.Completable;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class ShiptNotificationListenerService extends NotificationListenerService {
     private static final String TAG = "ShiptNotifListener";
@@ -58,8 +60,9 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
             "([A-Z0-9]{8,12})" // Most Shipt order IDs are 8-12 alphanumeric chars
     };
 
-    // Compiled patterns cache
-    private final Map<String, Pattern> compiledPatterns = new HashMap<>();
+    // Tip and order ID patterns compiled together; replaced whole when the patterns change
+    private volatile NotificationPatternMatcher patternMatcher =
+            NotificationPatternMatcher.compile(tipPatterns, orderIdPatterns);
     private DeliveryRepository deliveryRepository;
     private PreferenceRepository preferenceRepository;
     private CompositeDisposable disposables;
@@ -90,6 +93,12 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
         // Load any saved custom patterns
         loadCustomPatterns();
 
+        // Notifications used to be kept in these preferences without ever being removed
+        SharedPreferences oldAnalysis = getSharedPreferences("notification_analysis", MODE_PRIVATE);
+        if (!oldAnalysis.getAll().isEmpty()) {
+            oldAnalysis.edit().clear().apply();
+        }
+
         Log.d(TAG, "Notification listener service created");
     }
 
@@ -116,7 +125,7 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
                     .subscribe(savedTipPatterns -> {
                         if (savedTipPatterns != null && !savedTipPatterns.isEmpty()) {
                             tipPatterns = savedTipPatterns.split("\\|\\|");
-                            compiledPatterns.clear();
+                            rebuildPatternMatcher();
                         }
                     }, throwable -> {
                         Log.e(TAG, "Error loading tip patterns", throwable);
@@ -130,7 +139,7 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
                     .subscribe(savedOrderPatterns -> {
                         if (savedOrderPatterns != null && !savedOrderPatterns.isEmpty()) {
                             orderIdPatterns = savedOrderPatterns.split("\\|\\|");
-                            compiledPatterns.clear();
+                            rebuildPatternMatcher();
                         }
                     }, throwable -> {
                         Log.e(TAG, "Error loading order patterns", throwable);
@@ -149,12 +158,12 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
 
             if (savedTipPatterns != null && !savedTipPatterns.isEmpty()) {
                 tipPatterns = savedTipPatterns.split("\\|\\|");
-                compiledPatterns.clear();
+                rebuildPatternMatcher();
             }
 
             if (savedOrderPatterns != null && !savedOrderPatterns.isEmpty()) {
                 orderIdPatterns = savedOrderPatterns.split("\\|\\|");
-                compiledPatterns.clear();
+                rebuildPatternMatcher();
             }
         }
     }
@@ -192,19 +201,10 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
                 Log.d(TAG, "Processing notification - Text: " + text);
 
                 // Check if this contains tip information using multiple patterns
-                Map<String, String> extractedData = extractDataFromNotification(fullText);
-
-                String orderId = extractedData.get("orderId");
-                String tipAmountStr = extractedData.get("tipAmount");
-
-                if (orderId != null && tipAmountStr != null) {
-                    try {
-                        double tipAmount = Double.parseDouble(tipAmountStr);
-                        Log.d(TAG, "Successfully parsed tip: $" + tipAmount + " for order #" + orderId);
-                        processTip(orderId, tipAmount);
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "Error parsing tip amount: " + tipAmountStr, e);
-                    }
+                NotificationPatternMatcher.Tip tip = patternMatcher.extractTip(fullText);
+                if (tip != null) {
+                    Log.d(TAG, "Successfully parsed tip: $" + tip.amount + " for order #" + tip.orderId);
+                    processTip(tip.orderId, tip.amount);
                 } else {
                     Log.d(TAG, "No matching pattern found in notification");
                 }
@@ -223,71 +223,16 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
         return false;
     }
 
-    private Map<String, String> extractDataFromNotification(String fullText) {
-        Map<String, String> data = new HashMap<>();
-
-        // Try all tip patterns first
-        for (String patternStr : tipPatterns) {
-            Pattern pattern = getCompiledPattern(patternStr);
-            Matcher matcher = pattern.matcher(fullText);
-
-            if (matcher.find()) {
-                try {
-                    if (matcher.groupCount() >= 2) {
-                        // Most patterns have tipAmount as group 1, orderId as group 2
-                        data.put("tipAmount", matcher.group(1));
-                        data.put("orderId", matcher.group(2));
-                    } else if (matcher.groupCount() == 1) {
-                        // Some patterns might just have one group - try to detect what it is
-                        String match = matcher.group(1);
-                        if (match.matches("\\d+\\.\\d+")) {
-                            data.put("tipAmount", match);
-                        } else {
-                            data.put("orderId", match);
-                        }
-                    }
-
-                    // If we found both, return immediately
-                    if (data.containsKey("tipAmount") && data.containsKey("orderId")) {
-                        return data;
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error extracting data from match: " + e.getMessage());
-                }
-            }
-        }
-
-        // If we still need orderId, try specific patterns
-        if (!data.containsKey("orderId")) {
-            for (String patternStr : orderIdPatterns) {
-                Pattern pattern = getCompiledPattern(patternStr);
-                Matcher matcher = pattern.matcher(fullText);
-
-                if (matcher.find() && matcher.groupCount() >= 1) {
-                    data.put("orderId", matcher.group(1));
-                    break;
-                }
-            }
-        }
-
-        // If we still need tipAmount, try to find any dollar amount
-        if (!data.containsKey("tipAmount")) {
-            Pattern dollarPattern = getCompiledPattern("\\$(\\d+\\.\\d+)");
-            Matcher matcher = dollarPattern.matcher(fullText);
-
-            if (matcher.find() && matcher.groupCount() >= 1) {
-                data.put("tipAmount", matcher.group(1));
-            }
-        }
-
-        return data;
-    }
-
-        private Pattern getCompiledPattern(String patternStr) {
-        if (!compiledPatterns.containsKey(patternStr)) {
-            compiledPatterns.put(patternStr, Pattern.compile(patternStr));
+    /**
+     * Compile the current tip and order ID patterns and swap in the new matcher. On an
+     * invalid pattern the previous matcher stays in use.
+     */
+    private synchronized void rebuildPatternMatcher() {
+        try {
+            patternMatcher = NotificationPatternMatcher.compile(tipPatterns, orderIdPatterns);
+        } catch (PatternSyntaxException e) {
+            Log.e(TAG, "Invalid notification pattern, keeping previous patterns", e);
         }
-        return compiledPatterns.get(patternStr);
     }
     
     @Override
@@ -300,56 +245,17 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
         super.onDestroy();
     }
 
+    /**
+     * Keep the notification in the local log used to tune the patterns
+     */
     private void saveNotificationForAnalysis(String packageName, String title, String text) {
-        if (preferenceRepository != null) {
-            // Create unique key based on timestamp
-            String key = "notification_" + System.currentTimeMillis();
-            
-            // Store notification data using PreferenceRepository
-            disposables.add(
-                preferenceRepository.setPreferenceSetting(key + "_package", packageName)
-                    .andThen(preferenceRepository.setPreferenceSetting(key + "_title", title))
-                    .andThen(preferenceRepository.setPreferenceSetting(key + "_text", text))
-                    .andThen(preferenceRepository.getPreferenceSetting("notification_count", 0))
-                    .flatMapCompletable(count -> {
-                        int newCount = count + 1;
-                        if (newCount > 50) {
-                            // Limit number of stored notifications to 50
-                            return preferenceRepository.setPreferenceSetting("notification_count", 1);
-                        } else {
-                            return preferenceRepository.setPreferenceSetting("notification_count", newCount);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .subscribe(
-                        () -> Log.d(TAG, "Notification saved for analysis"),
-                        throwable -> Log.e(TAG, "Error saving notification for analysis", throwable)
-                    )
-            );
-        } else {
-            // Fallback to old SharedPreferences method if repository is not available
-            SharedPreferences prefs = getSharedPreferences("notification_analysis", MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-
-            // Create unique key based on timestamp
-            String key = "notification_" + System.currentTimeMillis();
-
-            editor.putString(key + "_package", packageName);
-            editor.putString(key + "_title", title);
-            editor.putString(key + "_text", text);
-            editor.apply();
-
-            // Limit number of stored notifications to 50
-            int count = prefs.getInt("notification_count", 0);
-            if (count > 50) {
-                // Remove oldest notifications - simplified implementation
-                editor.putInt("notification_count", 1);
-                editor.apply();
-            } else {
-                editor.putInt("notification_count", count + 1);
-                editor.apply();
-            }
-        }
+        disposables.add(
+            LocalDataStore.getInstance(this).logNotification(packageName, title, text)
+                .subscribe(
+                    () -> Log.d(TAG, "Notification saved for analysis"),
+                    throwable -> Log.e(TAG, "Error saving notification for analysis", throwable)
+                )
+        );
     }
 
     private void processTip(final String orderId, final double tipAmount) {
@@ -399,32 +305,24 @@ public class ShiptNotificationListenerService extends NotificationListenerServic
             return Single.error(new IllegalStateException("Repository not initialized"));
         }
         
-        return deliveryRepository.getAllDeliveries()
-            .flatMap(deliveries -> {
-                for (Delivery delivery : deliveries) {
-                    if (delivery.getReference() != null && 
-                        orderId.equals(delivery.getReference().getOrderId())) {
-                        return Single.just(delivery);
-                    }
-                }
-                return Single.error(new Exception("Delivery not found"));
-            });
+        return deliveryRepository.findByOrderId(orderId);
     }
     
     /**
-     * Store a pending tip for later processing
+     * Queue a tip for a delivery that has not been captured yet; the capture processor
+     * applies it once the order arrives
      * @param orderId The order ID
      * @param tipAmount The tip amount
-     * @return Completable that completes when the tip is stored
+     * @return Completable that completes when the tip is queued
      */
     private Completable storePendingTip(String orderId, double tipAmount) {
-        if (preferenceRepository == null) {
-            return Completable.error(new IllegalStateException("Repository not initialized"));
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return Completable.error(new IllegalStateException("Not signed in"));
         }
         
-        // Store in preferences with a prefix to identify pending tips
-        String key = "pending_tip_" + orderId;
-        return preferenceRepository.setPreferenceSetting(key, tipAmount);
+        return LocalDataStore.getInstance(this)
+            .enqueueCapture(CaptureEntity.tip(user.getUid(), orderId, tipAmount));
     }
     
     /**
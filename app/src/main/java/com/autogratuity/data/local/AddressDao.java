@@ -1,14 +1,21 @@
 package com.autogratuity.data.local;
 
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Flowable;
 
 /**
  * Data Access Object for Room database operations with AddressEntity
@@ -28,6 +35,18 @@ public interface AddressDao {
     @Update
     void update(AddressEntity address);
     
+    /**
+     * Insert address entities with one compiled statement
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    List<Long> insertAll(List<AddressEntity> addresses);
+    
+    /**
+     * Update existing address entities with one compiled statement
+     */
+    @Update
+    void updateAll(List<AddressEntity> addresses);
+    
     /**
      * Delete an address entity
      */
@@ -40,18 +59,67 @@ public interface AddressDao {
     @Query("SELECT * FROM addresses WHERE userId = :userId")
     List<AddressEntity> getAllForUser(String userId);
     
+    /**
+     * Get an address by its Firestore document ID
+     */
+    @Query("SELECT * FROM addresses WHERE documentId = :documentId LIMIT 1")
+    AddressEntity getByDocumentId(String documentId);
+    
+    /**
+     * Get the document IDs of a user's addresses with local changes not yet synced
+     */
+    @Query("SELECT documentId FROM addresses WHERE userId = :userId AND isDirty = 1")
+    List<String> getDirtyDocumentIds(String userId);
+    
+    /**
+     * Observe all addresses for a specific user
+     */
+    @Query("SELECT * FROM addresses WHERE userId = :userId")
+    Flowable<List<AddressEntity>> observeAllForUser(String userId);
+    
+    /**
+     * Observe an address by its Firestore document ID (empty list if not stored)
+     */
+    @Query("SELECT * FROM addresses WHERE documentId = :documentId LIMIT 1")
+    Flowable<List<AddressEntity>> observeByDocumentId(String documentId);
+    
     /**
      * Get address by normalized address for a specific user
      */
     @Query("SELECT * FROM addresses WHERE normalizedAddress = :normalizedAddress AND userId = :userId LIMIT 1")
     AddressEntity getByNormalizedAddress(String normalizedAddress, String userId);
     
+    /**
+     * Get the address an order was delivered to. Deliveries link orders to addresses, so
+     * this is two index lookups: (userId, orderId) on deliveries, then documentId here.
+     */
+    @Query("SELECT addresses.* FROM deliveries " +
+            "JOIN addresses ON addresses.documentId = deliveries.addressId " +
+            "WHERE deliveries.userId = :userId AND deliveries.orderId = :orderId LIMIT 1")
+    AddressEntity getByOrderId(String userId, String orderId);
+    
     /**
      * Get addresses with multiple deliveries for a specific user
      */
     @Query("SELECT * FROM addresses WHERE userId = :userId AND deliveryCount >= :minDeliveries")
     List<AddressEntity> getAddressesWithMultipleDeliveries(String userId, int minDeliveries);
     
+    /**
+     * Page through a user's addresses, most delivered-to first
+     */
+    @Query("SELECT * FROM addresses WHERE userId = :userId ORDER BY deliveryCount DESC")
+    PagingSource<Integer, AddressEntity> pagingSourceForUser(String userId);
+    
+    /**
+     * Get a user's best tipping addresses from the locally stored deliveries: most tipped
+     * deliveries first, then highest average tip.
+     */
+    @Query("SELECT addresses.* FROM address_delivery_stats AS stats " +
+            "JOIN addresses ON addresses.documentId = stats.addressId " +
+            "WHERE stats.userId = :userId AND stats.tipCount > 0 " +
+            "ORDER BY stats.tipCount DESC, stats.tipTotal / stats.tipCount DESC LIMIT :limit")
+    List<AddressEntity> getBestTipping(String userId, int limit);
+    
     /**
      * Get all dirty addresses that need to be synced
      */
@@ -59,10 +127,22 @@ public interface AddressDao {
     List<AddressEntity> getAllDirty();
     
     /**
-     * Search addresses by search terms for a specific user
+     * Full-text search over address text, notes and tags.
+     * Returns every match as its row ID and match info only, so all matches are ranked
+     * with {@link FtsSearch#topIds} before any row is loaded.
+     *
+     * @param query MATCH expression, see {@link FtsSearch#prefixQuery}
      */
-    @Query("SELECT * FROM addresses WHERE userId = :userId AND fullAddress LIKE '%' || :searchTerm || '%' LIMIT :limit")
-    List<AddressEntity> searchByTerm(String userId, String searchTerm, int limit);
+    @Query("SELECT addresses.id AS id, matchinfo(addresses_fts, 'pcx') AS matchInfo FROM addresses_fts " +
+            "JOIN addresses ON addresses.id = addresses_fts.rowid " +
+            "WHERE addresses_fts MATCH :query AND addresses.userId = :userId")
+    List<FtsSearch.Match> search(String userId, String query);
+    
+    /**
+     * Get addresses by row ID
+     */
+    @Query("SELECT * FROM addresses WHERE id IN (:ids)")
+    List<AddressEntity> getByIds(List<Long> ids);
     
     /**
      * Delete all addresses for a specific user
@@ -70,6 +150,12 @@ public interface AddressDao {
     @Query("DELETE FROM addresses WHERE userId = :userId")
     void deleteAllForUser(String userId);
     
+    /**
+     * Delete addresses by Firestore document ID
+     */
+    @Query("DELETE FROM addresses WHERE documentId IN (:documentIds)")
+    void deleteByDocumentIds(List<String> documentIds);
+    
     /**
      * Update statistics for an address
      */
@@ -89,4 +175,65 @@ public interface AddressDao {
      */
     @Query("UPDATE addresses SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE id = :id")
     void markSynced(long id, Date lastSyncTime);
+    
+    /**
+     * Mark an address as synced by its Firestore document ID
+     */
+    @Query("UPDATE addresses SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE documentId = :documentId")
+    void markSyncedByDocumentId(String documentId, Date lastSyncTime);
+    
+    /**
+     * Mark addresses as synced by Firestore document ID
+     */
+    @Query("UPDATE addresses SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE documentId IN (:documentIds)")
+    void markSyncedByDocumentIds(List<String> documentIds, Date lastSyncTime);
+    
+    /**
+     * Get addresses by Firestore document ID
+     */
+    @Query("SELECT * FROM addresses WHERE documentId IN (:documentIds)")
+    List<AddressEntity> getByDocumentIds(List<String> documentIds);
+    
+    /**
+     * Insert or update addresses by document ID in a single transaction.
+     * Existing rows keep their row ID, so the FTS index is maintained by the update triggers.
+     * 
+     * @param addresses Entities keyed by documentId
+     */
+    @Transaction
+    default void upsertAll(List<AddressEntity> addresses) {
+        Map<String, AddressEntity> byDocumentId = new HashMap<>();
+        for (AddressEntity address : addresses) {
+            byDocumentId.put(address.getDocumentId(), address);
+        }
+        
+        List<AddressEntity> updates = new ArrayList<>();
+        for (List<String> chunk : DaoBatches.chunks(new ArrayList<>(byDocumentId.keySet()))) {
+            for (AddressEntity existing : getByDocumentIds(chunk)) {
+                AddressEntity entity = byDocumentId.remove(existing.getDocumentId());
+                entity.setId(existing.getId());
+                updates.add(entity);
+            }
+        }
+        
+        if (!updates.isEmpty()) {
+            updateAll(updates);
+        }
+        if (!byDocumentId.isEmpty()) {
+            insertAll(new ArrayList<>(byDocumentId.values()));
+        }
+    }
+    
+    /**
+     * Mark addresses as synced in a single transaction
+     * 
+     * @param documentIds Firestore document IDs
+     * @param lastSyncTime Sync time to record
+     */
+    @Transaction
+    default void markSyncedBatch(List<String> documentIds, Date lastSyncTime) {
+        for (List<String> chunk : DaoBatches.chunks(documentIds)) {
+            markSyncedByDocumentIds(chunk, lastSyncTime);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package com.autogratuity.data.local;
+
+import androidx.room.DatabaseView;
+
+import java.util.Date;
+
+/**
+ * Per-address delivery aggregates over the locally stored deliveries.
+ * Grouping follows the (userId, addressId, deliveryDate) index, so the view is computed
+ * without sorting.
+ */
+@DatabaseView(viewName = "address_delivery_stats", value = AddressDeliveryStats.QUERY)
+public class AddressDeliveryStats {
+
+    /**
+     * View definition, shared with the migration that creates it
+     */
+    static final String QUERY = "SELECT userId, addressId, COUNT(*) AS deliveryCount, " +
+            "SUM(CASE WHEN tipAmount > 0 THEN 1 ELSE 0 END) AS tipCount, " +
+            "TOTAL(tipAmount) AS tipTotal, MAX(tipAmount) AS maxTip, " +
+            "MAX(deliveryDate) AS lastDeliveryDate " +
+            "FROM deliveries WHERE addressId IS NOT NULL GROUP BY userId, addressId";
+
+    private String userId;
+    private String addressId;
+    private int deliveryCount;
+    private int tipCount;
+    private double tipTotal;
+    private double maxTip;
+    private Date lastDeliveryDate;
+
+    // Getters and setters
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAddressId() {
+        return addressId;
+    }
+
+    public void setAddressId(String addressId) {
+        this.addressId = addressId;
+    }
+
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    public void setDeliveryCount(int deliveryCount) {
+        this.deliveryCount = deliveryCount;
+    }
+
+    public int getTipCount() {
+        return tipCount;
+    }
+
+    public void setTipCount(int tipCount) {
+        this.tipCount = tipCount;
+    }
+
+    public double getTipTotal() {
+        return tipTotal;
+    }
+
+    public void setTipTotal(double tipTotal) {
+        this.tipTotal = tipTotal;
+    }
+
+    public double getMaxTip() {
+        return maxTip;
+    }
+
+    public void setMaxTip(double maxTip) {
+        this.maxTip = maxTip;
+    }
+
+    public Date getLastDeliveryDate() {
+        return lastDeliveryDate;
+    }
+
+    public void setLastDeliveryDate(Date lastDeliveryDate) {
+        this.lastDeliveryDate = lastDeliveryDate;
+    }
+}
@@ -1,17 +1,27 @@
 package com.autogratuity.data.local;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import java.util.Date;
-import java.util.List;
 
 /**
- * Room entity for local caching of address data
+ * Room entity for local caching of address data.
+ * {@code jsonData} holds the full address document so reads can be served from Room
+ * without Firestore. The text columns are indexed for full-text search by
+ * {@link AddressFtsEntity}; {@code tags} is stored space-separated. Orders are linked
+ * to addresses through {@code deliveries}, see {@link AddressDao#getByOrderId}.
  */
-@Entity(tableName = "addresses")
-@TypeConverters({Converters.class, ListConverter.class})
+@Entity(tableName = "addresses",
+        indices = {
+                @Index(value = {"documentId"}, unique = true),
+                @Index({"userId", "normalizedAddress"}),
+                @Index({"userId", "deliveryCount"}),
+                @Index({"isDirty", "userId"})
+        })
+@TypeConverters(Converters.class)
 public class AddressEntity {
     
     @PrimaryKey(autoGenerate = true)
@@ -20,14 +30,15 @@ public class AddressEntity {
     private String documentId;
     private String fullAddress;
     private String normalizedAddress;
-    private List<String> orderIds;
     private double totalTips;
     private int deliveryCount;
     private double averageTip;
     private String userId;
     private boolean doNotDeliver;
-    private List<String> searchTerms;
     private Date lastUpdated;
+    private String notes;
+    private String tags;
+    private String jsonData;
     private boolean isDirty;
     private Date lastSyncTime;
     
@@ -65,14 +76,6 @@ public class AddressEntity {
         this.normalizedAddress = normalizedAddress;
     }
     
-    public List<String> getOrderIds() {
-        return orderIds;
-    }
-    
-    public void setOrderIds(List<String> orderIds) {
-        this.orderIds = orderIds;
-    }
-    
     public double getTotalTips() {
         return totalTips;
     }
@@ -113,14 +116,6 @@ public class AddressEntity {
         this.doNotDeliver = doNotDeliver;
     }
     
-    public List<String> getSearchTerms() {
-        return searchTerms;
-    }
-    
-    public void setSearchTerms(List<String> searchTerms) {
-        this.searchTerms = searchTerms;
-    }
-    
     public Date getLastUpdated() {
         return lastUpdated;
     }
@@ -129,6 +124,30 @@ public class AddressEntity {
         this.lastUpdated = lastUpdated;
     }
     
+    public String getNotes() {
+        return notes;
+    }
+    
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+    
+    public String getTags() {
+        return tags;
+    }
+    
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+    
+    public String getJsonData() {
+        return jsonData;
+    }
+    
+    public void setJsonData(String jsonData) {
+        this.jsonData = jsonData;
+    }
+    
     public boolean isDirty() {
         return isDirty;
     }
@@ -0,0 +1,60 @@
+package com.autogratuity.data.local;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * FTS4 index over the searchable text of {@link AddressEntity}.
+ * External-content table kept in sync with {@code addresses} by Room's triggers.
+ */
+@Fts4(contentEntity = AddressEntity.class,
+        tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        prefix = {2, 3})
+@Entity(tableName = "addresses_fts")
+public class AddressFtsEntity {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    private String fullAddress;
+    private String notes;
+    private String tags;
+
+    // Getters and setters
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public String getFullAddress() {
+        return fullAddress;
+    }
+
+    public void setFullAddress(String fullAddress) {
+        this.fullAddress = fullAddress;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+}
@@ -1,30 +1,68 @@
 package com.autogratuity.data.local;
 
 import android.content.Context;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Room database for local storage and caching
+ * Room database for local storage and caching.
+ * Schema changes must bump the version and add a migration to {@link Migrations};
+ * the local cache and the sync outbox are never wiped on upgrade.
+ * <p>
+ * The database runs in WAL mode with its own bounded executors, see {@link #tune}.
  */
 @Database(
     entities = {
         DeliveryEntity.class,
         AddressEntity.class,
-        PendingOperationEntity.class
+        PendingOperationEntity.class,
+        DeliveryFtsEntity.class,
+        AddressFtsEntity.class,
+        EarningsBucketEntity.class,
+        CaptureEntity.class,
+        NotificationLogEntity.class
+    },
+    views = {
+        AddressDeliveryStats.class
     },
-    version = 1,
-    exportSchema = false
+    version = 12,
+    exportSchema = true
 )
-@TypeConverters({Converters.class, ListConverter.class})
+@TypeConverters(Converters.class)
 public abstract class AppDatabase extends RoomDatabase {
     
+    private static final String TAG = "AppDatabase";
     private static final String DATABASE_NAME = "autogratuity-db";
     
+    // Readers run in parallel under WAL; more threads than cores only add contention
+    static final int QUERY_THREADS = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    
+    // Hot statements compiled at startup, as Room generates them from the DAO queries
+    private static final String[] WARM_STATEMENTS = {
+            "SELECT * FROM deliveries WHERE userId = ? ORDER BY deliveryDate DESC LIMIT ?",
+            "SELECT * FROM deliveries WHERE orderId = ? AND userId = ? LIMIT 1",
+            "SELECT * FROM deliveries WHERE documentId = ? LIMIT 1",
+            "SELECT * FROM addresses WHERE normalizedAddress = ? AND userId = ? LIMIT 1",
+            "SELECT * FROM addresses WHERE documentId = ? LIMIT 1",
+            "SELECT * FROM pending_operations WHERE priority = ? AND nextAttemptTime <= ? " +
+                    "ORDER BY nextAttemptTime ASC LIMIT ?",
+            "SELECT COUNT(*) FROM pending_operations WHERE nextAttemptTime <= ?"
+    };
+    
     private static volatile AppDatabase instance;
+    private static volatile Executor queryExecutor;
+    private static volatile Executor transactionExecutor;
     
     /**
      * Get the DeliveryDao for delivery operations
@@ -41,18 +79,118 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public abstract PendingOperationDao pendingOperationDao();
     
+    /**
+     * Get the EarningsDao for the earnings time series
+     */
+    public abstract EarningsDao earningsDao();
+    
+    /**
+     * Get the CaptureDao for the capture queue
+     */
+    public abstract CaptureDao captureDao();
+    
+    /**
+     * Get the NotificationLogDao for the notification analysis log
+     */
+    public abstract NotificationLogDao notificationLogDao();
+    
     /**
      * Get the singleton instance of the database
      */
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
-            instance = Room.databaseBuilder(
+            instance = tune(Room.databaseBuilder(
                     context.getApplicationContext(),
                     AppDatabase.class,
-                    DATABASE_NAME)
-                    .fallbackToDestructiveMigration()
+                    DATABASE_NAME))
+                    .addMigrations(Migrations.ALL)
+                    .addCallback(new Callback() {
+                        @Override
+                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                            // Room creates the tables; the earnings triggers are ours
+                            EarningsSeries.createTriggers(db);
+                        }
+                    })
+                    .fallbackToDestructiveMigrationOnDowngrade()
                     .build();
         }
         return instance;
     }
+    
+    /**
+     * Open the database and compile the hot statements in the background, so migrations,
+     * schema validation and the first statement preparation happen before the first
+     * screen or capture needs them. Also prunes expired hourly earnings buckets.
+     * 
+     * @param context Android context
+     */
+    public static void warmUp(Context context) {
+        Context appContext = context.getApplicationContext();
+        getQueryExecutor().execute(() -> {
+            try {
+                AppDatabase database = getInstance(appContext);
+                SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+                for (String sql : WARM_STATEMENTS) {
+                    db.compileStatement(sql).close();
+                }
+                // Hour buckets past retention are already rolled up in the day buckets
+                database.earningsDao().pruneHourly(EarningsSeries.hourCutoff(System.currentTimeMillis()));
+            } catch (Exception e) {
+                Log.e(TAG, "Error warming up database", e);
+            }
+        });
+    }
+    
+    /**
+     * Apply the connection and executor configuration shared by the app database and the
+     * benchmarks: WAL so readers never block on the writer, a query executor bounded to
+     * the cores, and a single-threaded transaction executor, since SQLite has one writer.
+     * 
+     * @param builder Room builder
+     * @return The same builder
+     */
+    static RoomDatabase.Builder<AppDatabase> tune(RoomDatabase.Builder<AppDatabase> builder) {
+        return builder
+                .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(getQueryExecutor())
+                .setTransactionExecutor(getTransactionExecutor())
+                .addCallback(new Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        // FULL fsyncs every commit; under WAL, NORMAL is still durable across app crashes
+                        db.execSQL("PRAGMA synchronous = NORMAL");
+                    }
+                });
+    }
+    
+    private static Executor getQueryExecutor() {
+        if (queryExecutor == null) {
+            synchronized (AppDatabase.class) {
+                if (queryExecutor == null) {
+                    queryExecutor = Executors.newFixedThreadPool(QUERY_THREADS, namedThreads("room-query"));
+                }
+            }
+        }
+        return queryExecutor;
+    }
+    
+    private static Executor getTransactionExecutor() {
+        if (transactionExecutor == null) {
+            synchronized (AppDatabase.class) {
+                if (transactionExecutor == null) {
+                    transactionExecutor = Executors.newSingleThreadExecutor(namedThreads("room-transaction"));
+                }
+            }
+        }
+        return transactionExecutor;
+    }
+    
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
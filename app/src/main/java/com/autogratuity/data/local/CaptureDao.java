@@ -0,0 +1,69 @@
+package com.autogratuity.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data Access Object for the capture queue
+ */
+@Dao
+public interface CaptureDao {
+
+    /**
+     * Append a capture to the queue, replacing any stored capture with the same key.
+     * The replacement gets a new ID, so a drain that read the old row does not mark the
+     * new one as done.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insert(CaptureEntity capture);
+
+    /**
+     * Get the next batch of a user's captures in a state, in arrival order, after a
+     * keyset cursor of the last row read
+     */
+    @Query("SELECT * FROM capture_queue WHERE userId = :userId AND status = :status " +
+           "AND (createdAt > :afterCreatedAt OR (createdAt = :afterCreatedAt AND id > :afterId)) " +
+           "ORDER BY createdAt ASC, id ASC LIMIT :limit")
+    List<CaptureEntity> getBatch(String userId, int status, Date afterCreatedAt, long afterId, int limit);
+
+    /**
+     * Set the state of captures
+     */
+    @Query("UPDATE capture_queue SET status = :status WHERE id IN (:ids)")
+    void setStatus(List<Long> ids, int status);
+
+    /**
+     * Return waiting captures with the given keys to the pending queue
+     *
+     * @return Number of captures woken
+     */
+    @Query("UPDATE capture_queue SET status = " + CaptureEntity.STATUS_PENDING +
+           " WHERE status = " + CaptureEntity.STATUS_WAITING + " AND captureKey IN (:keys)")
+    int wakeWaiting(List<String> keys);
+
+    /**
+     * Count a failed attempt on captures, parking those that reach the attempt limit
+     */
+    @Query("UPDATE capture_queue SET attempts = attempts + 1, " +
+           "status = CASE WHEN attempts + 1 >= :maxAttempts THEN " + CaptureEntity.STATUS_FAILED +
+           " ELSE status END WHERE id IN (:ids)")
+    void recordAttempt(List<Long> ids, int maxAttempts);
+
+    /**
+     * Count the captures in a state
+     */
+    @Query("SELECT COUNT(*) FROM capture_queue WHERE status = :status")
+    int countByStatus(int status);
+
+    /**
+     * Delete applied and failed captures created before a cutoff. Waiting tips are kept.
+     */
+    @Query("DELETE FROM capture_queue WHERE status IN (" + CaptureEntity.STATUS_DONE + ", " +
+           CaptureEntity.STATUS_FAILED + ") AND createdAt < :cutoff")
+    int deleteFinishedBefore(Date cutoff);
+}
@@ -0,0 +1,258 @@
+package com.autogratuity.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import java.util.Date;
+
+/**
+ * Entity for a Shipt capture that has been recorded but not yet applied to the
+ * deliveries. The capture services append rows with a single local insert and
+ * {@link com.autogratuity.utils.ShiptCaptureProcessor} drains them in batches.
+ * <p>
+ * The {@code (status, createdAt)} index lets the processor read the pending rows in
+ * arrival order without touching processed ones. Rows that keep failing are parked as
+ * {@link #STATUS_FAILED} once {@code attempts} reaches the processor's limit. Tips whose
+ * delivery is not stored yet are parked as {@link #STATUS_WAITING} until a delivery for
+ * their order is written; see {@link LocalDataStore}.
+ * <p>
+ * {@code captureKey} is unique per user, order and kind, and a new capture replaces
+ * the stored one, so repeated captures of the same event are applied once with the
+ * latest data.
+ */
+@Entity(
+    tableName = "capture_queue",
+    indices = {
+        @Index(value = {"status", "createdAt"}),
+        @Index(value = {"captureKey"}, unique = true)
+    }
+)
+@TypeConverters(Converters.class)
+public class CaptureEntity {
+
+    // Capture kinds
+    public static final String KIND_ORDER = "order";
+    public static final String KIND_TIP = "tip";
+    public static final String KIND_COMPLETION = "completion";
+
+    // Queue states
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_DONE = 1;
+    public static final int STATUS_FAILED = 2;
+    public static final int STATUS_WAITING = 3;
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private String captureKey;
+    private String kind;
+    private String userId;
+    private String orderId;
+    private String zone;
+    private String store;
+    private String address;
+    private double tipAmount;
+    private Date completedAt;
+    private int status;
+    private int attempts;
+    private Date createdAt;
+
+    /**
+     * Create an order capture from the screen reader
+     *
+     * @param userId User ID
+     * @param orderId Order ID
+     * @param zone Zone, or null
+     * @param store Store, or null
+     * @param address Delivery address, or null
+     * @return New pending capture
+     */
+    public static CaptureEntity order(String userId, String orderId, String zone, String store, String address) {
+        CaptureEntity capture = pending(KIND_ORDER, userId, orderId);
+        capture.setZone(zone);
+        capture.setStore(store);
+        capture.setAddress(address);
+        return capture;
+    }
+
+    /**
+     * Create a tip capture from a notification
+     *
+     * @param userId User ID
+     * @param orderId Order ID
+     * @param tipAmount Tip amount
+     * @return New pending capture
+     */
+    public static CaptureEntity tip(String userId, String orderId, double tipAmount) {
+        CaptureEntity capture = pending(KIND_TIP, userId, orderId);
+        capture.setTipAmount(tipAmount);
+        return capture;
+    }
+
+    /**
+     * Create a delivery completion capture from the screen reader
+     *
+     * @param userId User ID
+     * @param orderId Order ID
+     * @param zone Zone, or null
+     * @param store Store, or null
+     * @param address Delivery address, or null
+     * @param completedAt When the delivery was completed
+     * @return New pending capture
+     */
+    public static CaptureEntity completion(String userId, String orderId, String zone, String store,
+                                           String address, Date completedAt) {
+        CaptureEntity capture = order(userId, orderId, zone, store, address);
+        capture.setKind(KIND_COMPLETION);
+        capture.setCaptureKey(key(KIND_COMPLETION, userId, orderId));
+        capture.setCompletedAt(completedAt);
+        return capture;
+    }
+
+    /**
+     * Get the key that identifies an event, so repeats of it replace each other
+     *
+     * @param kind Capture kind
+     * @param userId User ID
+     * @param orderId Order ID
+     * @return Capture key
+     */
+    public static String key(String kind, String userId, String orderId) {
+        return kind + ":" + userId + ":" + orderId;
+    }
+
+    private static CaptureEntity pending(String kind, String userId, String orderId) {
+        CaptureEntity capture = new CaptureEntity();
+        capture.setCaptureKey(key(kind, userId, orderId));
+        capture.setKind(kind);
+        capture.setUserId(userId);
+        capture.setOrderId(orderId);
+        capture.setStatus(STATUS_PENDING);
+        capture.setCreatedAt(new Date());
+        return capture;
+    }
+
+    /**
+     * Get the location text for the capture: the address if captured, otherwise
+     * store and zone
+     *
+     * @return Location text, or null if none was captured
+     */
+    public String getLocation() {
+        if (address != null && !address.isEmpty()) {
+            return address;
+        }
+        if (store != null && zone != null) {
+            return store + " - " + zone;
+        }
+        return store != null ? store : zone;
+    }
+
+    // Getters and setters
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getCaptureKey() {
+        return captureKey;
+    }
+
+    public void setCaptureKey(String captureKey) {
+        this.captureKey = captureKey;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public double getTipAmount() {
+        return tipAmount;
+    }
+
+    public void setTipAmount(double tipAmount) {
+        this.tipAmount = tipAmount;
+    }
+
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Date completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,66 @@
+package com.autogratuity.data.local;
+
+/**
+ * Delivery aggregates for one local calendar day, as returned by
+ * {@link DeliveryDao#getDailyStats}.
+ */
+public class DailyDeliveryStats {
+
+    // Local date as yyyy-MM-dd
+    private String day;
+    private int deliveryCount;
+    private int tipCount;
+    private double tipTotal;
+    private double maxTip;
+    private int pendingCount;
+
+    // Getters and setters
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    public void setDeliveryCount(int deliveryCount) {
+        this.deliveryCount = deliveryCount;
+    }
+
+    public int getTipCount() {
+        return tipCount;
+    }
+
+    public void setTipCount(int tipCount) {
+        this.tipCount = tipCount;
+    }
+
+    public double getTipTotal() {
+        return tipTotal;
+    }
+
+    public void setTipTotal(double tipTotal) {
+        this.tipTotal = tipTotal;
+    }
+
+    public double getMaxTip() {
+        return maxTip;
+    }
+
+    public void setMaxTip(double maxTip) {
+        this.maxTip = maxTip;
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public void setPendingCount(int pendingCount) {
+        this.pendingCount = pendingCount;
+    }
+}
@@ -0,0 +1,32 @@
+package com.autogratuity.data.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for the batch DAO methods.
+ */
+final class DaoBatches {
+
+    /**
+     * Bind parameters per statement, below SQLite's default limit of 999.
+     */
+    static final int MAX_BIND_PARAMS = 900;
+
+    private DaoBatches() {
+    }
+
+    /**
+     * Split a list into consecutive chunks that fit in one statement's bind parameters.
+     *
+     * @param items Items to split
+     * @return Views of the list, each at most {@link #MAX_BIND_PARAMS} long
+     */
+    static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += MAX_BIND_PARAMS) {
+            chunks.add(items.subList(start, Math.min(items.size(), start + MAX_BIND_PARAMS)));
+        }
+        return chunks;
+    }
+}
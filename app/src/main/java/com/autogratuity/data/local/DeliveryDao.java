@@ -1,14 +1,21 @@
 package com.autogratuity.data.local;
 
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Flowable;
 
 /**
  * Data Access Object for Room database operations with DeliveryEntity
@@ -16,18 +23,39 @@ import java.util.List;
 @Dao
 public interface DeliveryDao {
     
+    // Day buckets in device-local time, matching the calendar used by the dashboard
+    String DAILY_STATS_QUERY = "SELECT strftime('%Y-%m-%d', deliveryDate / 1000, 'unixepoch', 'localtime') AS day, " +
+            "COUNT(*) AS deliveryCount, " +
+            "SUM(CASE WHEN tipAmount > 0 THEN 1 ELSE 0 END) AS tipCount, " +
+            "TOTAL(tipAmount) AS tipTotal, MAX(tipAmount) AS maxTip, " +
+            "SUM(CASE WHEN completed = 0 THEN 1 ELSE 0 END) AS pendingCount " +
+            "FROM deliveries WHERE userId = :userId AND deliveryDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY day ORDER BY day DESC";
+    
     /**
      * Insert a new delivery entity
      */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     long insert(DeliveryEntity delivery);
     
+    /**
+     * Insert delivery entities with one compiled statement
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    List<Long> insertAll(List<DeliveryEntity> deliveries);
+    
     /**
      * Update an existing delivery entity
      */
     @Update
     void update(DeliveryEntity delivery);
     
+    /**
+     * Update existing delivery entities with one compiled statement
+     */
+    @Update
+    void updateAll(List<DeliveryEntity> deliveries);
+    
     /**
      * Delete a delivery entity
      */
@@ -46,12 +74,68 @@ public interface DeliveryDao {
     @Query("SELECT * FROM deliveries WHERE orderId = :orderId AND userId = :userId LIMIT 1")
     DeliveryEntity getByOrderId(String orderId, String userId);
     
+    /**
+     * Get a delivery by its Firestore document ID
+     */
+    @Query("SELECT * FROM deliveries WHERE documentId = :documentId LIMIT 1")
+    DeliveryEntity getByDocumentId(String documentId);
+    
+    /**
+     * Get deliveries for a user within a date range, newest first
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId AND deliveryDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY deliveryDate DESC")
+    List<DeliveryEntity> getForUserInRange(String userId, Date startDate, Date endDate);
+    
+    /**
+     * Get deliveries for a user at an address, newest first
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId AND addressId = :addressId ORDER BY deliveryDate DESC")
+    List<DeliveryEntity> getForAddress(String userId, String addressId);
+    
+    /**
+     * Get the document IDs of a user's deliveries with local changes not yet synced
+     */
+    @Query("SELECT documentId FROM deliveries WHERE userId = :userId AND isDirty = 1")
+    List<String> getDirtyDocumentIds(String userId);
+    
+    /**
+     * Observe recent deliveries for a specific user
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId ORDER BY deliveryDate DESC LIMIT :limit")
+    Flowable<List<DeliveryEntity>> observeRecentDeliveries(String userId, int limit);
+    
+    /**
+     * Observe deliveries for a user within a date range, newest first
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId AND deliveryDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY deliveryDate DESC")
+    Flowable<List<DeliveryEntity>> observeForUserInRange(String userId, Date startDate, Date endDate);
+    
+    /**
+     * Observe deliveries for a user at an address, newest first
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId AND addressId = :addressId ORDER BY deliveryDate DESC")
+    Flowable<List<DeliveryEntity>> observeForAddress(String userId, String addressId);
+    
+    /**
+     * Observe a delivery by its Firestore document ID (empty list if not stored)
+     */
+    @Query("SELECT * FROM deliveries WHERE documentId = :documentId LIMIT 1")
+    Flowable<List<DeliveryEntity>> observeByDocumentId(String documentId);
+    
     /**
      * Get recent deliveries for a specific user
      */
     @Query("SELECT * FROM deliveries WHERE userId = :userId ORDER BY deliveryDate DESC LIMIT :limit")
     List<DeliveryEntity> getRecentDeliveries(String userId, int limit);
     
+    /**
+     * Page through a user's deliveries, newest first. Invalidated whenever the table changes.
+     */
+    @Query("SELECT * FROM deliveries WHERE userId = :userId ORDER BY deliveryDate DESC")
+    PagingSource<Integer, DeliveryEntity> pagingSourceForUser(String userId);
+    
     /**
      * Get all dirty deliveries that need to be synced
      */
@@ -65,10 +149,35 @@ public interface DeliveryDao {
     List<DeliveryEntity> getDeliveriesWithoutTips(String userId, Date cutoffDate);
     
     /**
-     * Get deliveries by address containing a search term
+     * Per-day delivery aggregates for a user, newest day first. The date range is served by
+     * the (userId, deliveryDate) index, so only the rows in range are read.
+     */
+    @Query(DAILY_STATS_QUERY)
+    List<DailyDeliveryStats> getDailyStats(String userId, Date startDate, Date endDate);
+    
+    /**
+     * Observe per-day delivery aggregates for a user, newest day first
      */
-    @Query("SELECT * FROM deliveries WHERE userId = :userId AND address LIKE '%' || :searchTerm || '%'")
-    List<DeliveryEntity> searchByAddress(String userId, String searchTerm);
+    @Query(DAILY_STATS_QUERY)
+    Flowable<List<DailyDeliveryStats>> observeDailyStats(String userId, Date startDate, Date endDate);
+    
+    /**
+     * Full-text search over address, notes, tags, store and zone.
+     * Returns every match as its row ID and match info only, so all matches are ranked
+     * with {@link FtsSearch#topIds} before any row is loaded.
+     *
+     * @param query MATCH expression, see {@link FtsSearch#prefixQuery}
+     */
+    @Query("SELECT deliveries.id AS id, matchinfo(deliveries_fts, 'pcx') AS matchInfo FROM deliveries_fts " +
+            "JOIN deliveries ON deliveries.id = deliveries_fts.rowid " +
+            "WHERE deliveries_fts MATCH :query AND deliveries.userId = :userId")
+    List<FtsSearch.Match> search(String userId, String query);
+    
+    /**
+     * Get deliveries by row ID
+     */
+    @Query("SELECT * FROM deliveries WHERE id IN (:ids)")
+    List<DeliveryEntity> getByIds(List<Long> ids);
     
     /**
      * Delete all deliveries for a specific user
@@ -76,6 +185,12 @@ public interface DeliveryDao {
     @Query("DELETE FROM deliveries WHERE userId = :userId")
     void deleteAllForUser(String userId);
     
+    /**
+     * Delete deliveries by Firestore document ID
+     */
+    @Query("DELETE FROM deliveries WHERE documentId IN (:documentIds)")
+    void deleteByDocumentIds(List<String> documentIds);
+    
     /**
      * Update the tip amount for a delivery
      */
@@ -87,4 +202,81 @@ public interface DeliveryDao {
      */
     @Query("UPDATE deliveries SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE id = :id")
     void markSynced(long id, Date lastSyncTime);
+    
+    /**
+     * Mark a delivery as synced by its Firestore document ID
+     */
+    @Query("UPDATE deliveries SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE documentId = :documentId")
+    void markSyncedByDocumentId(String documentId, Date lastSyncTime);
+    
+    /**
+     * Mark deliveries as synced by Firestore document ID
+     */
+    @Query("UPDATE deliveries SET isDirty = 0, lastSyncTime = :lastSyncTime WHERE documentId IN (:documentIds)")
+    void markSyncedByDocumentIds(List<String> documentIds, Date lastSyncTime);
+    
+    /**
+     * Get deliveries by Firestore document ID
+     */
+    @Query("SELECT * FROM deliveries WHERE documentId IN (:documentIds)")
+    List<DeliveryEntity> getByDocumentIds(List<String> documentIds);
+    
+    /**
+     * Insert or update deliveries by document ID in a single transaction.
+     * Existing rows keep their row ID, so the FTS index is maintained by the update
+     * triggers, and keep the columns the delivery document does not carry.
+     * 
+     * @param deliveries Entities keyed by documentId
+     */
+    @Transaction
+    default void upsertAll(List<DeliveryEntity> deliveries) {
+        Map<String, DeliveryEntity> byDocumentId = new HashMap<>();
+        for (DeliveryEntity delivery : deliveries) {
+            byDocumentId.put(delivery.getDocumentId(), delivery);
+        }
+        
+        List<DeliveryEntity> updates = new ArrayList<>();
+        for (List<String> chunk : DaoBatches.chunks(new ArrayList<>(byDocumentId.keySet()))) {
+            for (DeliveryEntity existing : getByDocumentIds(chunk)) {
+                DeliveryEntity entity = byDocumentId.remove(existing.getDocumentId());
+                entity.setId(existing.getId());
+                if (entity.getStore() == null) {
+                    entity.setStore(existing.getStore());
+                }
+                if (entity.getZone() == null) {
+                    entity.setZone(existing.getZone());
+                }
+                if (entity.getLocation() == null) {
+                    entity.setLocation(existing.getLocation());
+                }
+                if (entity.getCoordinates() == null) {
+                    entity.setCoordinates(existing.getCoordinates());
+                }
+                if (entity.getImportDate() == null) {
+                    entity.setImportDate(existing.getImportDate());
+                }
+                updates.add(entity);
+            }
+        }
+        
+        if (!updates.isEmpty()) {
+            updateAll(updates);
+        }
+        if (!byDocumentId.isEmpty()) {
+            insertAll(new ArrayList<>(byDocumentId.values()));
+        }
+    }
+    
+    /**
+     * Mark deliveries as synced in a single transaction
+     * 
+     * @param documentIds Firestore document IDs
+     * @param lastSyncTime Sync time to record
+     */
+    @Transaction
+    default void markSyncedBatch(List<String> documentIds, Date lastSyncTime) {
+        for (List<String> chunk : DaoBatches.chunks(documentIds)) {
+            markSyncedByDocumentIds(chunk, lastSyncTime);
+        }
+    }
 }
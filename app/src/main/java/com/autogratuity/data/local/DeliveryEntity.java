@@ -1,15 +1,29 @@
 package com.autogratuity.data.local;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import java.util.Date;
 
 /**
- * Room entity for local caching of delivery data
+ * Room entity for local caching of delivery data.
+ * The indexed columns are denormalized for queries; {@code jsonData} holds the full
+ * delivery document so reads can be served from Room without Firestore.
+ * The text columns are indexed for full-text search by {@link DeliveryFtsEntity};
+ * {@code tags} is stored space-separated.
  */
-@Entity(tableName = "deliveries")
+@Entity(tableName = "deliveries",
+        indices = {
+                @Index(value = {"documentId"}, unique = true),
+                @Index({"userId", "deliveryDate"}),
+                @Index({"userId", "orderId"}),
+                @Index({"userId", "addressId", "deliveryDate"}),
+                @Index({"userId", "tipAmount", "deliveryDate"}),
+                @Index({"isDirty", "userId"})
+        })
 @TypeConverters(Converters.class)
 public class DeliveryEntity {
     
@@ -20,15 +34,23 @@ public class DeliveryEntity {
     private String orderId;
     private String address;
     private double tipAmount;
+    @ColumnInfo(defaultValue = "0")
+    private double payAmount;
     private Date deliveryDate;
     private Date tipDate;
     private boolean doNotDeliver;
+    @ColumnInfo(defaultValue = "1")
+    private boolean completed;
     private String zone;
     private String store;
     private String location;
     private String source;
     private String userId;
     private String coordinates;
+    private String addressId;
+    private String notes;
+    private String tags;
+    private String jsonData;
     private Date importDate;
     private boolean isDirty;
     private Date lastSyncTime;
@@ -75,6 +97,14 @@ public class DeliveryEntity {
         this.tipAmount = tipAmount;
     }
     
+    public double getPayAmount() {
+        return payAmount;
+    }
+    
+    public void setPayAmount(double payAmount) {
+        this.payAmount = payAmount;
+    }
+    
     public Date getDeliveryDate() {
         return deliveryDate;
     }
@@ -99,6 +129,14 @@ public class DeliveryEntity {
         this.doNotDeliver = doNotDeliver;
     }
     
+    public boolean isCompleted() {
+        return completed;
+    }
+    
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+    
     public String getZone() {
         return zone;
     }
@@ -147,6 +185,38 @@ public class DeliveryEntity {
         this.coordinates = coordinates;
     }
     
+    public String getAddressId() {
+        return addressId;
+    }
+    
+    public void setAddressId(String addressId) {
+        this.addressId = addressId;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+    
+    public String getTags() {
+        return tags;
+    }
+    
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+    
+    public String getJsonData() {
+        return jsonData;
+    }
+    
+    public void setJsonData(String jsonData) {
+        this.jsonData = jsonData;
+    }
+    
     public Date getImportDate() {
         return importDate;
     }
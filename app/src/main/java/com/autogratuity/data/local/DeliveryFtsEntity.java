@@ -0,0 +1,80 @@
+package com.autogratuity.data.local;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * FTS4 index over the searchable text of {@link DeliveryEntity}.
+ * This is an external-content table: it stores only the index, and Room's content-sync
+ * triggers keep it in step with inserts, updates and deletes on {@code deliveries}.
+ * Prefix indices of 2 and 3 characters keep type-ahead queries fast.
+ */
+@Fts4(contentEntity = DeliveryEntity.class,
+        tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        prefix = {2, 3})
+@Entity(tableName = "deliveries_fts")
+public class DeliveryFtsEntity {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    private String address;
+    private String notes;
+    private String tags;
+    private String store;
+    private String zone;
+
+    // Getters and setters
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+}
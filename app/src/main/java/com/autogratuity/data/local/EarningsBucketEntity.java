@@ -0,0 +1,87 @@
+package com.autogratuity.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import com.autogratuity.data.model.EarningsBucket;
+
+/**
+ * Earnings aggregated per hour or per local day for one user.
+ * Maintained by triggers on {@code deliveries}, see {@link EarningsSeries}; the primary
+ * key serves date-range reads of one resolution in bucket order.
+ */
+@Entity(tableName = "earnings_buckets",
+        primaryKeys = {"userId", "resolution", "bucketStart"})
+public class EarningsBucketEntity {
+
+    @NonNull
+    private String userId = "";
+    @NonNull
+    private String resolution = EarningsBucket.RESOLUTION_DAY;
+    // Bucket start in epoch milliseconds
+    private long bucketStart;
+    private int deliveryCount;
+    private int tipCount;
+    private double tipTotal;
+    private double payTotal;
+
+    // Getters and setters
+
+    @NonNull
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(@NonNull String userId) {
+        this.userId = userId;
+    }
+
+    @NonNull
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(@NonNull String resolution) {
+        this.resolution = resolution;
+    }
+
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(long bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    public void setDeliveryCount(int deliveryCount) {
+        this.deliveryCount = deliveryCount;
+    }
+
+    public int getTipCount() {
+        return tipCount;
+    }
+
+    public void setTipCount(int tipCount) {
+        this.tipCount = tipCount;
+    }
+
+    public double getTipTotal() {
+        return tipTotal;
+    }
+
+    public void setTipTotal(double tipTotal) {
+        this.tipTotal = tipTotal;
+    }
+
+    public double getPayTotal() {
+        return payTotal;
+    }
+
+    public void setPayTotal(double payTotal) {
+        this.payTotal = payTotal;
+    }
+}
@@ -0,0 +1,46 @@
+package com.autogratuity.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+import io.reactivex.Flowable;
+
+/**
+ * Data Access Object for the earnings time series. Buckets are written only by the
+ * triggers on {@code deliveries} (see {@link EarningsSeries}), so this DAO just reads
+ * and prunes.
+ */
+@Dao
+public interface EarningsDao {
+
+    /**
+     * Get a user's buckets of one resolution starting within a range, oldest first
+     */
+    @Query("SELECT * FROM earnings_buckets WHERE userId = :userId AND resolution = :resolution " +
+           "AND bucketStart BETWEEN :start AND :end ORDER BY bucketStart ASC")
+    List<EarningsBucketEntity> getBuckets(String userId, String resolution, long start, long end);
+
+    /**
+     * Observe a user's buckets of one resolution starting within a range, oldest first
+     */
+    @Query("SELECT * FROM earnings_buckets WHERE userId = :userId AND resolution = :resolution " +
+           "AND bucketStart BETWEEN :start AND :end ORDER BY bucketStart ASC")
+    Flowable<List<EarningsBucketEntity>> observeBuckets(String userId, String resolution, long start, long end);
+
+    /**
+     * Sum a user's buckets of one resolution starting within a range into a single row
+     */
+    @Query("SELECT :userId AS userId, :resolution AS resolution, :start AS bucketStart, " +
+           "COALESCE(SUM(deliveryCount), 0) AS deliveryCount, COALESCE(SUM(tipCount), 0) AS tipCount, " +
+           "TOTAL(tipTotal) AS tipTotal, TOTAL(payTotal) AS payTotal FROM earnings_buckets " +
+           "WHERE userId = :userId AND resolution = :resolution AND bucketStart BETWEEN :start AND :end")
+    EarningsBucketEntity getTotal(String userId, String resolution, long start, long end);
+
+    /**
+     * Delete hour buckets that start before a cutoff; the day buckets already hold them
+     */
+    @Query("DELETE FROM earnings_buckets WHERE resolution = 'hour' AND bucketStart < :cutoff")
+    int pruneHourly(long cutoff);
+}
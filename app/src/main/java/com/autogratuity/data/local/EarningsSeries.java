@@ -0,0 +1,139 @@
+package com.autogratuity.data.local;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.autogratuity.data.model.EarningsBucket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema and retention for the earnings time series in {@link EarningsBucketEntity}.
+ * <p>
+ * Triggers on {@code deliveries} add each row's tip and pay to its hour and day buckets
+ * and take them back out when the row changes or is deleted, so the series follows every
+ * write path without the DAOs having to know about it. Day buckets keep the full
+ * history; hour buckets are only kept for {@link #HOUR_RETENTION_DAYS}, after which the
+ * day buckets already hold their rollup and the hours are simply pruned.
+ */
+public final class EarningsSeries {
+
+    /**
+     * Days of hour-resolution history kept.
+     */
+    public static final int HOUR_RETENTION_DAYS = 14;
+
+    private static final String TABLE = "earnings_buckets";
+
+    private EarningsSeries() {
+    }
+
+    /**
+     * Start of the oldest hour bucket kept at a given time.
+     *
+     * @param nowMs Current time in epoch milliseconds
+     * @return Cutoff in epoch milliseconds
+     */
+    public static long hourCutoff(long nowMs) {
+        return nowMs - TimeUnit.DAYS.toMillis(HOUR_RETENTION_DAYS);
+    }
+
+    /**
+     * Create the triggers that keep the series in step with {@code deliveries}.
+     * Room does not manage custom triggers, so this runs on creation and in migrations.
+     *
+     * @param db Database
+     */
+    static void createTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `earnings_deliveries_AFTER_INSERT` " +
+                "AFTER INSERT ON `deliveries` BEGIN " + add("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `earnings_deliveries_AFTER_UPDATE` " +
+                "AFTER UPDATE OF `userId`, `deliveryDate`, `tipAmount`, `payAmount` ON `deliveries` BEGIN " +
+                remove("OLD") + add("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `earnings_deliveries_AFTER_DELETE` " +
+                "AFTER DELETE ON `deliveries` BEGIN " + remove("OLD") + "END");
+    }
+
+    /**
+     * Rebuild the series from the stored deliveries.
+     *
+     * @param db Database
+     */
+    static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM `" + TABLE + "`");
+        db.execSQL(rebuildStatement(EarningsBucket.RESOLUTION_DAY, dayStart("")));
+        db.execSQL(rebuildStatement(EarningsBucket.RESOLUTION_HOUR, hourStart("")) +
+                " HAVING `bucketStart` >= " + cutoffSql());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // SQL
+    //-----------------------------------------------------------------------------------
+
+    // UTC hour; exact for every whole-hour time zone
+    private static String hourStart(String row) {
+        return "((" + column(row, "deliveryDate") + " / 3600000) * 3600000)";
+    }
+
+    // Local midnight, matching the day keys of the dashboard stats
+    private static String dayStart(String row) {
+        return "(CAST(strftime('%s', " + column(row, "deliveryDate") + " / 1000, 'unixepoch', " +
+                "'localtime', 'start of day', 'utc') AS INTEGER) * 1000)";
+    }
+
+    private static String cutoffSql() {
+        return "((CAST(strftime('%s', 'now') AS INTEGER) - " +
+                TimeUnit.DAYS.toSeconds(HOUR_RETENTION_DAYS) + ") * 1000)";
+    }
+
+    private static String column(String row, String column) {
+        return row.isEmpty() ? "`" + column + "`" : row + ".`" + column + "`";
+    }
+
+    private static String add(String row) {
+        return ensureBucket(row, EarningsBucket.RESOLUTION_HOUR, hourStart(row), true)
+                + adjust(row, EarningsBucket.RESOLUTION_HOUR, hourStart(row), "+")
+                + ensureBucket(row, EarningsBucket.RESOLUTION_DAY, dayStart(row), false)
+                + adjust(row, EarningsBucket.RESOLUTION_DAY, dayStart(row), "+");
+    }
+
+    private static String remove(String row) {
+        return adjust(row, EarningsBucket.RESOLUTION_HOUR, hourStart(row), "-")
+                + prune(row, EarningsBucket.RESOLUTION_HOUR, hourStart(row))
+                + adjust(row, EarningsBucket.RESOLUTION_DAY, dayStart(row), "-")
+                + prune(row, EarningsBucket.RESOLUTION_DAY, dayStart(row));
+    }
+
+    // NOT NULL violations (no user or date) are ignored, so such rows are never bucketed
+    private static String ensureBucket(String row, String resolution, String bucket, boolean retained) {
+        return "INSERT OR IGNORE INTO `" + TABLE + "` (`userId`, `resolution`, `bucketStart`, " +
+                "`deliveryCount`, `tipCount`, `tipTotal`, `payTotal`) SELECT " + column(row, "userId") +
+                ", '" + resolution + "', " + bucket + ", 0, 0, 0, 0" +
+                (retained ? " WHERE " + bucket + " >= " + cutoffSql() : "") + "; ";
+    }
+
+    private static String adjust(String row, String resolution, String bucket, String sign) {
+        return "UPDATE `" + TABLE + "` SET " +
+                "`deliveryCount` = `deliveryCount` " + sign + " 1, " +
+                "`tipCount` = `tipCount` " + sign + " (CASE WHEN " + column(row, "tipAmount") + " > 0 THEN 1 ELSE 0 END), " +
+                "`tipTotal` = `tipTotal` " + sign + " " + column(row, "tipAmount") + ", " +
+                "`payTotal` = `payTotal` " + sign + " " + column(row, "payAmount") + " " +
+                where(row, resolution, bucket) + "; ";
+    }
+
+    private static String prune(String row, String resolution, String bucket) {
+        return "DELETE FROM `" + TABLE + "` " + where(row, resolution, bucket) + " AND `deliveryCount` <= 0; ";
+    }
+
+    private static String where(String row, String resolution, String bucket) {
+        return "WHERE `userId` = " + column(row, "userId") + " AND `resolution` = '" + resolution +
+                "' AND `bucketStart` = " + bucket;
+    }
+
+    private static String rebuildStatement(String resolution, String bucket) {
+        return "INSERT INTO `" + TABLE + "` (`userId`, `resolution`, `bucketStart`, `deliveryCount`, " +
+                "`tipCount`, `tipTotal`, `payTotal`) SELECT `userId`, '" + resolution + "', " + bucket +
+                " AS `bucketStart`, COUNT(*), SUM(CASE WHEN `tipAmount` > 0 THEN 1 ELSE 0 END), " +
+                "TOTAL(`tipAmount`), TOTAL(`payAmount`) FROM `deliveries` " +
+                "WHERE `userId` IS NOT NULL AND `deliveryDate` IS NOT NULL GROUP BY `userId`, `bucketStart`";
+    }
+}
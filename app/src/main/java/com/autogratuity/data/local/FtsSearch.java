@@ -0,0 +1,117 @@
+package com.autogratuity.data.local;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Query building and ranking for the FTS4 tables.
+ * <p>
+ * FTS4 has no built-in relevance function, so search queries select
+ * {@code matchinfo(<table>, 'pcx')} and rows are scored here with the column-weighted
+ * term-frequency rank from the SQLite FTS documentation. Searches select only the row ID
+ * and match info of every match, rank them all, and load just the top rows.
+ */
+public final class FtsSearch {
+
+    /**
+     * Row ID of a matching row with its match info
+     */
+    public static final class Match {
+        public long id;
+
+        public byte[] matchInfo;
+    }
+
+    private FtsSearch() {
+    }
+
+    /**
+     * Build a prefix MATCH expression from free text. Every token must match
+     * ({@code 123 mai} becomes {@code 123* mai*}); FTS operators and quotes in the input
+     * are treated as separators.
+     *
+     * @param text User input
+     * @return MATCH expression, or null if the input has no searchable tokens
+     */
+    public static String prefixQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        StringBuilder query = new StringBuilder();
+        for (String token : text.toLowerCase(Locale.US).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(token).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Score a row from its {@code matchinfo(..., 'pcx')} blob. Each phrase hit in a column
+     * contributes the column weight times the share of that phrase's hits this row holds.
+     *
+     * @param matchInfo matchinfo blob
+     * @param weights Weight per FTS column, in declaration order
+     * @return Relevance score; higher is better
+     */
+    public static double rank(byte[] matchInfo, double[] weights) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        double score = 0;
+
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 2 + (phrase * columns + column) * 3;
+                if (base + 1 >= info.limit()) {
+                    return score;
+                }
+                int hitsInRow = info.get(base);
+                int hitsInAllRows = info.get(base + 1);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = column < weights.length ? weights[column] : 1.0;
+                    score += weight * ((double) hitsInRow / hitsInAllRows);
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Rank matches and keep the best. Ties keep the order the matches came in.
+     *
+     * @param matches Every match of the query
+     * @param weights Weight per FTS column, in declaration order
+     * @param limit Maximum number of row IDs to return
+     * @return Row IDs of the best matches, best first
+     */
+    public static List<Long> topIds(List<Match> matches, double[] weights, int limit) {
+        double[] scores = new double[matches.size()];
+        List<Integer> order = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            scores[i] = rank(matches.get(i).matchInfo, weights);
+            order.add(i);
+        }
+        Collections.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, order.size()));
+        for (int i = 0; i < order.size() && i < limit; i++) {
+            ids.add(matches.get(order.get(i)).id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,1042 @@
+package com.autogratuity.data.local;
+
+import android.content.Context;
+
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingSource;
+
+import com.autogratuity.data.model.Address;
+import com.autogratuity.data.model.Delivery;
+import com.autogratuity.data.model.DeliveryStats;
+import com.autogratuity.data.model.EarningsBucket;
+import com.autogratuity.data.repository.utils.RepositoryConstants;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * Room-backed single source of truth for deliveries and addresses.
+ * <p>
+ * Repositories read from Room through {@code Flowable} queries, so the UI paints from local
+ * SQLite immediately and re-emits whenever a row changes. Firestore results and listener
+ * snapshots are written through in one transaction per batch. Rows with local changes that
+ * have not been synced yet ({@code isDirty}) are never overwritten by remote data; they are
+ * marked synced once the outbox commits them.
+ */
+public class LocalDataStore {
+
+    // Search column weights, in FTS column order
+    private static final double[] DELIVERY_WEIGHTS = {3.0, 1.0, 2.0, 1.5, 1.0};
+    private static final double[] ADDRESS_WEIGHTS = {3.0, 1.0, 2.0};
+
+    private static volatile LocalDataStore instance;
+
+    private final AppDatabase database;
+    private final DeliveryDao deliveryDao;
+    private final AddressDao addressDao;
+    private final EarningsDao earningsDao;
+    private final CaptureDao captureDao;
+    private final NotificationLogDao notificationLogDao;
+    private final Subject<Integer> tipsReady = PublishSubject.<Integer>create().toSerialized();
+    private final Executor pageMappingExecutor = command -> Schedulers.computation().scheduleDirect(command);
+
+    private LocalDataStore(Context context) {
+        this.database = AppDatabase.getInstance(context);
+        this.deliveryDao = database.deliveryDao();
+        this.addressDao = database.addressDao();
+        this.earningsDao = database.earningsDao();
+        this.captureDao = database.captureDao();
+        this.notificationLogDao = database.notificationLogDao();
+    }
+
+    /**
+     * Get the singleton instance of the store
+     *
+     * @param context Android context
+     * @return LocalDataStore instance
+     */
+    public static LocalDataStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LocalDataStore.class) {
+                if (instance == null) {
+                    instance = new LocalDataStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Delivery reads
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Observe a user's most recent deliveries.
+     *
+     * @param userId User ID
+     * @param limit Maximum number of deliveries
+     * @return Flowable that emits on every change to the underlying rows
+     */
+    public Flowable<List<Delivery>> observeRecentDeliveries(String userId, int limit) {
+        return deliveryDao.observeRecentDeliveries(userId, limit).map(LocalDataStore::toDeliveries);
+    }
+
+    /**
+     * Observe a user's deliveries within a date range.
+     *
+     * @param userId User ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Flowable that emits on every change to the underlying rows
+     */
+    public Flowable<List<Delivery>> observeDeliveriesInRange(String userId, Date startDate, Date endDate) {
+        return deliveryDao.observeForUserInRange(userId, startDate, endDate).map(LocalDataStore::toDeliveries);
+    }
+
+    /**
+     * Observe a user's deliveries at an address.
+     *
+     * @param userId User ID
+     * @param addressId Address ID
+     * @return Flowable that emits on every change to the underlying rows
+     */
+    public Flowable<List<Delivery>> observeDeliveriesForAddress(String userId, String addressId) {
+        return deliveryDao.observeForAddress(userId, addressId).map(LocalDataStore::toDeliveries);
+    }
+
+    /**
+     * Observe a single delivery. Nothing is emitted while the delivery is not stored.
+     *
+     * @param deliveryId Delivery ID
+     * @return Flowable that emits on every change to the row
+     */
+    public Flowable<Delivery> observeDelivery(String deliveryId) {
+        return deliveryDao.observeByDocumentId(deliveryId)
+                .map(LocalDataStore::toDeliveries)
+                .filter(deliveries -> !deliveries.isEmpty())
+                .map(deliveries -> deliveries.get(0));
+    }
+
+    /**
+     * Get a user's most recent deliveries.
+     *
+     * @param userId User ID
+     * @param limit Maximum number of deliveries
+     * @return Single that emits the stored deliveries (possibly empty)
+     */
+    public Single<List<Delivery>> getRecentDeliveries(String userId, int limit) {
+        return Single.fromCallable(() -> toDeliveries(deliveryDao.getRecentDeliveries(userId, limit)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get a user's deliveries within a date range.
+     *
+     * @param userId User ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Single that emits the stored deliveries (possibly empty)
+     */
+    public Single<List<Delivery>> getDeliveriesInRange(String userId, Date startDate, Date endDate) {
+        return Single.fromCallable(() -> toDeliveries(deliveryDao.getForUserInRange(userId, startDate, endDate)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get a user's deliveries at an address.
+     *
+     * @param userId User ID
+     * @param addressId Address ID
+     * @return Single that emits the stored deliveries (possibly empty)
+     */
+    public Single<List<Delivery>> getDeliveriesForAddress(String userId, String addressId) {
+        return Single.fromCallable(() -> toDeliveries(deliveryDao.getForAddress(userId, addressId)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get a single delivery.
+     *
+     * @param deliveryId Delivery ID
+     * @return Single that emits a list with the delivery, or an empty list if not stored
+     */
+    public Single<List<Delivery>> getDelivery(String deliveryId) {
+        return Single.fromCallable(() -> {
+                    List<Delivery> result = new ArrayList<>();
+                    Delivery delivery = toDelivery(deliveryDao.getByDocumentId(deliveryId));
+                    if (delivery != null) {
+                        result.add(delivery);
+                    }
+                    return result;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get a user's delivery for an order.
+     *
+     * @param userId User ID
+     * @param orderId Order ID
+     * @return Single that emits a list with the delivery, or an empty list if not stored
+     */
+    public Single<List<Delivery>> getDeliveryByOrderId(String userId, String orderId) {
+        return Single.fromCallable(() -> {
+                    List<Delivery> result = new ArrayList<>();
+                    Delivery delivery = toDelivery(deliveryDao.getByOrderId(orderId, userId));
+                    if (delivery != null) {
+                        result.add(delivery);
+                    }
+                    return result;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Delivery writes
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Write remote deliveries through to Room in a single transaction. Rows with unsynced
+     * local changes are left as they are.
+     *
+     * @param userId User the deliveries belong to
+     * @param upserts Deliveries added or modified remotely
+     * @param removedIds IDs of deliveries deleted remotely
+     * @return Completable that completes when the transaction commits
+     */
+    public Completable applyRemoteDeliveries(String userId, List<Delivery> upserts, List<String> removedIds) {
+        return Completable.fromAction(() -> announceTipsReady(database.runInTransaction(() -> {
+                    Set<String> dirty = new HashSet<>(deliveryDao.getDirtyDocumentIds(userId));
+                    Date now = new Date();
+
+                    int woken = 0;
+                    List<DeliveryEntity> entities = new ArrayList<>(upserts.size());
+                    for (Delivery delivery : upserts) {
+                        if (delivery.getDeliveryId() != null && !dirty.contains(delivery.getDeliveryId())) {
+                            entities.add(toEntity(delivery, false, now));
+                        }
+                    }
+                    if (!entities.isEmpty()) {
+                        deliveryDao.upsertAll(entities);
+                        woken = wakeWaitingTips(entities);
+                    }
+
+                    if (removedIds != null && !removedIds.isEmpty()) {
+                        List<String> removable = new ArrayList<>();
+                        for (String id : removedIds) {
+                            if (!dirty.contains(id)) {
+                                removable.add(id);
+                            }
+                        }
+                        if (!removable.isEmpty()) {
+                            deliveryDao.deleteByDocumentIds(removable);
+                        }
+                    }
+                    return woken;
+                })))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Store a delivery written by this device.
+     *
+     * @param delivery The delivery
+     * @param dirty true if the change is still queued for sync
+     * @return Completable that completes when the row is stored
+     */
+    public Completable saveDelivery(Delivery delivery, boolean dirty) {
+        return Completable.fromAction(() -> {
+                    if (delivery.getDeliveryId() != null) {
+                        List<DeliveryEntity> entities = Collections.singletonList(toEntity(delivery, dirty, new Date()));
+                        announceTipsReady(database.runInTransaction(() -> {
+                            deliveryDao.upsertAll(entities);
+                            return wakeWaitingTips(entities);
+                        }));
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Apply a tip change to a stored delivery. Does nothing if the delivery is not stored.
+     *
+     * @param deliveryId Delivery ID
+     * @param tipAmount New tip amount
+     * @param dirty true if the change is still queued for sync
+     * @return Completable that completes when the row is updated
+     */
+    public Completable updateDeliveryTip(String deliveryId, double tipAmount, boolean dirty) {
+        return Completable.fromAction(() -> database.runInTransaction(() -> {
+                    DeliveryEntity entity = deliveryDao.getByDocumentId(deliveryId);
+                    Delivery delivery = toDelivery(entity);
+                    if (delivery == null) {
+                        return;
+                    }
+
+                    Date now = new Date();
+                    if (delivery.getAmounts() == null) {
+                        delivery.setAmounts(new Delivery.Amounts());
+                    }
+                    delivery.getAmounts().setTipAmount(tipAmount);
+                    if (delivery.getStatus() == null) {
+                        delivery.setStatus(new Delivery.Status());
+                    }
+                    if (!delivery.getStatus().isTipped() && tipAmount > 0) {
+                        if (delivery.getTimes() == null) {
+                            delivery.setTimes(new Delivery.Times());
+                        }
+                        delivery.getTimes().setTippedAt(now);
+                    }
+                    delivery.getStatus().setTipped(tipAmount > 0);
+
+                    deliveryDao.upsertAll(Collections.singletonList(toEntity(delivery, dirty || entity.isDirty(), now)));
+                }))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Remove a delivery deleted by this device.
+     *
+     * @param deliveryId Delivery ID
+     * @return Completable that completes when the row is removed
+     */
+    public Completable deleteDelivery(String deliveryId) {
+        List<String> ids = new ArrayList<>();
+        ids.add(deliveryId);
+        return Completable.fromAction(() -> deliveryDao.deleteByDocumentIds(ids))
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Address reads
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Observe all of a user's addresses.
+     *
+     * @param userId User ID
+     * @return Flowable that emits on every change to the underlying rows
+     */
+    public Flowable<List<Address>> observeAddresses(String userId) {
+        return addressDao.observeAllForUser(userId).map(LocalDataStore::toAddresses);
+    }
+
+    /**
+     * Observe a single address. Nothing is emitted while the address is not stored.
+     *
+     * @param addressId Address ID
+     * @return Flowable that emits on every change to the row
+     */
+    public Flowable<Address> observeAddress(String addressId) {
+        return addressDao.observeByDocumentId(addressId)
+                .map(LocalDataStore::toAddresses)
+                .filter(addresses -> !addresses.isEmpty())
+                .map(addresses -> addresses.get(0));
+    }
+
+    /**
+     * Get all of a user's addresses.
+     *
+     * @param userId User ID
+     * @return Single that emits the stored addresses (possibly empty)
+     */
+    public Single<List<Address>> getAddresses(String userId) {
+        return Single.fromCallable(() -> toAddresses(addressDao.getAllForUser(userId)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get a single address.
+     *
+     * @param addressId Address ID
+     * @return Single that emits a list with the address, or an empty list if not stored
+     */
+    public Single<List<Address>> getAddress(String addressId) {
+        return Single.fromCallable(() -> {
+                    List<Address> result = new ArrayList<>();
+                    Address address = toAddress(addressDao.getByDocumentId(addressId));
+                    if (address != null) {
+                        result.add(address);
+                    }
+                    return result;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get an address by its normalized form.
+     *
+     * @param userId User ID
+     * @param normalizedAddress Normalized address
+     * @return Single that emits a list with the address, or an empty list if not stored
+     */
+    public Single<List<Address>> findAddressByNormalizedAddress(String userId, String normalizedAddress) {
+        return Single.fromCallable(() -> {
+                    List<Address> result = new ArrayList<>();
+                    Address address = toAddress(addressDao.getByNormalizedAddress(normalizedAddress, userId));
+                    if (address != null) {
+                        result.add(address);
+                    }
+                    return result;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get the address an order was delivered to.
+     *
+     * @param userId User ID
+     * @param orderId Order ID
+     * @return Single that emits a list with the address, or an empty list if not stored
+     */
+    public Single<List<Address>> findAddressByOrderId(String userId, String orderId) {
+        return Single.fromCallable(() -> {
+                    List<Address> result = new ArrayList<>();
+                    Address address = toAddress(addressDao.getByOrderId(userId, orderId));
+                    if (address != null) {
+                        result.add(address);
+                    }
+                    return result;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Aggregates
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Observe per-day delivery stats for a user, computed in SQL over the stored deliveries.
+     *
+     * @param userId User ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Flowable of stats keyed by local day ({@code yyyy-MM-dd}), newest day first
+     */
+    public Flowable<Map<String, DeliveryStats>> observeDailyStats(String userId, Date startDate, Date endDate) {
+        return deliveryDao.observeDailyStats(userId, startDate, endDate).map(LocalDataStore::toDailyStats);
+    }
+
+    /**
+     * Get a user's best tipping addresses, ranked from the per-address aggregate view.
+     *
+     * @param userId User ID
+     * @param limit Maximum number of addresses
+     * @return Single that emits the stored addresses (possibly empty)
+     */
+    public Single<List<Address>> getBestTippingAddresses(String userId, int limit) {
+        return Single.fromCallable(() -> toAddresses(addressDao.getBestTipping(userId, limit)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Observe a user's earnings time series over a range. Reads only the bucket rows, never
+     * the deliveries themselves.
+     *
+     * @param userId User ID
+     * @param resolution {@link EarningsBucket#RESOLUTION_HOUR} or {@link EarningsBucket#RESOLUTION_DAY}
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Flowable of buckets, oldest first; empty buckets are omitted
+     */
+    public Flowable<List<EarningsBucket>> observeEarnings(String userId, String resolution,
+                                                          Date startDate, Date endDate) {
+        return earningsDao.observeBuckets(userId, resolution, startDate.getTime(), endDate.getTime())
+                .map(LocalDataStore::toEarnings);
+    }
+
+    /**
+     * Sum a user's earnings over a range from the time series. Hour buckets are used while
+     * the range is within their retention, day buckets otherwise.
+     *
+     * @param userId User ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Single that emits the total, with the range start as its start
+     */
+    public Single<EarningsBucket> getEarningsTotal(String userId, Date startDate, Date endDate) {
+        return Single.fromCallable(() -> {
+                    String resolution = startDate.getTime() >= EarningsSeries.hourCutoff(System.currentTimeMillis())
+                            ? EarningsBucket.RESOLUTION_HOUR
+                            : EarningsBucket.RESOLUTION_DAY;
+                    return toEarnings(earningsDao.getTotal(userId, resolution, startDate.getTime(), endDate.getTime()));
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Capture queue
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Append a capture to the queue. A single insert, so capture services never wait on
+     * lookups or the network. A capture of the same event replaces the queued one.
+     *
+     * @param capture The capture
+     * @return Completable that completes when the row is stored
+     */
+    public Completable enqueueCapture(CaptureEntity capture) {
+        return Completable.fromAction(() -> captureDao.insert(capture))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Get the next batch of a user's pending captures, oldest first. Other users'
+     * captures stay queued until they sign in again.
+     *
+     * @param userId Signed-in user
+     * @param after Last capture of the previous batch, or null for the first batch
+     * @param limit Maximum number of captures
+     * @return Single that emits the batch (empty when the queue is drained)
+     */
+    public Single<List<CaptureEntity>> getPendingCaptures(String userId, CaptureEntity after, int limit) {
+        return Single.fromCallable(() -> captureDao.getBatch(userId, CaptureEntity.STATUS_PENDING,
+                        after != null ? after.getCreatedAt() : new Date(Long.MIN_VALUE),
+                        after != null ? after.getId() : Long.MIN_VALUE,
+                        limit))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Record the outcome of a processed batch in one transaction.
+     *
+     * @param doneIds Captures applied to the deliveries
+     * @param failedIds Captures that can never be applied
+     * @param waiting Tips whose delivery is not stored yet; parked until one is written
+     * @param retryIds Captures to try again on a later drain
+     * @param maxAttempts Attempts after which a retried capture is failed
+     * @return Completable that completes when the transaction commits
+     */
+    public Completable finishCaptures(List<Long> doneIds, List<Long> failedIds, List<CaptureEntity> waiting,
+                                      List<Long> retryIds, int maxAttempts) {
+        return Completable.fromAction(() -> database.runInTransaction(() -> {
+                    // A delivery stored since the tip was looked up has already passed the
+                    // wake-up, so such tips stay pending for the next drain
+                    List<Long> parkIds = new ArrayList<>();
+                    for (CaptureEntity capture : waiting) {
+                        if (deliveryDao.getByOrderId(capture.getOrderId(), capture.getUserId()) == null) {
+                            parkIds.add(capture.getId());
+                        }
+                    }
+                    if (!parkIds.isEmpty()) {
+                        captureDao.setStatus(parkIds, CaptureEntity.STATUS_WAITING);
+                    }
+                    if (!doneIds.isEmpty()) {
+                        captureDao.setStatus(doneIds, CaptureEntity.STATUS_DONE);
+                    }
+                    if (!failedIds.isEmpty()) {
+                        captureDao.setStatus(failedIds, CaptureEntity.STATUS_FAILED);
+                    }
+                    if (!retryIds.isEmpty()) {
+                        captureDao.recordAttempt(retryIds, maxAttempts);
+                    }
+                }))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Delete finished captures older than a cutoff.
+     *
+     * @param cutoff Creation time before which finished captures are deleted
+     * @return Completable that completes when the rows are deleted
+     */
+    public Completable pruneCaptures(Date cutoff) {
+        return Completable.fromAction(() -> captureDao.deleteFinishedBefore(cutoff))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Observe tips returned to the capture queue because their delivery was stored. Emits
+     * the number woken after each delivery write that woke any, so the capture processor
+     * can be run.
+     *
+     * @return Observable of woken tip counts
+     */
+    public Observable<Integer> observeTipsReady() {
+        return tipsReady;
+    }
+
+    // Probe each written delivery's tip key on the unique captureKey index. Runs inside
+    // the delivery write's transaction; the caller announces after it commits.
+    private int wakeWaitingTips(List<DeliveryEntity> entities) {
+        List<String> keys = new ArrayList<>();
+        for (DeliveryEntity entity : entities) {
+            if (entity.getOrderId() != null && entity.getUserId() != null) {
+                keys.add(CaptureEntity.key(CaptureEntity.KIND_TIP, entity.getUserId(), entity.getOrderId()));
+            }
+        }
+
+        int woken = 0;
+        for (List<String> chunk : DaoBatches.chunks(keys)) {
+            woken += captureDao.wakeWaiting(chunk);
+        }
+        return woken;
+    }
+
+    private void announceTipsReady(int woken) {
+        if (woken > 0) {
+            tipsReady.onNext(woken);
+        }
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Notification log
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Record a notification for pattern analysis. Only the most recent
+     * {@link NotificationLogDao#CAPACITY} are kept; the oldest is overwritten.
+     *
+     * @param packageName Posting package
+     * @param title Notification title
+     * @param text Notification text
+     * @return Completable that completes when the entry is stored
+     */
+    public Completable logNotification(String packageName, String title, String text) {
+        NotificationLogEntity entry = new NotificationLogEntity();
+        entry.setPostedAt(System.currentTimeMillis());
+        entry.setPackageName(packageName);
+        entry.setTitle(title);
+        entry.setText(text);
+        return Completable.fromAction(() -> notificationLogDao.append(entry))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Export the notification log for pattern tuning, oldest first. Each notification is
+     * a comment line with its time and package followed by its title and text joined by
+     * a space on one line, the format of the test notification corpus.
+     *
+     * @return Single that emits the export text
+     */
+    public Single<String> exportNotificationLog() {
+        return Single.fromCallable(() -> {
+                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+                    StringBuilder out = new StringBuilder();
+                    for (NotificationLogEntity entry : notificationLogDao.getAll()) {
+                        out.append("# ").append(format.format(new Date(entry.getPostedAt())))
+                                .append(' ').append(entry.getPackageName()).append('\n');
+                        String line = entry.getTitle() + " " + entry.getText();
+                        out.append(line.replaceAll("\\s*[\\r\\n]+\\s*", " ")).append('\n');
+                    }
+                    return out.toString();
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Delete all logged notifications.
+     *
+     * @return Completable that completes when the log is empty
+     */
+    public Completable clearNotificationLog() {
+        return Completable.fromAction(notificationLogDao::clear)
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Paging
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Create a paging source over a user's deliveries, newest first. Room invalidates it
+     * whenever the deliveries table changes.
+     *
+     * @param userId User ID
+     * @return New PagingSource
+     */
+    public PagingSource<Integer, DeliveryEntity> deliveryPagingSource(String userId) {
+        return deliveryDao.pagingSourceForUser(userId);
+    }
+
+    /**
+     * Create a paging source over a user's addresses, most delivered-to first.
+     *
+     * @param userId User ID
+     * @return New PagingSource
+     */
+    public PagingSource<Integer, AddressEntity> addressPagingSource(String userId) {
+        return addressDao.pagingSourceForUser(userId);
+    }
+
+    /**
+     * Decode a page of delivery rows off the main thread.
+     *
+     * @param page Page of rows
+     * @return Page of deliveries
+     */
+    public PagingData<Delivery> toDeliveryPage(PagingData<DeliveryEntity> page) {
+        return PagingDataTransforms.map(page, pageMappingExecutor, LocalDataStore::toPagedDelivery);
+    }
+
+    /**
+     * Decode a page of address rows off the main thread.
+     *
+     * @param page Page of rows
+     * @return Page of addresses
+     */
+    public PagingData<Address> toAddressPage(PagingData<AddressEntity> page) {
+        return PagingDataTransforms.map(page, pageMappingExecutor, LocalDataStore::toPagedAddress);
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Search
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Full-text search over a user's deliveries, best matches first. Each word of the
+     * query is matched as a prefix against address, notes, tags, store and zone.
+     *
+     * @param userId User ID
+     * @param text Free-text query
+     * @param limit Maximum number of results
+     * @return Single that emits the ranked deliveries (empty if the query has no words)
+     */
+    public Single<List<Delivery>> searchDeliveries(String userId, String text, int limit) {
+        return Single.fromCallable(() -> {
+                    String query = FtsSearch.prefixQuery(text);
+                    if (query == null) {
+                        return new ArrayList<Delivery>();
+                    }
+
+                    List<Long> ids = FtsSearch.topIds(deliveryDao.search(userId, query), DELIVERY_WEIGHTS, limit);
+                    List<DeliveryEntity> rows = deliveryDao.getByIds(ids);
+                    Collections.sort(rows, (a, b) -> Integer.compare(ids.indexOf(a.getId()), ids.indexOf(b.getId())));
+                    return toDeliveries(rows);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Full-text search over a user's addresses, best matches first. Each word of the
+     * query is matched as a prefix against the address text, notes and tags.
+     *
+     * @param userId User ID
+     * @param text Free-text query
+     * @param limit Maximum number of results
+     * @return Single that emits the ranked addresses (empty if the query has no words)
+     */
+    public Single<List<Address>> searchAddresses(String userId, String text, int limit) {
+        return Single.fromCallable(() -> {
+                    String query = FtsSearch.prefixQuery(text);
+                    if (query == null) {
+                        return new ArrayList<Address>();
+                    }
+
+                    List<Long> ids = FtsSearch.topIds(addressDao.search(userId, query), ADDRESS_WEIGHTS, limit);
+                    List<AddressEntity> rows = addressDao.getByIds(ids);
+                    Collections.sort(rows, (a, b) -> Integer.compare(ids.indexOf(a.getId()), ids.indexOf(b.getId())));
+                    return toAddresses(rows);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Address writes
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Write remote addresses through to Room in a single transaction. Rows with unsynced
+     * local changes are left as they are.
+     *
+     * @param userId User the addresses belong to
+     * @param upserts Addresses added or modified remotely
+     * @param removedIds IDs of addresses deleted remotely
+     * @return Completable that completes when the transaction commits
+     */
+    public Completable applyRemoteAddresses(String userId, List<Address> upserts, List<String> removedIds) {
+        return Completable.fromAction(() -> database.runInTransaction(() -> {
+                    Set<String> dirty = new HashSet<>(addressDao.getDirtyDocumentIds(userId));
+                    Date now = new Date();
+
+                    List<AddressEntity> entities = new ArrayList<>(upserts.size());
+                    for (Address address : upserts) {
+                        if (address.getAddressId() != null && !dirty.contains(address.getAddressId())) {
+                            entities.add(toEntity(address, false, now));
+                        }
+                    }
+                    if (!entities.isEmpty()) {
+                        addressDao.upsertAll(entities);
+                    }
+
+                    if (removedIds != null && !removedIds.isEmpty()) {
+                        List<String> removable = new ArrayList<>();
+                        for (String id : removedIds) {
+                            if (!dirty.contains(id)) {
+                                removable.add(id);
+                            }
+                        }
+                        if (!removable.isEmpty()) {
+                            addressDao.deleteByDocumentIds(removable);
+                        }
+                    }
+                }))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Store an address written by this device.
+     *
+     * @param address The address
+     * @param dirty true if the change is still queued for sync
+     * @return Completable that completes when the row is stored
+     */
+    public Completable saveAddress(Address address, boolean dirty) {
+        return Completable.fromAction(() -> {
+                    if (address.getAddressId() != null) {
+                        addressDao.upsertAll(Collections.singletonList(toEntity(address, dirty, new Date())));
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Remove an address deleted by this device.
+     *
+     * @param addressId Address ID
+     * @return Completable that completes when the row is removed
+     */
+    public Completable deleteAddress(String addressId) {
+        List<String> ids = new ArrayList<>();
+        ids.add(addressId);
+        return Completable.fromAction(() -> addressDao.deleteByDocumentIds(ids))
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Sync bookkeeping
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Clear the dirty flag once the outbox has committed a change.
+     *
+     * @param entityType Delivery or address entity type; other types are ignored
+     * @param entityId Document ID
+     * @return Completable that completes when the row is updated
+     */
+    public Completable markSynced(String entityType, String entityId) {
+        return Completable.fromAction(() -> {
+                    if (entityId == null) {
+                        return;
+                    }
+                    if (RepositoryConstants.EntityType.DELIVERY.equals(entityType)) {
+                        deliveryDao.markSyncedByDocumentId(entityId, new Date());
+                    } else if (RepositoryConstants.EntityType.ADDRESS.equals(entityType)) {
+                        addressDao.markSyncedByDocumentId(entityId, new Date());
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Clear the dirty flag for a batch of committed changes in one transaction.
+     *
+     * @param idsByEntityType Document IDs keyed by delivery or address entity type; other
+     *                        types are ignored
+     * @return Completable that completes when the transaction commits
+     */
+    public Completable markSyncedBatch(Map<String, List<String>> idsByEntityType) {
+        return Completable.fromAction(() -> database.runInTransaction(() -> {
+                    Date now = new Date();
+                    List<String> deliveryIds = idsByEntityType.get(RepositoryConstants.EntityType.DELIVERY);
+                    if (deliveryIds != null && !deliveryIds.isEmpty()) {
+                        deliveryDao.markSyncedBatch(deliveryIds, now);
+                    }
+                    List<String> addressIds = idsByEntityType.get(RepositoryConstants.EntityType.ADDRESS);
+                    if (addressIds != null && !addressIds.isEmpty()) {
+                        addressDao.markSyncedBatch(addressIds, now);
+                    }
+                }))
+                .subscribeOn(Schedulers.io());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Mapping
+    //-----------------------------------------------------------------------------------
+
+    private static String joinTags(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String tag : tags) {
+            if (tag == null || tag.isEmpty()) {
+                continue;
+            }
+            if (joined.length() > 0) {
+                joined.append(' ');
+            }
+            joined.append(tag);
+        }
+        return joined.length() > 0 ? joined.toString() : null;
+    }
+
+    private static DeliveryEntity toEntity(Delivery delivery, boolean dirty, Date now) {
+        DeliveryEntity entity = new DeliveryEntity();
+        entity.setDocumentId(delivery.getDeliveryId());
+        entity.setOrderId(delivery.getOrderId());
+        entity.setUserId(delivery.getUserId());
+        entity.setAddress(delivery.getAddress() != null ? delivery.getAddress().getFullAddress() : null);
+        entity.setAddressId(delivery.getReference() != null ? delivery.getReference().getAddressId() : null);
+        entity.setTipAmount(delivery.getAmounts() != null ? delivery.getAmounts().getTipAmount() : 0);
+        entity.setPayAmount(delivery.getAmounts() != null ? payAmount(delivery.getAmounts()) : 0);
+        entity.setSource(delivery.getMetadata() != null ? delivery.getMetadata().getSource() : null);
+
+        Delivery.Times times = delivery.getTimes();
+        Date deliveryDate = null;
+        if (times != null) {
+            deliveryDate = times.getCompletedAt() != null ? times.getCompletedAt() : times.getOrderedAt();
+            entity.setTipDate(times.getTippedAt());
+        }
+        if (deliveryDate == null && delivery.getMetadata() != null) {
+            deliveryDate = delivery.getMetadata().getCreatedAt();
+        }
+        entity.setDeliveryDate(deliveryDate);
+        entity.setCompleted(delivery.getStatus() == null || delivery.getStatus().isCompleted());
+        entity.setNotes(delivery.getNotes());
+        entity.setTags(joinTags(delivery.getTags()));
+
+        entity.setJsonData(JsonSerializer.toJson(delivery));
+        entity.setDirty(dirty);
+        entity.setLastSyncTime(dirty ? null : now);
+        return entity;
+    }
+
+    // Final pay once known, otherwise the estimate
+    private static double payAmount(Delivery.Amounts amounts) {
+        return amounts.getFinalPay() > 0 ? amounts.getFinalPay() : amounts.getEstimatedPay();
+    }
+
+    private static Delivery toDelivery(DeliveryEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        Delivery delivery = JsonSerializer.fromJson(entity.getJsonData(), Delivery.class);
+        if (delivery != null && delivery.getDeliveryId() == null) {
+            delivery.setDeliveryId(entity.getDocumentId());
+        }
+        return delivery;
+    }
+
+    private static List<Delivery> toDeliveries(List<DeliveryEntity> entities) {
+        List<Delivery> deliveries = new ArrayList<>(entities.size());
+        for (DeliveryEntity entity : entities) {
+            Delivery delivery = toDelivery(entity);
+            if (delivery != null) {
+                deliveries.add(delivery);
+            }
+        }
+        return deliveries;
+    }
+
+    // Paged items cannot be null; fall back to the indexed columns if the document is unreadable
+    private static Delivery toPagedDelivery(DeliveryEntity entity) {
+        Delivery delivery = toDelivery(entity);
+        if (delivery == null) {
+            delivery = new Delivery();
+            delivery.setDeliveryId(entity.getDocumentId());
+            delivery.setOrderId(entity.getOrderId());
+            delivery.setUserId(entity.getUserId());
+        }
+        return delivery;
+    }
+
+    private static Map<String, DeliveryStats> toDailyStats(List<DailyDeliveryStats> rows) {
+        Map<String, DeliveryStats> byDay = new LinkedHashMap<>();
+        for (DailyDeliveryStats row : rows) {
+            DeliveryStats stats = new DeliveryStats(row.getDeliveryCount(), row.getTipCount(), row.getTipTotal());
+            stats.setHighestTip(row.getMaxTip());
+            stats.setPendingCount(row.getPendingCount());
+            byDay.put(row.getDay(), stats);
+        }
+        return byDay;
+    }
+
+    private static List<EarningsBucket> toEarnings(List<EarningsBucketEntity> rows) {
+        List<EarningsBucket> buckets = new ArrayList<>(rows.size());
+        for (EarningsBucketEntity row : rows) {
+            buckets.add(toEarnings(row));
+        }
+        return buckets;
+    }
+
+    private static EarningsBucket toEarnings(EarningsBucketEntity row) {
+        return new EarningsBucket(new Date(row.getBucketStart()), row.getDeliveryCount(),
+                row.getTipCount(), row.getTipTotal(), row.getPayTotal());
+    }
+
+    private static AddressEntity toEntity(Address address, boolean dirty, Date now) {
+        AddressEntity entity = new AddressEntity();
+        entity.setDocumentId(address.getAddressId());
+        entity.setUserId(address.getUserId());
+        entity.setFullAddress(address.getFullAddress());
+        entity.setNormalizedAddress(address.getNormalizedAddress());
+
+        Address.DeliveryStats stats = address.getDeliveryStats();
+        if (stats != null) {
+            entity.setDeliveryCount(stats.getDeliveryCount());
+            entity.setTotalTips(stats.getTotalTips());
+            entity.setAverageTip(stats.getAverageTip());
+        }
+        entity.setDoNotDeliver(address.getFlags() != null && address.getFlags().isDoNotDeliver());
+        entity.setLastUpdated(address.getMetadata() != null ? address.getMetadata().getUpdatedAt() : null);
+        entity.setNotes(address.getNotes());
+        entity.setTags(joinTags(address.getTags()));
+
+        entity.setJsonData(JsonSerializer.toJson(address));
+        entity.setDirty(dirty);
+        entity.setLastSyncTime(dirty ? null : now);
+        return entity;
+    }
+
+    private static Address toAddress(AddressEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        Address address = JsonSerializer.fromJson(entity.getJsonData(), Address.class);
+        if (address != null && address.getAddressId() == null) {
+            address.setAddressId(entity.getDocumentId());
+        }
+        return address;
+    }
+
+    private static List<Address> toAddresses(List<AddressEntity> entities) {
+        List<Address> addresses = new ArrayList<>(entities.size());
+        for (AddressEntity entity : entities) {
+            Address address = toAddress(entity);
+            if (address != null) {
+                addresses.add(address);
+            }
+        }
+        return addresses;
+    }
+
+    private static Address toPagedAddress(AddressEntity entity) {
+        Address address = toAddress(entity);
+        if (address == null) {
+            address = new Address();
+            address.setAddressId(entity.getDocumentId());
+            address.setFullAddress(entity.getFullAddress());
+            address.setUserId(entity.getUserId());
+        }
+        return address;
+    }
+}
@@ -0,0 +1,548 @@
+package com.autogratuity.data.local;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Versioned schema migrations for {@link AppDatabase}.
+ * <p>
+ * Every schema change gets a migration here so the local cache and the sync outbox
+ * survive app upgrades. Index names follow Room's {@code index_<table>_<columns>}
+ * convention so the migrated schema validates against the entities. Exported schemas
+ * for each version are written to {@code app/schemas} by the Room compiler, and
+ * {@code MigrationTest} checks every step against them.
+ */
+public final class Migrations {
+
+    private Migrations() {
+    }
+
+    /**
+     * v1 to v2: persisted retry due times on the outbox.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `pending_operations` ADD COLUMN `nextAttemptTime` INTEGER");
+            // Existing rows are due immediately
+            db.execSQL("UPDATE `pending_operations` SET `nextAttemptTime` = `createdAt`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_nextAttemptTime` " +
+                    "ON `pending_operations` (`nextAttemptTime`)");
+        }
+    };
+
+    /**
+     * v2 to v3: priority lanes on the outbox.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // The v3 entity has no column default; that arrives with v5
+            db.execSQL("ALTER TABLE `pending_operations` ADD COLUMN `priority` TEXT");
+            db.execSQL("UPDATE `pending_operations` SET `priority` = 'normal'");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_priority_nextAttemptTime` " +
+                    "ON `pending_operations` (`priority`, `nextAttemptTime`)");
+        }
+    };
+
+    /**
+     * v3 to v4: full documents and unique document IDs for the local read path.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `addressId` TEXT");
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `jsonData` TEXT");
+            db.execSQL("ALTER TABLE `addresses` ADD COLUMN `jsonData` TEXT");
+
+            // Keep the newest row per document so the unique indices can be built
+            db.execSQL("DELETE FROM `deliveries` WHERE `documentId` IS NOT NULL AND `id` NOT IN " +
+                    "(SELECT MAX(`id`) FROM `deliveries` WHERE `documentId` IS NOT NULL GROUP BY `documentId`)");
+            db.execSQL("DELETE FROM `addresses` WHERE `documentId` IS NOT NULL AND `id` NOT IN " +
+                    "(SELECT MAX(`id`) FROM `addresses` WHERE `documentId` IS NOT NULL GROUP BY `documentId`)");
+
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_deliveries_documentId` " +
+                    "ON `deliveries` (`documentId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deliveries_userId_deliveryDate` " +
+                    "ON `deliveries` (`userId`, `deliveryDate`)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_addresses_documentId` " +
+                    "ON `addresses` (`documentId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_userId_normalizedAddress` " +
+                    "ON `addresses` (`userId`, `normalizedAddress`)");
+        }
+    };
+
+    /**
+     * v4 to v5: composite indices matched to the DAO queries, and the {@code priority}
+     * default on the outbox. SQLite cannot change a column default, so the outbox is
+     * rebuilt with the same row IDs.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `pending_operations_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `operationType` TEXT, " +
+                    "`targetId` TEXT, `userId` TEXT, `jsonData` TEXT, `retryCount` INTEGER NOT NULL, " +
+                    "`createdAt` INTEGER, `lastAttempt` INTEGER, `nextAttemptTime` INTEGER, " +
+                    "`priority` TEXT DEFAULT 'normal')");
+            db.execSQL("INSERT INTO `pending_operations_new` (`id`, `operationType`, `targetId`, `userId`, " +
+                    "`jsonData`, `retryCount`, `createdAt`, `lastAttempt`, `nextAttemptTime`, `priority`) " +
+                    "SELECT `id`, `operationType`, `targetId`, `userId`, `jsonData`, `retryCount`, " +
+                    "`createdAt`, `lastAttempt`, `nextAttemptTime`, `priority` FROM `pending_operations`");
+            db.execSQL("DROP TABLE `pending_operations`");
+            db.execSQL("ALTER TABLE `pending_operations_new` RENAME TO `pending_operations`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_nextAttemptTime` " +
+                    "ON `pending_operations` (`nextAttemptTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_priority_nextAttemptTime` " +
+                    "ON `pending_operations` (`priority`, `nextAttemptTime`)");
+
+            // deliveries
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deliveries_userId_orderId` " +
+                    "ON `deliveries` (`userId`, `orderId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deliveries_userId_addressId_deliveryDate` " +
+                    "ON `deliveries` (`userId`, `addressId`, `deliveryDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deliveries_userId_tipAmount_deliveryDate` " +
+                    "ON `deliveries` (`userId`, `tipAmount`, `deliveryDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deliveries_isDirty_userId` " +
+                    "ON `deliveries` (`isDirty`, `userId`)");
+
+            // addresses
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_userId_deliveryCount` " +
+                    "ON `addresses` (`userId`, `deliveryCount`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_isDirty_userId` " +
+                    "ON `addresses` (`isDirty`, `userId`)");
+
+            // pending_operations
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_userId_createdAt` " +
+                    "ON `pending_operations` (`userId`, `createdAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_targetId_operationType` " +
+                    "ON `pending_operations` (`targetId`, `operationType`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_retryCount_lastAttempt` " +
+                    "ON `pending_operations` (`retryCount`, `lastAttempt`)");
+        }
+    };
+
+    /**
+     * v5 to v6: full-text search. Creates the external-content FTS4 tables with the same
+     * content-sync triggers Room generates for {@link DeliveryFtsEntity} and
+     * {@link AddressFtsEntity}, then builds the indices from the existing rows.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `notes` TEXT");
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `tags` TEXT");
+            db.execSQL("ALTER TABLE `addresses` ADD COLUMN `notes` TEXT");
+            db.execSQL("ALTER TABLE `addresses` ADD COLUMN `tags` TEXT");
+
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `deliveries_fts` USING FTS4(" +
+                    "`address` TEXT, `notes` TEXT, `tags` TEXT, `store` TEXT, `zone` TEXT, " +
+                    "tokenize=unicode61, content=`deliveries`, prefix=`2,3`)");
+            createContentSyncTriggers(db, "deliveries_fts", "deliveries",
+                    new String[]{"address", "notes", "tags", "store", "zone"});
+
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `addresses_fts` USING FTS4(" +
+                    "`fullAddress` TEXT, `notes` TEXT, `tags` TEXT, " +
+                    "tokenize=unicode61, content=`addresses`, prefix=`2,3`)");
+            createContentSyncTriggers(db, "addresses_fts", "addresses",
+                    new String[]{"fullAddress", "notes", "tags"});
+
+            // Notes and tags are backfilled as rows are next written; index what is there now
+            db.execSQL("INSERT INTO `deliveries_fts`(`deliveries_fts`) VALUES('rebuild')");
+            db.execSQL("INSERT INTO `addresses_fts`(`addresses_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * v6 to v7: completion flag on deliveries and the per-address aggregate view.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // Rows are corrected as they are next written; most stored deliveries are completed
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `completed` INTEGER NOT NULL DEFAULT 1");
+            db.execSQL("CREATE VIEW `address_delivery_stats` AS " + AddressDeliveryStats.QUERY);
+        }
+    };
+
+    /**
+     * v7 to v8: drops the list columns from {@code addresses} (orders are resolved through
+     * {@code deliveries}, search through FTS) and re-encodes queued operations from JSON to
+     * version 1 of {@link OperationCodec}'s binary payload. SQLite cannot drop columns on
+     * older platforms, so both tables are rebuilt with the same row IDs.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // addresses: row IDs are kept, so the external-content FTS index stays valid
+            db.execSQL("CREATE TABLE IF NOT EXISTS `addresses_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `documentId` TEXT, " +
+                    "`fullAddress` TEXT, `normalizedAddress` TEXT, `totalTips` REAL NOT NULL, " +
+                    "`deliveryCount` INTEGER NOT NULL, `averageTip` REAL NOT NULL, `userId` TEXT, " +
+                    "`doNotDeliver` INTEGER NOT NULL, `lastUpdated` INTEGER, `notes` TEXT, `tags` TEXT, " +
+                    "`jsonData` TEXT, `isDirty` INTEGER NOT NULL, `lastSyncTime` INTEGER)");
+            db.execSQL("INSERT INTO `addresses_new` (`id`, `documentId`, `fullAddress`, `normalizedAddress`, " +
+                    "`totalTips`, `deliveryCount`, `averageTip`, `userId`, `doNotDeliver`, `lastUpdated`, " +
+                    "`notes`, `tags`, `jsonData`, `isDirty`, `lastSyncTime`) " +
+                    "SELECT `id`, `documentId`, `fullAddress`, `normalizedAddress`, `totalTips`, " +
+                    "`deliveryCount`, `averageTip`, `userId`, `doNotDeliver`, `lastUpdated`, `notes`, " +
+                    "`tags`, `jsonData`, `isDirty`, `lastSyncTime` FROM `addresses`");
+            db.execSQL("DROP TABLE `addresses`");
+            db.execSQL("ALTER TABLE `addresses_new` RENAME TO `addresses`");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_addresses_documentId` " +
+                    "ON `addresses` (`documentId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_userId_normalizedAddress` " +
+                    "ON `addresses` (`userId`, `normalizedAddress`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_userId_deliveryCount` " +
+                    "ON `addresses` (`userId`, `deliveryCount`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_isDirty_userId` " +
+                    "ON `addresses` (`isDirty`, `userId`)");
+            // Dropping the table dropped its FTS triggers
+            createContentSyncTriggers(db, "addresses_fts", "addresses",
+                    new String[]{"fullAddress", "notes", "tags"});
+
+            // pending_operations: copy the rows, then re-encode each payload
+            db.execSQL("CREATE TABLE IF NOT EXISTS `pending_operations_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `operationType` TEXT, " +
+                    "`targetId` TEXT, `userId` TEXT, `payload` BLOB, `retryCount` INTEGER NOT NULL, " +
+                    "`createdAt` INTEGER, `lastAttempt` INTEGER, `nextAttemptTime` INTEGER, " +
+                    "`priority` TEXT DEFAULT 'normal')");
+            db.execSQL("INSERT INTO `pending_operations_new` (`id`, `operationType`, `targetId`, `userId`, " +
+                    "`retryCount`, `createdAt`, `lastAttempt`, `nextAttemptTime`, `priority`) " +
+                    "SELECT `id`, `operationType`, `targetId`, `userId`, `retryCount`, `createdAt`, " +
+                    "`lastAttempt`, `nextAttemptTime`, `priority` FROM `pending_operations`");
+            try (Cursor cursor = db.query("SELECT `id`, `jsonData`, `priority` FROM `pending_operations`")) {
+                while (cursor.moveToNext()) {
+                    // Unreadable rows keep a null payload and are dropped by the next sync pass
+                    byte[] payload = V8OperationEncoder.encode(cursor.getString(1), cursor.getString(2));
+                    if (payload != null) {
+                        db.execSQL("UPDATE `pending_operations_new` SET `payload` = ? WHERE `id` = ?",
+                                new Object[]{payload, cursor.getLong(0)});
+                    }
+                }
+            }
+            db.execSQL("DROP TABLE `pending_operations`");
+            db.execSQL("ALTER TABLE `pending_operations_new` RENAME TO `pending_operations`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_nextAttemptTime` " +
+                    "ON `pending_operations` (`nextAttemptTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_priority_nextAttemptTime` " +
+                    "ON `pending_operations` (`priority`, `nextAttemptTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_userId_createdAt` " +
+                    "ON `pending_operations` (`userId`, `createdAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_targetId_operationType` " +
+                    "ON `pending_operations` (`targetId`, `operationType`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_retryCount_lastAttempt` " +
+                    "ON `pending_operations` (`retryCount`, `lastAttempt`)");
+        }
+    };
+
+    /**
+     * v8 to v9: pay amount on deliveries and the trigger-maintained earnings time series.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // Existing rows count as unpaid until they are next written
+            db.execSQL("ALTER TABLE `deliveries` ADD COLUMN `payAmount` REAL NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `earnings_buckets` (`userId` TEXT NOT NULL, " +
+                    "`resolution` TEXT NOT NULL, `bucketStart` INTEGER NOT NULL, " +
+                    "`deliveryCount` INTEGER NOT NULL, `tipCount` INTEGER NOT NULL, " +
+                    "`tipTotal` REAL NOT NULL, `payTotal` REAL NOT NULL, " +
+                    "PRIMARY KEY(`userId`, `resolution`, `bucketStart`))");
+            EarningsSeries.createTriggers(db);
+            EarningsSeries.rebuild(db);
+        }
+    };
+
+    /**
+     * v9 to v10: local queue of captured Shipt orders and tips.
+     */
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `capture_queue` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `kind` TEXT, `userId` TEXT, " +
+                    "`orderId` TEXT, `zone` TEXT, `store` TEXT, `address` TEXT, " +
+                    "`tipAmount` REAL NOT NULL, `status` INTEGER NOT NULL, `attempts` INTEGER NOT NULL, " +
+                    "`createdAt` INTEGER)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_capture_queue_status_createdAt` " +
+                    "ON `capture_queue` (`status`, `createdAt`)");
+        }
+    };
+
+    /**
+     * v10 to v11: capture keys for idempotent captures, and delivery completions.
+     */
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `capture_queue` ADD COLUMN `captureKey` TEXT");
+            db.execSQL("ALTER TABLE `capture_queue` ADD COLUMN `completedAt` INTEGER");
+            db.execSQL("UPDATE `capture_queue` SET `captureKey` = " +
+                    "`kind` || ':' || `userId` || ':' || `orderId`");
+
+            // Keep the latest capture of each event
+            db.execSQL("DELETE FROM `capture_queue` WHERE `captureKey` IS NOT NULL AND `id` NOT IN " +
+                    "(SELECT MAX(`id`) FROM `capture_queue` WHERE `captureKey` IS NOT NULL " +
+                    "GROUP BY `captureKey`)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_capture_queue_captureKey` " +
+                    "ON `capture_queue` (`captureKey`)");
+        }
+    };
+
+    /**
+     * v11 to v12: ring buffer of recent notifications for pattern analysis.
+     */
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `notification_log` (" +
+                    "`slot` INTEGER NOT NULL, `seq` INTEGER NOT NULL, `postedAt` INTEGER NOT NULL, " +
+                    "`packageName` TEXT, `title` TEXT, `text` TEXT, PRIMARY KEY(`slot`))");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_notification_log_seq` " +
+                    "ON `notification_log` (`seq`)");
+        }
+    };
+
+    /**
+     * Writes version 1 of the {@link OperationCodec} payload from the JSON the outbox held
+     * up to v7. It is a frozen copy of the encoder as it was at v8, reading the JSON as a
+     * tree rather than through {@code SyncOperation}, so later changes to the model or the
+     * codec cannot change what this migration writes. Like the model read through Gson,
+     * JSON numbers in the document maps become doubles and timestamps nested in them stay
+     * {@code seconds}/{@code nanoseconds} maps.
+     */
+    private static final class V8OperationEncoder {
+
+        private static final int VERSION = 1;
+
+        private static final int TAG_NULL = 0;
+        private static final int TAG_STRING = 1;
+        private static final int TAG_DOUBLE = 3;
+        private static final int TAG_BOOLEAN = 4;
+        private static final int TAG_MAP = 5;
+        private static final int TAG_LIST = 6;
+
+        private static final int FLAG_COMPLETED = 1;
+        private static final int FLAG_FAILED = 1 << 1;
+        private static final int FLAG_RETRYABLE = 1 << 2;
+        private static final int FLAG_CONFLICT = 1 << 3;
+
+        private static final long NO_TIME = Long.MIN_VALUE;
+
+        // SyncOperation's field default when the JSON has none
+        private static final int DEFAULT_MAX_RETRIES = 5;
+
+        /**
+         * @param json Operation as serialized by {@code JsonSerializer} up to v7
+         * @param lane Priority column of the row, used when the JSON has no priority
+         * @return Encoded payload, or null if the JSON is missing or unreadable
+         */
+        static byte[] encode(String json, String lane) {
+            if (json == null || json.isEmpty()) {
+                return null;
+            }
+
+            try {
+                JsonObject op = JsonParser.parseString(json).getAsJsonObject();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(VERSION);
+
+                writeString(out, string(op, "operationId"));
+                writeString(out, string(op, "userId"));
+                writeString(out, string(op, "deviceId"));
+                writeString(out, string(op, "type"));
+                writeString(out, string(op, "entityType"));
+                writeString(out, string(op, "entityId"));
+                writeString(out, string(op, "status"));
+                String priority = string(op, "priority");
+                writeString(out, priority != null ? priority : lane);
+                writeString(out, string(op, "error"));
+                writeString(out, string(op, "errorType"));
+                writeString(out, string(op, "conflictResolution"));
+                writeString(out, string(op, "conflictType"));
+                writeString(out, string(op, "authToken"));
+
+                int flags = 0;
+                if (bool(op, "completed")) flags |= FLAG_COMPLETED;
+                if (bool(op, "failed")) flags |= FLAG_FAILED;
+                if (bool(op, "retryable")) flags |= FLAG_RETRYABLE;
+                if (bool(op, "hasConflict")) flags |= FLAG_CONFLICT;
+                out.writeByte(flags);
+
+                out.writeInt(integer(op, "attempts", 0));
+                out.writeInt(integer(op, "retryCount", 0));
+                out.writeInt(integer(op, "maxRetries", DEFAULT_MAX_RETRIES));
+
+                writeTime(out, op.get("createdAt"));
+                writeTime(out, op.get("updatedAt"));
+                writeTime(out, op.get("completedAt"));
+                writeTime(out, op.get("lastAttemptTime"));
+                writeTime(out, op.get("nextAttemptTime"));
+
+                // Without one, the decoded operation derives its error info from the message
+                JsonElement errorInfo = op.get("errorInfo");
+                boolean hasErrorInfo = errorInfo != null && errorInfo.isJsonObject();
+                out.writeBoolean(hasErrorInfo);
+                if (hasErrorInfo) {
+                    JsonObject info = errorInfo.getAsJsonObject();
+                    writeString(out, string(info, "code"));
+                    writeString(out, string(info, "message"));
+                    writeString(out, string(info, "timestamp"));
+                    writeString(out, string(info, "severity"));
+                    writeString(out, string(info, "recoveryAction"));
+                    writeValue(out, info.get("details"));
+                }
+
+                // data and conflictDetails are never null on the model; previousVersion may be
+                writeSection(out, op.has("data") ? op.get("data") : new JsonObject());
+                writeSection(out, op.get("previousVersion"));
+                writeSection(out, op.has("conflictDetails") ? op.get("conflictDetails") : new JsonObject());
+
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static String string(JsonObject object, String name) {
+            JsonElement value = object.get(name);
+            return value != null && !value.isJsonNull() ? value.getAsString() : null;
+        }
+
+        private static boolean bool(JsonObject object, String name) {
+            JsonElement value = object.get(name);
+            return value != null && !value.isJsonNull() && value.getAsBoolean();
+        }
+
+        private static int integer(JsonObject object, String name, int fallback) {
+            JsonElement value = object.get(name);
+            return value != null && !value.isJsonNull() ? value.getAsInt() : fallback;
+        }
+
+        // Timestamps were serialized as {"seconds": .., "nanoseconds": ..}
+        private static void writeTime(DataOutputStream out, JsonElement value) throws IOException {
+            if (value == null || !value.isJsonObject()) {
+                out.writeLong(NO_TIME);
+                return;
+            }
+            JsonObject time = value.getAsJsonObject();
+            out.writeLong(time.get("seconds").getAsLong() * 1000
+                    + time.get("nanoseconds").getAsInt() / 1000000);
+        }
+
+        private static void writeSection(DataOutputStream out, JsonElement map) throws IOException {
+            if (map == null || map.isJsonNull()) {
+                out.writeInt(-1);
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream section = new DataOutputStream(bytes);
+            writeValue(section, map);
+            section.flush();
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+
+        private static void writeValue(DataOutputStream out, JsonElement value) throws IOException {
+            if (value == null || value.isJsonNull()) {
+                out.writeByte(TAG_NULL);
+            } else if (value.isJsonObject()) {
+                JsonObject map = value.getAsJsonObject();
+                out.writeByte(TAG_MAP);
+                out.writeInt(map.size());
+                for (Map.Entry<String, JsonElement> entry : map.entrySet()) {
+                    writeText(out, entry.getKey());
+                    writeValue(out, entry.getValue());
+                }
+            } else if (value.isJsonArray()) {
+                JsonArray list = value.getAsJsonArray();
+                out.writeByte(TAG_LIST);
+                out.writeInt(list.size());
+                for (JsonElement item : list) {
+                    writeValue(out, item);
+                }
+            } else {
+                JsonPrimitive primitive = value.getAsJsonPrimitive();
+                if (primitive.isBoolean()) {
+                    out.writeByte(TAG_BOOLEAN);
+                    out.writeBoolean(primitive.getAsBoolean());
+                } else if (primitive.isNumber()) {
+                    out.writeByte(TAG_DOUBLE);
+                    out.writeDouble(primitive.getAsDouble());
+                } else {
+                    out.writeByte(TAG_STRING);
+                    writeText(out, primitive.getAsString());
+                }
+            }
+        }
+
+        private static void writeText(DataOutputStream out, String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                writeText(out, value);
+            }
+        }
+    }
+
+    private static void createContentSyncTriggers(SupportSQLiteDatabase db, String ftsTable,
+                                                  String contentTable, String[] columns) {
+        StringBuilder names = new StringBuilder("`docid`");
+        StringBuilder values = new StringBuilder("NEW.`rowid`");
+        for (String column : columns) {
+            names.append(", `").append(column).append('`');
+            values.append(", NEW.`").append(column).append('`');
+        }
+
+        for (String op : new String[]{"UPDATE", "DELETE"}) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable + "_BEFORE_" + op +
+                    " BEFORE " + op + " ON `" + contentTable + "` BEGIN DELETE FROM `" + ftsTable +
+                    "` WHERE `docid`=OLD.`rowid`; END");
+        }
+        for (String op : new String[]{"UPDATE", "INSERT"}) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable + "_AFTER_" + op +
+                    " AFTER " + op + " ON `" + contentTable + "` BEGIN INSERT INTO `" + ftsTable +
+                    "`(" + names + ") VALUES (" + values + "); END");
+        }
+    }
+
+    /**
+     * All migrations, in version order.
+     */
+    public static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10,
+            MIGRATION_10_11,
+            MIGRATION_11_12
+    };
+}
@@ -0,0 +1,51 @@
+package com.autogratuity.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the notification log, a ring buffer of the most recent
+ * {@link #CAPACITY} notifications
+ */
+@Dao
+public interface NotificationLogDao {
+
+    /** Number of slots in the ring */
+    int CAPACITY = 200;
+
+    /**
+     * Append an entry, overwriting the oldest one when the ring is full. The next
+     * sequence number is read from the unique {@code seq} index, so an append is an
+     * index lookup plus one row write however many entries are stored.
+     */
+    @Transaction
+    default void append(NotificationLogEntity entry) {
+        long seq = getLastSeq() + 1;
+        entry.setSeq(seq);
+        entry.setSlot((int) (seq % CAPACITY));
+        put(entry);
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(NotificationLogEntity entry);
+
+    @Query("SELECT COALESCE(MAX(seq), -1) FROM notification_log")
+    long getLastSeq();
+
+    /**
+     * Get all entries, oldest first
+     */
+    @Query("SELECT * FROM notification_log ORDER BY seq ASC")
+    List<NotificationLogEntity> getAll();
+
+    /**
+     * Delete all entries
+     */
+    @Query("DELETE FROM notification_log")
+    void clear();
+}
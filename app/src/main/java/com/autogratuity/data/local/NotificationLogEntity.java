@@ -0,0 +1,80 @@
+package com.autogratuity.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One notification kept for pattern analysis, in a fixed-size ring of
+ * {@link NotificationLogDao#CAPACITY} slots. Entry {@code seq} goes to slot
+ * {@code seq % CAPACITY}, so each append overwrites the oldest entry once the ring is
+ * full; see {@link NotificationLogDao#append}.
+ */
+@Entity(
+    tableName = "notification_log",
+    indices = {
+        @Index(value = {"seq"}, unique = true)
+    }
+)
+public class NotificationLogEntity {
+
+    @PrimaryKey
+    private int slot;
+
+    // Position in the log, increasing across wrap-arounds
+    private long seq;
+    private long postedAt;
+    private String packageName;
+    private String title;
+    private String text;
+
+    // Getters and setters
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getPostedAt() {
+        return postedAt;
+    }
+
+    public void setPostedAt(long postedAt) {
+        this.postedAt = postedAt;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
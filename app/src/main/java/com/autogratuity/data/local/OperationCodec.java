@@ -0,0 +1,455 @@
+package com.autogratuity.data.local;
+
+import android.util.Log;
+
+import com.autogratuity.data.model.ErrorInfo;
+import com.autogratuity.data.model.SyncOperation;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of queued {@link SyncOperation}s for
+ * {@link PendingOperationEntity#getPayload()}.
+ * <p>
+ * The scalar fields come first and are decoded eagerly. The document maps ({@code data},
+ * {@code previousVersion}, {@code conflictDetails}) follow as length-prefixed sections
+ * that are only decoded when first read, so listing or rescheduling operations never
+ * parses the document bodies. Values keep their Firestore types (Long, Double,
+ * Timestamp, GeoPoint) instead of round-tripping through JSON.
+ */
+public final class OperationCodec {
+
+    private static final String TAG = "OperationCodec";
+
+    private static final int VERSION = 1;
+
+    // Value tags
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_LONG = 2;
+    private static final int TAG_DOUBLE = 3;
+    private static final int TAG_BOOLEAN = 4;
+    private static final int TAG_MAP = 5;
+    private static final int TAG_LIST = 6;
+    private static final int TAG_TIMESTAMP = 7;
+    private static final int TAG_DATE = 8;
+    private static final int TAG_GEO_POINT = 9;
+    private static final int TAG_JSON = 10;
+
+    // Flag bits
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_FAILED = 1 << 1;
+    private static final int FLAG_RETRYABLE = 1 << 2;
+    private static final int FLAG_CONFLICT = 1 << 3;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private OperationCodec() {
+    }
+
+    /**
+     * Encode an operation.
+     *
+     * @param operation Operation to encode
+     * @return Encoded payload, or null if the operation is null or cannot be encoded
+     */
+    public static byte[] encode(SyncOperation operation) {
+        if (operation == null) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+
+            // The operation ID leads so it can be read without decoding the rest
+            writeString(out, operation.getOperationId());
+            writeString(out, operation.getUserId());
+            writeString(out, operation.getDeviceId());
+            writeString(out, operation.getType());
+            writeString(out, operation.getEntityType());
+            writeString(out, operation.getEntityId());
+            writeString(out, operation.getStatus());
+            writeString(out, operation.getPriority());
+            writeString(out, operation.getError());
+            writeString(out, operation.getErrorType());
+            writeString(out, operation.getConflictResolution());
+            writeString(out, operation.getConflictType());
+            writeString(out, operation.getAuthToken());
+
+            int flags = 0;
+            if (operation.isCompleted()) flags |= FLAG_COMPLETED;
+            if (operation.isFailed()) flags |= FLAG_FAILED;
+            if (operation.isRetryable()) flags |= FLAG_RETRYABLE;
+            if (operation.hasConflict()) flags |= FLAG_CONFLICT;
+            out.writeByte(flags);
+
+            out.writeInt(operation.getAttempts());
+            out.writeInt(operation.getRetryCount());
+            out.writeInt(operation.getMaxRetries());
+
+            writeTime(out, operation.getCreatedAt());
+            writeTime(out, operation.getUpdatedAt());
+            writeTime(out, operation.getCompletedAt());
+            writeTime(out, operation.getLastAttemptTime());
+            writeTime(out, operation.getNextAttemptTime() != null ? operation.getNextAttemptTime().toDate() : null);
+
+            ErrorInfo errorInfo = operation.getErrorInfo();
+            out.writeBoolean(errorInfo != null);
+            if (errorInfo != null) {
+                writeString(out, errorInfo.getCode());
+                writeString(out, errorInfo.getMessage());
+                writeString(out, errorInfo.getTimestamp());
+                writeString(out, errorInfo.getSeverity());
+                writeString(out, errorInfo.getRecoveryAction());
+                writeValue(out, errorInfo.getDetails());
+            }
+
+            writeSection(out, operation.getData());
+            writeSection(out, operation.getPreviousVersion());
+            writeSection(out, operation.getConflictDetails());
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            Log.e(TAG, "Error encoding sync operation", e);
+            return null;
+        }
+    }
+
+    /**
+     * Decode an operation. The document maps are decoded on first access.
+     *
+     * @param payload Encoded payload
+     * @return Decoded operation, or null if the payload is missing or unreadable
+     */
+    public static SyncOperation decode(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            if (in.readUnsignedByte() != VERSION) {
+                Log.w(TAG, "Unsupported sync operation payload version");
+                return null;
+            }
+
+            SyncOperation operation = new SyncOperation();
+            operation.setOperationId(readString(in));
+            operation.setUserId(readString(in));
+            operation.setDeviceId(readString(in));
+            operation.setType(readString(in));
+            operation.setEntityType(readString(in));
+            operation.setEntityId(readString(in));
+            operation.setStatus(readString(in));
+            operation.setPriority(readString(in));
+            operation.setError(readString(in));
+            operation.setErrorType(readString(in));
+            operation.setConflictResolution(readString(in));
+            operation.setConflictType(readString(in));
+            operation.setAuthToken(readString(in));
+
+            int flags = in.readUnsignedByte();
+            operation.setCompleted((flags & FLAG_COMPLETED) != 0);
+            operation.setFailed((flags & FLAG_FAILED) != 0);
+            operation.setRetryable((flags & FLAG_RETRYABLE) != 0);
+            operation.setHasConflict((flags & FLAG_CONFLICT) != 0);
+
+            operation.setAttempts(in.readInt());
+            operation.setRetryCount(in.readInt());
+            operation.setMaxRetries(in.readInt());
+
+            operation.setCreatedAt(readTime(in));
+            operation.setUpdatedAt(readTime(in));
+            operation.setCompletedAt(readTime(in));
+            operation.setLastAttemptTime(readTime(in));
+            Date nextAttemptTime = readTime(in);
+            operation.setNextAttemptTime(nextAttemptTime != null ? new Timestamp(nextAttemptTime) : null);
+
+            if (in.readBoolean()) {
+                ErrorInfo errorInfo = new ErrorInfo();
+                errorInfo.setCode(readString(in));
+                errorInfo.setMessage(readString(in));
+                errorInfo.setTimestamp(readString(in));
+                errorInfo.setSeverity(readString(in));
+                errorInfo.setRecoveryAction(readString(in));
+                errorInfo.setDetails(asMap(readValue(in)));
+                operation.setErrorInfo(errorInfo);
+            }
+
+            // Sections are decoded lazily from their offset in the payload
+            int offset = payload.length - in.available();
+            LazyMap data = new LazyMap(payload, offset);
+            offset = data.end();
+            LazyMap previousVersion = new LazyMap(payload, offset);
+            offset = previousVersion.end();
+            LazyMap conflictDetails = new LazyMap(payload, offset);
+
+            operation.setData(data);
+            operation.setPreviousVersion(previousVersion.isNull() ? null : previousVersion);
+            operation.setConflictDetails(conflictDetails);
+            return operation;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error decoding sync operation", e);
+            return null;
+        }
+    }
+
+    /**
+     * Read only the operation ID from a payload.
+     *
+     * @param payload Encoded payload
+     * @return Operation ID, or null if the payload is missing or unreadable
+     */
+    public static String readOperationId(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            return in.readUnsignedByte() == VERSION ? readString(in) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Sections
+    //-----------------------------------------------------------------------------------
+
+    private static void writeSection(DataOutputStream out, Map<String, Object> map) throws IOException {
+        if (map == null) {
+            out.writeInt(-1);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream(bytes);
+        writeValue(section, map);
+        section.flush();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Map view over an encoded section that decodes on first access. Mutations go to the
+     * decoded copy.
+     */
+    private static final class LazyMap extends AbstractMap<String, Object> {
+        private final byte[] payload;
+        private final int start;
+        private final int length;
+        private Map<String, Object> decoded;
+
+        LazyMap(byte[] payload, int offset) {
+            this.payload = payload;
+            this.start = offset + 4;
+            this.length = ((payload[offset] & 0xff) << 24) | ((payload[offset + 1] & 0xff) << 16)
+                    | ((payload[offset + 2] & 0xff) << 8) | (payload[offset + 3] & 0xff);
+        }
+
+        boolean isNull() {
+            return length < 0;
+        }
+
+        int end() {
+            return start + Math.max(length, 0);
+        }
+
+        private Map<String, Object> map() {
+            if (decoded == null) {
+                Map<String, Object> map = null;
+                if (length > 0) {
+                    try {
+                        map = asMap(readValue(new DataInputStream(
+                                new ByteArrayInputStream(payload, start, length))));
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error decoding sync operation section", e);
+                    }
+                }
+                decoded = map != null ? map : new HashMap<>();
+            }
+            return decoded;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return map().entrySet();
+        }
+
+        @Override
+        public Object get(Object key) {
+            return map().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map().containsKey(key);
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            return map().put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return map().remove(key);
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Values
+    //-----------------------------------------------------------------------------------
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeText(out, (String) value);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TAG_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeText(out, String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            out.writeByte(TAG_LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TAG_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getSeconds());
+            out.writeInt(((Timestamp) value).getNanoseconds());
+        } else if (value instanceof Date) {
+            out.writeByte(TAG_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof GeoPoint) {
+            out.writeByte(TAG_GEO_POINT);
+            out.writeDouble(((GeoPoint) value).getLatitude());
+            out.writeDouble(((GeoPoint) value).getLongitude());
+        } else {
+            // Anything else keeps the previous JSON behaviour
+            out.writeByte(TAG_JSON);
+            writeString(out, JsonSerializer.toJson(value));
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readText(in);
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_MAP: {
+                int size = in.readInt();
+                Map<String, Object> map = new HashMap<>(Math.max(4, size * 2));
+                for (int i = 0; i < size; i++) {
+                    String key = readText(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case TAG_LIST: {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_TIMESTAMP:
+                return new Timestamp(in.readLong(), in.readInt());
+            case TAG_DATE:
+                return new Date(in.readLong());
+            case TAG_GEO_POINT:
+                return new GeoPoint(in.readDouble(), in.readDouble());
+            case TAG_JSON:
+                return JsonSerializer.fromJson(readString(in), Object.class);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    // Length-prefixed UTF-8; writeUTF would cap strings at 64 KB
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeText(out, value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readText(in) : null;
+    }
+
+    private static void writeTime(DataOutputStream out, Date value) throws IOException {
+        out.writeLong(value != null ? value.getTime() : NO_TIME);
+    }
+
+    private static Date readTime(DataInputStream in) throws IOException {
+        long value = in.readLong();
+        return value != NO_TIME ? new Date(value) : null;
+    }
+}
@@ -64,12 +64,56 @@ public interface PendingOperationDao {
     @Query("SELECT * FROM pending_operations WHERE targetId = :targetId AND operationType = :operationType LIMIT 1")
     PendingOperationEntity getByTargetAndType(String targetId, String operationType);
     
+    /**
+     * Get all pending operations for a specific target ID
+     */
+    @Query("SELECT * FROM pending_operations WHERE targetId = :targetId ORDER BY createdAt ASC")
+    List<PendingOperationEntity> getByTarget(String targetId);
+
+    /**
+     * Get the number of pending operations for a specific user
+     */
+    @Query("SELECT COUNT(*) FROM pending_operations WHERE userId = :userId")
+    int getCountForUser(String userId);
+
     /**
      * Get all operations that have been retried fewer than a maximum number of times
      */
     @Query("SELECT * FROM pending_operations WHERE retryCount < :maxRetries ORDER BY lastAttempt ASC")
     List<PendingOperationEntity> getRetryableOperations(int maxRetries);
     
+    /**
+     * Get operations that are due for an attempt, earliest first, up to a limit.
+     * Served by the nextAttemptTime index; parked operations (null due time) are skipped.
+     */
+    @Query("SELECT * FROM pending_operations WHERE nextAttemptTime <= :now ORDER BY nextAttemptTime ASC LIMIT :limit")
+    List<PendingOperationEntity> getDueOperations(Date now, int limit);
+
+    /**
+     * Get operations in a priority lane that are due for an attempt, earliest first, up to a limit.
+     * Served by the (priority, nextAttemptTime) index.
+     */
+    @Query("SELECT * FROM pending_operations WHERE priority = :priority AND nextAttemptTime <= :now ORDER BY nextAttemptTime ASC LIMIT :limit")
+    List<PendingOperationEntity> getDueOperationsForPriority(String priority, Date now, int limit);
+
+    /**
+     * Get the number of operations in a priority lane that are due for an attempt
+     */
+    @Query("SELECT COUNT(*) FROM pending_operations WHERE priority = :priority AND nextAttemptTime <= :now")
+    int getDueCountForPriority(String priority, Date now);
+
+    /**
+     * Get the number of operations that are due for an attempt
+     */
+    @Query("SELECT COUNT(*) FROM pending_operations WHERE nextAttemptTime <= :now")
+    int getDueCount(Date now);
+
+    /**
+     * Get the earliest due time of any scheduled operation, or null if none are scheduled
+     */
+    @Query("SELECT MIN(nextAttemptTime) FROM pending_operations WHERE nextAttemptTime IS NOT NULL")
+    Date getEarliestNextAttemptTime();
+
     /**
      * Delete all operations for a specific user
      */
@@ -1,6 +1,8 @@
 package com.autogratuity.data.local;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -8,9 +10,28 @@ import java.util.Date;
 
 /**
  * Entity to track operations that need to be performed when online
- * Serves as a queue for pending operations
+ * Serves as a queue for pending operations.
+ * <p>
+ * {@code nextAttemptTime} is the due time of the next attempt and is indexed so the
+ * sync pass only reads operations that are due. A null value parks the operation
+ * (permanently failed or retries exhausted) until it is explicitly retried.
+ * <p>
+ * {@code priority} is the dispatcher lane (interactive, normal or bulk); the composite
+ * index lets each lane be read in due-time order independently of the others.
+ * The remaining indices back the per-user, per-target and retry lookups.
+ * <p>
+ * {@code payload} is the operation in {@link OperationCodec}'s binary encoding.
  */
-@Entity(tableName = "pending_operations")
+@Entity(
+    tableName = "pending_operations",
+    indices = {
+        @Index(value = {"nextAttemptTime"}),
+        @Index(value = {"priority", "nextAttemptTime"}),
+        @Index(value = {"userId", "createdAt"}),
+        @Index(value = {"targetId", "operationType"}),
+        @Index(value = {"retryCount", "lastAttempt"})
+    }
+)
 @TypeConverters(Converters.class)
 public class PendingOperationEntity {
     
@@ -26,10 +47,13 @@ public class PendingOperationEntity {
     private String operationType;
     private String targetId;
     private String userId;
-    private String jsonData;
+    private byte[] payload;
     private int retryCount;
     private Date createdAt;
     private Date lastAttempt;
+    private Date nextAttemptTime;
+    @ColumnInfo(defaultValue = "normal")
+    private String priority;
     
     // Getters and setters
     
@@ -65,12 +89,12 @@ public class PendingOperationEntity {
         this.userId = userId;
     }
     
-    public String getJsonData() {
-        return jsonData;
+    public byte[] getPayload() {
+        return payload;
     }
     
-    public void setJsonData(String jsonData) {
-        this.jsonData = jsonData;
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
     }
     
     public int getRetryCount() {
@@ -96,4 +120,20 @@ public class PendingOperationEntity {
     public void setLastAttempt(Date lastAttempt) {
         this.lastAttempt = lastAttempt;
     }
+    
+    public Date getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+    
+    public void setNextAttemptTime(Date nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+    
+    public String getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
 }
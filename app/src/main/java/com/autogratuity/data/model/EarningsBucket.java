@@ -0,0 +1,91 @@
+package com.autogratuity.data.model;
+
+import java.util.Date;
+
+/**
+ * Model class representing tip and pay earnings over one time bucket.
+ * Used for charts and range totals, not directly mapped to a Firestore collection.
+ */
+public class EarningsBucket {
+
+    public static final String RESOLUTION_HOUR = "hour";
+    public static final String RESOLUTION_DAY = "day";
+
+    private Date start;
+    private int deliveryCount;
+    private int tipCount;
+    private double tipTotal;
+    private double payTotal;
+
+    // Default constructor
+    public EarningsBucket() {
+    }
+
+    /**
+     * Create an earnings bucket with values
+     *
+     * @param start Bucket start (null for a range total)
+     * @param deliveryCount Deliveries in the bucket
+     * @param tipCount Deliveries with tips
+     * @param tipTotal Sum of tips
+     * @param payTotal Sum of pay
+     */
+    public EarningsBucket(Date start, int deliveryCount, int tipCount, double tipTotal, double payTotal) {
+        this.start = start;
+        this.deliveryCount = deliveryCount;
+        this.tipCount = tipCount;
+        this.tipTotal = tipTotal;
+        this.payTotal = payTotal;
+    }
+
+    // Getters and setters
+
+    public Date getStart() {
+        return start;
+    }
+
+    public void setStart(Date start) {
+        this.start = start;
+    }
+
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    public void setDeliveryCount(int deliveryCount) {
+        this.deliveryCount = deliveryCount;
+    }
+
+    public int getTipCount() {
+        return tipCount;
+    }
+
+    public void setTipCount(int tipCount) {
+        this.tipCount = tipCount;
+    }
+
+    public double getTipTotal() {
+        return tipTotal;
+    }
+
+    public void setTipTotal(double tipTotal) {
+        this.tipTotal = tipTotal;
+    }
+
+    public double getPayTotal() {
+        return payTotal;
+    }
+
+    public void setPayTotal(double payTotal) {
+        this.payTotal = payTotal;
+    }
+
+    /**
+     * Get tips plus pay
+     *
+     * @return Total earnings
+     */
+    public double getTotal() {
+        return tipTotal + payTotal;
+    }
+}
@@ -0,0 +1,275 @@
+package com.autogratuity.data.model;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point-in-time snapshot of the sync engine metrics.
+ * Like SyncStatus this is not stored in Firestore; it is produced by the sync metrics
+ * registry for diagnostics and for tuning batch sizes and schedules.
+ */
+public class SyncMetrics {
+
+    /**
+     * Snapshot of a fixed-bucket histogram.
+     * {@code counts} has one more entry than {@code upperBounds}; the last entry
+     * counts values above the largest bound.
+     */
+    public static class Histogram {
+        private final long[] upperBounds;
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        public Histogram(long[] upperBounds, long[] counts, long count, long sum, long max) {
+            this.upperBounds = upperBounds;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long[] getUpperBounds() {
+            return upperBounds.clone();
+        }
+
+        public long[] getCounts() {
+            return counts.clone();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * Estimate a percentile as the upper bound of the bucket that contains it.
+         *
+         * @param percentile Percentile between 0 and 100
+         * @return Estimated value, or 0 if empty
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < upperBounds.length ? Math.min(upperBounds[i], max) : max;
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Queue depth observed at a point in time.
+     */
+    public static class DepthSample {
+        private final long timestampMs;
+        private final int depth;
+
+        public DepthSample(long timestampMs, int depth) {
+            this.timestampMs = timestampMs;
+            this.depth = depth;
+        }
+
+        public long getTimestampMs() {
+            return timestampMs;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private final Date capturedAt;
+    private final Date since;
+    private final Histogram commitLatencyMs;
+    private final Histogram batchSizes;
+    private final long operationsCommitted;
+    private final long bytesWritten;
+    private final Map<String, Long> retriesByErrorType;
+    private final Map<String, Long> attemptsByEntityType;
+    private final Map<String, Long> conflictsByEntityType;
+    private final List<DepthSample> queueDepth;
+
+    public SyncMetrics(Date capturedAt,
+                       Date since,
+                       Histogram commitLatencyMs,
+                       Histogram batchSizes,
+                       long operationsCommitted,
+                       long bytesWritten,
+                       Map<String, Long> retriesByErrorType,
+                       Map<String, Long> attemptsByEntityType,
+                       Map<String, Long> conflictsByEntityType,
+                       List<DepthSample> queueDepth) {
+        this.capturedAt = capturedAt;
+        this.since = since;
+        this.commitLatencyMs = commitLatencyMs;
+        this.batchSizes = batchSizes;
+        this.operationsCommitted = operationsCommitted;
+        this.bytesWritten = bytesWritten;
+        this.retriesByErrorType = Collections.unmodifiableMap(retriesByErrorType);
+        this.attemptsByEntityType = Collections.unmodifiableMap(attemptsByEntityType);
+        this.conflictsByEntityType = Collections.unmodifiableMap(conflictsByEntityType);
+        this.queueDepth = Collections.unmodifiableList(queueDepth);
+    }
+
+    // Getters
+
+    public Date getCapturedAt() {
+        return capturedAt;
+    }
+
+    public Date getSince() {
+        return since;
+    }
+
+    public Histogram getCommitLatencyMs() {
+        return commitLatencyMs;
+    }
+
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public long getOperationsCommitted() {
+        return operationsCommitted;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public Map<String, Long> getRetriesByErrorType() {
+        return retriesByErrorType;
+    }
+
+    public Map<String, Long> getAttemptsByEntityType() {
+        return attemptsByEntityType;
+    }
+
+    public Map<String, Long> getConflictsByEntityType() {
+        return conflictsByEntityType;
+    }
+
+    public List<DepthSample> getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Get the conflict rate for an entity type
+     * @param entityType Entity type
+     * @return Conflicts per attempt, or 0 if there were no attempts
+     */
+    public double getConflictRate(String entityType) {
+        Long attempts = attemptsByEntityType.get(entityType);
+        Long conflicts = conflictsByEntityType.get(entityType);
+        if (attempts == null || attempts == 0 || conflicts == null) {
+            return 0;
+        }
+        return (double) conflicts / attempts;
+    }
+
+    /**
+     * Get the latest observed queue depth
+     * @return Queue depth, or 0 if none was recorded
+     */
+    public int getCurrentQueueDepth() {
+        return queueDepth.isEmpty() ? 0 : queueDepth.get(queueDepth.size() - 1).getDepth();
+    }
+
+    /**
+     * Format the metrics as plain text for a diagnostics screen or a bug report.
+     *
+     * @return Multi-line human-readable dump
+     */
+    public String toDebugString() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Sync metrics ").append(format.format(capturedAt))
+                .append(" (since ").append(format.format(since)).append(")\n\n");
+
+        sb.append("Committed: ").append(operationsCommitted)
+                .append(" ops, ").append(bytesWritten).append(" bytes\n");
+        sb.append("Queue depth: ").append(getCurrentQueueDepth()).append('\n');
+
+        sb.append("\nEnqueue-to-commit latency (ms)\n");
+        appendHistogram(sb, commitLatencyMs);
+
+        sb.append("\nBatch size\n");
+        appendHistogram(sb, batchSizes);
+
+        sb.append("\nRetries by error type\n");
+        appendCounts(sb, retriesByErrorType);
+
+        sb.append("\nConflicts by entity type\n");
+        if (attemptsByEntityType.isEmpty()) {
+            sb.append("  (none)\n");
+        }
+        for (Map.Entry<String, Long> entry : new TreeMap<>(attemptsByEntityType).entrySet()) {
+            Long conflicts = conflictsByEntityType.get(entry.getKey());
+            sb.append("  ").append(entry.getKey()).append(": ")
+                    .append(conflicts != null ? conflicts : 0).append('/').append(entry.getValue())
+                    .append(String.format(Locale.US, " (%.1f%%)", getConflictRate(entry.getKey()) * 100))
+                    .append('\n');
+        }
+
+        sb.append("\nQueue depth over time\n");
+        if (queueDepth.isEmpty()) {
+            sb.append("  (none)\n");
+        }
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.US);
+        for (DepthSample sample : queueDepth) {
+            sb.append("  ").append(timeFormat.format(new Date(sample.getTimestampMs())))
+                    .append("  ").append(sample.getDepth()).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, Histogram histogram) {
+        sb.append(String.format(Locale.US, "  n=%d mean=%.1f p50=%d p95=%d p99=%d max=%d\n",
+                histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                histogram.getPercentile(95), histogram.getPercentile(99), histogram.getMax()));
+        long[] bounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            sb.append("  ").append(i < bounds.length ? "<=" + bounds[i] : ">" + bounds[bounds.length - 1])
+                    .append(": ").append(counts[i]).append('\n');
+        }
+    }
+
+    private static void appendCounts(StringBuilder sb, Map<String, Long> counts) {
+        if (counts.isEmpty()) {
+            sb.append("  (none)\n");
+        }
+        for (Map.Entry<String, Long> entry : new TreeMap<>(counts).entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+    }
+}
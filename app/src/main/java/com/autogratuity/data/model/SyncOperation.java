@@ -24,6 +24,11 @@ public class SyncOperation {
     // Conflict resolution constants
     public static final String CONFLICT_RESOLUTION_SERVER_WINS = "server_wins";
     public static final String CONFLICT_RESOLUTION_CLIENT_WINS = "client_wins";
+    
+    // Priority lane constants
+    public static final String PRIORITY_INTERACTIVE = "interactive"; // User-visible captures (tips, completions)
+    public static final String PRIORITY_NORMAL = "normal";
+    public static final String PRIORITY_BULK = "bulk"; // Imports and housekeeping pings
 
     @DocumentId
     private String operationId;
@@ -55,6 +60,7 @@ public class SyncOperation {
     private boolean hasConflict; // Flag indicating if a conflict was detected
     private String conflictType; // Type of conflict detected
     private Map<String, Object> conflictDetails; // Detailed information about the conflict
+    private String priority; // Priority lane used by the sync dispatcher
     
     // Default constructor required for Firestore
     public SyncOperation() {
@@ -181,6 +187,30 @@ public class SyncOperation {
         this.error = error;
     }
     
+    /**
+     * Set detailed error information.
+     * @param errorInfo ErrorInfo object, or null to derive it from the error message
+     */
+    public void setErrorInfo(ErrorInfo errorInfo) {
+        this.errorInfo = errorInfo;
+    }
+    
+    /**
+     * Get the type of the last error.
+     * @return String error type
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+    
+    /**
+     * Set the type of the last error.
+     * @param errorType Error type
+     */
+    public void setErrorType(String errorType) {
+        this.errorType = errorType;
+    }
+    
     public int getAttempts() {
         return attempts;
     }
@@ -243,6 +273,39 @@ public class SyncOperation {
         return underMaxRetries && hasAppropriateStatus && retryable;
     }
     
+    /**
+     * Get the priority lane for this operation.
+     * @return String priority lane (one of the PRIORITY_* constants), or null if unset
+     */
+    public String getPriority() {
+        return priority;
+    }
+    
+    /**
+     * Set the priority lane for this operation.
+     * @param priority One of the PRIORITY_* constants
+     */
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+    
+    /**
+     * Get the default priority lane for an operation.
+     * Tip updates are interactive, device housekeeping is bulk, everything else is normal.
+     * @param type Operation type (create, update, delete, updateTip)
+     * @param entityType Entity type
+     * @return String priority lane
+     */
+    public static String defaultPriorityFor(String type, String entityType) {
+        if ("updateTip".equals(type)) {
+            return PRIORITY_INTERACTIVE;
+        }
+        if ("device".equals(entityType) || "import_request".equals(entityType)) {
+            return PRIORITY_BULK;
+        }
+        return PRIORITY_NORMAL;
+    }
+    
     /**
      * Get the conflict resolution strategy.
      * @return String conflict resolution strategy
@@ -283,6 +346,14 @@ public class SyncOperation {
         return nextAttemptTime;
     }
     
+    /**
+     * Set the next attempt time.
+     * @param nextAttemptTime Next attempt time
+     */
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+    
     /**
      * Calculate and get the delay until next retry in milliseconds
      * @return long milliseconds until next retry or -1 if not retryable
@@ -338,6 +409,62 @@ public class SyncOperation {
         return retryCount;
     }
     
+    /**
+     * Set the retry count for this operation.
+     * @param retryCount Retry count
+     */
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+    
+    /**
+     * Get the maximum number of retries.
+     * @return int maximum retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+    
+    /**
+     * Set the maximum number of retries.
+     * @param maxRetries Maximum retries
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+    
+    /**
+     * Check if the last failure was retryable.
+     * @return true if the operation may be retried
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+    
+    /**
+     * Set whether the last failure was retryable.
+     * @param retryable true if the operation may be retried
+     */
+    public void setRetryable(boolean retryable) {
+        this.retryable = retryable;
+    }
+    
+    /**
+     * Get the completion timestamp.
+     * @return Date completed, or null
+     */
+    public Date getCompletedAt() {
+        return completedAt != null ? completedAt.toDate() : null;
+    }
+    
+    /**
+     * Get the last attempt timestamp.
+     * @return Date of the last attempt, or null
+     */
+    public Date getLastAttemptTime() {
+        return lastAttemptTime != null ? lastAttemptTime.toDate() : null;
+    }
+    
     /**
      * Get error code.
      * @return String error code
@@ -1,6 +1,8 @@
 package com.autogratuity.data.model;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * Model class representing the synchronization status of the application.
@@ -14,6 +16,11 @@ public class SyncStatus {
     public static final String STATUS_ERROR = "error";
     public static final String STATUS_OFFLINE = "offline";
     
+    // Circuit breaker states (mirrors CircuitBreaker.STATE_*)
+    public static final String CIRCUIT_CLOSED = "closed";
+    public static final String CIRCUIT_OPEN = "open";
+    public static final String CIRCUIT_HALF_OPEN = "half_open";
+    
     private String status;
     private boolean isOnline;
     private Date lastSyncTime;
@@ -22,10 +29,15 @@ public class SyncStatus {
     private int pendingOperations;
     private int failedOperations;
     private boolean backgroundSyncEnabled;
+    private String circuitState;
+    private Date circuitRetryAt;
+    private Map<String, Integer> concurrencyLimits;
     
     // Default constructor
     public SyncStatus() {
         this.status = STATUS_IDLE;
+        this.circuitState = CIRCUIT_CLOSED;
+        this.concurrencyLimits = Collections.emptyMap();
         this.isOnline = true;
         this.pendingOperations = 0;
         this.failedOperations = 0;
@@ -38,6 +50,8 @@ public class SyncStatus {
      */
     public SyncStatus(String status) {
         this.status = status;
+        this.circuitState = CIRCUIT_CLOSED;
+        this.concurrencyLimits = Collections.emptyMap();
         this.isOnline = true;
         this.pendingOperations = 0;
         this.failedOperations = 0;
@@ -115,6 +129,38 @@ public class SyncStatus {
         this.backgroundSyncEnabled = backgroundSyncEnabled;
     }
     
+    public String getCircuitState() {
+        return circuitState;
+    }
+    
+    public void setCircuitState(String circuitState) {
+        this.circuitState = circuitState;
+    }
+    
+    public Date getCircuitRetryAt() {
+        return circuitRetryAt;
+    }
+    
+    public void setCircuitRetryAt(Date circuitRetryAt) {
+        this.circuitRetryAt = circuitRetryAt;
+    }
+    
+    public Map<String, Integer> getConcurrencyLimits() {
+        return concurrencyLimits;
+    }
+    
+    public void setConcurrencyLimits(Map<String, Integer> concurrencyLimits) {
+        this.concurrencyLimits = concurrencyLimits != null ? concurrencyLimits : Collections.emptyMap();
+    }
+    
+    /**
+     * Check if the backend circuit breaker is currently rejecting calls
+     * @return true if the circuit is open
+     */
+    public boolean isCircuitOpen() {
+        return CIRCUIT_OPEN.equals(circuitState);
+    }
+    
     /**
      * Convenience method to update status with error information
      * 
@@ -163,6 +209,9 @@ public class SyncStatus {
      * @return A user-friendly status message
      */
     public String getStatusMessage() {
+        if (isCircuitOpen() && !STATUS_OFFLINE.equals(status)) {
+            return "Server is busy. Changes will sync automatically shortly.";
+        }
         switch (status) {
             case STATUS_SYNCING:
                 return "Syncing data...";
@@ -1,5 +1,7 @@
 package com.autogratuity.data.repository.address;
 
+import androidx.paging.PagingData;
+
 import com.autogratuity.data.model.Address;
 import com.autogratuity.data.repository.core.DataRepository;
 import com.google.firebase.firestore.DocumentReference;
@@ -8,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 
@@ -47,6 +50,14 @@ public interface AddressRepository extends DataRepository {
     @Override
     Single<Address> findAddressByNormalizedAddress(String normalizedAddress);
     
+    /**
+     * Find the address an order was delivered to, from the locally stored deliveries.
+     * 
+     * @param orderId The order ID
+     * @return Single that emits a list with the address, or an empty list if the order is not stored
+     */
+    Single<List<Address>> findAddressByOrderId(String orderId);
+    
     /**
      * Add a new address. Will check for duplicates using normalized address.
      * 
@@ -91,6 +102,32 @@ public interface AddressRepository extends DataRepository {
     @Override
     Observable<Address> observeAddress(String addressId);
     
+    /**
+     * Stream all addresses from the local database.
+     * Emits immediately from Room and again whenever Firestore changes are written through.
+     * 
+     * @return Flowable that emits the current list of addresses
+     */
+    Flowable<List<Address>> streamAddresses();
+    
+    /**
+     * Stream a single address from the local database.
+     * A Firestore refresh is started on subscription.
+     * 
+     * @param addressId The address ID
+     * @return Flowable that emits the address whenever it changes
+     */
+    Flowable<Address> streamAddress(String addressId);
+    
+    /**
+     * Page through all addresses from the local database, most delivered-to first.
+     * The address listener keeps the local database in step with Firestore.
+     * 
+     * @param pageSize Number of addresses per page
+     * @return Flowable of PagingData for a paging adapter
+     */
+    Flowable<PagingData<Address>> getAddressPages(int pageSize);
+    
     //-----------------------------------------------------------------------------------
     // Convenience Methods
     //-----------------------------------------------------------------------------------
@@ -4,11 +4,19 @@ import android.content.Context;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.rxjava2.PagingRx;
+
+import com.autogratuity.data.local.AddressEntity;
+import com.autogratuity.data.local.LocalDataStore;
 import com.autogratuity.data.model.Address;
 import com.autogratuity.data.model.UserProfile;
 import com.autogratuity.data.repository.core.FirestoreRepository;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.ListenerRegistration;
@@ -27,6 +35,7 @@ import java.util.UUID;
 import java.util.regex.Pattern;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.subjects.BehaviorSubject;
@@ -47,10 +56,18 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
     private static final String CACHE_ADDRESSES = "addresses";
     private static final String CACHE_ADDRESS = "address";
     
+    // Maximum number of search results
+    private static final int SEARCH_LIMIT = 50;
+    
+    // Pages kept in memory by the paged list
+    private static final int PAGES_IN_MEMORY = 5;
+    
     // Subject for real-time updates
-    private final BehaviorSubject<List<Address>> addressesSubject = BehaviorSubject.create();
     private final Map<String, BehaviorSubject<Address>> addressSubjects = new HashMap<>();
     
+    // Local single source of truth
+    private final LocalDataStore localStore;
+    
     /**
      * Constructor for AddressRepositoryImpl
      * 
@@ -58,6 +75,7 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
      */
     public AddressRepositoryImpl(Context context) {
         super(context);
+        this.localStore = LocalDataStore.getInstance(context);
         setupAddressesListener();
     }
     
@@ -82,6 +100,21 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                             Address address = doc.toObject(Address.class);
                             if (address != null) {
                                 addresses.add(address);
+                            }
+                        }
+                        
+                        // Write only the changes through to Room in one transaction. This query
+                        // is not limited, so a removed document was deleted.
+                        List<Address> changed = new ArrayList<>();
+                        List<String> removed = new ArrayList<>();
+                        for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                            if (change.getType() == DocumentChange.Type.REMOVED) {
+                                removed.add(change.getDocument().getId());
+                                continue;
+                            }
+                            Address address = change.getDocument().toObject(Address.class);
+                            if (address != null) {
+                                changed.add(address);
                                 
                                 // Also emit to address-specific subject if exists
                                 String addressId = address.getAddressId();
@@ -90,10 +123,10 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                                 }
                             }
                         }
+                        runLocal(localStore.applyRemoteAddresses(userId, changed, removed));
                         
-                        // Cache and emit
+                        // Cache the full list; observers are fed by Room
                         putInCache(CACHE_ADDRESSES + "_" + userId, addresses);
-                        addressesSubject.onNext(addresses);
                     }
                 });
         
@@ -101,20 +134,38 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
         activeListeners.put(listenerKey, listener);
     }
     
+    /**
+     * Runs a local store write in the background, logging failures
+     * 
+     * @param write Local store write
+     */
+    private void runLocal(Completable write) {
+        write.subscribe(() -> {}, throwable -> Log.e(TAG, "Error writing to local store", throwable));
+    }
+    
     @Override
     public Single<List<Address>> getAddresses() {
+        List<Address> cached = getFromCache(CACHE_ADDRESSES + "_" + userId);
+        if (cached != null) {
+            return Single.just(cached);
+        }
+        
+        // Then Room, which the listener keeps in sync, then Firestore
+        return localStore.getAddresses(userId)
+                .flatMap(local -> local.isEmpty() ? fetchAddresses() : Single.just(local));
+    }
+    
+    /**
+     * Gets all addresses from Firestore and writes them through to Room
+     * 
+     * @return Single that emits the list of addresses
+     */
+    private Single<List<Address>> fetchAddresses() {
         return Single.create(emitter -> {
-            // First try memory cache
-            List<Address> cached = getFromCache(CACHE_ADDRESSES + "_" + userId);
-            if (cached != null) {
-                emitter.onSuccess(cached);
-                return;
-            }
-            
-            // Then try Firestore
-            db.collection(COLLECTION_ADDRESSES)
+            // Query Firestore
+            guardedTask(COLLECTION_ADDRESSES, () -> db.collection(COLLECTION_ADDRESSES)
                     .whereEqualTo("userId", userId)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Address> addresses = new ArrayList<>();
                         
@@ -125,18 +176,15 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                             }
                         }
                         
-                        // Cache and emit
+                        // Cache, write through and emit
                         putInCache(CACHE_ADDRESSES + "_" + userId, addresses);
+                        runLocal(localStore.applyRemoteAddresses(userId, addresses, null));
                         emitter.onSuccess(addresses);
-                        
-                        // Also emit to subject
-                        addressesSubject.onNext(addresses);
                     })
                     .addOnFailureListener(e -> {
                         if (!isNetworkAvailable()) {
-                            // If offline, return empty list for now
-                            // A more complete implementation would store in local database
-                            emitter.onSuccess(new ArrayList<>());
+                            // Offline - serve what Room has
+                            localStore.getAddresses(userId).subscribe(emitter::onSuccess, emitter::onError);
                         } else {
                             Log.e(TAG, "Error getting addresses", e);
                             emitter.onError(e);
@@ -151,17 +199,29 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
             return Single.error(new IllegalArgumentException("Address ID cannot be empty"));
         }
         
+        Address cached = getFromCache(CACHE_ADDRESS + "_" + addressId);
+        if (cached != null) {
+            return Single.just(cached);
+        }
+        
+        // Then Room, then Firestore
+        return localStore.getAddress(addressId)
+                .flatMap(local -> local.isEmpty() || !userId.equals(local.get(0).getUserId())
+                        ? fetchAddressById(addressId)
+                        : Single.just(local.get(0)));
+    }
+    
+    /**
+     * Gets an address from Firestore and writes it through to Room
+     * 
+     * @param addressId The address ID
+     * @return Single that emits the address
+     */
+    private Single<Address> fetchAddressById(String addressId) {
         return Single.create(emitter -> {
-            // First try memory cache
-            Address cached = getFromCache(CACHE_ADDRESS + "_" + addressId);
-            if (cached != null) {
-                emitter.onSuccess(cached);
-                return;
-            }
-            
-            // Then try Firestore
+            // Query Firestore
             DocumentReference docRef = db.collection(COLLECTION_ADDRESSES).document(addressId);
-            docRef.get()
+            guardedTask(COLLECTION_ADDRESSES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Address address = documentSnapshot.toObject(Address.class);
@@ -172,8 +232,10 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                                     return;
                                 }
                                 
-                                // Cache and emit
+                                // Cache, write through and emit
                                 putInCache(CACHE_ADDRESS + "_" + addressId, address);
+                                runLocal(localStore.applyRemoteAddresses(
+                                        userId, Collections.singletonList(address), null));
                                 emitter.onSuccess(address);
                                 
                                 // Also emit to address-specific subject if exists
@@ -200,19 +262,43 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
             return Single.error(new IllegalArgumentException("Normalized address cannot be empty"));
         }
         
+        // Room first, then Firestore
+        return localStore.findAddressByNormalizedAddress(userId, normalizedAddress)
+                .flatMap(local -> local.isEmpty()
+                        ? fetchAddressByNormalizedAddress(normalizedAddress)
+                        : Single.just(local.get(0)));
+    }
+    
+    @Override
+    public Single<List<Address>> findAddressByOrderId(String orderId) {
+        if (orderId == null || orderId.isEmpty()) {
+            return Single.error(new IllegalArgumentException("Order ID cannot be empty"));
+        }
+        return localStore.findAddressByOrderId(userId, orderId);
+    }
+    
+    /**
+     * Finds an address by normalized form in Firestore and writes it through to Room
+     * 
+     * @param normalizedAddress The normalized address
+     * @return Single that emits the address, or null if not found
+     */
+    private Single<Address> fetchAddressByNormalizedAddress(String normalizedAddress) {
         return Single.create(emitter -> {
             // Query Firestore for the address
-            db.collection(COLLECTION_ADDRESSES)
+            guardedTask(COLLECTION_ADDRESSES, () -> db.collection(COLLECTION_ADDRESSES)
                     .whereEqualTo("userId", userId)
                     .whereEqualTo("normalizedAddress", normalizedAddress)
                     .limit(1)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         if (!querySnapshot.isEmpty()) {
                             Address address = querySnapshot.getDocuments().get(0).toObject(Address.class);
                             if (address != null) {
-                                // Cache and emit
+                                // Cache, write through and emit
                                 putInCache(CACHE_ADDRESS + "_" + address.getAddressId(), address);
+                                runLocal(localStore.applyRemoteAddresses(
+                                        userId, Collections.singletonList(address), null));
                                 emitter.onSuccess(address);
                             } else {
                                 emitter.onError(new Exception("Failed to parse address"));
@@ -316,10 +402,11 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
         final String finalAddressId = addressId;
         
         return Single.create(emitter -> {
-            docRef.set(address)
+            guardedWrite(COLLECTION_ADDRESSES, () -> docRef.set(address))
                     .addOnSuccessListener(aVoid -> {
                         // Cache the address
                         putInCache(CACHE_ADDRESS + "_" + finalAddressId, address);
+                        runLocal(localStore.saveAddress(address, false));
                         
                         // Invalidate addresses cache
                         invalidateCache(CACHE_ADDRESSES + "_" + userId);
@@ -333,10 +420,11 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                         emitter.onSuccess(docRef);
                     })
                     .addOnFailureListener(e -> {
-                        if (!isNetworkAvailable()) {
+                        if (shouldQueueWrite(e)) {
                             // Create sync operation
                             Map<String, Object> data = new HashMap<>(); // Convert address to map
                             enqueueOperation("create", "address", finalAddressId, data)
+                                    .andThen(localStore.saveAddress(address, true))
                                     .subscribe(
                                             () -> emitter.onSuccess(docRef),
                                             emitter::onError
@@ -398,16 +486,17 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
         
         return Completable.create(emitter -> {
             // First check if address exists and belongs to user
-            docRef.get()
+            guardedTask(COLLECTION_ADDRESSES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Address existingAddress = documentSnapshot.toObject(Address.class);
                             if (existingAddress != null && userId.equals(existingAddress.getUserId())) {
                                 // Update the address
-                                docRef.set(address)
+                                guardedWrite(COLLECTION_ADDRESSES, () -> docRef.set(address))
                                         .addOnSuccessListener(aVoid -> {
                                             // Update cache
                                             putInCache(CACHE_ADDRESS + "_" + address.getAddressId(), address);
+                                            runLocal(localStore.saveAddress(address, false));
                                             
                                             // Invalidate addresses cache
                                             invalidateCache(CACHE_ADDRESSES + "_" + userId);
@@ -415,10 +504,11 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                                             emitter.onComplete();
                                         })
                                         .addOnFailureListener(e -> {
-                                            if (!isNetworkAvailable()) {
+                                            if (shouldQueueWrite(e)) {
                                                 // Create sync operation
                                                 Map<String, Object> data = new HashMap<>(); // Convert address to map
                                                 enqueueOperation("update", "address", address.getAddressId(), data)
+                                                        .andThen(localStore.saveAddress(address, true))
                                                         .subscribe(
                                                                 emitter::onComplete,
                                                                 emitter::onError
@@ -452,17 +542,18 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
         
         return Completable.create(emitter -> {
             // First check if address exists and belongs to user
-            docRef.get()
+            guardedTask(COLLECTION_ADDRESSES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Address address = documentSnapshot.toObject(Address.class);
                             if (address != null && userId.equals(address.getUserId())) {
                                 // Delete the address
-                                docRef.delete()
+                                guardedWrite(COLLECTION_ADDRESSES, docRef::delete)
                                         .addOnSuccessListener(aVoid -> {
                                             // Remove from cache
                                             invalidateCache(CACHE_ADDRESS + "_" + addressId);
                                             invalidateCache(CACHE_ADDRESSES + "_" + userId);
+                                            runLocal(localStore.deleteAddress(addressId));
                                             
                                             // Update user profile with address count
                                             updateAddressCountInUserProfile(-1)
@@ -482,9 +573,10 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                                             emitter.onComplete();
                                         })
                                         .addOnFailureListener(e -> {
-                                            if (!isNetworkAvailable()) {
+                                            if (shouldQueueWrite(e)) {
                                                 // Create sync operation
                                                 enqueueOperation("delete", "address", addressId, null)
+                                                        .andThen(localStore.deleteAddress(addressId))
                                                         .subscribe(
                                                                 emitter::onComplete,
                                                                 emitter::onError
@@ -511,15 +603,36 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
     
     @Override
     public Observable<List<Address>> observeAddresses() {
-        // If we don't have an initial value, trigger a fetch
-        if (!addressesSubject.hasValue()) {
-            getAddresses().subscribe(
-                    addresses -> {}, // Will be emitted through the subject
-                    error -> Log.e(TAG, "Error fetching initial addresses for observation", error)
-            );
+        // Served from Room; the real-time listener writes through
+        return streamAddresses().toObservable();
+    }
+    
+    @Override
+    public Flowable<List<Address>> streamAddresses() {
+        return localStore.observeAddresses(userId);
+    }
+    
+    @Override
+    public Flowable<Address> streamAddress(String addressId) {
+        if (addressId == null || addressId.isEmpty()) {
+            return Flowable.error(new IllegalArgumentException("Address ID cannot be empty"));
         }
+        return localStore.observeAddress(addressId)
+                .filter(address -> userId.equals(address.getUserId()))
+                .doOnSubscribe(subscription -> fetchAddressById(addressId).subscribe(
+                        address -> {},
+                        error -> Log.d(TAG, "Background refresh failed: " + error.getMessage())));
+    }
+    
+    @Override
+    public Flowable<PagingData<Address>> getAddressPages(int pageSize) {
+        // Drop pages far from the viewport so memory stays bounded while scrolling
+        PagingConfig config = new PagingConfig(pageSize, pageSize, false, pageSize * 2,
+                pageSize * PAGES_IN_MEMORY);
+        Pager<Integer, AddressEntity> pager = new Pager<>(config,
+                () -> localStore.addressPagingSource(userId));
         
-        return addressesSubject;
+        return PagingRx.getFlowable(pager).map(localStore::toAddressPage);
     }
     
     @Override
@@ -544,8 +657,10 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
                 if (documentSnapshot != null && documentSnapshot.exists()) {
                     Address address = documentSnapshot.toObject(Address.class);
                     if (address != null && userId.equals(address.getUserId())) {
-                        // Cache and emit
+                        // Cache, write through and emit
                         putInCache(CACHE_ADDRESS + "_" + addressId, address);
+                        runLocal(localStore.applyRemoteAddresses(
+                                userId, Collections.singletonList(address), null));
                         addressSubjects.get(addressId).onNext(address);
                     }
                 }
@@ -580,15 +695,27 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
     
     @Override
     public Single<List<Address>> getBestTippingAddresses(int limit) {
+        // Ranked from the per-address aggregate view; Firestore only while Room has no tipped deliveries
+        return localStore.getBestTippingAddresses(userId, limit)
+                .flatMap(local -> local.isEmpty() ? fetchBestTippingAddresses(limit) : Single.just(local));
+    }
+    
+    /**
+     * Gets the best tipping addresses from the address documents in Firestore
+     * 
+     * @param limit Maximum number of addresses
+     * @return Single that emits the addresses
+     */
+    private Single<List<Address>> fetchBestTippingAddresses(int limit) {
         return Single.create(emitter -> {
             // Query Firestore for addresses with the highest average tip or tip count
-            db.collection(COLLECTION_ADDRESSES)
+            guardedTask(COLLECTION_ADDRESSES, () -> db.collection(COLLECTION_ADDRESSES)
                     .whereEqualTo("userId", userId)
                     .whereGreaterThan("deliveryStats.tipCount", 0) // Only include addresses with tips
                     .orderBy("deliveryStats.tipCount", Query.Direction.DESCENDING) // Sort by tip count
                     .orderBy("deliveryStats.averageTip", Query.Direction.DESCENDING) // Then by average tip
                     .limit(limit)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Address> addresses = new ArrayList<>();
                         
@@ -612,11 +739,11 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
     public Single<List<Address>> getRecentlyUsedAddresses(int limit) {
         return Single.create(emitter -> {
             // Query Firestore by last delivery date
-            db.collection(COLLECTION_ADDRESSES)
+            guardedTask(COLLECTION_ADDRESSES, () -> db.collection(COLLECTION_ADDRESSES)
                     .whereEqualTo("userId", userId)
                     .orderBy("deliveryStats.lastDeliveryDate", Query.Direction.DESCENDING)
                     .limit(limit)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Address> addresses = new ArrayList<>();
                         
@@ -642,58 +769,9 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
             return getAddresses();
         }
         
-        final String normalizedQuery = query.toLowerCase().trim();
-        
+        // getAddresses() fills Room on first use; the search itself is an FTS MATCH
         return getAddresses()
-                .map(addresses -> {
-                    List<Address> results = new ArrayList<>();
-                    
-                    for (Address address : addresses) {
-                        // Check if address matches query
-                        boolean matches = false;
-                        
-                        // Check full address
-                        if (address.getFullAddress() != null && 
-                                address.getFullAddress().toLowerCase().contains(normalizedQuery)) {
-                            matches = true;
-                        }
-                        
-                        // Check components
-                        if (!matches && address.getComponents() != null) {
-                            Address.Components components = address.getComponents();
-                            if ((components.getStreetName() != null && 
-                                 components.getStreetName().toLowerCase().contains(normalizedQuery)) ||
-                                (components.getCity() != null && 
-                                 components.getCity().toLowerCase().contains(normalizedQuery)) ||
-                                (components.getPostalCode() != null && 
-                                 components.getPostalCode().toLowerCase().contains(normalizedQuery))) {
-                                matches = true;
-                            }
-                        }
-                        
-                        // Check tags
-                        if (!matches && address.getTags() != null) {
-                            for (String tag : address.getTags()) {
-                                if (tag.toLowerCase().contains(normalizedQuery)) {
-                                    matches = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        // Check notes
-                        if (!matches && address.getNotes() != null && 
-                                address.getNotes().toLowerCase().contains(normalizedQuery)) {
-                            matches = true;
-                        }
-                        
-                        if (matches) {
-                            results.add(address);
-                        }
-                    }
-                    
-                    return results;
-                });
+                .flatMap(ignored -> localStore.searchAddresses(userId, query, SEARCH_LIMIT));
     }
     
     @Override
@@ -1082,7 +1160,6 @@ public class AddressRepositoryImpl extends FirestoreRepository implements Addres
         activeListeners.clear();
         
         // Clear subjects
-        addressesSubject.onComplete();
         for (BehaviorSubject<Address> subject : addressSubjects.values()) {
             subject.onComplete();
         }
@@ -81,7 +81,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
         
         return Single.create(emitter -> {
             DocumentReference docRef = db.collection(COLLECTION_SYSTEM_CONFIG).document("app_config");
-            docRef.get()
+            guardedTask(COLLECTION_SYSTEM_CONFIG, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             AppConfig config = documentSnapshot.toObject(AppConfig.class);
@@ -292,14 +292,14 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
         
         return Completable.create(emitter -> {
             // First check if device already registered
-            docRef.get()
+            guardedTask(COLLECTION_USER_DEVICES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             // Device already registered, update it
-                            docRef.update(
+                            guardedWrite(COLLECTION_USER_DEVICES, () -> docRef.update(
                                     "lastActive", new Date(),
                                     "metadata.updatedAt", new Date()
-                            )
+                            ))
                             .addOnSuccessListener(aVoid -> {
                                 emitter.onComplete();
                             })
@@ -310,7 +310,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                             });
                         } else {
                             // Create new device record
-                            docRef.set(finalDeviceInfo)
+                            guardedWrite(COLLECTION_USER_DEVICES, () -> docRef.set(finalDeviceInfo))
                                     .addOnSuccessListener(aVoid -> {
                                         // Also update user profile with device ID
                                         addDeviceToUserProfile(deviceId)
@@ -320,8 +320,8 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                                                 );
                                     })
                                     .addOnFailureListener(e -> {
-                                        // Check if offline
-                                        if (!isNetworkAvailable()) {
+                                        // Check if offline or unacknowledged
+                                        if (shouldQueueWrite(e)) {
                                             // Create sync operation for when we're back online through event bus
                                             SyncOperation operation = new SyncOperation(
                                             userId,
@@ -398,7 +398,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
         updates.put("metadata.updatedAt", new Date());
         
         return Completable.create(emitter -> {
-            docRef.update(updates)
+            guardedWrite(COLLECTION_USER_DEVICES, () -> docRef.update(updates))
                     .addOnSuccessListener(aVoid -> {
                         emitter.onComplete();
                     })
@@ -413,7 +413,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                                             emitter::onComplete,
                                             emitter::onError
                                     );
-                        } else if (!isNetworkAvailable()) {
+                        } else if (shouldQueueWrite(e)) {
                             // Create sync operation for when we're back online through event bus
                             SyncOperation operation = new SyncOperation(
                             userId,
@@ -421,6 +421,8 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                             entityType,
                             docId,
                     updates);
+            // Last-active pings are housekeeping and must not delay user captures
+            operation.setPriority(SyncOperation.PRIORITY_BULK);
             
             // Post event to sync repository
             postSyncOperationEvent(operation)
@@ -544,7 +546,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                     .document("counters");
             
             return Completable.create(emitter -> {
-                docRef.update(counterKey, com.google.firebase.firestore.FieldValue.increment(1))
+                guardedWrite(COLLECTION_SYSTEM_CONFIG, () -> docRef.update(counterKey, com.google.firebase.firestore.FieldValue.increment(1)))
                         .addOnSuccessListener(aVoid -> emitter.onComplete())
                         .addOnFailureListener(e -> {
                             if (e instanceof com.google.firebase.firestore.FirebaseFirestoreException &&
@@ -553,7 +555,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                                 // Create if not exists
                                 Map<String, Object> initialData = new HashMap<>();
                                 initialData.put(counterKey, 1);
-                                docRef.set(initialData)
+                                guardedWrite(COLLECTION_SYSTEM_CONFIG, () -> docRef.set(initialData))
                                         .addOnSuccessListener(aVoid -> emitter.onComplete())
                                         .addOnFailureListener(innerE -> {
                                             // Use standardized error handling
@@ -561,7 +563,7 @@ public class ConfigRepositoryImpl extends FirestoreRepository implements ConfigR
                                                     innerE, "creating counter document", entityType);
                                             emitter.onError(new Exception(errorInfo.getUserFriendlyMessage(), innerE));
                                         });
-                            } else if (!isNetworkAvailable()) {
+                            } else if (shouldQueueWrite(e)) {
                                 // Create sync operation for when we're back online
                                 Map<String, Object> updates = new HashMap<>();
                                 updates.put(counterKey, 1); // Will be incremented
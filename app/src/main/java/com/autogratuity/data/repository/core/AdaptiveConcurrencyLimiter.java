@@ -0,0 +1,291 @@
+package com.autogratuity.data.repository.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * Process-wide AIMD (additive increase, multiplicative decrease) concurrency limiter,
+ * keyed by Firestore collection.
+ * <p>
+ * Each key has a limit on in-flight calls. Fast successful calls raise the limit by
+ * roughly one per window of calls, overload errors halve it and slow calls trim it, so
+ * concurrency follows what the backend can currently absorb. Callers beyond the limit
+ * wait in FIFO order instead of adding load, for at most the acquire timeout: a caller
+ * that acquires again while holding a slot of the same key can otherwise wait forever
+ * once the limit has dropped to one.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Call outcomes
+    public static final int OUTCOME_SUCCESS = 0;
+    public static final int OUTCOME_OVERLOAD = 1;
+    public static final int OUTCOME_IGNORED = 2;
+
+    // Default configuration
+    private static final double DEFAULT_INITIAL_LIMIT = 8;
+    private static final double DEFAULT_MIN_LIMIT = 1;
+    private static final double DEFAULT_MAX_LIMIT = 64;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double SLOW_CALL_FACTOR = 0.9;
+    private static final long DEFAULT_SLOW_CALL_MS = 5000;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 10000;
+
+    private static volatile AdaptiveConcurrencyLimiter instance;
+
+    private final double initialLimit;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long slowCallMs;
+    private final long acquireTimeoutMs;
+    private final Scheduler timeoutScheduler;
+
+    private final Map<String, KeyState> states = new ConcurrentHashMap<>();
+    private final Subject<Map<String, Integer>> limitsSubject =
+            BehaviorSubject.createDefault(Collections.<String, Integer>emptyMap()).toSerialized();
+
+    /**
+     * Exception a waiting caller fails with when no slot frees up within the acquire
+     * timeout. It is a {@link TimeoutException}, so callers retry it like any other.
+     */
+    public static class AcquireTimeoutException extends TimeoutException {
+        public AcquireTimeoutException(String key, long timeoutMs) {
+            super("No " + key + " slot within " + timeoutMs + "ms");
+        }
+    }
+
+    /**
+     * Permit handle, marked granted under the limiter lock so a cancelled caller
+     * can always tell whether it owns a slot that must be released.
+     */
+    public static class Permit {
+        private boolean granted;
+
+        public synchronized boolean isGranted() {
+            return granted;
+        }
+
+        synchronized void grant() {
+            granted = true;
+        }
+    }
+
+    private static class Waiter {
+        final Permit permit;
+        final CompletableEmitter emitter;
+
+        Waiter(Permit permit, CompletableEmitter emitter) {
+            this.permit = permit;
+            this.emitter = emitter;
+        }
+    }
+
+    private static class KeyState {
+        double limit;
+        int inFlight;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+        KeyState(double limit) {
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Creates a limiter with the default bounds.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_SLOW_CALL_MS);
+    }
+
+    /**
+     * Creates a limiter with custom bounds.
+     *
+     * @param initialLimit Starting limit for a new key
+     * @param minLimit Lower bound for a key's limit
+     * @param maxLimit Upper bound for a key's limit
+     * @param slowCallMs Latency above which a successful call is treated as congestion
+     */
+    public AdaptiveConcurrencyLimiter(double initialLimit, double minLimit, double maxLimit, long slowCallMs) {
+        this(initialLimit, minLimit, maxLimit, slowCallMs, DEFAULT_ACQUIRE_TIMEOUT_MS, Schedulers.computation());
+    }
+
+    /**
+     * Creates a limiter with custom bounds and acquire timeout.
+     *
+     * @param initialLimit Starting limit for a new key
+     * @param minLimit Lower bound for a key's limit
+     * @param maxLimit Upper bound for a key's limit
+     * @param slowCallMs Latency above which a successful call is treated as congestion
+     * @param acquireTimeoutMs Longest a caller waits for a slot
+     * @param timeoutScheduler Scheduler the acquire timeouts run on
+     */
+    public AdaptiveConcurrencyLimiter(double initialLimit, double minLimit, double maxLimit, long slowCallMs,
+                                      long acquireTimeoutMs, @NonNull Scheduler timeoutScheduler) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.slowCallMs = slowCallMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.timeoutScheduler = timeoutScheduler;
+    }
+
+    /**
+     * Get the shared limiter instance.
+     *
+     * @return AdaptiveConcurrencyLimiter instance
+     */
+    public static AdaptiveConcurrencyLimiter getInstance() {
+        if (instance == null) {
+            synchronized (AdaptiveConcurrencyLimiter.class) {
+                if (instance == null) {
+                    instance = new AdaptiveConcurrencyLimiter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Acquire a slot for a key. Completes immediately if the key is under its limit,
+     * otherwise when an earlier call releases its slot. Fails with
+     * {@link AcquireTimeoutException} if no slot is assigned within the acquire timeout.
+     *
+     * @param key Collection name
+     * @param permit Permit marked granted when the slot is assigned
+     * @return Completable that completes once the slot is held
+     */
+    public Completable acquire(@NonNull String key, @NonNull Permit permit) {
+        return Completable.create(emitter -> {
+            KeyState state = stateFor(key);
+            Waiter waiter = new Waiter(permit, emitter);
+            synchronized (state) {
+                if (state.waiters.isEmpty() && state.inFlight < (int) state.limit) {
+                    state.inFlight++;
+                    permit.grant();
+                } else {
+                    state.waiters.add(waiter);
+                    Disposable timeout = timeoutScheduler.scheduleDirect(() -> {
+                        boolean timedOut;
+                        synchronized (state) {
+                            timedOut = state.waiters.remove(waiter);
+                        }
+                        if (timedOut) {
+                            emitter.tryOnError(new AcquireTimeoutException(key, acquireTimeoutMs));
+                        }
+                    }, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+                    emitter.setCancellable(() -> {
+                        timeout.dispose();
+                        synchronized (state) {
+                            state.waiters.remove(waiter);
+                        }
+                    });
+                    return;
+                }
+            }
+            emitter.onComplete();
+        });
+    }
+
+    /**
+     * Release a slot and adapt the key's limit to the call outcome.
+     *
+     * @param key Collection name
+     * @param latencyMs Call latency in milliseconds
+     * @param outcome One of the OUTCOME_* constants
+     */
+    public void release(@NonNull String key, long latencyMs, int outcome) {
+        KeyState state = stateFor(key);
+        Waiter next = null;
+        boolean limitChanged;
+        synchronized (state) {
+            int before = (int) state.limit;
+            state.inFlight = Math.max(0, state.inFlight - 1);
+
+            if (outcome == OUTCOME_OVERLOAD) {
+                state.limit = Math.max(minLimit, state.limit * DECREASE_FACTOR);
+            } else if (outcome == OUTCOME_SUCCESS) {
+                if (latencyMs > slowCallMs) {
+                    state.limit = Math.max(minLimit, state.limit * SLOW_CALL_FACTOR);
+                } else {
+                    state.limit = Math.min(maxLimit, state.limit + 1.0 / state.limit);
+                }
+            }
+            limitChanged = before != (int) state.limit;
+
+            // Hand the slot to the oldest live waiter
+            while (state.inFlight < (int) state.limit && !state.waiters.isEmpty()) {
+                Waiter waiter = state.waiters.poll();
+                if (!waiter.emitter.isDisposed()) {
+                    state.inFlight++;
+                    waiter.permit.grant();
+                    next = waiter;
+                    break;
+                }
+            }
+        }
+
+        if (next != null) {
+            next.emitter.onComplete();
+        }
+        if (limitChanged) {
+            publishLimits();
+        }
+    }
+
+    /**
+     * Get the current limit for a key.
+     *
+     * @param key Collection name
+     * @return Current concurrency limit
+     */
+    public int getLimit(@NonNull String key) {
+        KeyState state = stateFor(key);
+        synchronized (state) {
+            return (int) state.limit;
+        }
+    }
+
+    /**
+     * Observe the per-collection limits.
+     *
+     * @return Observable that emits a snapshot of the limits whenever one changes
+     */
+    public Observable<Map<String, Integer>> observeLimits() {
+        return limitsSubject.hide();
+    }
+
+    private KeyState stateFor(String key) {
+        KeyState state = states.get(key);
+        if (state == null) {
+            state = states.computeIfAbsent(key, k -> new KeyState(initialLimit));
+            publishLimits();
+        }
+        return state;
+    }
+
+    private void publishLimits() {
+        Map<String, Integer> snapshot = new HashMap<>();
+        for (Map.Entry<String, KeyState> entry : states.entrySet()) {
+            KeyState state = entry.getValue();
+            synchronized (state) {
+                snapshot.put(entry.getKey(), (int) state.limit);
+            }
+        }
+        limitsSubject.onNext(Collections.unmodifiableMap(snapshot));
+    }
+}
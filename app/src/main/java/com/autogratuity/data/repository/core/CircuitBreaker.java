@@ -0,0 +1,258 @@
+package com.autogratuity.data.repository.core;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+
+/**
+ * Process-wide circuit breaker shared by all repositories that talk to Firestore.
+ * <p>
+ * The breaker is CLOSED while the backend is healthy. After a run of consecutive backend
+ * failures (unavailable, quota exhausted, deadline exceeded, timeouts) it OPENS and calls
+ * fail fast until the open period elapses. It then goes HALF_OPEN and lets a single probe
+ * through: a successful probe closes it, a failed probe re-opens it for twice as long.
+ * Client errors such as permission denied or not found say nothing about backend health
+ * and are ignored.
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    // States
+    public static final String STATE_CLOSED = "closed";
+    public static final String STATE_OPEN = "open";
+    public static final String STATE_HALF_OPEN = "half_open";
+
+    // Default configuration
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_INITIAL_OPEN_MS = 5000;       // 5 seconds
+    private static final long DEFAULT_MAX_OPEN_MS = 5 * 60 * 1000;  // 5 minutes
+
+    private static volatile CircuitBreaker instance;
+
+    // Configuration
+    private final int failureThreshold;
+    private final long initialOpenMs;
+    private final long maxOpenMs;
+    private final Scheduler clock;
+
+    // State
+    private String state = STATE_CLOSED;
+    private int consecutiveFailures = 0;
+    private long openDurationMs;
+    private long retryAtMs = 0;
+    private boolean probeInFlight = false;
+
+    private final BehaviorSubject<String> stateSubject = BehaviorSubject.createDefault(STATE_CLOSED);
+
+    /**
+     * Exception used to fail fast while the breaker is open.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        private final long retryAtMs;
+
+        public CircuitOpenException(long retryAtMs) {
+            super("Backend unavailable, circuit open until " + retryAtMs);
+            this.retryAtMs = retryAtMs;
+        }
+
+        /**
+         * @return Epoch milliseconds at which the breaker will admit a probe
+         */
+        public long getRetryAtMs() {
+            return retryAtMs;
+        }
+    }
+
+    /**
+     * Creates a breaker with the default thresholds.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_INITIAL_OPEN_MS, DEFAULT_MAX_OPEN_MS);
+    }
+
+    /**
+     * Creates a breaker with custom thresholds.
+     *
+     * @param failureThreshold Consecutive backend failures that open the breaker
+     * @param initialOpenMs Open period after the first trip
+     * @param maxOpenMs Upper bound for the open period after repeated failed probes
+     */
+    public CircuitBreaker(int failureThreshold, long initialOpenMs, long maxOpenMs) {
+        this(failureThreshold, initialOpenMs, maxOpenMs, Schedulers.computation());
+    }
+
+    /**
+     * Creates a breaker with custom thresholds and clock.
+     *
+     * @param failureThreshold Consecutive backend failures that open the breaker
+     * @param initialOpenMs Open period after the first trip
+     * @param maxOpenMs Upper bound for the open period after repeated failed probes
+     * @param clock Scheduler whose time the open periods are measured in
+     */
+    public CircuitBreaker(int failureThreshold, long initialOpenMs, long maxOpenMs, @NonNull Scheduler clock) {
+        this.failureThreshold = failureThreshold;
+        this.initialOpenMs = initialOpenMs;
+        this.maxOpenMs = maxOpenMs;
+        this.clock = clock;
+        this.openDurationMs = initialOpenMs;
+    }
+
+    /**
+     * Get the shared breaker instance.
+     *
+     * @return CircuitBreaker instance
+     */
+    public static CircuitBreaker getInstance() {
+        if (instance == null) {
+            synchronized (CircuitBreaker.class) {
+                if (instance == null) {
+                    instance = new CircuitBreaker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether a call may proceed. In HALF_OPEN only one probe is admitted at a time.
+     *
+     * @return true if the call may be made
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case STATE_OPEN:
+                if (clock.now(TimeUnit.MILLISECONDS) < retryAtMs) {
+                    return false;
+                }
+                setState(STATE_HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            case STATE_HALF_OPEN:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            case STATE_CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Record a call that reached a healthy backend.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (!STATE_CLOSED.equals(state)) {
+            openDurationMs = initialOpenMs;
+            retryAtMs = 0;
+            setState(STATE_CLOSED);
+        }
+    }
+
+    /**
+     * Record a call outcome. Backend failures count towards tripping the breaker,
+     * any other error is treated as a healthy response.
+     *
+     * @param error The error the call failed with
+     */
+    public synchronized void onError(@NonNull Throwable error) {
+        if (!isBackendFailure(error)) {
+            onSuccess();
+            return;
+        }
+
+        probeInFlight = false;
+        consecutiveFailures++;
+
+        if (STATE_HALF_OPEN.equals(state)) {
+            // Failed probe - back off further
+            openDurationMs = Math.min(openDurationMs * 2, maxOpenMs);
+            trip();
+        } else if (STATE_CLOSED.equals(state) && consecutiveFailures >= failureThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * Record a call that was cancelled before it produced an outcome.
+     */
+    public synchronized void onCancelled() {
+        probeInFlight = false;
+    }
+
+    /**
+     * @return Current state (one of the STATE_* constants)
+     */
+    public synchronized String getState() {
+        return state;
+    }
+
+    /**
+     * @return Epoch milliseconds at which an open breaker admits a probe, or 0 if closed
+     */
+    public synchronized long getRetryAtMs() {
+        return STATE_CLOSED.equals(state) ? 0 : retryAtMs;
+    }
+
+    /**
+     * Observe state transitions.
+     *
+     * @return Observable that emits the current state and every change
+     */
+    public Observable<String> observeState() {
+        return stateSubject.hide();
+    }
+
+    /**
+     * Check whether an error indicates an unhealthy or overloaded backend.
+     *
+     * @param error The error to classify
+     * @return true for unavailable, quota, deadline and timeout errors
+     */
+    public static boolean isBackendFailure(Throwable error) {
+        if (error instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) error).getCode()) {
+                case UNAVAILABLE:
+                case RESOURCE_EXHAUSTED:
+                case DEADLINE_EXCEEDED:
+                case INTERNAL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (error instanceof AdaptiveConcurrencyLimiter.AcquireTimeoutException) {
+            // Waited on our own concurrency limit; the backend was never called
+            return false;
+        }
+        return error instanceof SocketTimeoutException || error instanceof TimeoutException;
+    }
+
+    private void trip() {
+        retryAtMs = clock.now(TimeUnit.MILLISECONDS) + openDurationMs;
+        setState(STATE_OPEN);
+        Log.w(TAG, "Circuit opened after " + consecutiveFailures + " backend failures, retry in " +
+                openDurationMs + "ms");
+    }
+
+    private void setState(String newState) {
+        if (!newState.equals(state)) {
+            state = newState;
+            stateSubject.onNext(newState);
+        }
+    }
+}
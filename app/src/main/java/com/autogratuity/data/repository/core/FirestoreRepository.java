@@ -20,6 +20,9 @@ import com.autogratuity.data.model.UserProfile;
 import com.autogratuity.data.util.NetworkMonitor;
 import com.autogratuity.data.util.RxSchedulers;
 import com.autogratuity.data.local.PreferenceManager;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentReference;
@@ -35,8 +38,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
@@ -88,6 +95,9 @@ public class FirestoreRepository implements DataRepository {
     protected static final String COLLECTION_USER_DEVICES = "user_devices";
     protected static final String COLLECTION_SYSTEM_CONFIG = "system_config";
     
+    // How long a guarded write may wait for the server ack before it is queued instead
+    protected static final long WRITE_ACK_TIMEOUT_MS = 15000;
+    
     // Firebase instances
     protected final FirebaseFirestore db;
     protected final FirebaseAuth auth;
@@ -114,6 +124,7 @@ public class FirestoreRepository implements DataRepository {
     
     // Network monitoring
     protected final NetworkMonitor networkMonitor;
+    private final AtomicBoolean monitoringStarted = new AtomicBoolean(false);
     
     // Preference manager for typed preferences access
     protected PreferenceManager prefManager;
@@ -174,42 +185,100 @@ public class FirestoreRepository implements DataRepository {
         
         // Initialize error handler with sync status
         this.errorHandler = new RepositoryErrorHandler(syncStatusSubject);
+    }
+    
+    /**
+     * Start monitoring network status and backend health. Called once the repository is
+     * fully constructed, so subclass hooks such as {@link #onConnectivityChanged} never
+     * see uninitialized fields. Further calls do nothing.
+     */
+    public void init() {
+        if (!monitoringStarted.compareAndSet(false, true)) {
+            return;
+        }
         
         // Start monitoring network status
         startNetworkMonitoring();
+        
+        // Reflect shared backend protection state in the sync status
+        startBackendHealthMonitoring();
     }
     
     /**
-     * Start monitoring network status changes
+     * Start monitoring network status changes.
+     * Driven by the NetworkMonitor's ConnectivityManager callback, so there is no polling.
      */
     private void startNetworkMonitoring() {
-        // This would ideally use NetworkCallback for API 21+ but for simplicity,
-        // we'll just do periodic checking in this example
-        Observable.interval(30, TimeUnit.SECONDS)
+        networkMonitor.observe()
+                .distinctUntilChanged()
                 .observeOn(Schedulers.io())
-                .subscribe(ignored -> {
-                    boolean isConnected = isNetworkAvailable();
-                    NetworkStatus currentStatus = isConnected ? 
+                .subscribe(isConnected -> {
+                    NetworkStatus currentStatus = isConnected ?
                             NetworkStatus.CONNECTED : NetworkStatus.DISCONNECTED;
-                    
+
                     // Only emit if status changed
                     if (networkStatusSubject.getValue() != currentStatus) {
                         networkStatusSubject.onNext(currentStatus);
-                        
+
                         // Update sync status
                         SyncStatus syncStatus = syncStatusSubject.getValue();
                         syncStatus.setOnline(isConnected);
                         syncStatusSubject.onNext(syncStatus);
-                        
-                        // If we just came online, trigger sync
-                        if (isConnected && syncStatus.getPendingOperations() > 0) {
-                            processPendingSyncOperations().subscribe();
+
+                        // A failing hook must not end the subscription
+                        try {
+                            onConnectivityChanged(isConnected, syncStatus);
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error handling connectivity change", e);
                         }
                     }
                 }, throwable -> {
                     Log.e(TAG, "Error monitoring network status", throwable);
                 });
     }
+
+    /**
+     * Mirror the shared circuit breaker and concurrency limiter state into the sync status.
+     */
+    private void startBackendHealthMonitoring() {
+        CircuitBreaker circuitBreaker = errorHandler.getCircuitBreaker();
+        circuitBreaker.observeState()
+                .observeOn(Schedulers.io())
+                .subscribe(state -> {
+                    SyncStatus syncStatus = syncStatusSubject.getValue();
+                    if (syncStatus != null) {
+                        long retryAtMs = circuitBreaker.getRetryAtMs();
+                        syncStatus.setCircuitState(state);
+                        syncStatus.setCircuitRetryAt(retryAtMs > 0 ? new Date(retryAtMs) : null);
+                        syncStatusSubject.onNext(syncStatus);
+                    }
+                }, throwable -> {
+                    Log.e(TAG, "Error monitoring circuit breaker", throwable);
+                });
+        
+        errorHandler.getConcurrencyLimiter().observeLimits()
+                .observeOn(Schedulers.io())
+                .subscribe(limits -> {
+                    SyncStatus syncStatus = syncStatusSubject.getValue();
+                    if (syncStatus != null) {
+                        syncStatus.setConcurrencyLimits(limits);
+                        syncStatusSubject.onNext(syncStatus);
+                    }
+                }, throwable -> {
+                    Log.e(TAG, "Error monitoring concurrency limits", throwable);
+                });
+    }
+
+    /**
+     * Hook invoked when connectivity changes. The sync repository overrides this
+     * to schedule a sync when the device comes back online.
+     *
+     * @param isConnected Whether the device is now connected
+     * @param syncStatus The updated sync status
+     */
+    protected void onConnectivityChanged(boolean isConnected, SyncStatus syncStatus) {
+        // No-op by default
+    }
     
     /**
      * Check if network is available
@@ -470,6 +539,78 @@ public class FirestoreRepository implements DataRepository {
         handleFirestoreError(error, operation, null);
     }
     
+    /**
+     * Make a Firestore call through the shared circuit breaker and the collection's
+     * concurrency limit. The call starts once a slot is free and its outcome feeds both;
+     * while the breaker is open the returned task fails with
+     * {@link CircuitBreaker.CircuitOpenException} without calling Firestore.
+     * 
+     * @param collection Collection the call reads or writes
+     * @param call Starts the Firestore call
+     * @param <T> Result type of the call
+     * @return Task that completes with the call's result
+     */
+    protected <T> Task<T> guardedTask(String collection, Callable<Task<T>> call) {
+        return toTask(errorHandler.guardSingle(taskSingle(call), collection));
+    }
+    
+    /**
+     * Make a Firestore write through the breaker and the collection's concurrency limit
+     * without holding a slot while the write is only pending. Offline writes are not
+     * started at all, since Firestore would only resolve them on a server ack hours later,
+     * and an ack that takes longer than {@link #WRITE_ACK_TIMEOUT_MS} frees the slot. Both
+     * fail with {@link UnacknowledgedWriteException}, which {@link #shouldQueueWrite}
+     * routes to the sync queue; a timed-out write may still land, so queued writes must
+     * be safe to replay.
+     * 
+     * @param collection Collection the call writes
+     * @param call Starts the Firestore write
+     * @param <T> Result type of the call
+     * @return Task that completes once Firestore acknowledges the write
+     */
+    protected <T> Task<T> guardedWrite(String collection, Callable<Task<T>> call) {
+        if (!isNetworkAvailable()) {
+            return Tasks.forException(new UnacknowledgedWriteException(collection, "offline"));
+        }
+        return toTask(errorHandler.guardSingle(taskSingle(call)
+                .timeout(WRITE_ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                        Single.error(new UnacknowledgedWriteException(collection,
+                                "timed out after " + WRITE_ACK_TIMEOUT_MS + "ms"))), collection));
+    }
+    
+    private static <T> Single<Task<T>> taskSingle(Callable<Task<T>> call) {
+        return Single.create(emitter -> call.call()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        emitter.onSuccess(task);
+                    } else {
+                        Exception e = task.getException();
+                        emitter.onError(e != null ? e : new CancellationException());
+                    }
+                }));
+    }
+    
+    private static <T> Task<T> toTask(Single<Task<T>> guarded) {
+        TaskCompletionSource<T> result = new TaskCompletionSource<>();
+        guarded.subscribe(task -> result.setResult(task.getResult()),
+                throwable -> result.setException(throwable instanceof Exception
+                        ? (Exception) throwable : new RuntimeException(throwable)));
+        return result.getTask();
+    }
+    
+    /**
+     * Check whether a failed write should be queued for the sync worker instead of
+     * failing: the device is offline, the circuit breaker is holding back calls, or
+     * Firestore did not acknowledge the write in time.
+     * 
+     * @param error The error the write failed with
+     * @return true to enqueue the write
+     */
+    protected boolean shouldQueueWrite(Throwable error) {
+        return !isNetworkAvailable() || error instanceof CircuitBreaker.CircuitOpenException
+                || error instanceof UnacknowledgedWriteException;
+    }
+    
     /**
      * Merge updates for conflict resolution
      * This is a simplified implementation - a real one would do field-by-field merging
@@ -509,12 +650,28 @@ public class FirestoreRepository implements DataRepository {
      */
     protected Completable enqueueOperation(String operationType, String entityType, 
                                         String entityId, Map<String, Object> data) {
+        return enqueueOperation(operationType, entityType, entityId, data, null);
+    }
+    
+    /**
+     * Enqueue an operation for offline support in a specific priority lane
+     * 
+     * @param operationType Operation type (create, update, delete)
+     * @param entityType Entity type (userProfile, address, delivery, etc.)
+     * @param entityId Entity ID
+     * @param data Data to apply
+     * @param priority Priority lane (SyncOperation.PRIORITY_*), or null for the default lane
+     * @return Completable that completes when operation is enqueued
+     */
+    protected Completable enqueueOperation(String operationType, String entityType, 
+                                        String entityId, Map<String, Object> data, String priority) {
         // Get a fresh token for authentication when sync happens later
         return authManager.getAuthToken(false)
                 .flatMapCompletable(token -> {
                     // Create sync operation with authentication token
                     SyncOperation operation = new SyncOperation(userId, operationType, entityType, entityId, data);
                     operation.setAuthToken(token);
+                    operation.setPriority(priority);
                     return enqueueSyncOperation(operation);
                 })
                 .compose(RxJavaRepositoryExtensions.applyStandardWriteTransformer(
@@ -758,7 +915,17 @@ public class FirestoreRepository implements DataRepository {
     
     @Override
     public Completable enqueueSyncOperation(SyncOperation operation) {
-        return Completable.error(new UnsupportedOperationException("Not implemented in core repository"));
+        // Hand the operation to the sync repository, which owns the outbox
+        return Completable.fromAction(() -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("operation", operation);
+            
+            RepositoryEventBus.getInstance().post(
+                    RepositoryEventBus.EventType.SYNC_OPERATION_ENQUEUED,
+                    getClass().getSimpleName(),
+                    data,
+                    RepositoryEventBus.EventType.SYNC_REPOSITORY);
+        });
     }
     
     @Override
@@ -841,4 +1008,14 @@ public class FirestoreRepository implements DataRepository {
                         "all",
                         "prefetch critical data"));
     }
+    
+    /**
+     * Exception for a write that Firestore did not acknowledge, because the device was
+     * offline or the ack took too long.
+     */
+    public static class UnacknowledgedWriteException extends TimeoutException {
+        public UnacknowledgedWriteException(String collection, String reason) {
+            super("Write to " + collection + " not acknowledged: " + reason);
+        }
+    }
 }
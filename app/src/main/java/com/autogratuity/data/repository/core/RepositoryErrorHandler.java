@@ -1,5 +1,6 @@
 package com.autogratuity.data.repository.core;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -17,16 +18,30 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.reactivestreams.Publisher;
+
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
 import io.reactivex.Single;
+import io.reactivex.functions.BiPredicate;
+import io.reactivex.functions.Function;
 import io.reactivex.subjects.BehaviorSubject;
 
 /**
  * Standard error handling utility for repositories that provides consistent
  * error handling, logging, propagation, and recovery across the application.
+ * <p>
+ * Repository Firestore calls ({@link FirestoreRepository#guardedTask},
+ * {@link FirestoreRepository#guardedWrite}) and retried calls go
+ * through the shared {@link CircuitBreaker} and the per-collection
+ * {@link AdaptiveConcurrencyLimiter}, and retries wait out an open breaker instead of
+ * retrying immediately, so all repositories back off together during an outage.
  */
 public class RepositoryErrorHandler {
     private static final String TAG = "RepoErrorHandler";
@@ -42,6 +57,13 @@ public class RepositoryErrorHandler {
     private final long initialRetryDelayMs;
     private final float retryBackoffFactor;
     
+    // Longest we will hold a retry waiting for an open breaker before giving up
+    private static final long MAX_RETRY_WAIT_MS = 30000;
+    
+    // Shared backend protection
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
     /**
      * Constructor with default retry settings
      * 
@@ -69,6 +91,8 @@ public class RepositoryErrorHandler {
         this.maxRetries = maxRetries;
         this.initialRetryDelayMs = initialRetryDelayMs;
         this.retryBackoffFactor = retryBackoffFactor;
+        this.circuitBreaker = CircuitBreaker.getInstance();
+        this.concurrencyLimiter = AdaptiveConcurrencyLimiter.getInstance();
     }
     
     /**
@@ -200,8 +224,8 @@ public class RepositoryErrorHandler {
      * @return Completable with standardized error handling and retries
      */
     public Completable handleCompletableWithRetry(@NonNull Completable source, @NonNull String operationName, @Nullable String entityType) {
-        return source
-                .retry((retryCount, error) -> shouldRetry(retryCount, error))
+        return guardCompletable(source, concurrencyKey(entityType))
+                .retryWhen(retryPolicy(maxRetries, (retryCount, error) -> shouldRetry(retryCount, error)))
                 .doOnError(error -> handleError(error, operationName, entityType));
     }
     
@@ -228,8 +252,8 @@ public class RepositoryErrorHandler {
      * @return Single with standardized error handling and retries
      */
     public <T> Single<T> handleSingleWithRetry(@NonNull Single<T> source, @NonNull String operationName, @Nullable String entityType) {
-        return source
-                .retry((retryCount, error) -> shouldRetry(retryCount, error))
+        return guardSingle(source, concurrencyKey(entityType))
+                .retryWhen(retryPolicy(maxRetries, (retryCount, error) -> shouldRetry(retryCount, error)))
                 .doOnError(error -> handleError(error, operationName, entityType));
     }
     
@@ -246,6 +270,194 @@ public class RepositoryErrorHandler {
         return source.doOnError(error -> handleError(error, operationName, entityType));
     }
     
+    //-----------------------------------------------------------------------------------
+    // Backend Protection
+    //-----------------------------------------------------------------------------------
+    
+    /**
+     * Guard a Single with the shared circuit breaker and the collection's concurrency limit.
+     * Fails fast with {@link CircuitBreaker.CircuitOpenException} while the breaker is open, and
+     * with {@link AdaptiveConcurrencyLimiter.AcquireTimeoutException} if no slot frees up in time.
+     * 
+     * @param source The source Single making one backend call per subscription
+     * @param key Collection name used as the concurrency key
+     * @param <T> The type of object emitted by the Single
+     * @return Guarded Single
+     */
+    public <T> Single<T> guardSingle(@NonNull Single<T> source, @NonNull String key) {
+        return Single.defer(() -> {
+            if (!circuitBreaker.allowRequest()) {
+                return Single.error(new CircuitBreaker.CircuitOpenException(circuitBreaker.getRetryAtMs()));
+            }
+            
+            AdaptiveConcurrencyLimiter.Permit permit = new AdaptiveConcurrencyLimiter.Permit();
+            long[] startMs = {SystemClock.elapsedRealtime()};
+            int[] outcome = {AdaptiveConcurrencyLimiter.OUTCOME_IGNORED};
+            boolean[] settled = {false};
+            
+            return concurrencyLimiter.acquire(key, permit)
+                    .doOnComplete(() -> startMs[0] = SystemClock.elapsedRealtime())
+                    .andThen(source)
+                    .doOnSuccess(value -> {
+                        settled[0] = true;
+                        outcome[0] = AdaptiveConcurrencyLimiter.OUTCOME_SUCCESS;
+                        circuitBreaker.onSuccess();
+                    })
+                    .doOnError(error -> {
+                        settled[0] = true;
+                        if (!permit.isGranted()) {
+                            // Timed out waiting for a slot; the backend was never called
+                            circuitBreaker.onCancelled();
+                            return;
+                        }
+                        if (CircuitBreaker.isBackendFailure(error)) {
+                            outcome[0] = AdaptiveConcurrencyLimiter.OUTCOME_OVERLOAD;
+                        }
+                        circuitBreaker.onError(error);
+                    })
+                    .doFinally(() -> {
+                        if (!settled[0]) {
+                            circuitBreaker.onCancelled();
+                        }
+                        if (permit.isGranted()) {
+                            concurrencyLimiter.release(key,
+                                    SystemClock.elapsedRealtime() - startMs[0], outcome[0]);
+                        }
+                    });
+        });
+    }
+    
+    /**
+     * Guard a Completable with the shared circuit breaker and the collection's concurrency limit.
+     * 
+     * @param source The source Completable making one backend call per subscription
+     * @param key Collection name used as the concurrency key
+     * @return Guarded Completable
+     */
+    public Completable guardCompletable(@NonNull Completable source, @NonNull String key) {
+        return guardSingle(source.toSingleDefault(Boolean.TRUE), key).ignoreElement();
+    }
+    
+    /**
+     * Create a retryWhen handler with jittered exponential backoff that also waits for an
+     * open circuit breaker, so concurrent callers retry together once the backend recovers.
+     * 
+     * @param maxRetries Maximum number of retries
+     * @param retryPredicate Decides whether an error is retryable, given the zero-based retry count
+     * @return Function for Flowable, Single and Completable retryWhen
+     */
+    public Function<Flowable<Throwable>, Publisher<?>> retryPolicy(
+            int maxRetries, @NonNull BiPredicate<Integer, Throwable> retryPredicate) {
+        return errors -> {
+            int[] retryCount = {0};
+            return errors.flatMap(error -> {
+                long delayMs = nextRetryDelayMs(retryCount[0]++, maxRetries, error, retryPredicate);
+                return delayMs < 0
+                        ? Flowable.error(error)
+                        : Flowable.timer(delayMs, TimeUnit.MILLISECONDS);
+            });
+        };
+    }
+    
+    /**
+     * Observable variant of {@link #retryPolicy(int, BiPredicate)}.
+     * 
+     * @param maxRetries Maximum number of retries
+     * @param retryPredicate Decides whether an error is retryable, given the zero-based retry count
+     * @return Function for Observable retryWhen
+     */
+    public Function<Observable<Throwable>, ObservableSource<?>> observableRetryPolicy(
+            int maxRetries, @NonNull BiPredicate<Integer, Throwable> retryPredicate) {
+        return errors -> {
+            int[] retryCount = {0};
+            return errors.flatMap(error -> {
+                long delayMs = nextRetryDelayMs(retryCount[0]++, maxRetries, error, retryPredicate);
+                return delayMs < 0
+                        ? Observable.error(error)
+                        : Observable.timer(delayMs, TimeUnit.MILLISECONDS);
+            });
+        };
+    }
+    
+    /**
+     * Get the concurrency key for an entity type, which is its Firestore collection.
+     * 
+     * @param entityType Entity type (RepositoryConstants.EntityType)
+     * @return Collection name, or the entity type itself if it has no known collection
+     */
+    public static String concurrencyKey(@Nullable String entityType) {
+        if (entityType == null) {
+            return "default";
+        }
+        switch (entityType) {
+            case "delivery":
+                return "deliveries";
+            case "address":
+                return "addresses";
+            case "user_profile":
+                return "user_profiles";
+            case "subscription":
+                return "subscription_records";
+            case "device":
+                return "user_devices";
+            case "app_config":
+                return "system_config";
+            case "sync_operation":
+                return "sync_operations";
+            default:
+                return entityType;
+        }
+    }
+    
+    /**
+     * @return The shared circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    /**
+     * @return The shared concurrency limiter
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+    
+    /**
+     * Compute the delay before the next retry.
+     * 
+     * @return Delay in milliseconds, or -1 to stop retrying
+     */
+    private long nextRetryDelayMs(int retryCount, int maxRetries, Throwable error,
+                                  BiPredicate<Integer, Throwable> retryPredicate) throws Exception {
+        if (retryCount >= maxRetries) {
+            return -1;
+        }
+        
+        boolean circuitOpen = error instanceof CircuitBreaker.CircuitOpenException;
+        if (!circuitOpen && !retryPredicate.test(retryCount, error)) {
+            return -1;
+        }
+        
+        // Jittered backoff so callers that failed together do not retry in lockstep
+        long backoffMs = getRetryDelayForAttempt(retryCount);
+        long delayMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+        
+        // Never retry before an open breaker admits a probe
+        long retryAtMs = circuitOpen
+                ? ((CircuitBreaker.CircuitOpenException) error).getRetryAtMs()
+                : circuitBreaker.getRetryAtMs();
+        if (retryAtMs > 0) {
+            long waitMs = retryAtMs - System.currentTimeMillis();
+            if (waitMs > MAX_RETRY_WAIT_MS) {
+                return -1;
+            }
+            delayMs = Math.max(delayMs, waitMs + ThreadLocalRandom.current().nextLong(250));
+        }
+        
+        return delayMs;
+    }
+    
     /**
      * Determine if an operation should be retried based on the error and retry count
      * 
@@ -86,40 +86,40 @@ public class RepositoryProvider {
                     Log.d(TAG, "Initializing domain repositories");
                     
                     // Core repository
-                    coreRepository = new FirestoreRepository(applicationContext);
+                    coreRepository = started(new FirestoreRepository(applicationContext));
                     
                     // Config repository
-                    ConfigRepository baseConfigRepo = new ConfigRepositoryImpl(applicationContext);
+                    ConfigRepository baseConfigRepo = started(new ConfigRepositoryImpl(applicationContext));
                     configRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(baseConfigRepo, ConfigRepository.class, detailedLoggingEnabled) : 
                             baseConfigRepo;
                     
                     // Preference repository
-                    PreferenceRepository basePrefRepo = new PreferenceRepositoryImpl(applicationContext);
+                    PreferenceRepository basePrefRepo = started(new PreferenceRepositoryImpl(applicationContext));
                     preferenceRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(basePrefRepo, PreferenceRepository.class, detailedLoggingEnabled) : 
                             basePrefRepo;
                     
                     // Delivery repository
-                    DeliveryRepository baseDeliveryRepo = new DeliveryRepositoryImpl(applicationContext);
+                    DeliveryRepository baseDeliveryRepo = started(new DeliveryRepositoryImpl(applicationContext));
                     deliveryRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(baseDeliveryRepo, DeliveryRepository.class, detailedLoggingEnabled) : 
                             baseDeliveryRepo;
                     
                     // Subscription repository
-                    SubscriptionRepository baseSubRepo = new SubscriptionRepositoryImpl(applicationContext);
+                    SubscriptionRepository baseSubRepo = started(new SubscriptionRepositoryImpl(applicationContext));
                     subscriptionRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(baseSubRepo, SubscriptionRepository.class, detailedLoggingEnabled) : 
                             baseSubRepo;
                     
                     // Address repository
-                    AddressRepository baseAddressRepo = new AddressRepositoryImpl(applicationContext);
+                    AddressRepository baseAddressRepo = started(new AddressRepositoryImpl(applicationContext));
                     addressRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(baseAddressRepo, AddressRepository.class, detailedLoggingEnabled) : 
                             baseAddressRepo;
                     
                     // Sync repository
-                    SyncRepository baseSyncRepo = new SyncRepositoryImpl(applicationContext);
+                    SyncRepository baseSyncRepo = started(new SyncRepositoryImpl(applicationContext));
                     syncRepository = tracingEnabled ? 
                             TracingRepositoryDecorator.create(baseSyncRepo, SyncRepository.class, detailedLoggingEnabled) : 
                             baseSyncRepo;
@@ -131,6 +131,14 @@ public class RepositoryProvider {
         }
     }
     
+    /**
+     * Start a repository's monitoring once it is fully constructed
+     */
+    private static <T extends FirestoreRepository> T started(T repository) {
+        repository.init();
+        return repository;
+    }
+    
     /**
      * Get the core repository instance.
      * initialize() must be called before this method.
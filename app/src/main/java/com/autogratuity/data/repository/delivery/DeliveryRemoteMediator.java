@@ -0,0 +1,117 @@
+package com.autogratuity.data.repository.delivery;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ExperimentalPagingApi;
+import androidx.paging.LoadType;
+import androidx.paging.PagingState;
+import androidx.paging.rxjava2.RxRemoteMediator;
+
+import com.autogratuity.data.local.DeliveryEntity;
+import com.autogratuity.data.local.LocalDataStore;
+import com.autogratuity.data.model.Delivery;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Date;
+import java.util.List;
+
+import io.reactivex.Single;
+
+/**
+ * Pulls delivery pages from Firestore into Room as the user scrolls past the local data.
+ * <p>
+ * The list itself always pages from Room, so scrolling never waits on the network; this
+ * mediator only extends the local window. Pages are fetched by cursor: the last document
+ * of the previous remote page, or the date of the oldest local row when no remote page
+ * has been loaded in this session (the listener keeps the newest deliveries in Room).
+ */
+@ExperimentalPagingApi
+class DeliveryRemoteMediator extends RxRemoteMediator<Integer, DeliveryEntity> {
+
+    /**
+     * A page read from Firestore that has already been written to Room.
+     */
+    static class RemotePage {
+        final List<Delivery> deliveries;
+        final DocumentSnapshot lastDocument;
+
+        RemotePage(List<Delivery> deliveries, @Nullable DocumentSnapshot lastDocument) {
+            this.deliveries = deliveries;
+            this.lastDocument = lastDocument;
+        }
+    }
+
+    /**
+     * Source of remote pages, newest first.
+     */
+    interface PageFetcher {
+        /**
+         * Fetch a page and write it through to Room before succeeding.
+         *
+         * @param after Document to start after, or null
+         * @param before Date to start after when there is no document cursor, or null for the first page
+         * @param limit Page size
+         * @return Single that emits the stored page
+         */
+        Single<RemotePage> fetch(@Nullable DocumentSnapshot after, @Nullable Date before, int limit);
+    }
+
+    private final LocalDataStore localStore;
+    private final String userId;
+    private final PageFetcher fetcher;
+
+    // Cursor of the last remote page; only touched from the paging load sequence
+    private DocumentSnapshot cursor;
+
+    DeliveryRemoteMediator(LocalDataStore localStore, String userId, PageFetcher fetcher) {
+        this.localStore = localStore;
+        this.userId = userId;
+        this.fetcher = fetcher;
+    }
+
+    @NonNull
+    @Override
+    public Single<InitializeAction> initializeSingle() {
+        // Room already has the recent window; only go to the network when it is empty
+        return localStore.getRecentDeliveries(userId, 1)
+                .map(local -> local.isEmpty()
+                        ? InitializeAction.LAUNCH_INITIAL_REFRESH
+                        : InitializeAction.SKIP_INITIAL_REFRESH)
+                .onErrorReturnItem(InitializeAction.LAUNCH_INITIAL_REFRESH);
+    }
+
+    @NonNull
+    @Override
+    public Single<MediatorResult> loadSingle(@NonNull LoadType loadType,
+                                             @NonNull PagingState<Integer, DeliveryEntity> state) {
+        int pageSize = state.getConfig().pageSize;
+        Single<RemotePage> page;
+
+        switch (loadType) {
+            case REFRESH:
+                cursor = null;
+                page = fetcher.fetch(null, null, pageSize);
+                break;
+            case PREPEND:
+                // Newer deliveries arrive through the listener
+                return Single.just(new MediatorResult.Success(true));
+            case APPEND:
+            default:
+                DeliveryEntity last = state.lastItemOrNull();
+                if (cursor == null && (last == null || last.getDeliveryDate() == null)) {
+                    return Single.just(new MediatorResult.Success(true));
+                }
+                page = fetcher.fetch(cursor, cursor == null ? last.getDeliveryDate() : null, pageSize);
+                break;
+        }
+
+        return page
+                .map(result -> {
+                    if (result.lastDocument != null) {
+                        cursor = result.lastDocument;
+                    }
+                    return (MediatorResult) new MediatorResult.Success(result.deliveries.size() < pageSize);
+                })
+                .onErrorReturn(MediatorResult.Error::new);
+    }
+}
@@ -1,7 +1,10 @@
 package com.autogratuity.data.repository.delivery;
 
+import androidx.paging.PagingData;
+
 import com.autogratuity.data.model.Delivery;
 import com.autogratuity.data.model.DeliveryStats;
+import com.autogratuity.data.model.EarningsBucket;
 import com.autogratuity.data.repository.core.DataRepository;
 import com.google.firebase.firestore.DocumentReference;
 
@@ -10,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 
@@ -52,6 +56,16 @@ public interface DeliveryRepository extends DataRepository {
     @Override
     Single<List<Delivery>> getDeliveriesByAddress(String addressId);
     
+    /**
+     * Search deliveries by address, notes, tags, store or zone.
+     * Every word of the query is matched as a prefix; results are ranked by relevance.
+     * Searches the deliveries held in the local database.
+     * 
+     * @param query The search query
+     * @return Single that emits matching deliveries, best match first
+     */
+    Single<List<Delivery>> searchDeliveries(String query);
+    
     /**
      * Get a delivery by its ID.
      * 
@@ -61,6 +75,16 @@ public interface DeliveryRepository extends DataRepository {
     @Override
     Single<Delivery> getDeliveryById(String deliveryId);
     
+    /**
+     * Find the current user's delivery for an order.
+     * Resolved from an in-memory order index kept by the delivery listener, then the
+     * local database, then a single equality query in Firestore.
+     * 
+     * @param orderId The order ID
+     * @return Single that emits the delivery, or an error if there is none
+     */
+    Single<Delivery> findByOrderId(String orderId);
+    
     /**
      * Add a new delivery.
      * 
@@ -89,6 +113,15 @@ public interface DeliveryRepository extends DataRepository {
     @Override
     Completable updateDeliveryTip(String deliveryId, double tipAmount);
     
+    /**
+     * Update the tip amounts of several deliveries, one update per delivery in order.
+     * 
+     * @param tipsByDeliveryId New tip amount per delivery ID
+     * @return Completable that completes when every update is finished, or fails with
+     *         the first error
+     */
+    Completable updateDeliveryTips(Map<String, Double> tipsByDeliveryId);
+    
     /**
      * Delete a delivery.
      * 
@@ -123,6 +156,90 @@ public interface DeliveryRepository extends DataRepository {
     @Override
     Single<Map<String, DeliveryStats>> getDeliveryStats();
     
+    //-----------------------------------------------------------------------------------
+    // Local-first Streams
+    //-----------------------------------------------------------------------------------
+    
+    /**
+     * Stream the most recent deliveries from the local database.
+     * Emits immediately from Room and again whenever Firestore changes are written through.
+     * 
+     * @param limit Maximum number of deliveries
+     * @return Flowable that emits the current list of deliveries
+     */
+    Flowable<List<Delivery>> streamRecentDeliveries(int limit);
+    
+    /**
+     * Stream deliveries within a time range from the local database.
+     * A Firestore refresh for the range is started on subscription.
+     * 
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Flowable that emits the current list of deliveries
+     */
+    Flowable<List<Delivery>> streamDeliveriesByTimeRange(Date startDate, Date endDate);
+    
+    /**
+     * Stream deliveries for an address from the local database.
+     * A Firestore refresh for the address is started on subscription.
+     * 
+     * @param addressId The address ID
+     * @return Flowable that emits the current list of deliveries
+     */
+    Flowable<List<Delivery>> streamDeliveriesByAddress(String addressId);
+    
+    /**
+     * Stream a single delivery from the local database.
+     * A Firestore refresh is started on subscription.
+     * 
+     * @param deliveryId The delivery ID
+     * @return Flowable that emits the delivery whenever it changes
+     */
+    Flowable<Delivery> streamDelivery(String deliveryId);
+    
+    /**
+     * Stream delivery statistics for today, the last 7 days and the last 30 days.
+     * Aggregated in the local database from per-day rows; a Firestore refresh of the
+     * last 30 days is started on subscription.
+     * 
+     * @return Flowable that emits a map of time period keys to delivery statistics
+     */
+    Flowable<Map<String, DeliveryStats>> streamDeliveryStats();
+    
+    /**
+     * Stream the earnings time series for a range from the local database.
+     * Served from hourly or daily buckets kept up to date on every delivery write, so
+     * charts never read the deliveries themselves; a Firestore refresh for the range is
+     * started on subscription. Hourly buckets are kept for
+     * {@link com.autogratuity.data.local.EarningsSeries#HOUR_RETENTION_DAYS} days.
+     * 
+     * @param resolution {@link EarningsBucket#RESOLUTION_HOUR} or {@link EarningsBucket#RESOLUTION_DAY}
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Flowable that emits the non-empty buckets in the range, oldest first
+     */
+    Flowable<List<EarningsBucket>> streamEarnings(String resolution, Date startDate, Date endDate);
+    
+    /**
+     * Get total earnings for a range, summed from the local time series.
+     * A Firestore refresh for the range is started on subscription.
+     * 
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Single that emits the range total
+     */
+    Single<EarningsBucket> getEarningsTotal(Date startDate, Date endDate);
+    
+    /**
+     * Page through all deliveries, newest first.
+     * Pages are read from the local database; older pages are pulled from Firestore into
+     * it as the end of the local data is reached.
+     * 
+     * @param pageSize Number of deliveries per page
+     * @return Flowable of PagingData for a paging adapter
+     */
+    Flowable<PagingData<Delivery>> getDeliveryPages(int pageSize);
+    
     //-----------------------------------------------------------------------------------
     // Convenience Methods
     //-----------------------------------------------------------------------------------
@@ -3,29 +3,46 @@ package com.autogratuity.data.repository.delivery;
 import android.content.Context;
 import android.util.Log;
 
+import androidx.annotation.OptIn;
+import androidx.paging.ExperimentalPagingApi;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.rxjava2.PagingRx;
+
+import com.autogratuity.data.local.DeliveryEntity;
+import com.autogratuity.data.local.LocalDataStore;
 import com.autogratuity.data.model.Address;
 import com.autogratuity.data.model.Delivery;
 import com.autogratuity.data.model.DeliveryStats;
+import com.autogratuity.data.model.EarningsBucket;
+import com.autogratuity.data.model.SyncOperation;
 import com.autogratuity.data.model.UserProfile;
 import com.autogratuity.data.repository.core.FirestoreRepository;
 import com.autogratuity.data.serialization.DeliverySerializer;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.subjects.BehaviorSubject;
@@ -33,6 +50,10 @@ import io.reactivex.subjects.BehaviorSubject;
 /**
  * Implementation of DeliveryRepository interface.
  * Responsible for managing delivery-related data operations.
+ * <p>
+ * Room ({@link LocalDataStore}) is the single source of truth for reads: observers and the
+ * first page are served from local SQLite, and Firestore listeners and query results are
+ * written through in batched transactions.
  */
 public class DeliveryRepositoryImpl extends FirestoreRepository implements DeliveryRepository {
     
@@ -44,16 +65,30 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
     private static final String FIELD_TIMESTAMP = "times.completedAt";
     private static final String FIELD_TIP_AMOUNT = "amounts.tipAmount";
     private static final String FIELD_ADDRESS_ID = "reference.addressId";
+    private static final String FIELD_ORDER_ID = "orderId";
     
     // Cache keys
     private static final String CACHE_DELIVERIES_PREFIX = "deliveries_";
     private static final String CACHE_DELIVERY_PREFIX = "delivery_";
-    private static final String CACHE_STATS_PREFIX = "delivery_stats_";
+    
+    // Size of the recent-deliveries window kept fresh by the listener
+    private static final int RECENT_WINDOW = 50;
+    
+    // Maximum number of search results
+    private static final int SEARCH_LIMIT = 50;
+    
+    // Pages kept in memory by the paged list
+    private static final int PAGES_IN_MEMORY = 5;
     
     // Subject for real-time updates
-    private final BehaviorSubject<List<Delivery>> deliveriesSubject = BehaviorSubject.create();
     private final Map<String, BehaviorSubject<Delivery>> deliverySubjects = new HashMap<>();
     
+    // Order ID to delivery ID for deliveries seen by the listener or written through
+    private final Map<String, String> orderIndex = new ConcurrentHashMap<>();
+    
+    // Local single source of truth
+    private final LocalDataStore localStore;
+    
     /**
      * Constructor for DeliveryRepositoryImpl
      * 
@@ -61,6 +96,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
      */
     public DeliveryRepositoryImpl(Context context) {
         super(context);
+        this.localStore = LocalDataStore.getInstance(context);
         setupDeliveriesListener();
     }
     
@@ -81,7 +117,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         ListenerRegistration listener = db.collection(COLLECTION_DELIVERIES)
                 .whereEqualTo(FIELD_USER_ID, getCurrentUserId())
                 .orderBy(FIELD_TIMESTAMP, Query.Direction.DESCENDING)
-                .limit(50) // Limit the number of deliveries to avoid performance issues
+                .limit(RECENT_WINDOW) // Limit the number of deliveries to avoid performance issues
                 .addSnapshotListener((querySnapshot, e) -> {
                     if (e != null) {
                         Log.e(TAG, "Error listening to deliveries", e);
@@ -89,27 +125,25 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                     }
                     
                     if (querySnapshot != null) {
-                        List<Delivery> deliveries = new ArrayList<>();
+                        // Only changed documents are written through. A document leaving this
+                        // limited window is not a deletion, so removals are not applied here.
+                        List<Delivery> changed = new ArrayList<>();
                         
-                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                            Delivery delivery = doc.toObject(Delivery.class);
+                        for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                            if (change.getType() == DocumentChange.Type.REMOVED) {
+                                continue;
+                            }
+                            Delivery delivery = toDelivery(change.getDocument());
                             if (delivery != null) {
-                                // Ensure ID is set
-                                if (delivery.getDeliveryId() == null) {
-                                    delivery.setDeliveryId(doc.getId());
-                                }
-                                deliveries.add(delivery);
+                                changed.add(delivery);
                                 
                                 // Update individual delivery subjects if they exist
                                 updateDeliverySubject(delivery);
                             }
                         }
                         
-                        // Cache the result
-                        putInCache(CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_50_start", deliveries);
-                        
-                        // Emit to subscribers
-                        deliveriesSubject.onNext(deliveries);
+                        // Observers are fed by Room, so a single batched write is enough
+                        writeThrough(changed);
                     }
                 });
         
@@ -150,8 +184,84 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         return db.collection(COLLECTION_DELIVERIES).document(deliveryId);
     }
     
+    /**
+     * Converts a Firestore document to a delivery, making sure its ID is set
+     * 
+     * @param doc Document snapshot
+     * @return Delivery, or null if the document cannot be parsed
+     */
+    private Delivery toDelivery(DocumentSnapshot doc) {
+        Delivery delivery = doc.toObject(Delivery.class);
+        if (delivery != null && delivery.getDeliveryId() == null) {
+            delivery.setDeliveryId(doc.getId());
+        }
+        return delivery;
+    }
+    
+    /**
+     * Writes deliveries read from Firestore through to the local store in one transaction
+     * 
+     * @param deliveries Deliveries read from Firestore
+     */
+    private void writeThrough(List<Delivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        for (Delivery delivery : deliveries) {
+            indexOrder(delivery);
+        }
+        runLocal(localStore.applyRemoteDeliveries(getCurrentUserId(), deliveries, null));
+    }
+    
+    /**
+     * Records a delivery in the order index
+     * 
+     * @param delivery Delivery of the current user
+     */
+    private void indexOrder(Delivery delivery) {
+        if (delivery.getOrderId() != null && delivery.getDeliveryId() != null) {
+            orderIndex.put(delivery.getOrderId(), delivery.getDeliveryId());
+        }
+    }
+    
+    /**
+     * Runs a local store write in the background, logging failures
+     * 
+     * @param write Local store write
+     */
+    private void runLocal(Completable write) {
+        write.subscribe(() -> {}, throwable -> Log.e(TAG, "Error writing to local store", throwable));
+    }
+    
+    /**
+     * Refreshes local data from Firestore in the background. Failures are expected while
+     * offline and only logged, since readers are already served from Room.
+     * 
+     * @param refresh Firestore read that writes through to Room
+     */
+    private void refreshInBackground(Single<?> refresh) {
+        refresh.subscribe(result -> {}, throwable -> Log.d(TAG, "Background refresh failed: " + throwable.getMessage()));
+    }
+    
     @Override
     public Single<List<Delivery>> getDeliveries(int limit, DocumentReference startAfter) {
+        if (startAfter != null) {
+            return fetchDeliveries(limit, startAfter);
+        }
+        
+        // First page comes from Room; the listener keeps it fresh
+        return localStore.getRecentDeliveries(getCurrentUserId(), limit)
+                .flatMap(local -> local.isEmpty() ? fetchDeliveries(limit, null) : Single.just(local));
+    }
+    
+    /**
+     * Gets a page of deliveries from Firestore and writes it through to Room
+     * 
+     * @param limit Maximum number of deliveries to return
+     * @param startAfter Document reference to start after (for pagination)
+     * @return Single that emits a list of deliveries
+     */
+    private Single<List<Delivery>> fetchDeliveries(int limit, DocumentReference startAfter) {
         String cacheKey = CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_" + limit + "_" + 
                 (startAfter != null ? startAfter.getId() : "start");
         
@@ -174,7 +284,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
             }
             
             // Execute query
-            query.get()
+            guardedTask(COLLECTION_DELIVERIES, query::get)
                     .addOnSuccessListener(querySnapshot -> {
                         List<Delivery> deliveries = new ArrayList<>();
                         
@@ -193,6 +303,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                         if (startAfter == null) {
                             putInCache(cacheKey, deliveries);
                         }
+                        writeThrough(deliveries);
                         
                         emitter.onSuccess(deliveries);
                     })
@@ -220,10 +331,10 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
             }
             
             // Query Firestore
-            getUserDeliveriesQuery()
+            guardedTask(COLLECTION_DELIVERIES, () -> getUserDeliveriesQuery()
                     .whereGreaterThanOrEqualTo(FIELD_TIMESTAMP, startDate)
                     .whereLessThanOrEqualTo(FIELD_TIMESTAMP, endDate)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Delivery> deliveries = new ArrayList<>();
                         
@@ -240,12 +351,19 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                         
                         // Cache the result
                         putInCache(cacheKey, deliveries);
+                        writeThrough(deliveries);
                         
                         emitter.onSuccess(deliveries);
                     })
                     .addOnFailureListener(e -> {
-                        handleFirestoreError(e, "Error getting deliveries by time range");
-                        emitter.onError(e);
+                        if (!isNetworkAvailable()) {
+                            // Offline - serve what Room has
+                            localStore.getDeliveriesInRange(getCurrentUserId(), startDate, endDate)
+                                    .subscribe(emitter::onSuccess, emitter::onError);
+                        } else {
+                            handleFirestoreError(e, "Error getting deliveries by time range");
+                            emitter.onError(e);
+                        }
                     });
         });
     }
@@ -267,9 +385,9 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
             }
             
             // Query Firestore
-            getUserDeliveriesQuery()
+            guardedTask(COLLECTION_DELIVERIES, () -> getUserDeliveriesQuery()
                     .whereEqualTo(FIELD_ADDRESS_ID, addressId)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Delivery> deliveries = new ArrayList<>();
                         
@@ -286,22 +404,53 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                         
                         // Cache the result
                         putInCache(cacheKey, deliveries);
+                        writeThrough(deliveries);
                         
                         emitter.onSuccess(deliveries);
                     })
                     .addOnFailureListener(e -> {
-                        handleFirestoreError(e, "Error getting deliveries by address");
-                        emitter.onError(e);
+                        if (!isNetworkAvailable()) {
+                            // Offline - serve what Room has
+                            localStore.getDeliveriesForAddress(getCurrentUserId(), addressId)
+                                    .subscribe(emitter::onSuccess, emitter::onError);
+                        } else {
+                            handleFirestoreError(e, "Error getting deliveries by address");
+                            emitter.onError(e);
+                        }
                     });
         });
     }
     
+    @Override
+    public Single<List<Delivery>> searchDeliveries(String query) {
+        return localStore.searchDeliveries(getCurrentUserId(), query, SEARCH_LIMIT);
+    }
+    
     @Override
     public Single<Delivery> getDeliveryById(String deliveryId) {
         if (deliveryId == null || deliveryId.isEmpty()) {
             return Single.error(new IllegalArgumentException("Delivery ID is required"));
         }
         
+        Delivery cached = getFromCache(CACHE_DELIVERY_PREFIX + deliveryId);
+        if (cached != null) {
+            return Single.just(cached);
+        }
+        
+        // Then Room, then Firestore
+        return localStore.getDelivery(deliveryId)
+                .flatMap(local -> local.isEmpty() || !getCurrentUserId().equals(local.get(0).getUserId())
+                        ? fetchDeliveryById(deliveryId)
+                        : Single.just(local.get(0)));
+    }
+    
+    /**
+     * Gets a delivery from Firestore and writes it through to Room
+     * 
+     * @param deliveryId The delivery ID
+     * @return Single that emits the delivery
+     */
+    private Single<Delivery> fetchDeliveryById(String deliveryId) {
         String cacheKey = CACHE_DELIVERY_PREFIX + deliveryId;
         
         return Single.create(emitter -> {
@@ -313,7 +462,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
             }
             
             // Query Firestore
-            getDeliveryReference(deliveryId).get()
+            guardedTask(COLLECTION_DELIVERIES, () -> getDeliveryReference(deliveryId).get())
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Delivery delivery = documentSnapshot.toObject(Delivery.class);
@@ -327,6 +476,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                 if (getCurrentUserId().equals(delivery.getUserId())) {
                                     // Cache the result
                                     putInCache(cacheKey, delivery);
+                                    writeThrough(Collections.singletonList(delivery));
                                     
                                     // Update the subject if it exists
                                     updateDeliverySubject(delivery);
@@ -349,6 +499,71 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         });
     }
     
+    @Override
+    public Single<Delivery> findByOrderId(String orderId) {
+        if (orderId == null || orderId.isEmpty()) {
+            return Single.error(new IllegalArgumentException("Order ID is required"));
+        }
+        
+        String userId = getCurrentUserId();
+        String deliveryId = orderIndex.get(orderId);
+        Single<List<Delivery>> indexed = deliveryId != null
+                ? localStore.getDelivery(deliveryId)
+                : Single.just(Collections.emptyList());
+        
+        // Indexed row, then the (userId, orderId) index in Room, then Firestore
+        return indexed
+                .flatMap(local -> isOrder(local, userId, orderId)
+                        ? Single.just(local)
+                        : localStore.getDeliveryByOrderId(userId, orderId))
+                .flatMap(local -> {
+                    if (isOrder(local, userId, orderId)) {
+                        indexOrder(local.get(0));
+                        return Single.just(local.get(0));
+                    }
+                    orderIndex.remove(orderId);
+                    return fetchDeliveryByOrderId(orderId);
+                });
+    }
+    
+    /**
+     * Checks that a local lookup found the user's delivery for an order
+     */
+    private static boolean isOrder(List<Delivery> found, String userId, String orderId) {
+        return !found.isEmpty()
+                && userId.equals(found.get(0).getUserId())
+                && orderId.equals(found.get(0).getOrderId());
+    }
+    
+    /**
+     * Finds a delivery by order ID in Firestore and writes it through to Room
+     * 
+     * @param orderId The order ID
+     * @return Single that emits the delivery, or an error if there is none
+     */
+    private Single<Delivery> fetchDeliveryByOrderId(String orderId) {
+        return Single.create(emitter -> guardedTask(COLLECTION_DELIVERIES, () -> db.collection(COLLECTION_DELIVERIES)
+                .whereEqualTo(FIELD_USER_ID, getCurrentUserId())
+                .whereEqualTo(FIELD_ORDER_ID, orderId)
+                .limit(1)
+                .get())
+                .addOnSuccessListener(querySnapshot -> {
+                    Delivery delivery = querySnapshot.isEmpty()
+                            ? null
+                            : toDelivery(querySnapshot.getDocuments().get(0));
+                    if (delivery != null) {
+                        writeThrough(Collections.singletonList(delivery));
+                        emitter.onSuccess(delivery);
+                    } else {
+                        emitter.onError(new Exception("Delivery not found for order: " + orderId));
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    handleFirestoreError(e, "Error finding delivery by order ID");
+                    emitter.onError(e);
+                }));
+    }
+    
     @Override
     public Single<DocumentReference> addDelivery(Delivery delivery) {
         // Validate delivery
@@ -399,10 +614,12 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         final Delivery finalDelivery = delivery;
         
         return Single.create(emitter -> {
-            docRef.set(delivery)
+            guardedWrite(COLLECTION_DELIVERIES, () -> docRef.set(delivery))
                     .addOnSuccessListener(aVoid -> {
                         // Cache the delivery
                         putInCache(CACHE_DELIVERY_PREFIX + finalDeliveryId, finalDelivery);
+                        indexOrder(finalDelivery);
+                        runLocal(localStore.saveDelivery(finalDelivery, false));
                         
                         // Invalidate deliveries cache
                         invalidateCache(CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_*");
@@ -424,10 +641,12 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                         emitter.onSuccess(docRef);
                     })
                     .addOnFailureListener(e -> {
-                        if (!isNetworkAvailable()) {
+                        if (shouldQueueWrite(e)) {
                             // Create sync operation for offline
                             Map<String, Object> data = DeliverySerializer.toMap(finalDelivery);
+                            indexOrder(finalDelivery);
                             enqueueOperation("create", "delivery", finalDeliveryId, data)
+                                    .andThen(localStore.saveDelivery(finalDelivery, true))
                                     .subscribe(
                                             () -> emitter.onSuccess(docRef),
                                             emitter::onError
@@ -461,16 +680,17 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         
         return Completable.create(emitter -> {
             // First check if the delivery exists and belongs to the user
-            docRef.get()
+            guardedTask(COLLECTION_DELIVERIES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Delivery existingDelivery = documentSnapshot.toObject(Delivery.class);
                             if (existingDelivery != null && getCurrentUserId().equals(existingDelivery.getUserId())) {
                                 // Update the delivery
-                                docRef.set(delivery)
+                                guardedWrite(COLLECTION_DELIVERIES, () -> docRef.set(delivery))
                                         .addOnSuccessListener(aVoid -> {
                                             // Update cache
                                             putInCache(CACHE_DELIVERY_PREFIX + delivery.getDeliveryId(), delivery);
+                                            runLocal(localStore.saveDelivery(delivery, false));
                                             
                                             // Invalidate deliveries cache
                                             invalidateCache(CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_*");
@@ -498,10 +718,11 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                             emitter.onComplete();
                                         })
                                         .addOnFailureListener(e -> {
-                                            if (!isNetworkAvailable()) {
+                                            if (shouldQueueWrite(e)) {
                                                 // Create sync operation for offline
                                                 Map<String, Object> data = DeliverySerializer.toMap(delivery);
                                                 enqueueOperation("update", "delivery", delivery.getDeliveryId(), data)
+                                                        .andThen(localStore.saveDelivery(delivery, true))
                                                         .subscribe(
                                                                 emitter::onComplete,
                                                                 emitter::onError
@@ -525,6 +746,12 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         });
     }
     
+    @Override
+    public Completable updateDeliveryTips(Map<String, Double> tipsByDeliveryId) {
+        return Observable.fromIterable(new ArrayList<>(tipsByDeliveryId.entrySet()))
+                .concatMapCompletable(entry -> updateDeliveryTip(entry.getKey(), entry.getValue()));
+    }
+    
     @Override
     public Completable updateDeliveryTip(String deliveryId, double tipAmount) {
         if (deliveryId == null || deliveryId.isEmpty()) {
@@ -539,7 +766,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         
         return Completable.create(emitter -> {
             // First get the current delivery
-            docRef.get()
+            guardedTask(COLLECTION_DELIVERIES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Delivery delivery = documentSnapshot.toObject(Delivery.class);
@@ -602,11 +829,12 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                 updates.put("metadata.updatedAt", new Date());
                                 
                                 // Apply updates
-                                docRef.update(updates)
+                                guardedWrite(COLLECTION_DELIVERIES, () -> docRef.update(updates))
                                         .addOnSuccessListener(aVoid -> {
                                             // Invalidate caches
                                             invalidateCache(CACHE_DELIVERY_PREFIX + deliveryId);
                                             invalidateCache(CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_*");
+                                            runLocal(localStore.updateDeliveryTip(deliveryId, tipAmount, false));
                                             
                                             // If tip was added, update address stats
                                             if (!wasTipped && shouldBeTipped && 
@@ -629,13 +857,15 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                             emitter.onComplete();
                                         })
                                         .addOnFailureListener(e -> {
-                                            if (!isNetworkAvailable()) {
+                                            if (shouldQueueWrite(e)) {
                                                 // Create sync operation for offline
                                                 // Create a simplified map with just the tip update info
                                                 Map<String, Object> data = new HashMap<>();
                                                 data.put("tipAmount", tipAmount);
                                 data.put("deliveryId", deliveryId);
-                                enqueueOperation("updateTip", "delivery", deliveryId, data)
+                                enqueueOperation("updateTip", "delivery", deliveryId, data,
+                                        SyncOperation.PRIORITY_INTERACTIVE)
+                                                        .andThen(localStore.updateDeliveryTip(deliveryId, tipAmount, true))
                                                         .subscribe(
                                                                 emitter::onComplete,
                                                                 emitter::onError
@@ -669,7 +899,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
         
         return Completable.create(emitter -> {
             // First check if delivery exists and belongs to user
-            docRef.get()
+            guardedTask(COLLECTION_DELIVERIES, docRef::get)
                     .addOnSuccessListener(documentSnapshot -> {
                         if (documentSnapshot.exists()) {
                             Delivery delivery = documentSnapshot.toObject(Delivery.class);
@@ -685,11 +915,12 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                         delivery.getAmounts().getTipAmount() > 0;
                                 
                                 // Delete the delivery
-                                docRef.delete()
+                                guardedWrite(COLLECTION_DELIVERIES, docRef::delete)
                                         .addOnSuccessListener(aVoid -> {
                                             // Remove from cache
                                             invalidateCache(CACHE_DELIVERY_PREFIX + deliveryId);
                                             invalidateCache(CACHE_DELIVERIES_PREFIX + getCurrentUserId() + "_*");
+                                            runLocal(localStore.deleteDelivery(deliveryId));
                                             
                                             // Update user profile with delivery count
                                             updateDeliveryCountInUserProfile(-1)
@@ -709,9 +940,10 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                             emitter.onComplete();
                                         })
                                         .addOnFailureListener(e -> {
-                                            if (!isNetworkAvailable()) {
+                                            if (shouldQueueWrite(e)) {
                                                 // Create sync operation for offline
                                                 enqueueOperation("delete", "delivery", deliveryId, null)
+                                                        .andThen(localStore.deleteDelivery(deliveryId))
                                                         .subscribe(
                                                                 emitter::onComplete,
                                                                 emitter::onError
@@ -738,15 +970,104 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
     
     @Override
     public Observable<List<Delivery>> observeDeliveries() {
-        // If not yet subscribed, set up real-time listener
-        if (!deliveriesSubject.hasValue()) {
-            getRecentDeliveries(50).subscribe(
-                    deliveries -> {}, // deliveries will be emitted by the listener
-                    throwable -> Log.e(TAG, "Error loading initial deliveries", throwable)
-            );
+        // Served from Room; the real-time listener writes through
+        return streamRecentDeliveries(RECENT_WINDOW).toObservable();
+    }
+    
+    @Override
+    public Flowable<List<Delivery>> streamRecentDeliveries(int limit) {
+        Flowable<List<Delivery>> local = localStore.observeRecentDeliveries(getCurrentUserId(), limit);
+        if (limit <= RECENT_WINDOW) {
+            // Already covered by the real-time listener
+            return local;
+        }
+        return local.doOnSubscribe(subscription -> refreshInBackground(fetchDeliveries(limit, null)));
+    }
+    
+    @Override
+    public Flowable<List<Delivery>> streamDeliveriesByTimeRange(Date startDate, Date endDate) {
+        if (startDate == null || endDate == null) {
+            return Flowable.error(new IllegalArgumentException("Start and end dates are required"));
         }
+        return localStore.observeDeliveriesInRange(getCurrentUserId(), startDate, endDate)
+                .doOnSubscribe(subscription -> refreshInBackground(getDeliveriesByTimeRange(startDate, endDate)));
+    }
+    
+    @Override
+    public Flowable<List<Delivery>> streamDeliveriesByAddress(String addressId) {
+        if (addressId == null || addressId.isEmpty()) {
+            return Flowable.error(new IllegalArgumentException("Address ID is required"));
+        }
+        return localStore.observeDeliveriesForAddress(getCurrentUserId(), addressId)
+                .doOnSubscribe(subscription -> refreshInBackground(getDeliveriesByAddress(addressId)));
+    }
+    
+    @Override
+    public Flowable<Delivery> streamDelivery(String deliveryId) {
+        if (deliveryId == null || deliveryId.isEmpty()) {
+            return Flowable.error(new IllegalArgumentException("Delivery ID is required"));
+        }
+        return localStore.observeDelivery(deliveryId)
+                .filter(delivery -> getCurrentUserId().equals(delivery.getUserId()))
+                .doOnSubscribe(subscription -> refreshInBackground(fetchDeliveryById(deliveryId)));
+    }
+    
+    @Override
+    @OptIn(markerClass = ExperimentalPagingApi.class)
+    public Flowable<PagingData<Delivery>> getDeliveryPages(int pageSize) {
+        String userId = getCurrentUserId();
+        
+        // Drop pages far from the viewport so memory stays bounded while scrolling
+        PagingConfig config = new PagingConfig(pageSize, pageSize, false, pageSize * 2,
+                pageSize * PAGES_IN_MEMORY);
+        Pager<Integer, DeliveryEntity> pager = new Pager<>(
+                config,
+                null,
+                new DeliveryRemoteMediator(localStore, userId, this::fetchRemotePage),
+                () -> localStore.deliveryPagingSource(userId));
         
-        return deliveriesSubject;
+        return PagingRx.getFlowable(pager).map(localStore::toDeliveryPage);
+    }
+    
+    /**
+     * Fetches a page of deliveries for the paging mediator and writes it to Room before
+     * emitting, so the paging source sees it on its next load.
+     * 
+     * @param after Document to start after, or null
+     * @param before Completion date to start after when there is no document cursor, or null
+     * @param limit Page size
+     * @return Single that emits the stored page
+     */
+    private Single<DeliveryRemoteMediator.RemotePage> fetchRemotePage(DocumentSnapshot after, Date before, int limit) {
+        String userId = getCurrentUserId();
+        
+        return Single.<QuerySnapshot>create(emitter -> {
+                    Query query = getUserDeliveriesQuery().limit(limit);
+                    if (after != null) {
+                        query = query.startAfter(after);
+                    } else if (before != null) {
+                        query = query.startAfter(new Timestamp(before));
+                    }
+                    guardedTask(COLLECTION_DELIVERIES, query::get)
+                            .addOnSuccessListener(emitter::onSuccess)
+                            .addOnFailureListener(e -> {
+                                handleFirestoreError(e, "Error getting delivery page");
+                                emitter.onError(e);
+                            });
+                })
+                .flatMap(snapshot -> {
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    List<Delivery> deliveries = new ArrayList<>(documents.size());
+                    for (DocumentSnapshot doc : documents) {
+                        Delivery delivery = toDelivery(doc);
+                        if (delivery != null) {
+                            deliveries.add(delivery);
+                        }
+                    }
+                    DocumentSnapshot last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    return localStore.applyRemoteDeliveries(userId, deliveries, null)
+                            .toSingleDefault(new DeliveryRemoteMediator.RemotePage(deliveries, last));
+                });
     }
     
     @Override
@@ -783,6 +1104,7 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
                                 if (getCurrentUserId().equals(delivery.getUserId())) {
                                     // Update cache
                                     putInCache(CACHE_DELIVERY_PREFIX + deliveryId, delivery);
+                                    writeThrough(Collections.singletonList(delivery));
                                     
                                     // Emit to subscribers
                                     subject.onNext(delivery);
@@ -812,87 +1134,87 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
     
     @Override
     public Single<Map<String, DeliveryStats>> getDeliveryStats() {
-        String cacheKey = CACHE_STATS_PREFIX + getCurrentUserId();
+        return streamDeliveryStats().firstOrError();
+    }
+    
+    @Override
+    public Flowable<Map<String, DeliveryStats>> streamDeliveryStats() {
+        Calendar cal = Calendar.getInstance();
+        Date now = cal.getTime();
         
-        return Single.create(emitter -> {
-            // First try memory cache
-            Map<String, DeliveryStats> cached = getFromCache(cacheKey);
-            if (cached != null) {
-                emitter.onSuccess(cached);
-                return;
-            }
-            
-            // Calculate time periods
-            Calendar cal = Calendar.getInstance();
-            Date now = cal.getTime();
-            
-            // Today - start of day to now
-            cal.set(Calendar.HOUR_OF_DAY, 0);
-            cal.set(Calendar.MINUTE, 0);
-            cal.set(Calendar.SECOND, 0);
-            cal.set(Calendar.MILLISECOND, 0);
-            Date startOfToday = cal.getTime();
-            
-            // Last 7 days - 7 days ago to now
-            cal.add(Calendar.DAY_OF_YEAR, -7);
-            Date sevenDaysAgo = cal.getTime();
-            
-            // Last 30 days - 30 days ago to now
-            cal.setTime(now); // Reset to now
-            cal.add(Calendar.DAY_OF_YEAR, -30);
-            Date thirtyDaysAgo = cal.getTime();
-            
-            // Query Firestore for all deliveries in the last 30 days
-            getUserDeliveriesQuery()
-                    .whereGreaterThanOrEqualTo(FIELD_TIMESTAMP, thirtyDaysAgo)
-                    .get()
-                    .addOnSuccessListener(querySnapshot -> {
-                        // Initialize stats objects
-                        DeliveryStats todayStats = new DeliveryStats();
-                        DeliveryStats sevenDayStats = new DeliveryStats();
-                        DeliveryStats thirtyDayStats = new DeliveryStats();
-                        
-                        // Process deliveries
-                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                            Delivery delivery = doc.toObject(Delivery.class);
-                            if (delivery != null && 
-                                    delivery.getTimes() != null && 
-                                    delivery.getTimes().getCompletedAt() != null) {
-                                
-                                Date completedAt = delivery.getTimes().getCompletedAt();
-                                boolean isToday = !completedAt.before(startOfToday);
-                                boolean isWithinSevenDays = !completedAt.before(sevenDaysAgo);
-                                // All deliveries are within 30 days due to the query
-                                
-                                // Update appropriate stats
-                                if (isToday) {
-                                    updateDeliveryStat(todayStats, delivery);
-                                }
-                                
-                                if (isWithinSevenDays) {
-                                    updateDeliveryStat(sevenDayStats, delivery);
-                                }
-                                
-                                updateDeliveryStat(thirtyDayStats, delivery);
-                            }
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        Date startOfToday = cal.getTime();
+        cal.add(Calendar.DAY_OF_YEAR, 1);
+        Date endOfToday = new Date(cal.getTimeInMillis() - 1);
+        cal.setTime(startOfToday);
+        cal.add(Calendar.DAY_OF_YEAR, -7);
+        String sevenDaysKey = dayKey(cal.getTime());
+        cal.setTime(startOfToday);
+        cal.add(Calendar.DAY_OF_YEAR, -30);
+        Date thirtyDaysAgo = cal.getTime();
+        String todayKey = dayKey(startOfToday);
+        
+        // A few rows per day from the GROUP BY; the periods are summed from those
+        return localStore.observeDailyStats(getCurrentUserId(), thirtyDaysAgo, endOfToday)
+                .map(byDay -> {
+                    DeliveryStats todayStats = new DeliveryStats();
+                    DeliveryStats sevenDayStats = new DeliveryStats();
+                    DeliveryStats thirtyDayStats = new DeliveryStats();
+                    
+                    for (Map.Entry<String, DeliveryStats> day : byDay.entrySet()) {
+                        if (day.getKey() == null) {
+                            continue;
                         }
-                        
-                        // Create result map
-                        Map<String, DeliveryStats> statsMap = new HashMap<>();
-                        statsMap.put("today", todayStats);
-                        statsMap.put("sevenDays", sevenDayStats);
-                        statsMap.put("thirtyDays", thirtyDayStats);
-                        
-                        // Cache the result
-                        putInCache(cacheKey, statsMap);
-                        
-                        emitter.onSuccess(statsMap);
-                    })
-                    .addOnFailureListener(e -> {
-                        handleFirestoreError(e, "Error calculating delivery stats");
-                        emitter.onError(e);
-                    });
-        });
+                        if (day.getKey().equals(todayKey)) {
+                            todayStats.add(day.getValue());
+                        }
+                        if (day.getKey().compareTo(sevenDaysKey) >= 0) {
+                            sevenDayStats.add(day.getValue());
+                        }
+                        thirtyDayStats.add(day.getValue());
+                    }
+                    
+                    Map<String, DeliveryStats> statsMap = new HashMap<>();
+                    statsMap.put("today", todayStats);
+                    statsMap.put("sevenDays", sevenDayStats);
+                    statsMap.put("thirtyDays", thirtyDayStats);
+                    return statsMap;
+                })
+                .doOnSubscribe(subscription -> refreshInBackground(getDeliveriesByTimeRange(thirtyDaysAgo, now)));
+    }
+    
+    @Override
+    public Flowable<List<EarningsBucket>> streamEarnings(String resolution, Date startDate, Date endDate) {
+        if (startDate == null || endDate == null) {
+            return Flowable.error(new IllegalArgumentException("Start and end dates are required"));
+        }
+        if (!EarningsBucket.RESOLUTION_HOUR.equals(resolution) && !EarningsBucket.RESOLUTION_DAY.equals(resolution)) {
+            return Flowable.error(new IllegalArgumentException("Unknown resolution: " + resolution));
+        }
+        return localStore.observeEarnings(getCurrentUserId(), resolution, startDate, endDate)
+                .doOnSubscribe(subscription -> refreshInBackground(getDeliveriesByTimeRange(startDate, endDate)));
+    }
+    
+    @Override
+    public Single<EarningsBucket> getEarningsTotal(Date startDate, Date endDate) {
+        if (startDate == null || endDate == null) {
+            return Single.error(new IllegalArgumentException("Start and end dates are required"));
+        }
+        return localStore.getEarningsTotal(getCurrentUserId(), startDate, endDate)
+                .doOnSubscribe(disposable -> refreshInBackground(getDeliveriesByTimeRange(startDate, endDate)));
+    }
+    
+    /**
+     * Formats a date as the local day key used by the daily stats query
+     * 
+     * @param date Date to format
+     * @return Day key (yyyy-MM-dd)
+     */
+    private static String dayKey(Date date) {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date);
     }
     
     @Override
@@ -944,9 +1266,9 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
     @Override
     public Single<List<Delivery>> getTippedDeliveries() {
         return Single.create(emitter -> {
-            getUserDeliveriesQuery()
+            guardedTask(COLLECTION_DELIVERIES, () -> getUserDeliveriesQuery()
                     .whereEqualTo("status.isTipped", true)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Delivery> deliveries = new ArrayList<>();
                         
@@ -973,10 +1295,10 @@ public class DeliveryRepositoryImpl extends FirestoreRepository implements Deliv
     @Override
     public Single<List<Delivery>> getUntippedDeliveries() {
         return Single.create(emitter -> {
-            getUserDeliveriesQuery()
+            guardedTask(COLLECTION_DELIVERIES, () -> getUserDeliveriesQuery()
                     .whereEqualTo("status.isCompleted", true)
                     .whereEqualTo("status.isTipped", false)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Delivery> deliveries = new ArrayList<>();
                         
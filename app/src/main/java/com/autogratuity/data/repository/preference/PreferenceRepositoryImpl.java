@@ -151,7 +151,7 @@ public class PreferenceRepositoryImpl extends FirestoreRepository implements Pre
             }
             
             // If forcing refresh or not in cache, fetch from Firestore
-            getUserProfileDocRef().get()
+            guardedTask(COLLECTION_USER_PROFILES, () -> getUserProfileDocRef().get())
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         // Use UserProfileSerializer for deserialization with proper encryption
@@ -222,7 +222,7 @@ public class PreferenceRepositoryImpl extends FirestoreRepository implements Pre
             Map<String, Object> profileMap = UserProfileSerializer.toMap(profile, context);
             
             // Update document in Firestore
-            getUserProfileDocRef().set(profileMap)
+            guardedWrite(COLLECTION_USER_PROFILES, () -> getUserProfileDocRef().set(profileMap))
                 .addOnSuccessListener(aVoid -> {
                     // Update cache and shared preferences
                     putInCache(CACHE_USER_PROFILE, profile);
@@ -240,7 +240,7 @@ public class PreferenceRepositoryImpl extends FirestoreRepository implements Pre
                     Log.e(TAG, "Error updating user profile", e);
                     
                     // If offline, queue for sync later
-                    if (!isNetworkAvailable()) {
+                    if (shouldQueueWrite(e)) {
                         // Convert profile to Map for sync operation using serializer
                         Map<String, Object> serializedProfileMap = UserProfileSerializer.toMap(profile, context);
                         
@@ -300,7 +300,7 @@ public class PreferenceRepositoryImpl extends FirestoreRepository implements Pre
                         }
                         
                         // Update document in Firestore using merge option
-                        getUserProfileDocRef().set(fields, SetOptions.merge())
+                        guardedWrite(COLLECTION_USER_PROFILES, () -> getUserProfileDocRef().set(fields, SetOptions.merge()))
                             .addOnSuccessListener(aVoid -> {
                                 // Refresh the profile after update
                                 getUserProfile(true)
@@ -316,7 +316,7 @@ public class PreferenceRepositoryImpl extends FirestoreRepository implements Pre
                                 Log.e(TAG, "Error updating user profile fields", e);
                                 
                                 // If offline, queue for sync later
-                                if (!isNetworkAvailable()) {
+                                if (shouldQueueWrite(e)) {
                                     enqueueOperation("update", COLLECTION_USER_PROFILES, userId, fields)
                                         .subscribe(
                                             innerEmitter::onComplete,
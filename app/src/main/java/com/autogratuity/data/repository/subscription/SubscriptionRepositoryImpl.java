@@ -196,10 +196,10 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
             }
             
             // Finally, query Firestore for active subscription records
-            db.collection(COLLECTION_SUBSCRIPTION_RECORDS)
+            guardedTask(COLLECTION_SUBSCRIPTION_RECORDS, () -> db.collection(COLLECTION_SUBSCRIPTION_RECORDS)
                     .whereEqualTo(FIELD_USER_ID, userId)
                     .whereEqualTo(FIELD_IS_ACTIVE, true)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         if (querySnapshot.isEmpty()) {
                             // No active subscriptions, return a free status
@@ -278,7 +278,7 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
         record.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
         
         return Completable.create(emitter -> {
-            docRef.set(record)
+            guardedWrite(COLLECTION_SUBSCRIPTION_RECORDS, () -> docRef.set(record))
                     .addOnSuccessListener(aVoid -> {
                         // Cache the status
                         updateSubscriptionCache(status);
@@ -291,7 +291,7 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
                                 );
                     })
                     .addOnFailureListener(e -> {
-                        if (!isNetworkAvailable()) {
+                        if (shouldQueueWrite(e)) {
                             // Save locally anyway
                             updateSubscriptionCache(status);
                             
@@ -381,7 +381,7 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
         DocumentReference docRef = db.collection(COLLECTION_SUBSCRIPTION_RECORDS).document(recordId);
         
         return Single.create(emitter -> {
-            docRef.set(subscriptionRecord)
+            guardedWrite(COLLECTION_SUBSCRIPTION_RECORDS, () -> docRef.set(subscriptionRecord))
                     .addOnSuccessListener(aVoid -> {
                         // Invalidate cache
                         invalidateCache(CACHE_SUBSCRIPTION_STATUS + "_" + userId);
@@ -389,7 +389,7 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
                         emitter.onSuccess(docRef);
                     })
                     .addOnFailureListener(e -> {
-                        if (!isNetworkAvailable()) {
+                        if (shouldQueueWrite(e)) {
                             // Create sync operation
                             enqueueOperation("create", COLLECTION_SUBSCRIPTION_RECORDS, recordId, subscriptionRecord)
                                     .subscribe(
@@ -558,10 +558,10 @@ public class SubscriptionRepositoryImpl extends FirestoreRepository implements S
     @Override
     public Single<List<Map<String, Object>>> getSubscriptionHistory() {
         return Single.create(emitter -> {
-            db.collection(COLLECTION_SUBSCRIPTION_RECORDS)
+            guardedTask(COLLECTION_SUBSCRIPTION_RECORDS, () -> db.collection(COLLECTION_SUBSCRIPTION_RECORDS)
                     .whereEqualTo(FIELD_USER_ID, userId)
                     .orderBy("createdAt", Query.Direction.DESCENDING)
-                    .get()
+                    .get())
                     .addOnSuccessListener(querySnapshot -> {
                         List<Map<String, Object>> history = new ArrayList<>();
                         
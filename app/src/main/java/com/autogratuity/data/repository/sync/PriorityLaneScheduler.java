@@ -0,0 +1,126 @@
+package com.autogratuity.data.repository.sync;
+
+import com.autogratuity.data.model.SyncOperation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Weighted fair scheduler for the sync outbox priority lanes.
+ * <p>
+ * Each batch is assembled with deficit round robin over the interactive, normal and bulk
+ * lanes: every lane with due work earns credit in proportion to its weight and spends it
+ * on operations. Interactive work is always placed at the front of the batch, bulk work
+ * keeps a guaranteed share so it is never starved, and capacity a lane cannot use is
+ * handed to the others so a batch is never left short while work is due.
+ */
+public class PriorityLaneScheduler {
+
+    /** Lanes in dispatch order. */
+    public static final String[] LANES = {
+            SyncOperation.PRIORITY_INTERACTIVE,
+            SyncOperation.PRIORITY_NORMAL,
+            SyncOperation.PRIORITY_BULK
+    };
+
+    // Default weights, parallel to LANES
+    private static final int[] DEFAULT_WEIGHTS = {8, 3, 1};
+
+    private final int[] weights;
+    private final int[] deficits;
+
+    /**
+     * Creates a scheduler with the default lane weights.
+     */
+    public PriorityLaneScheduler() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Creates a scheduler with custom lane weights.
+     *
+     * @param weights Weight per lane, parallel to {@link #LANES}; each must be positive
+     */
+    public PriorityLaneScheduler(int[] weights) {
+        if (weights == null || weights.length != LANES.length) {
+            throw new IllegalArgumentException("Expected " + LANES.length + " lane weights");
+        }
+        for (int weight : weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Lane weights must be positive");
+            }
+        }
+        this.weights = weights.clone();
+        this.deficits = new int[LANES.length];
+    }
+
+    /**
+     * Select the next batch from the due operations of each lane.
+     *
+     * @param dueByLane Due operations per lane in due-time order, parallel to {@link #LANES}
+     * @param batchSize Maximum number of operations to select
+     * @param <T> Operation type
+     * @return Selected operations, interactive first
+     */
+    public synchronized <T> List<T> selectBatch(List<List<T>> dueByLane, int batchSize) {
+        if (dueByLane == null || dueByLane.size() != LANES.length || batchSize <= 0) {
+            return Collections.emptyList();
+        }
+
+        int activeWeight = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            if (isEmpty(dueByLane.get(i))) {
+                // Idle lanes do not bank credit
+                deficits[i] = 0;
+            } else {
+                activeWeight += weights[i];
+            }
+        }
+        if (activeWeight == 0) {
+            return Collections.emptyList();
+        }
+
+        // Earn credit in proportion to weight, at least one slot per active lane
+        int[] taken = new int[LANES.length];
+        int remaining = batchSize;
+        for (int i = 0; i < LANES.length && remaining > 0; i++) {
+            List<T> lane = dueByLane.get(i);
+            if (isEmpty(lane)) {
+                continue;
+            }
+            int quantum = Math.max(1, (batchSize * weights[i]) / activeWeight);
+            deficits[i] = Math.min(deficits[i] + quantum, batchSize);
+
+            int take = Math.min(Math.min(deficits[i], lane.size()), remaining);
+            taken[i] = take;
+            deficits[i] -= take;
+            remaining -= take;
+        }
+
+        // Hand unused capacity to lanes that still have work, in priority order
+        for (int i = 0; i < LANES.length && remaining > 0; i++) {
+            List<T> lane = dueByLane.get(i);
+            if (isEmpty(lane)) {
+                continue;
+            }
+            int extra = Math.min(lane.size() - taken[i], remaining);
+            if (extra > 0) {
+                taken[i] += extra;
+                remaining -= extra;
+            }
+        }
+
+        List<T> batch = new ArrayList<>(batchSize - remaining);
+        for (int i = 0; i < LANES.length; i++) {
+            if (taken[i] > 0) {
+                batch.addAll(dueByLane.get(i).subList(0, taken[i]));
+            }
+        }
+        return batch;
+    }
+
+    private static boolean isEmpty(List<?> lane) {
+        return lane == null || lane.isEmpty();
+    }
+}
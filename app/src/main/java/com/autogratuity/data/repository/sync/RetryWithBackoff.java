@@ -132,7 +132,8 @@ public class RetryWithBackoff {
             error instanceof java.net.SocketTimeoutException ||
             error instanceof java.net.ConnectException ||
             error instanceof java.io.InterruptedIOException ||
-            error instanceof java.net.SocketException) {
+            error instanceof java.net.SocketException ||
+            error instanceof java.util.concurrent.TimeoutException) {
             return true;
         }
         
@@ -0,0 +1,254 @@
+package com.autogratuity.data.repository.sync;
+
+import androidx.annotation.NonNull;
+
+import com.autogratuity.data.model.SyncMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * In-memory metrics registry for the sync engine.
+ * <p>
+ * Records enqueue-to-commit latency and batch size histograms, bytes written, retries by
+ * error type, attempts and conflicts by entity type, and a rolling window of queue depth
+ * samples. Recording is cheap (fixed buckets, no per-event allocation beyond map keys);
+ * snapshots are built on demand and streamed through {@link #observe()}.
+ */
+public class SyncMetricsRegistry {
+
+    // Latency buckets (ms): sub-second commits up to multi-hour offline waits
+    private static final long[] LATENCY_BOUNDS_MS = {
+            50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000,
+            60000, 300000, 900000, 3600000, 4 * 3600000L
+    };
+
+    // Batch size buckets
+    private static final long[] BATCH_SIZE_BOUNDS = {1, 2, 5, 10, 20, 30, 40, 50, 100};
+
+    // Queue depth window
+    private static final int MAX_DEPTH_SAMPLES = 240;
+    private static final long MIN_DEPTH_SAMPLE_INTERVAL_MS = 5000;
+
+    // Snapshot emission rate for observers
+    private static final long EMIT_INTERVAL_MS = 1000;
+
+    private static volatile SyncMetricsRegistry instance;
+
+    private final Object lock = new Object();
+
+    private final HistogramRecorder commitLatency = new HistogramRecorder(LATENCY_BOUNDS_MS);
+    private final HistogramRecorder batchSizes = new HistogramRecorder(BATCH_SIZE_BOUNDS);
+    private final Map<String, Long> retriesByErrorType = new HashMap<>();
+    private final Map<String, Long> attemptsByEntityType = new HashMap<>();
+    private final Map<String, Long> conflictsByEntityType = new HashMap<>();
+    private final ArrayDeque<SyncMetrics.DepthSample> queueDepth = new ArrayDeque<>();
+    private long operationsCommitted;
+    private long bytesWritten;
+    private long sinceMs = System.currentTimeMillis();
+
+    private final Subject<Boolean> changes = PublishSubject.<Boolean>create().toSerialized();
+
+    /**
+     * Mutable fixed-bucket histogram.
+     */
+    private static class HistogramRecorder {
+        final long[] bounds;
+        final long[] counts;
+        long count;
+        long sum;
+        long max;
+
+        HistogramRecorder(long[] bounds) {
+            this.bounds = bounds;
+            this.counts = new long[bounds.length + 1];
+        }
+
+        void record(long value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        void reset() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        SyncMetrics.Histogram snapshot() {
+            return new SyncMetrics.Histogram(bounds.clone(), counts.clone(), count, sum, max);
+        }
+    }
+
+    /**
+     * Get the singleton registry instance.
+     *
+     * @return SyncMetricsRegistry instance
+     */
+    public static SyncMetricsRegistry getInstance() {
+        if (instance == null) {
+            synchronized (SyncMetricsRegistry.class) {
+                if (instance == null) {
+                    instance = new SyncMetricsRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Recording
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Record an operation that was committed to Firestore.
+     *
+     * @param entityType Entity type of the operation
+     * @param enqueueToCommitMs Time from enqueue to commit in milliseconds
+     * @param bytes Approximate payload size written
+     */
+    public void recordCommit(String entityType, long enqueueToCommitMs, long bytes) {
+        synchronized (lock) {
+            commitLatency.record(Math.max(0, enqueueToCommitMs));
+            operationsCommitted++;
+            bytesWritten += Math.max(0, bytes);
+            increment(attemptsByEntityType, entityType);
+        }
+        changes.onNext(Boolean.TRUE);
+    }
+
+    /**
+     * Record a failed attempt. Only attempts that were rescheduled count as retries;
+     * non-retryable or exhausted operations are parked and are not retried.
+     *
+     * @param entityType Entity type of the operation
+     * @param errorType Error type (Firestore code name or exception class)
+     * @param conflict Whether the failure was a write conflict
+     * @param rescheduled Whether the operation was given another attempt
+     */
+    public void recordFailure(String entityType, String errorType, boolean conflict, boolean rescheduled) {
+        synchronized (lock) {
+            if (rescheduled) {
+                increment(retriesByErrorType, errorType);
+            }
+            increment(attemptsByEntityType, entityType);
+            if (conflict) {
+                increment(conflictsByEntityType, entityType);
+            }
+        }
+        changes.onNext(Boolean.TRUE);
+    }
+
+    /**
+     * Record the size of a dispatched batch.
+     *
+     * @param size Number of operations in the batch
+     */
+    public void recordBatch(int size) {
+        synchronized (lock) {
+            batchSizes.record(size);
+        }
+        changes.onNext(Boolean.TRUE);
+    }
+
+    /**
+     * Record the current outbox depth. Samples closer together than a few seconds are
+     * merged unless the depth changed.
+     *
+     * @param depth Number of queued operations
+     */
+    public void recordQueueDepth(int depth) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            SyncMetrics.DepthSample last = queueDepth.peekLast();
+            if (last != null && last.getDepth() == depth
+                    && now - last.getTimestampMs() < MIN_DEPTH_SAMPLE_INTERVAL_MS) {
+                return;
+            }
+            if (queueDepth.size() >= MAX_DEPTH_SAMPLES) {
+                queueDepth.pollFirst();
+            }
+            queueDepth.addLast(new SyncMetrics.DepthSample(now, depth));
+        }
+        changes.onNext(Boolean.TRUE);
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Reading
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Build a snapshot of the current metrics.
+     *
+     * @return SyncMetrics snapshot
+     */
+    @NonNull
+    public SyncMetrics snapshot() {
+        synchronized (lock) {
+            return new SyncMetrics(
+                    new Date(),
+                    new Date(sinceMs),
+                    commitLatency.snapshot(),
+                    batchSizes.snapshot(),
+                    operationsCommitted,
+                    bytesWritten,
+                    new HashMap<>(retriesByErrorType),
+                    new HashMap<>(attemptsByEntityType),
+                    new HashMap<>(conflictsByEntityType),
+                    new ArrayList<>(queueDepth));
+        }
+    }
+
+    /**
+     * Observe metrics snapshots. Emits the current snapshot immediately and then at most
+     * once per second while metrics are being recorded.
+     *
+     * @return Observable of snapshots
+     */
+    public Observable<SyncMetrics> observe() {
+        return changes
+                .throttleLatest(EMIT_INTERVAL_MS, TimeUnit.MILLISECONDS, true)
+                .startWith(Boolean.TRUE)
+                .map(ignored -> snapshot());
+    }
+
+    /**
+     * Clear all recorded metrics.
+     */
+    public void reset() {
+        synchronized (lock) {
+            commitLatency.reset();
+            batchSizes.reset();
+            retriesByErrorType.clear();
+            attemptsByEntityType.clear();
+            conflictsByEntityType.clear();
+            queueDepth.clear();
+            operationsCommitted = 0;
+            bytesWritten = 0;
+            sinceMs = System.currentTimeMillis();
+        }
+        changes.onNext(Boolean.TRUE);
+    }
+
+    private static void increment(Map<String, Long> counts, String key) {
+        String safeKey = key != null ? key : "unknown";
+        Long current = counts.get(safeKey);
+        counts.put(safeKey, current != null ? current + 1 : 1);
+    }
+}
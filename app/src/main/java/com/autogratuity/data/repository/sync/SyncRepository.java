@@ -1,5 +1,6 @@
 package com.autogratuity.data.repository.sync;
 
+import com.autogratuity.data.model.SyncMetrics;
 import com.autogratuity.data.model.SyncOperation;
 import com.autogratuity.data.model.SyncStatus;
 import com.autogratuity.data.repository.core.DataRepository;
@@ -95,6 +96,17 @@ public interface SyncRepository extends DataRepository {
      */
     Completable createEntity(String entityType, String entityId, Map<String, Object> data);
     
+    /**
+     * Create a sync operation for creating an entity in a specific priority lane.
+     * 
+     * @param entityType Entity type (e.g., "address", "delivery")
+     * @param entityId Entity ID
+     * @param data Entity data
+     * @param priority Priority lane (SyncOperation.PRIORITY_*)
+     * @return Completable that completes when operation is enqueued
+     */
+    Completable createEntity(String entityType, String entityId, Map<String, Object> data, String priority);
+    
     /**
      * Create a sync operation for updating an entity.
      * 
@@ -159,7 +171,30 @@ public interface SyncRepository extends DataRepository {
      * @return Single that emits the number of pending operations
      */
     Single<Integer> getPendingOperationCount();
-    
+
+    /**
+     * Get the number of pending sync operations that are due for an attempt now.
+     * Operations waiting out a retry backoff are not counted.
+     *
+     * @return Single that emits the number of due operations
+     */
+    Single<Integer> getDueOperationCount();
+
+    /**
+     * Observe sync engine metrics: enqueue-to-commit latency, batch sizes, bytes written,
+     * retries by error type, conflicts by entity type and queue depth over time.
+     *
+     * @return Observable that emits the current metrics and throttled updates
+     */
+    Observable<SyncMetrics> observeSyncMetrics();
+
+    /**
+     * Format the current sync metrics as plain text for diagnostics.
+     *
+     * @return Single that emits the metrics dump
+     */
+    Single<String> dumpSyncMetrics();
+
     /**
      * Check if there are any pending sync operations.
      * 
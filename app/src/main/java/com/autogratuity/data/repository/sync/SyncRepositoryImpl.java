@@ -1 +1,852 @@
+package com.autogratuity.data.repository.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.autogratuity.data.local.AppDatabase;
+import com.autogratuity.data.local.LocalDataStore;
+import com.autogratuity.data.local.OperationCodec;
+import com.autogratuity.data.local.PendingOperationDao;
+import com.autogratuity.data.local.PendingOperationEntity;
+import com.autogratuity.data.model.SyncMetrics;
+import com.autogratuity.data.model.SyncOperation;
+import com.autogratuity.data.model.SyncStatus;
+import com.autogratuity.data.repository.core.CircuitBreaker;
+import com.autogratuity.data.repository.core.FirestoreRepository;
+import com.autogratuity.data.repository.core.RepositoryEventBus;
+import com.autogratuity.data.repository.utils.RepositoryConstants;
+import com.autogratuity.workers.SyncScheduler;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+/**
+ * Implementation of the SyncRepository interface.
+ * <p>
+ * Pending operations are kept in a Room-backed outbox ({@code pending_operations}) and
+ * replayed against Firestore by {@link #processPendingSyncOperations()}. Background runs
+ * are scheduled through {@link SyncScheduler}, which adapts the cadence to the outbox
+ * depth and device state.
+ * <p>
+ * Each row carries an indexed {@code nextAttemptTime}, so a pass only reads operations that
+ * are due, and a single retry timer is armed for the earliest future due time.
+ * <p>
+ * Operations are split into interactive, normal and bulk lanes. Batches are assembled by
+ * {@link PriorityLaneScheduler} so a large import never holds back a freshly captured tip.
+ * <p>
+ * Writes are guarded by the shared {@link CircuitBreaker} and the per-collection concurrency
+ * limiter. The pass stops at the first write the breaker rejects, open or half open, queued
+ * rows are left untouched and the next run is deferred until the breaker admits a probe.
+ * <p>
+ * Latency, batch sizes, bytes written, retries, conflicts and queue depth are recorded in
+ * {@link SyncMetricsRegistry} and exposed through {@link #observeSyncMetrics()}.
+ */
+public class SyncRepositoryImpl extends FirestoreRepository implements SyncRepository, RepositoryEventBus.EventListener {
+
+    private static final String TAG = "SyncRepository";
+
+    // Preference keys
+    private static final String KEY_BACKGROUND_SYNC_ENABLED = "background_sync_enabled";
+
+    // Processing limits
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_BATCHES_PER_PASS = 20;
+    // Hold-off when a half-open breaker is busy with another caller's probe
+    private static final long BREAKER_PROBE_WAIT_MS = 5000;
+    
+    // Operation types
+    private static final String TYPE_CREATE = "create";
+    private static final String TYPE_UPDATE = "update";
+    private static final String TYPE_DELETE = "delete";
+    private static final String TYPE_UPDATE_TIP = "updateTip";
+
+    // Local storage
+    private final PendingOperationDao pendingOperationDao;
+    private final LocalDataStore localStore;
+
+    // Scheduling and retry policy
+    private final SyncScheduler syncScheduler;
+    private final RetryWithBackoff retryWithBackoff;
+    private final PriorityLaneScheduler laneScheduler;
+    private final SyncMetricsRegistry metrics;
+
+    // Event bus for cross-repository communication
+    private final RepositoryEventBus eventBus;
+
     /**
+     * Constructor for SyncRepositoryImpl
+     *
+     * @param context Android context for SharedPreferences, Room and WorkManager
+     */
+    public SyncRepositoryImpl(Context context) {
+        super(context);
+        this.pendingOperationDao = AppDatabase.getInstance(context).pendingOperationDao();
+        this.localStore = LocalDataStore.getInstance(context);
+        this.syncScheduler = SyncScheduler.getInstance(context);
+        this.retryWithBackoff = new RetryWithBackoff();
+        this.laneScheduler = new PriorityLaneScheduler();
+        this.metrics = SyncMetricsRegistry.getInstance();
+
+        // Reflect the persisted background sync preference in the status
+        SyncStatus status = syncStatusSubject.getValue();
+        if (status != null) {
+            status.setBackgroundSyncEnabled(prefs.getBoolean(KEY_BACKGROUND_SYNC_ENABLED, true));
+        }
+
+        // Receive operations enqueued by other repositories
+        this.eventBus = RepositoryEventBus.getInstance();
+        this.eventBus.register(RepositoryEventBus.EventType.SYNC_REPOSITORY, this);
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Sync Operations
+    //-----------------------------------------------------------------------------------
+
+    @Override
+    public Completable syncData() {
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.SYNC, "data", null);
+
+        return processPendingSyncOperations()
+                .andThen(Completable.defer(() -> updateDeviceSyncStatus(deviceId, syncStatusSubject.getValue())))
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Completable enqueueSyncOperation(SyncOperation operation) {
+        if (operation == null) {
+            return Completable.error(new IllegalArgumentException("Operation cannot be null"));
+        }
+
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.ADD, entityType, null);
+
+        return Completable.fromAction(() -> {
+                    Date now = new Date();
+                    if (operation.getOperationId() == null) {
+                        operation.setOperationId(UUID.randomUUID().toString());
+                    }
+                    if (operation.getUserId() == null) {
+                        operation.setUserId(getCurrentUserId());
+                    }
+                    operation.setDeviceId(deviceId);
+                    operation.setStatus(SyncOperation.STATUS_PENDING);
+                    operation.setCreatedAt(now);
+                    operation.setUpdatedAt(now);
+                    if (operation.getPriority() == null) {
+                        operation.setPriority(SyncOperation.defaultPriorityFor(
+                                operation.getType(), operation.getEntityType()));
+                    }
+                    if (TYPE_CREATE.equals(operation.getType()) && operation.getEntityId() == null) {
+                        // Fix the document ID now so a retried create cannot duplicate the entity
+                        String collection = collectionForEntityType(operation.getEntityType());
+                        if (collection != null) {
+                            operation.setEntityId(db.collection(collection).document().getId());
+                        }
+                    }
+
+                    PendingOperationEntity entity = new PendingOperationEntity();
+                    entity.setOperationType(operation.getType());
+                    entity.setTargetId(operation.getEntityId());
+                    entity.setUserId(operation.getUserId());
+                    entity.setPayload(OperationCodec.encode(operation));
+                    entity.setRetryCount(0);
+                    entity.setCreatedAt(now);
+                    entity.setNextAttemptTime(now);
+                    entity.setPriority(operation.getPriority());
+                    pendingOperationDao.insert(entity);
+
+                    int pendingCount = refreshPendingCount();
+                    if (SyncOperation.PRIORITY_INTERACTIVE.equals(operation.getPriority())) {
+                        syncScheduler.onInteractiveChange(pendingCount);
+                    } else {
+                        syncScheduler.onLocalChange(pendingCount);
+                    }
+
+                    Log.d(TAG, "Enqueued " + operation.getPriority() + " " + operation.getType() + " " +
+                            operation.getEntityType() + " " + operation.getEntityId() +
+                            " (pending=" + pendingCount + ")");
+                })
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Single<List<SyncOperation>> getPendingSyncOperations() {
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.GET_ALL, "pending " + entityType, null);
+
+        return Single.fromCallable(() -> toOperations(pendingOperationDao.getAllForUser(getCurrentUserId())))
+                .compose(applyReadTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Completable processPendingSyncOperations() {
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = "process pending sync operations";
+
+        return Completable.defer(() -> {
+                    if (!isNetworkAvailable()) {
+                        Log.d(TAG, "Offline, leaving " + refreshPendingCount() + " operations queued");
+                        return Completable.complete();
+                    }
+
+                    if (pendingOperationDao.getDueCount(new Date()) == 0) {
+                        refreshPendingCount();
+                        armRetryTimer();
+                        return Completable.complete();
+                    }
+
+                    updateStatus(SyncStatus::setSyncing);
+
+                    return processDueBatches(0)
+                            .doOnComplete(() -> {
+                                refreshPendingCount();
+                                armRetryTimer();
+                                updateStatus(SyncStatus::setCompleted);
+                            });
+                })
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Completable updateDeviceSyncStatus(String deviceId, SyncStatus syncStatus) {
+        if (deviceId == null || syncStatus == null) {
+            return Completable.error(new IllegalArgumentException("Device ID and sync status are required"));
+        }
+
+        final String entityType = RepositoryConstants.EntityType.DEVICE;
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.UPDATE, "device sync status", null);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("status", syncStatus.getStatus());
+        status.put("lastSyncTime", syncStatus.getLastSyncTime());
+        status.put("pendingOperations", syncStatus.getPendingOperations());
+        status.put("failedOperations", syncStatus.getFailedOperations());
+        status.put("backgroundSyncEnabled", syncStatus.isBackgroundSyncEnabled());
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("syncStatus", status);
+        updates.put("lastActive", new Date());
+
+        DocumentReference docRef = db.collection(COLLECTION_USER_DEVICES).document(userId + "_" + deviceId);
+
+        return Completable.create(emitter -> guardedWrite(COLLECTION_USER_DEVICES, () -> docRef.set(updates, SetOptions.merge()))
+                        .addOnSuccessListener(aVoid -> emitter.onComplete())
+                        .addOnFailureListener(emitter::onError))
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Convenience Methods
+    //-----------------------------------------------------------------------------------
+
+    @Override
+    public Completable createEntity(String entityType, String entityId, Map<String, Object> data) {
+        return enqueueOperation(TYPE_CREATE, entityType, entityId, data);
+    }
+
+    @Override
+    public Completable createEntity(String entityType, String entityId, Map<String, Object> data,
+                                    String priority) {
+        return enqueueOperation(TYPE_CREATE, entityType, entityId, data, priority);
+    }
+
+    @Override
+    public Completable updateEntity(String entityType, String entityId, Map<String, Object> data) {
+        return enqueueOperation(TYPE_UPDATE, entityType, entityId, data);
+    }
+
+    @Override
+    public Completable deleteEntity(String entityType, String entityId) {
+        return enqueueOperation(TYPE_DELETE, entityType, entityId, null);
+    }
+
+    @Override
+    public Single<List<SyncOperation>> getFailedSyncOperations() {
+        return getPendingSyncOperations()
+                .map(operations -> {
+                    List<SyncOperation> failed = new ArrayList<>();
+                    for (SyncOperation operation : operations) {
+                        if (operation.isFailed()) {
+                            failed.add(operation);
+                        }
+                    }
+                    return failed;
+                });
+    }
+
+    @Override
+    public Completable retryOperation(String operationId) {
+        if (operationId == null || operationId.isEmpty()) {
+            return Completable.error(new IllegalArgumentException("Operation ID is required"));
+        }
+
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = "retry sync operation";
+
+        return Completable.defer(() -> {
+                    PendingOperationEntity entity = findEntityByOperationId(operationId);
+                    if (entity == null) {
+                        return Completable.error(new Exception("Sync operation not found: " + operationId));
+                    }
+                    resetForRetry(entity);
+                    Map<String, List<String>> committed = new HashMap<>();
+                    AtomicBoolean rejected = new AtomicBoolean();
+                    return processEntity(entity, committed, rejected)
+                            // A write the breaker rejected was not attempted; tell the caller
+                            .andThen(Completable.defer(() -> rejected.get()
+                                    ? Completable.error(new CircuitBreaker.CircuitOpenException(
+                                            errorHandler.getCircuitBreaker().getRetryAtMs()))
+                                    : localStore.markSyncedBatch(committed)));
+                })
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Completable retryAllFailedOperations() {
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = "retry all failed sync operations";
+
+        return Completable.fromAction(() -> {
+                    for (PendingOperationEntity entity : pendingOperationDao.getAllForUser(getCurrentUserId())) {
+                        SyncOperation operation = toOperation(entity);
+                        if (operation != null && operation.isFailed()) {
+                            resetForRetry(entity);
+                        }
+                    }
+                })
+                .andThen(processPendingSyncOperations())
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Completable cancelOperation(String operationId) {
+        if (operationId == null || operationId.isEmpty()) {
+            return Completable.error(new IllegalArgumentException("Operation ID is required"));
+        }
+
+        final String entityType = RepositoryConstants.EntityType.SYNC_OPERATION;
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.DELETE, entityType, null);
+
+        return Completable.fromAction(() -> {
+                    PendingOperationEntity entity = findEntityByOperationId(operationId);
+                    if (entity != null) {
+                        pendingOperationDao.delete(entity);
+                        refreshPendingCount();
+                    }
+                })
+                .compose(applyWriteTransformer(entityType, operationName));
+    }
+
+    @Override
+    public Single<List<SyncOperation>> getSyncHistoryForEntity(String entityType, String entityId) {
+        if (entityType == null || entityId == null) {
+            return Single.error(new IllegalArgumentException("Entity type and ID are required"));
+        }
+
+        final String operationName = RepositoryConstants.operationName(
+                RepositoryConstants.OperationName.FIND_BY, RepositoryConstants.EntityType.SYNC_OPERATION, "entity");
+
+        return Single.fromCallable(() -> {
+                    List<SyncOperation> history = new ArrayList<>();
+                    for (SyncOperation operation : toOperations(pendingOperationDao.getByTarget(entityId))) {
+                        if (entityType.equals(operation.getEntityType())) {
+                            history.add(operation);
+                        }
+                    }
+                    return history;
+                })
+                .compose(applyReadTransformer(RepositoryConstants.EntityType.SYNC_OPERATION, operationName));
+    }
+
+    @Override
+    public Single<Integer> getPendingOperationCount() {
+        return Single.fromCallable(this::refreshPendingCount)
+                .compose(applyReadTransformer(
+                        RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "get pending operation count"));
+    }
+
+    @Override
+    public Single<Integer> getDueOperationCount() {
+        return Single.fromCallable(() -> pendingOperationDao.getDueCount(new Date()))
+                .compose(applyReadTransformer(
+                        RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "get due operation count"));
+    }
+
+    @Override
+    public Observable<SyncMetrics> observeSyncMetrics() {
+        return metrics.observe();
+    }
+
+    @Override
+    public Single<String> dumpSyncMetrics() {
+        return Single.fromCallable(() -> {
+                    // Take a fresh depth sample so the dump reflects the current outbox
+                    refreshPendingCount();
+                    return metrics.snapshot().toDebugString();
+                })
+                .compose(applyReadTransformer(RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "dump sync metrics"));
+    }
+
+    @Override
+    public Single<Boolean> hasPendingOperations() {
+        return getPendingOperationCount().map(count -> count > 0);
+    }
+
+    @Override
+    public Single<Boolean> hasEntityPendingOperations(String entityType, String entityId) {
+        return getSyncHistoryForEntity(entityType, entityId).map(operations -> !operations.isEmpty());
+    }
+
+    @Override
+    public Completable setBackgroundSyncEnabled(boolean enabled) {
+        return Completable.fromAction(() -> {
+                    prefs.edit().putBoolean(KEY_BACKGROUND_SYNC_ENABLED, enabled).apply();
+                    updateStatus(status -> status.setBackgroundSyncEnabled(enabled));
+
+                    if (enabled) {
+                        syncScheduler.scheduleNext(refreshPendingCount());
+                    } else {
+                        syncScheduler.cancel();
+                    }
+                })
+                .compose(applyWriteTransformer(RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "set background sync enabled"));
+    }
+
+    @Override
+    public Single<Boolean> isBackgroundSyncEnabled() {
+        return Single.fromCallable(() -> prefs.getBoolean(KEY_BACKGROUND_SYNC_ENABLED, true))
+                .compose(applyReadTransformer(RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "get background sync enabled"));
+    }
+
+    @Override
+    public Completable scheduleBackgroundSync(int delaySeconds) {
+        // The requested delay is an upper bound; the scheduler may run sooner for a large backlog
+        return Completable.fromAction(() -> {
+                    if (prefs.getBoolean(KEY_BACKGROUND_SYNC_ENABLED, true)) {
+                        syncScheduler.schedule(refreshPendingCount(), Math.max(0, delaySeconds));
+                    }
+                })
+                .compose(applyWriteTransformer(RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "schedule background sync"));
+    }
+
+    @Override
+    public Completable cancelScheduledSync() {
+        return Completable.fromAction(syncScheduler::cancel)
+                .compose(applyWriteTransformer(RepositoryConstants.EntityType.SYNC_OPERATION,
+                        "cancel scheduled sync"));
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Connectivity and event handling
+    //-----------------------------------------------------------------------------------
+
+    @Override
+    protected void onConnectivityChanged(boolean isConnected, SyncStatus syncStatus) {
+        if (isConnected && prefs.getBoolean(KEY_BACKGROUND_SYNC_ENABLED, true)) {
+            // Back online - let the scheduler pick the cadence for the current backlog
+            syncScheduler.scheduleNext(refreshPendingCount());
+        }
+    }
+
+    /**
+     * Handle events from the event bus
+     *
+     * @param event The repository event
+     */
+    @Override
+    public void onEvent(RepositoryEventBus.RepositoryEvent event) {
+        if (event == null || event.getData() == null) {
+            return;
+        }
+
+        if (RepositoryEventBus.EventType.SYNC_OPERATION_ENQUEUED.equals(event.getType())) {
+            Object operation = event.getData().get("operation");
+            if (operation instanceof SyncOperation) {
+                enqueueSyncOperation((SyncOperation) operation)
+                        .subscribe(
+                                () -> Log.d(TAG, "Enqueued sync operation from " + event.getSource()),
+                                error -> Log.e(TAG, "Error enqueuing sync operation from " + event.getSource(), error)
+                        );
+            }
+        }
+    }
+
+    /**
+     * Clean up resources when repository is no longer needed
+     */
+    public void cleanup() {
+        eventBus.unregister(RepositoryEventBus.EventType.SYNC_REPOSITORY, this);
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helper methods
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Process due operations in batches, earliest due first within each priority lane.
+     * Every attempted row is either deleted or rescheduled into the future, so each batch
+     * makes progress. A write rejected by the circuit breaker was not attempted: its row is
+     * left due and the pass ends there. Lanes are re-read for every batch, so interactive
+     * work enqueued mid-pass is picked up by the next batch. The pass is capped so a huge
+     * backlog is drained across chained worker runs.
+     *
+     * @param batchIndex Number of batches already processed in this pass
+     * @return Completable that completes when no due operations remain, the cap is hit or
+     *         the breaker rejects a write
+     */
+    private Completable processDueBatches(int batchIndex) {
+        return Completable.defer(() -> {
+            if (batchIndex >= MAX_BATCHES_PER_PASS || isCircuitOpen()) {
+                return Completable.complete();
+            }
+
+            Date now = new Date();
+            List<List<PendingOperationEntity>> dueByLane = new ArrayList<>();
+            for (String lane : PriorityLaneScheduler.LANES) {
+                dueByLane.add(pendingOperationDao.getDueOperationsForPriority(lane, now, BATCH_SIZE));
+            }
+
+            List<PendingOperationEntity> due = laneScheduler.selectBatch(dueByLane, BATCH_SIZE);
+            if (due.isEmpty()) {
+                return Completable.complete();
+            }
+            metrics.recordBatch(due.size());
+
+            // Committed rows are marked synced locally in one transaction per batch
+            Map<String, List<String>> committed = new HashMap<>();
+            AtomicBoolean rejected = new AtomicBoolean();
+            return Observable.fromIterable(due)
+                    // Once the breaker rejects a write it rejects the rest of the batch too
+                    .concatMapCompletable(entity -> rejected.get()
+                            ? Completable.complete()
+                            : processEntity(entity, committed, rejected))
+                    .andThen(Completable.defer(() -> localStore.markSyncedBatch(committed))
+                            .doOnError(error -> Log.w(TAG, "Error marking local rows synced", error))
+                            .onErrorComplete())
+                    .andThen(Completable.defer(() -> rejected.get()
+                            ? Completable.complete()
+                            : processDueBatches(batchIndex + 1)));
+        });
+    }
+
+    /**
+     * Arm the scheduler's retry timer for the earliest future due time, if any.
+     */
+    private void armRetryTimer() {
+        long breakerRetryAtMs = errorHandler.getCircuitBreaker().getRetryAtMs();
+        if (breakerRetryAtMs > System.currentTimeMillis()) {
+            // Nothing can be written before the breaker admits a probe
+            syncScheduler.deferUntil(breakerRetryAtMs);
+        }
+
+        Date earliest = pendingOperationDao.getEarliestNextAttemptTime();
+        if (earliest != null) {
+            syncScheduler.armRetryTimer(Math.max(earliest.getTime(), breakerRetryAtMs));
+        }
+    }
+
+    /**
+     * Replay a single queued operation against Firestore and record the outcome.
+     * Errors are recorded on the queued row and never propagated, so one bad
+     * operation does not stop the rest of the queue.
+     *
+     * @param entity Queued operation
+     * @param committed Collects the IDs of committed non-delete operations by entity type
+     * @param rejected Set if the circuit breaker rejected the write
+     * @return Completable that completes when the outcome is recorded
+     */
+    private Completable processEntity(PendingOperationEntity entity, Map<String, List<String>> committed,
+                                      AtomicBoolean rejected) {
+        SyncOperation operation = toOperation(entity);
+        if (operation == null) {
+            Log.w(TAG, "Dropping unreadable pending operation " + entity.getId());
+            return Completable.fromAction(() -> pendingOperationDao.delete(entity));
+        }
+
+        return applyOperation(operation)
+                .doOnComplete(() -> {
+                    pendingOperationDao.delete(entity);
+                    recordCommit(entity, operation);
+                    if (!TYPE_DELETE.equals(operation.getType()) && operation.getEntityId() != null) {
+                        // The local copy now matches Firestore and may accept remote updates again
+                        List<String> ids = committed.get(operation.getEntityType());
+                        if (ids == null) {
+                            ids = new ArrayList<>();
+                            committed.put(operation.getEntityType(), ids);
+                        }
+                        ids.add(operation.getEntityId());
+                    }
+                    publishOperationEvent(RepositoryEventBus.EventType.SYNC_OPERATION_COMPLETED, operation);
+                })
+                .onErrorResumeNext(error -> {
+                    if (error instanceof CircuitBreaker.CircuitOpenException) {
+                        // Not attempted - leave the row as it is and hold off until a probe is admitted
+                        rejected.set(true);
+                        long retryAtMs = ((CircuitBreaker.CircuitOpenException) error).getRetryAtMs();
+                        syncScheduler.deferUntil(Math.max(retryAtMs,
+                                System.currentTimeMillis() + BREAKER_PROBE_WAIT_MS));
+                        return Completable.complete();
+                    }
+                    return Completable.fromAction(() -> recordFailure(entity, operation, error));
+                });
+    }
+
+    /**
+     * Check whether the shared circuit breaker is currently rejecting calls.
+     *
+     * @return true if the breaker is open and its retry time has not been reached
+     */
+    private boolean isCircuitOpen() {
+        CircuitBreaker breaker = errorHandler.getCircuitBreaker();
+        return CircuitBreaker.STATE_OPEN.equals(breaker.getState())
+                && breaker.getRetryAtMs() > System.currentTimeMillis();
+    }
+
+    /**
+     * Apply a sync operation to Firestore.
+     *
+     * @param operation Operation to apply
+     * @return Completable that completes when Firestore acknowledges the write
+     */
+    private Completable applyOperation(SyncOperation operation) {
+        String collection = collectionForEntityType(operation.getEntityType());
+        if (collection == null || operation.getEntityId() == null) {
+            return Completable.error(new IllegalArgumentException(
+                    "Unsupported sync target: " + operation.getEntityType() + "/" + operation.getEntityId()));
+        }
+
+        DocumentReference docRef = db.collection(collection).document(operation.getEntityId());
+        Map<String, Object> data = operation.getData();
+
+        Completable write = Completable.create(emitter -> {
+            com.google.android.gms.tasks.Task<Void> task;
+            switch (operation.getType() != null ? operation.getType() : "") {
+                case TYPE_CREATE:
+                    task = docRef.set(data);
+                    break;
+                case TYPE_UPDATE:
+                    task = docRef.update(data);
+                    break;
+                case TYPE_DELETE:
+                    task = docRef.delete();
+                    break;
+                case TYPE_UPDATE_TIP:
+                    Object tip = data.get("tipAmount");
+                    double tipAmount = tip instanceof Number ? ((Number) tip).doubleValue() : 0;
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("amounts.tipAmount", tipAmount);
+                    updates.put("status.isTipped", tipAmount > 0);
+                    updates.put("metadata.updatedAt", new Date());
+                    task = docRef.update(updates);
+                    break;
+                default:
+                    emitter.onError(new IllegalArgumentException("Unknown operation type: " + operation.getType()));
+                    return;
+            }
+
+            task.addOnSuccessListener(aVoid -> emitter.onComplete())
+                    .addOnFailureListener(emitter::onError);
+        });
+
+        // An ack that never comes would hold the collection's slot; fail it as a timeout instead
+        return errorHandler.guardCompletable(write.timeout(WRITE_ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                Completable.error(new UnacknowledgedWriteException(collection,
+                        "timed out after " + WRITE_ACK_TIMEOUT_MS + "ms"))), collection);
+    }
+
+    /**
+     * Record a failed attempt on the queued row.
+     *
+     * @param entity Queued row
+     * @param operation Deserialized operation
+     * @param error Error from the attempt
+     */
+    private void recordFailure(PendingOperationEntity entity, SyncOperation operation, Throwable error) {
+        boolean retryable = retryWithBackoff.isRetryableError(error);
+        String errorCode = error instanceof FirebaseFirestoreException
+                ? ((FirebaseFirestoreException) error).getCode().name()
+                : error.getClass().getSimpleName();
+
+        // Status must be set first so markAsFailed computes the next attempt time
+        operation.setStatus(SyncOperation.STATUS_FAILED);
+        operation.markAsFailed(errorCode, error.getMessage(), retryable);
+        operation.setLastAttemptTime(new Date());
+        operation.setUpdatedAt(new Date());
+
+        entity.setPayload(OperationCodec.encode(operation));
+        entity.setLastAttempt(new Date());
+        entity.setRetryCount(retryable ? operation.getRetryCount() : retryWithBackoff.getMaxRetries());
+        // Persist the backoff; exhausted or non-retryable failures are parked with no due time
+        boolean rescheduled = operation.canRetry() && operation.getNextAttemptTime() != null;
+        entity.setNextAttemptTime(rescheduled ? operation.getNextAttemptTime().toDate() : null);
+        pendingOperationDao.update(entity);
+        metrics.recordFailure(operation.getEntityType(), errorCode, isConflict(error), rescheduled);
+
+        handleFirestoreError(error, "applying " + operation.getType() + " " + operation.getEntityType(),
+                RepositoryConstants.EntityType.SYNC_OPERATION);
+        publishOperationEvent(RepositoryEventBus.EventType.SYNC_OPERATION_FAILED, operation);
+    }
+
+    /**
+     * Record a committed operation in the metrics registry.
+     *
+     * @param entity Queued row, whose creation time is the enqueue time
+     * @param operation Committed operation
+     */
+    private void recordCommit(PendingOperationEntity entity, SyncOperation operation) {
+        long latencyMs = entity.getCreatedAt() != null
+                ? System.currentTimeMillis() - entity.getCreatedAt().getTime()
+                : 0;
+        long bytes = entity.getPayload() != null ? entity.getPayload().length : 0;
+        metrics.recordCommit(operation.getEntityType(), latencyMs, bytes);
+    }
+
+    /**
+     * Check whether an error means the write lost a race with another writer.
+     *
+     * @param error Error from the attempt
+     * @return true for aborted, already-exists, precondition and not-found errors
+     */
+    private static boolean isConflict(Throwable error) {
+        if (!(error instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) error).getCode()) {
+            case ABORTED:
+            case ALREADY_EXISTS:
+            case FAILED_PRECONDITION:
+            case NOT_FOUND:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Clear the failure state of a queued row so it is picked up again.
+     *
+     * @param entity Queued row
+     */
+    private void resetForRetry(PendingOperationEntity entity) {
+        SyncOperation operation = toOperation(entity);
+        if (operation == null) {
+            return;
+        }
+        operation.setFailed(false);
+        operation.setStatus(SyncOperation.STATUS_PENDING);
+        entity.setPayload(OperationCodec.encode(operation));
+        entity.setRetryCount(0);
+        entity.setNextAttemptTime(new Date());
+        pendingOperationDao.update(entity);
+    }
+
+    private PendingOperationEntity findEntityByOperationId(String operationId) {
+        for (PendingOperationEntity entity : pendingOperationDao.getAllForUser(getCurrentUserId())) {
+            // Only the ID is read; the rest of the payload stays encoded
+            if (operationId.equals(OperationCodec.readOperationId(entity.getPayload()))) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    private SyncOperation toOperation(PendingOperationEntity entity) {
+        return OperationCodec.decode(entity.getPayload());
+    }
+
+    private List<SyncOperation> toOperations(List<PendingOperationEntity> entities) {
+        List<SyncOperation> operations = new ArrayList<>();
+        for (PendingOperationEntity entity : entities) {
+            SyncOperation operation = toOperation(entity);
+            if (operation != null) {
+                operations.add(operation);
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Map an entity type to its Firestore collection.
+     *
+     * @param entityType Entity type of the operation
+     * @return Collection name, or null if the entity type is not synced
+     */
+    private String collectionForEntityType(String entityType) {
+        if (entityType == null) {
+            return null;
+        }
+        switch (entityType) {
+            case RepositoryConstants.EntityType.DELIVERY:
+                return COLLECTION_DELIVERIES;
+            case RepositoryConstants.EntityType.ADDRESS:
+                return COLLECTION_ADDRESSES;
+            case RepositoryConstants.EntityType.USER_PROFILE:
+            case "userProfile":
+                return COLLECTION_USER_PROFILES;
+            case RepositoryConstants.EntityType.DEVICE:
+                return COLLECTION_USER_DEVICES;
+            case RepositoryConstants.EntityType.SUBSCRIPTION:
+                return COLLECTION_SUBSCRIPTION_RECORDS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Refresh the pending count in the sync status from the outbox.
+     *
+     * @return Current number of pending operations for the user
+     */
+    private int refreshPendingCount() {
+        int count = pendingOperationDao.getCountForUser(getCurrentUserId());
+        updateStatus(status -> status.setPendingOperations(count));
+        metrics.recordQueueDepth(count);
+        return count;
+    }
+
+    private void updateStatus(StatusUpdate update) {
+        SyncStatus status = syncStatusSubject.getValue();
+        if (status != null) {
+            update.apply(status);
+            syncStatusSubject.onNext(status);
+        }
+    }
+
+    private void publishOperationEvent(String eventType, SyncOperation operation) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("operation", operation);
+        eventBus.post(eventType, RepositoryEventBus.EventType.SYNC_REPOSITORY, data, null);
+    }
+
+    /**
+     * Mutation applied to the shared sync status.
+     */
+    private interface StatusUpdate {
+        void apply(SyncStatus status);
+    }
+}
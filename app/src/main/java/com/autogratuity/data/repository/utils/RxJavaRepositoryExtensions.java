@@ -196,17 +196,18 @@ public class RxJavaRepositoryExtensions {
         return observable -> observable
                 .subscribeOn(RxSchedulers.io())
                 .observeOn(RxSchedulers.io())
-                .retry((retryCount, throwable) -> {
-                    // Only retry if we haven't exceeded max retries and error handler says we should retry
+                .retryWhen(errorHandler.observableRetryPolicy(maxRetries, (retryCount, throwable) -> {
+                    // Only retry if the error handler says we should; backoff waits for an open breaker
                     ErrorInfo errorInfo = errorHandler.handleError(throwable, operationName, entityType);
-                    return retryCount < maxRetries && errorInfo.shouldRetry();
-                })
+                    return errorInfo.shouldRetry();
+                }))
                 .doOnError(throwable -> errorHandler.handleError(throwable, operationName, entityType));
     }
     
     /**
      * Creates a standardized transformer for repository operations that need retry capabilities.
      * This transformer applies proper threading, error handling, and retry with exponential backoff.
+     * Calls are guarded by the shared circuit breaker and the collection's concurrency limit.
      *
      * @param errorHandler The repository error handler
      * @param operationName Human-readable name of the operation (for error reporting)
@@ -220,20 +221,22 @@ public class RxJavaRepositoryExtensions {
             @Nullable String entityType,
             int maxRetries) {
         
-        return completable -> completable
+        return completable -> errorHandler.guardCompletable(completable,
+                        RepositoryErrorHandler.concurrencyKey(entityType))
                 .subscribeOn(RxSchedulers.io())
                 .observeOn(RxSchedulers.io())
-                .retry((retryCount, throwable) -> {
-                    // Only retry if we haven't exceeded max retries and error handler says we should retry
+                .retryWhen(errorHandler.retryPolicy(maxRetries, (retryCount, throwable) -> {
+                    // Only retry if the error handler says we should; backoff waits for an open breaker
                     ErrorInfo errorInfo = errorHandler.handleError(throwable, operationName, entityType);
-                    return retryCount < maxRetries && errorInfo.shouldRetry();
-                })
+                    return errorInfo.shouldRetry();
+                }))
                 .doOnError(throwable -> errorHandler.handleError(throwable, operationName, entityType));
     }
     
     /**
      * Creates a standardized transformer for repository single operations that need retry capabilities.
      * This transformer applies proper threading, error handling, and retry with exponential backoff.
+     * Calls are guarded by the shared circuit breaker and the collection's concurrency limit.
      *
      * @param <T> The type of item being emitted
      * @param errorHandler The repository error handler
@@ -248,14 +251,15 @@ public class RxJavaRepositoryExtensions {
             @Nullable String entityType,
             int maxRetries) {
         
-        return single -> single
+        return single -> errorHandler.guardSingle(single,
+                        RepositoryErrorHandler.concurrencyKey(entityType))
                 .subscribeOn(RxSchedulers.io())
                 .observeOn(RxSchedulers.io())
-                .retry((retryCount, throwable) -> {
-                    // Only retry if we haven't exceeded max retries and error handler says we should retry
+                .retryWhen(errorHandler.retryPolicy(maxRetries, (retryCount, throwable) -> {
+                    // Only retry if the error handler says we should; backoff waits for an open breaker
                     ErrorInfo errorInfo = errorHandler.handleError(throwable, operationName, entityType);
-                    return retryCount < maxRetries && errorInfo.shouldRetry();
-                })
+                    return errorInfo.shouldRetry();
+                }))
                 .doOnError(throwable -> errorHandler.handleError(throwable, operationName, entityType));
     }
     
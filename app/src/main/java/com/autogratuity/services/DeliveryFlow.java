@@ -0,0 +1,100 @@
+package com.autogratuity.services;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * State machine for one delivery as seen on screen: idle until a delivery screen shows
+ * up, delivering until a completion is confirmed, then completed until a timer on the
+ * scheduler returns it to idle.
+ * <p>
+ * Screens and timer callbacks must arrive on the same single-threaded scheduler.
+ */
+final class DeliveryFlow {
+
+    enum State {
+        IDLE,
+        DELIVERING,
+        COMPLETED
+    }
+
+    interface Listener {
+        void onDeliveryCompleted(String orderId);
+    }
+
+    private final Scheduler scheduler;
+    private final long resetDelayMs;
+    private final Listener listener;
+
+    private State state = State.IDLE;
+    private String orderId;
+    private Disposable pendingReset;
+
+    /**
+     * @param scheduler Scheduler screens are delivered on; runs the reset timer
+     * @param resetDelayMs How long a completed delivery is held before returning to idle
+     * @param listener Told once per delivery when a completion is confirmed
+     */
+    DeliveryFlow(Scheduler scheduler, long resetDelayMs, Listener listener) {
+        this.scheduler = scheduler;
+        this.resetDelayMs = resetDelayMs;
+        this.listener = listener;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Set the order the current delivery belongs to
+     */
+    void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    /**
+     * Advance on a classified screen.
+     *
+     * @param flags Flags from {@link ShiptScreen#classify}
+     */
+    void onScreen(int flags) {
+        boolean delivery = (flags & ShiptScreen.DELIVERY) != 0;
+        boolean slideAction = (flags & ShiptScreen.SLIDE_ACTION) != 0;
+        boolean confirmation = (flags & ShiptScreen.CONFIRMATION) != 0;
+
+        if (state == State.IDLE && (delivery || slideAction)) {
+            state = State.DELIVERING;
+        }
+
+        // A completion wording without a pending slide control is taken as confirmation
+        if (state == State.DELIVERING && (confirmation || (delivery && !slideAction))) {
+            state = State.COMPLETED;
+            if (orderId != null) {
+                listener.onDeliveryCompleted(orderId);
+            }
+            pendingReset = scheduler.scheduleDirect(this::reset, resetDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Cancel the reset timer, e.g. when the service goes away
+     */
+    void dispose() {
+        if (pendingReset != null) {
+            pendingReset.dispose();
+            pendingReset = null;
+        }
+    }
+
+    private void reset() {
+        pendingReset = null;
+        state = State.IDLE;
+        orderId = null;
+    }
+}
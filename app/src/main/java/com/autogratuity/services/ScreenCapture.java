@@ -0,0 +1,240 @@
+package com.autogratuity.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.reactivex.Scheduler;
+
+/**
+ * Turns screens of the Shipt app into order captures and delivery completions.
+ * <p>
+ * This is everything the accessibility service does with a screen once its text has been
+ * read: skipping unchanged screens, classifying, pulling the order ID, zone, store and
+ * address out of the text, and driving the {@link DeliveryFlow}. It uses no Android APIs,
+ * so recorded screens can be replayed through it on the JVM. Time comes from the
+ * scheduler, which also runs the flow's timers.
+ * <p>
+ * Screens must arrive on the same single-threaded scheduler.
+ */
+final class ScreenCapture {
+
+    interface Listener {
+        /**
+         * An order ID was seen together with some of its context
+         */
+        void onOrderCaptured(String orderId, String zone, String store, String address);
+
+        /**
+         * A delivery was confirmed as completed; the context is the last one captured
+         */
+        void onDeliveryCompleted(String orderId, String zone, String store, String address);
+    }
+
+    // Simple pattern to match order IDs - adapts to different formats
+    private static final Pattern ORDER_ID_PATTERN = Pattern.compile("(?:Order|order|#)\\s*(?:#)?(\\d{5,12})");
+
+    // Pattern to match location information
+    private static final Pattern ZONE_PATTERN = Pattern.compile("(?:Zone|zone)\\s*(.+)");
+    private static final Pattern STORE_PATTERN = Pattern.compile("(?:Store|store)\\s*(.+)");
+
+    // Common US address patterns: street numbers followed by common street suffixes
+    private static final Pattern ADDRESS_PATTERN = Pattern.compile(".*\\d+\\s+[A-Za-z]+\\s+(St|St\\.|Street|Ave|Ave\\.|Avenue|Rd|Rd\\.|Road|Dr|Dr\\.|Drive|Ln|Ln\\.|Lane|Blvd|Blvd\\.|Boulevard|Way|Ct|Ct\\.|Court|Cir|Cir\\.|Circle|Pl|Pl\\.|Place).*");
+
+    // How long a completed delivery is held before the flow returns to idle
+    static final long DELIVERY_RESET_MS = 10000;
+    // How long captured context keeps updating the last order ID
+    static final long CAPTURE_TIMEOUT_MS = 5 * 60 * 1000; // 5 minutes
+
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private final DeliveryFlow deliveryFlow;
+
+    private long lastScreenHash = 0;
+
+    // Session-level tracking variables
+    private String lastCapturedOrderId = null;
+    private String lastCapturedZone = null;
+    private String lastCapturedStore = null;
+    private String lastCapturedAddress = null;
+    private long lastCaptureTimestamp = 0;
+
+    /**
+     * @param scheduler Scheduler screens are delivered on; the clock and flow timers
+     * @param listener Told about captures and completions
+     */
+    ScreenCapture(Scheduler scheduler, Listener listener) {
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.deliveryFlow = new DeliveryFlow(scheduler, DELIVERY_RESET_MS, this::onDeliveryCompleted);
+    }
+
+    /**
+     * Act on a screen, unless its text is the same as the last screen's.
+     *
+     * @param screen Screen text from {@link ShiptScreen#newScreenText}
+     * @return Flags from {@link ShiptScreen#classify}; 0 if the screen was skipped or is not
+     *         order related
+     */
+    int onScreen(ScreenText screen) {
+        // Nothing visible changed since the last screen we processed
+        long hash = screen.contentHash();
+        if (hash == lastScreenHash) return 0;
+        lastScreenHash = hash;
+
+        // Check if this appears to be a Shipt order-related screen
+        int flags = ShiptScreen.classify(screen);
+        if (flags == 0) return 0;
+
+        // Process order claim dialog
+        if ((flags & ShiptScreen.CLAIM_DIALOG) != 0) {
+            processClaimDialog(screen);
+        }
+        // Process order details screens
+        else if ((flags & ShiptScreen.STORE) != 0) {
+            processOrderScreen(screen);
+        }
+
+        // Track delivery completion screens
+        if ((flags & (ShiptScreen.DELIVERY | ShiptScreen.SLIDE_ACTION)) != 0) {
+            findDeliveryOrderId(screen);
+        }
+        deliveryFlow.onScreen(flags);
+        return flags;
+    }
+
+    /**
+     * Cancel the flow's timers
+     */
+    void dispose() {
+        deliveryFlow.dispose();
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Extraction
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Process the order claim dialog which contains the Order ID
+     */
+    private void processClaimDialog(ScreenText screen) {
+        Matcher orderMatcher = ORDER_ID_PATTERN.matcher(screen.fullText());
+        if (orderMatcher.find()) {
+            lastCapturedOrderId = orderMatcher.group(1);
+            deliveryFlow.setOrderId(lastCapturedOrderId); // Track current order ID for delivery completion
+            lastCaptureTimestamp = now();
+
+            // If we have sufficient context, store the capture
+            if (lastCapturedZone != null || lastCapturedStore != null) {
+                capture();
+            }
+        }
+    }
+
+    /**
+     * Process order screens to extract Zone, Store, and possibly address info
+     */
+    private void processOrderScreen(ScreenText screen) {
+        boolean hasZone = screen.contains("zone");
+        boolean hasStore = screen.contains("store");
+
+        for (String line : screen.lines()) {
+            String lower = hasZone || hasStore ? line.toLowerCase() : line;
+
+            // Check for zone info
+            if (hasZone && lower.contains("zone")) {
+                Matcher zoneMatcher = ZONE_PATTERN.matcher(line);
+                if (zoneMatcher.find()) {
+                    lastCapturedZone = zoneMatcher.group(1).trim();
+                }
+                // Alternative pattern: "Zone South Des Moines"
+                else if (line.contains("Zone")) {
+                    String[] parts = line.split("Zone");
+                    if (parts.length > 1) {
+                        lastCapturedZone = parts[1].trim();
+                    }
+                }
+                // Another common pattern: "Zone: South Des Moines"
+                else if (line.contains("Zone:")) {
+                    String[] parts = line.split("Zone:");
+                    if (parts.length > 1) {
+                        lastCapturedZone = parts[1].trim();
+                    }
+                }
+
+                if (lastCapturedZone != null) {
+                    lastCaptureTimestamp = now();
+                }
+            }
+
+            // Check for store info
+            if (hasStore && lower.contains("store")) {
+                Matcher storeMatcher = STORE_PATTERN.matcher(line);
+                if (storeMatcher.find()) {
+                    lastCapturedStore = storeMatcher.group(1).trim();
+                }
+                // Alternative pattern: "Store Target - West Des Moines"
+                else if (line.contains("Store")) {
+                    String[] parts = line.split("Store");
+                    if (parts.length > 1) {
+                        lastCapturedStore = parts[1].trim();
+                    }
+                }
+                // Another common pattern: "Store: Target - West Des Moines"
+                else if (line.contains("Store:")) {
+                    String[] parts = line.split("Store:");
+                    if (parts.length > 1) {
+                        lastCapturedStore = parts[1].trim();
+                    }
+                }
+
+                if (lastCapturedStore != null) {
+                    lastCaptureTimestamp = now();
+                }
+            }
+
+            // Check for address patterns (typically after claiming)
+            if (ADDRESS_PATTERN.matcher(line).matches()) {
+                lastCapturedAddress = line.trim();
+                lastCaptureTimestamp = now();
+            }
+        }
+
+        // If we recently captured an order ID and have new context, update the record
+        if (lastCapturedOrderId != null &&
+                now() - lastCaptureTimestamp < CAPTURE_TIMEOUT_MS) {
+            capture();
+        }
+    }
+
+    /**
+     * Look for the order ID on a delivery screen if we don't have it already
+     */
+    private void findDeliveryOrderId(ScreenText screen) {
+        if (deliveryFlow.getOrderId() != null && lastCapturedOrderId != null) return;
+
+        Matcher orderMatcher = ORDER_ID_PATTERN.matcher(screen.fullText());
+        if (orderMatcher.find()) {
+            lastCapturedOrderId = orderMatcher.group(1);
+            deliveryFlow.setOrderId(lastCapturedOrderId);
+        }
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    private void capture() {
+        listener.onOrderCaptured(lastCapturedOrderId, lastCapturedZone, lastCapturedStore,
+                lastCapturedAddress);
+    }
+
+    private void onDeliveryCompleted(String orderId) {
+        listener.onDeliveryCompleted(orderId, lastCapturedZone, lastCapturedStore,
+                lastCapturedAddress);
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+}
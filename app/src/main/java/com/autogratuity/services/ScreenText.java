@@ -0,0 +1,208 @@
+package com.autogratuity.services;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.autogratuity.utils.KeywordAutomaton;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Text of the active window, read in one pass and reused across accessibility events.
+ * <p>
+ * The node tree is walked iteratively with a reused stack. Each node's trimmed text is
+ * appended to one buffer, separated by spaces as the screen text was joined before, and
+ * every character is fed through a keyword automaton on the way in, so keyword checks
+ * afterwards are bit lookups. A 64-bit FNV-1a hash of the text is kept the same way so
+ * callers can tell an unchanged screen from a new one without comparing text. Strings
+ * for the full text and the lines are only built when a caller asks for them. Not
+ * thread-safe; one instance per service.
+ * <p>
+ * Only {@link #collect} touches Android; recorded screens can be read with
+ * {@link #begin} and {@link #appendLine}, e.g. by the capture replay tests.
+ */
+final class ScreenText {
+
+    // Upper bound on nodes read per screen, against runaway trees
+    private static final int MAX_NODES = 1500;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final KeywordAutomaton automaton;
+    private final Map<String, Integer> keywordIds = new HashMap<>();
+    private final BitSet found = new BitSet();
+    private final ArrayDeque<AccessibilityNodeInfo> stack = new ArrayDeque<>();
+    private final StringBuilder text = new StringBuilder(1024);
+
+    private int[] lineStarts = new int[64];
+    private int[] lineEnds = new int[64];
+    private int lineCount;
+    private int state;
+    private long hash = FNV_OFFSET;
+
+    private String fullText;
+    private List<String> lines;
+
+    /**
+     * @param keywordGroups Keywords that {@link #contains} can be asked about, matched ignoring case
+     */
+    ScreenText(String[]... keywordGroups) {
+        List<String> keywords = new ArrayList<>();
+        for (String[] group : keywordGroups) {
+            for (String keyword : group) {
+                String key = keyword.toLowerCase();
+                if (!keywordIds.containsKey(key)) {
+                    keywordIds.put(key, keywords.size());
+                    keywords.add(key);
+                }
+            }
+        }
+        automaton = new KeywordAutomaton(keywords);
+    }
+
+    /**
+     * Read the text under a node, replacing what was read before. The root is left for
+     * the caller to recycle; every other node is recycled here.
+     *
+     * @param root Root of the window
+     */
+    void collect(AccessibilityNodeInfo root) {
+        begin();
+        stack.push(root);
+        int visited = 0;
+        while (!stack.isEmpty()) {
+            AccessibilityNodeInfo node = stack.pop();
+            if (visited++ < MAX_NODES) {
+                appendLine(node.getText());
+
+                // Children pushed last to first so they are read in screen order
+                for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                    AccessibilityNodeInfo child = node.getChild(i);
+                    if (child != null) {
+                        stack.push(child);
+                    }
+                }
+            }
+            if (node != root) {
+                node.recycle();
+            }
+        }
+    }
+
+    /**
+     * Start a new screen, dropping what was read before
+     */
+    void begin() {
+        text.setLength(0);
+        found.clear();
+        lineCount = 0;
+        state = 0;
+        hash = FNV_OFFSET;
+        fullText = null;
+        lines = null;
+    }
+
+    /**
+     * Append the text of one node to the screen started by {@link #begin}. Blank text is
+     * skipped.
+     */
+    void appendLine(CharSequence nodeText) {
+        if (nodeText == null) return;
+
+        // Trim as String.trim() does, without copying
+        int start = 0;
+        int end = nodeText.length();
+        while (start < end && nodeText.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && nodeText.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) return;
+
+        if (lineCount > 0) {
+            append(' ');
+        }
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+        }
+        lineStarts[lineCount] = text.length();
+        for (int i = start; i < end; i++) {
+            append(nodeText.charAt(i));
+        }
+        lineEnds[lineCount++] = text.length();
+    }
+
+    /**
+     * Check whether the screen contains a keyword given at construction, ignoring case.
+     */
+    boolean contains(String keyword) {
+        Integer id = keywordIds.get(keyword);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown keyword: " + keyword);
+        }
+        return found.get(id);
+    }
+
+    /**
+     * Check whether the screen contains any of the given keywords
+     */
+    boolean containsAny(String[] keywords) {
+        for (String keyword : keywords) {
+            if (contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a hash of the text read for the current screen. Equal text gives an equal hash.
+     */
+    long contentHash() {
+        return hash;
+    }
+
+    /**
+     * Get all text on the screen, joined with spaces
+     */
+    String fullText() {
+        if (fullText == null) {
+            fullText = text.toString();
+        }
+        return fullText;
+    }
+
+    /**
+     * Get the trimmed, non-empty text of each node in screen order
+     */
+    List<String> lines() {
+        if (lines == null) {
+            List<String> result = new ArrayList<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                result.add(text.substring(lineStarts[i], lineEnds[i]));
+            }
+            lines = Collections.unmodifiableList(result);
+        }
+        return lines;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    private void append(char c) {
+        text.append(c);
+        state = automaton.next(state, c);
+        found.or(automaton.matches(state));
+        hash = (hash ^ c) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,101 @@
+package com.autogratuity.services;
+
+/**
+ * Classifies a screen of the Shipt app from the keywords found while it was read.
+ * <p>
+ * {@link #classify} returns a set of flags rather than one type because a single screen
+ * can be several things at once, for example order details with a slide-to-complete
+ * control.
+ */
+final class ShiptScreen {
+
+    /** Any Shipt order-related screen; no other flag is set without it */
+    static final int ORDER_RELATED = 1;
+    /** Claim dialog showing the order ID */
+    static final int CLAIM_DIALOG = 1 << 1;
+    /** Mentions a known partner store */
+    static final int STORE = 1 << 2;
+    /** Delivery completion wording or control */
+    static final int DELIVERY = 1 << 3;
+    /** A "slide to" / "swipe to" control */
+    static final int SLIDE_ACTION = 1 << 4;
+    /** Confirmation shown after a delivery is completed */
+    static final int CONFIRMATION = 1 << 5;
+
+    // These stores are known Shipt partners - used to confirm we're looking at a delivery screen
+    private static final String[] KNOWN_STORES = {
+            "target", "hy-vee", "meijer", "cvs", "petco", "kroger", "vons", "publix",
+            "h-e-b", "safeway", "shoprite", "pavilions"
+    };
+
+    private static final String[] SHIPT_KEYWORDS = {
+            "shipt", "claim order", "est pay", "available orders"
+    };
+    private static final String[] DELIVERY_KEYWORDS = {
+            "slide to complete", "delivery complete", "delivered"
+    };
+    private static final String[] DELIVERY_ACTION_KEYWORDS = {"mark as delivered", "confirm delivery"};
+    private static final String[] SLIDE_KEYWORDS = {"slide to", "swipe to"};
+    private static final String[] CONFIRMATION_KEYWORDS = {
+            "delivery marked as complete", "delivery successful", "thank you for delivering"
+    };
+    private static final String[] OTHER_KEYWORDS = {"zone", "pay", "store", "claim this order"};
+
+    private ShiptScreen() {
+    }
+
+    /**
+     * Create a screen reader that looks for every keyword {@link #classify} needs
+     */
+    static ScreenText newScreenText() {
+        return new ScreenText(KNOWN_STORES, SHIPT_KEYWORDS, DELIVERY_KEYWORDS,
+                DELIVERY_ACTION_KEYWORDS, SLIDE_KEYWORDS, CONFIRMATION_KEYWORDS, OTHER_KEYWORDS);
+    }
+
+    /**
+     * Classify the screen last read by a reader from {@link #newScreenText}.
+     *
+     * @return Flags; 0 if the screen is not order related
+     */
+    static int classify(ScreenText screen) {
+        boolean store = screen.containsAny(KNOWN_STORES);
+        boolean orderRelated = store
+                || screen.containsAny(SHIPT_KEYWORDS)
+                || screen.containsAny(DELIVERY_KEYWORDS)
+                || (screen.contains("zone") && screen.contains("pay") && screen.contains("store"));
+        if (!orderRelated) {
+            return 0;
+        }
+
+        int flags = ORDER_RELATED;
+        if (screen.contains("claim this order")) {
+            flags |= CLAIM_DIALOG;
+        }
+        if (store) {
+            flags |= STORE;
+        }
+        if (screen.containsAny(DELIVERY_KEYWORDS) || screen.containsAny(DELIVERY_ACTION_KEYWORDS)) {
+            flags |= DELIVERY;
+        }
+        if (screen.containsAny(SLIDE_KEYWORDS) && anyLineContains(screen, SLIDE_KEYWORDS)) {
+            flags |= SLIDE_ACTION;
+        }
+        if (screen.containsAny(CONFIRMATION_KEYWORDS)) {
+            flags |= CONFIRMATION;
+        }
+        return flags;
+    }
+
+    // The joined text can match across two nodes; controls are confirmed within one
+    private static boolean anyLineContains(ScreenText screen, String[] keywords) {
+        for (String line : screen.lines()) {
+            String lower = line.toLowerCase();
+            for (String keyword : keywords) {
+                if (lower.contains(keyword)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
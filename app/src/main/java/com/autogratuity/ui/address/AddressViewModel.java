@@ -4,6 +4,9 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.rxjava2.PagingRx;
 
 import com.autogratuity.data.model.Address;
 import com.autogratuity.data.repository.address.AddressRepository;
@@ -20,10 +23,13 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class AddressViewModel extends BaseViewModel {
     private static final String TAG = "AddressViewModel";
+    private static final int PAGE_SIZE = 30;
     
     private final AddressRepository addressRepository;
     private final MutableLiveData<List<Address>> addressesLiveData = new MutableLiveData<>();
     private final MutableLiveData<Address> selectedAddressLiveData = new MutableLiveData<>();
+    private final MutableLiveData<PagingData<Address>> addressPagesLiveData = new MutableLiveData<>();
+    private boolean addressPagesStarted;
     
     /**
      * Constructor with repository injection
@@ -43,6 +49,15 @@ public class AddressViewModel extends BaseViewModel {
         return addressesLiveData;
     }
     
+    /**
+     * Get paged addresses for a paging adapter
+     * 
+     * @return LiveData of PagingData, most delivered-to addresses first
+     */
+    public LiveData<PagingData<Address>> getAddressPages() {
+        return addressPagesLiveData;
+    }
+    
     /**
      * Get the selected address
      * 
@@ -78,6 +93,28 @@ public class AddressViewModel extends BaseViewModel {
         );
     }
     
+    /**
+     * Start paging addresses. Pages are cached in the ViewModel scope so they survive
+     * configuration changes; calling this again has no effect.
+     */
+    public void loadAddressPages() {
+        if (addressPagesStarted) {
+            return;
+        }
+        addressPagesStarted = true;
+        
+        addDisposable("addressPages",
+            PagingRx.cachedIn(addressRepository.getAddressPages(PAGE_SIZE), ViewModelKt.getViewModelScope(this))
+                .subscribe(
+                    addressPagesLiveData::postValue,
+                    error -> {
+                        Log.e(TAG, "Error paging addresses", error);
+                        setError(error);
+                    }
+                )
+        );
+    }
+    
     /**
      * Set up real-time observation of addresses
      * Updates LiveData whenever changes occur in the repository
@@ -12,6 +12,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -21,6 +22,8 @@ import com.autogratuity.ui.address.adapters.AddressesAdapter;
 import com.autogratuity.ui.common.RepositoryViewModelFactory;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import kotlin.Unit;
+
 /**
  * Fragment for displaying and managing addresses
  * Fully implements MVVM pattern with AddressViewModel
@@ -70,7 +73,8 @@ public class AddressesFragment extends Fragment implements AddressesAdapter.OnAd
         // Observe ViewModel data changes
         observeViewModel();
         
-        // Load data
+        // Page from the local database; loading the addresses fills it on first use
+        viewModel.loadAddressPages();
         viewModel.loadAddresses();
     }
 
@@ -102,6 +106,16 @@ public class AddressesFragment extends Fragment implements AddressesAdapter.OnAd
         // Connect adapter with ViewModel
         adapter.setViewModel(viewModel);
         
+        // Show the empty view once paging settles with no items
+        adapter.addLoadStateListener(loadStates -> {
+            if (loadStates.getRefresh() instanceof LoadState.NotLoading) {
+                boolean empty = adapter.getItemCount() == 0;
+                emptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+                recyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+            }
+            return Unit.INSTANCE;
+        });
+        
         recyclerView.setAdapter(adapter);
     }
 
@@ -109,15 +123,10 @@ public class AddressesFragment extends Fragment implements AddressesAdapter.OnAd
      * Observe changes from ViewModel
      */
     private void observeViewModel() {
-        // Observe addresses data
-        viewModel.getAddresses().observe(getViewLifecycleOwner(), addresses -> {
-            if (addresses != null) {
-                // Update adapter with new data
-                adapter.submitList(addresses);
-                
-                // Show/hide empty view
-                emptyView.setVisibility(addresses.isEmpty() ? View.VISIBLE : View.GONE);
-                recyclerView.setVisibility(addresses.isEmpty() ? View.GONE : View.VISIBLE);
+        // Observe paged addresses
+        viewModel.getAddressPages().observe(getViewLifecycleOwner(), pages -> {
+            if (pages != null) {
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), pages);
             }
         });
         
@@ -152,18 +161,10 @@ public class AddressesFragment extends Fragment implements AddressesAdapter.OnAd
         
         if (isLoading) {
             errorView.setVisibility(View.GONE);
-            recyclerView.setVisibility(View.GONE);
             emptyView.setVisibility(View.GONE);
         }
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-        // Set up real-time address updates
-        viewModel.observeAddresses();
-    }
-
     // AddressesAdapter.OnAddressClickListener Implementation
 
     @Override
@@ -7,8 +7,8 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.autogratuity.R;
@@ -18,10 +18,10 @@ import com.autogratuity.ui.address.AddressViewModel;
 import java.text.DecimalFormat;
 
 /**
- * Adapter for displaying addresses in a RecyclerView
+ * Paging adapter for displaying addresses in a RecyclerView
  * Updated to follow MVVM pattern and properly integrate with AddressViewModel
  */
-public class AddressesAdapter extends ListAdapter<Address, AddressesAdapter.AddressViewHolder> {
+public class AddressesAdapter extends PagingDataAdapter<Address, AddressesAdapter.AddressViewHolder> {
     private final Context context;
     private final OnAddressClickListener listener;
     private final DecimalFormat currencyFormat = new DecimalFormat("$0.00");
@@ -55,7 +55,6 @@ public class AddressesAdapter extends ListAdapter<Address, AddressesAdapter.Addr
      * Constructor for AddressesAdapter
      *
      * @param context Context
-     * @param addresses Initial list of addresses (can be empty)
      * @param listener Click listener
      */
     public AddressesAdapter(Context context, @NonNull OnAddressClickListener listener) {
@@ -83,6 +82,9 @@ public class AddressesAdapter extends ListAdapter<Address, AddressesAdapter.Addr
     @Override
     public void onBindViewHolder(@NonNull AddressViewHolder holder, int position) {
         Address address = getItem(position);
+        if (address == null) {
+            return;
+        }
 
         // Set full address
         holder.addressText.setText(address.getFullAddress());
@@ -14,6 +14,7 @@ import com.autogratuity.ui.common.BaseViewModel;
 import java.util.List;
 
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 
 /**
@@ -29,6 +30,7 @@ public class DashboardViewModel extends BaseViewModel {
     private final MutableLiveData<DeliveryStats> todayStatsLiveData = new MutableLiveData<>();
     private final MutableLiveData<DeliveryStats> weekStatsLiveData = new MutableLiveData<>();
     private final MutableLiveData<DeliveryStats> monthStatsLiveData = new MutableLiveData<>();
+    private Disposable statsDisposable;
     
     // LiveData for recent activity
     private final MutableLiveData<List<Delivery>> recentDeliveriesLiveData = new MutableLiveData<>();
@@ -52,70 +54,44 @@ public class DashboardViewModel extends BaseViewModel {
      * Load all data for the dashboard
      */
     public void loadData() {
-        loadTodayStats();
-        loadWeekStats();
-        loadMonthStats();
+        loadStats();
         loadRecentActivity();
         loadBestTippingAreas();
     }
     
     /**
-     * Load today's statistics
+     * Load today, week and month statistics from one local stream.
+     * Re-subscribing on refresh also moves the day boundaries forward.
      */
-    private void loadTodayStats() {
-        disposables.add(
-            deliveryRepository.getTodayStats()
+    private void loadStats() {
+        if (statsDisposable != null) {
+            disposables.remove(statsDisposable);
+        }
+        setLoading(true);
+        statsDisposable = deliveryRepository.streamDeliveryStats()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .doOnSubscribe(disposable -> setLoading(true))
-                .doAfterTerminate(() -> setLoading(false))
                 .subscribe(
-                    stats -> todayStatsLiveData.setValue(stats),
+                    statsMap -> {
+                        setLoading(false);
+                        todayStatsLiveData.setValue(statsOrEmpty(statsMap.get("today")));
+                        weekStatsLiveData.setValue(statsOrEmpty(statsMap.get("sevenDays")));
+                        monthStatsLiveData.setValue(statsOrEmpty(statsMap.get("thirtyDays")));
+                    },
                     error -> {
+                        setLoading(false);
                         setError(error);
                         // Set empty stats on error
                         todayStatsLiveData.setValue(new DeliveryStats());
-                    }
-                )
-        );
-    }
-    
-    /**
-     * Load week statistics
-     */
-    private void loadWeekStats() {
-        disposables.add(
-            deliveryRepository.getLastWeekStats()
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    stats -> weekStatsLiveData.setValue(stats),
-                    error -> {
-                        setError(error);
-                        // Set empty stats on error
                         weekStatsLiveData.setValue(new DeliveryStats());
+                        monthStatsLiveData.setValue(new DeliveryStats());
                     }
-                )
-        );
+                );
+        disposables.add(statsDisposable);
     }
     
-    /**
-     * Load month statistics
-     */
-    private void loadMonthStats() {
-        disposables.add(
-            deliveryRepository.getLastMonthStats()
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    stats -> monthStatsLiveData.setValue(stats),
-                    error -> {
-                        setError(error);
-                        // Set empty stats on error
-                        monthStatsLiveData.setValue(new DeliveryStats());
-                    }
-                )
-        );
+    private static DeliveryStats statsOrEmpty(DeliveryStats stats) {
+        return stats != null ? stats : new DeliveryStats();
     }
     
     /**
@@ -12,23 +12,20 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.autogratuity.ui.common.state.ViewState;
-
 import com.autogratuity.R;
-import com.autogratuity.data.model.Delivery;
 import com.autogratuity.data.model.ErrorInfo;
 import com.autogratuity.ui.common.ErrorDialogFragment;
 import com.autogratuity.ui.common.RepositoryViewModelFactory;
 import com.autogratuity.ui.delivery.adapters.DeliveriesAdapter;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.ArrayList;
-import java.util.List;
+import kotlin.Unit;
 
 /**
  * Fragment for displaying the list of deliveries.
@@ -47,7 +44,6 @@ public class DeliveriesFragment extends Fragment {
     // Data
     private DeliveryViewModel viewModel;
     private DeliveriesAdapter adapter;
-    private List<Delivery> deliveries = new ArrayList<>();
     
     /**
      * Factory method to create a new instance of the fragment
@@ -80,8 +76,8 @@ public class DeliveriesFragment extends Fragment {
         // Observe ViewModel LiveData
         observeViewModel();
         
-        // Load initial data
-        viewModel.loadDeliveries();
+        // Start paging; the first pages come from the local database
+        viewModel.loadDeliveryPages();
     }
     
     /**
@@ -164,7 +160,11 @@ public class DeliveriesFragment extends Fragment {
         };
         
         // Create and set adapter
-        adapter = new DeliveriesAdapter(deliveries, clickListener);
+        adapter = new DeliveriesAdapter(clickListener);
+        adapter.addLoadStateListener(loadStates -> {
+            onLoadStatesChanged(loadStates);
+            return Unit.INSTANCE;
+        });
         recyclerView.setAdapter(adapter);
     }
     
@@ -172,27 +172,13 @@ public class DeliveriesFragment extends Fragment {
      * Observe changes from ViewModel
      */
     private void observeViewModel() {
-        // Observe deliveries state using ViewState pattern
-        viewModel.getDeliveriesState().observe(getViewLifecycleOwner(), state -> {
-            if (state == null) return;
-            
-            if (state.isLoading()) {
-                showLoading(true);
-            } else if (state.isSuccess()) {
-                showLoading(false);
-                onDeliveriesLoaded(state.getData());
-            } else if (state.isError()) {
-                showLoading(false);
-                onError(state.getError());
+        // Observe paged deliveries; the adapter diffs pages off the main thread
+        viewModel.getDeliveryPages().observe(getViewLifecycleOwner(), pages -> {
+            if (pages != null) {
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), pages);
             }
         });
         
-        // Keep legacy observation for backward compatibility
-        viewModel.getDeliveries().observe(getViewLifecycleOwner(), deliveries -> {
-            // This will be used by legacy code that hasn't been migrated to ViewState yet
-            // We don't need to handle the data here as it's already handled by the ViewState
-        });
-        
         // Observe toast messages
         viewModel.getToastMessage().observe(getViewLifecycleOwner(), message -> {
             if (message != null && !message.isEmpty() && getContext() != null) {
@@ -202,17 +188,24 @@ public class DeliveriesFragment extends Fragment {
     }
     
     /**
-     * Handle loaded deliveries
+     * Handle paging load state changes
      */
-    private void onDeliveriesLoaded(List<Delivery> loadedDeliveries) {
-        // Update adapter with new data if not null
-        if (loadedDeliveries != null) {
-            deliveries.clear();
-            deliveries.addAll(loadedDeliveries);
-            adapter.updateDeliveries(loadedDeliveries);
-            
-            // Show/hide empty view
-            if (deliveries.isEmpty()) {
+    private void onLoadStatesChanged(CombinedLoadStates loadStates) {
+        boolean empty = adapter.getItemCount() == 0;
+        LoadState refresh = loadStates.getRefresh();
+        
+        // Only block the list while there is nothing local to show
+        if (refresh instanceof LoadState.Loading) {
+            showLoading(empty);
+            if (!empty) {
+                showContent();
+            }
+        } else if (refresh instanceof LoadState.Error && empty) {
+            showLoading(false);
+            onError(((LoadState.Error) refresh).getError());
+        } else {
+            showLoading(false);
+            if (empty && loadStates.getAppend().getEndOfPaginationReached()) {
                 showEmptyState();
             } else {
                 showContent();
@@ -317,7 +310,7 @@ public class DeliveriesFragment extends Fragment {
         // Create error dialog with retry functionality
         ErrorDialogFragment.builder()
             .setError(error)
-            .setPrimaryButton("Retry", () -> viewModel.loadDeliveries())
+            .setPrimaryButton("Retry", () -> adapter.retry())
             .setSecondaryButton("Dismiss", null)
             .setDismissCallback(() -> {
                 // Show inline error as fallback
@@ -337,7 +330,7 @@ public class DeliveriesFragment extends Fragment {
         // Create error dialog with retry functionality
         ErrorDialogFragment.builder()
             .setErrorInfo(errorInfo)
-            .setPrimaryButton("Retry", () -> viewModel.loadDeliveries())
+            .setPrimaryButton("Retry", () -> adapter.retry())
             .setSecondaryButton("Dismiss", null)
             .setDismissCallback(() -> {
                 // Show inline error as fallback
@@ -345,11 +338,4 @@ public class DeliveriesFragment extends Fragment {
             })
             .show(getChildFragmentManager(), "delivery_error_dialog");
     }
-    
-    @Override
-    public void onResume() {
-        super.onResume();
-        // Start observing deliveries when the fragment is visible
-        viewModel.observeDeliveries();
-    }
 }
@@ -3,6 +3,9 @@ package com.autogratuity.ui.delivery;
 import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.rxjava2.PagingRx;
 
 import com.autogratuity.data.model.Delivery;
 import com.autogratuity.data.model.DeliveryStats;
@@ -24,6 +27,7 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class DeliveryViewModel extends BaseViewModel {
     private static final String TAG = "DeliveryViewModel";
+    private static final int PAGE_SIZE = 30;
     
     private final DeliveryRepository deliveryRepository;
     private final MutableLiveData<List<Delivery>> deliveriesLiveData = new MutableLiveData<>();
@@ -31,6 +35,8 @@ public class DeliveryViewModel extends BaseViewModel {
     private final MutableLiveData<DeliveryStats> deliveryStatsLiveData = new MutableLiveData<>();
     private final MutableLiveData<Map<String, DeliveryStats>> deliveryStatsByPeriodLiveData = new MutableLiveData<>();
     private final MutableLiveData<ViewState<List<Delivery>>> deliveriesStateLiveData = new MutableLiveData<>();
+    private final MutableLiveData<PagingData<Delivery>> deliveryPagesLiveData = new MutableLiveData<>();
+    private boolean deliveryPagesStarted;
     
     /**
      * Constructor with repository injection
@@ -59,6 +65,15 @@ public class DeliveryViewModel extends BaseViewModel {
         return deliveriesStateLiveData;
     }
     
+    /**
+     * Get paged deliveries for a paging adapter
+     * 
+     * @return LiveData of PagingData, newest deliveries first
+     */
+    public LiveData<PagingData<Delivery>> getDeliveryPages() {
+        return deliveryPagesLiveData;
+    }
+    
     /**
      * Get the selected delivery
      * 
@@ -128,6 +143,28 @@ public class DeliveryViewModel extends BaseViewModel {
         loadDeliveries(50, null);
     }
     
+    /**
+     * Start paging deliveries. Pages are cached in the ViewModel scope so they survive
+     * configuration changes; calling this again has no effect.
+     */
+    public void loadDeliveryPages() {
+        if (deliveryPagesStarted) {
+            return;
+        }
+        deliveryPagesStarted = true;
+        
+        addDisposable("deliveryPages",
+            PagingRx.cachedIn(deliveryRepository.getDeliveryPages(PAGE_SIZE), ViewModelKt.getViewModelScope(this))
+                .subscribe(
+                    deliveryPagesLiveData::postValue,
+                    error -> {
+                        Log.e(TAG, "Error paging deliveries", error);
+                        setError(error);
+                    }
+                )
+        );
+    }
+    
     /**
      * Set up real-time observation of deliveries
      * Updates LiveData whenever changes occur in the repository
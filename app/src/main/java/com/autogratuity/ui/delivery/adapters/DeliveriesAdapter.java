@@ -9,6 +9,7 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.autogratuity.R;
@@ -16,20 +17,16 @@ import com.autogratuity.data.model.Delivery;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
-import androidx.recyclerview.widget.DiffUtil;
-
 /**
- * Adapter for displaying deliveries in a RecyclerView.
- * Updated to work with the new repository pattern and Delivery model.
+ * Paging adapter for displaying deliveries in a RecyclerView.
+ * Items are loaded page by page from the repository, so only the pages near the
+ * viewport are held in memory.
  */
-public class DeliveriesAdapter extends RecyclerView.Adapter<DeliveriesAdapter.DeliveryViewHolder> {
+public class DeliveriesAdapter extends PagingDataAdapter<Delivery, DeliveriesAdapter.DeliveryViewHolder> {
     
-    private List<Delivery> deliveries;
     private final OnDeliveryClickListener listener;
     private final DateFormat dateFormat;
     
@@ -41,10 +38,10 @@ public class DeliveriesAdapter extends RecyclerView.Adapter<DeliveriesAdapter.De
     }
     
     /**
-     * Constructor with deliveries and click listener
+     * Constructor with click listener
      */
-    public DeliveriesAdapter(List<Delivery> deliveries, OnDeliveryClickListener listener) {
-        this.deliveries = new ArrayList<>(deliveries);
+    public DeliveriesAdapter(OnDeliveryClickListener listener) {
+        super(new DeliveryDiffCallback());
         this.listener = listener;
         this.dateFormat = new SimpleDateFormat("MMM d, yyyy", Locale.getDefault());
     }
@@ -59,29 +56,10 @@ public class DeliveriesAdapter extends RecyclerView.Adapter<DeliveriesAdapter.De
     
     @Override
     public void onBindViewHolder(@NonNull DeliveryViewHolder holder, int position) {
-        Delivery delivery = deliveries.get(position);
-        holder.bind(delivery, listener);
-    }
-    
-    @Override
-    public int getItemCount() {
-        return deliveries.size();
-    }
-    
-    /**
-     * Update the list of deliveries and refresh the adapter using DiffUtil
-     * for efficient updates with animations
-     */
-    public void updateDeliveries(List<Delivery> newDeliveries) {
-        // Calculate the difference between old and new lists
-        DeliveryDiffCallback diffCallback = new DeliveryDiffCallback(this.deliveries, newDeliveries);
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(diffCallback);
-        
-        // Update the data
-        this.deliveries = new ArrayList<>(newDeliveries);
-        
-        // Dispatch the updates to the adapter
-        diffResult.dispatchUpdatesTo(this);
+        Delivery delivery = getItem(position);
+        if (delivery != null) {
+            holder.bind(delivery, listener, dateFormat);
+        }
     }
     
     /**
@@ -101,7 +79,7 @@ public class DeliveriesAdapter extends RecyclerView.Adapter<DeliveriesAdapter.De
             tipText = itemView.findViewById(R.id.tip_text);
         }
         
-        void bind(final Delivery delivery, final OnDeliveryClickListener listener) {
+        void bind(final Delivery delivery, final OnDeliveryClickListener listener, DateFormat dateFormat) {
             // Set order ID
             String orderId = delivery.getOrderId();
             if (orderId != null && !orderId.isEmpty()) {
@@ -5,49 +5,20 @@ import androidx.recyclerview.widget.DiffUtil;
 
 import com.autogratuity.data.model.Delivery;
 
-import java.util.List;
 import java.util.Objects;
 
 /**
- * DiffUtil callback implementation for Delivery objects.
- * Used to efficiently update the RecyclerView when the list of deliveries changes.
+ * DiffUtil item callback for Delivery objects.
+ * Used by the paging adapter to efficiently update the RecyclerView when pages change.
  */
-public class DeliveryDiffCallback extends DiffUtil.Callback {
-    
-    private final List<Delivery> oldDeliveries;
-    private final List<Delivery> newDeliveries;
-    
-    /**
-     * Constructor with old and new delivery lists
-     */
-    public DeliveryDiffCallback(List<Delivery> oldDeliveries, List<Delivery> newDeliveries) {
-        this.oldDeliveries = oldDeliveries;
-        this.newDeliveries = newDeliveries;
-    }
-    
-    @Override
-    public int getOldListSize() {
-        return oldDeliveries != null ? oldDeliveries.size() : 0;
-    }
-    
-    @Override
-    public int getNewListSize() {
-        return newDeliveries != null ? newDeliveries.size() : 0;
-    }
+public class DeliveryDiffCallback extends DiffUtil.ItemCallback<Delivery> {
     
     /**
      * Called to check whether two objects represent the same item.
      * For deliveries, we compare the deliveryId which is the unique identifier.
      */
     @Override
-    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-        Delivery oldDelivery = oldDeliveries.get(oldItemPosition);
-        Delivery newDelivery = newDeliveries.get(newItemPosition);
-        
-        if (oldDelivery == null || newDelivery == null) {
-            return false;
-        }
-        
+    public boolean areItemsTheSame(@NonNull Delivery oldDelivery, @NonNull Delivery newDelivery) {
         // Compare by delivery ID
         String oldId = oldDelivery.getId();
         String newId = newDelivery.getId();
@@ -60,14 +31,7 @@ public class DeliveryDiffCallback extends DiffUtil.Callback {
      * This method is only called if areItemsTheSame() returns true.
      */
     @Override
-    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-        Delivery oldDelivery = oldDeliveries.get(oldItemPosition);
-        Delivery newDelivery = newDeliveries.get(newItemPosition);
-        
-        if (oldDelivery == null || newDelivery == null) {
-            return false;
-        }
-        
+    public boolean areContentsTheSame(@NonNull Delivery oldDelivery, @NonNull Delivery newDelivery) {
         // Compare basic properties
         if (!Objects.equals(oldDelivery.getOrderId(), newDelivery.getOrderId())) {
             return false;
@@ -130,15 +94,4 @@ public class DeliveryDiffCallback extends DiffUtil.Callback {
         // If we've passed all checks, the contents are the same
         return true;
     }
-    
-    /**
-     * Called when an item changes but we want to animate specific changes.
-     * This is optional but improves the animation precision.
-     */
-    @Override
-    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-        // We're not implementing fine-grained change tracking for now
-        // A potential enhancement would be to return specific fields that changed
-        return super.getChangePayload(oldItemPosition, newItemPosition);
-    }
-}
\ No newline at end of file
+}
@@ -35,6 +35,7 @@ public class MainViewModel extends BaseViewModel {
     private final MutableLiveData<String> formattedSyncTimeLiveData = new MutableLiveData<>("Not synced");
     private final MutableLiveData<Boolean> isProUserLiveData = new MutableLiveData<>(false);
     private final MutableLiveData<String> currentFragmentLiveData = new MutableLiveData<>("dashboard");
+    private final MutableLiveData<String> syncMetricsDumpLiveData = new MutableLiveData<>();
     
     /**
      * Constructor with repository injection
@@ -92,6 +93,15 @@ public class MainViewModel extends BaseViewModel {
         return currentFragmentLiveData;
     }
     
+    /**
+     * Get the sync metrics dump as LiveData
+     * 
+     * @return LiveData containing the latest requested metrics dump, or null once shown
+     */
+    public LiveData<String> getSyncMetricsDump() {
+        return syncMetricsDumpLiveData;
+    }
+    
     /**
      * Set current fragment tag
      * 
@@ -193,6 +203,31 @@ public class MainViewModel extends BaseViewModel {
         );
     }
     
+    /**
+     * Load a plain-text dump of the sync engine metrics for the diagnostics dialog
+     */
+    public void loadSyncMetricsDump() {
+        disposables.add(
+            syncRepository.dumpSyncMetrics()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    syncMetricsDumpLiveData::setValue,
+                    error -> {
+                        Log.e(TAG, "Error dumping sync metrics", error);
+                        setError(error);
+                    }
+                )
+        );
+    }
+    
+    /**
+     * Clear the sync metrics dump after it has been shown
+     */
+    public void clearSyncMetricsDump() {
+        syncMetricsDumpLiveData.setValue(null);
+    }
+    
     /**
      * Cycle to the next main fragment
      */
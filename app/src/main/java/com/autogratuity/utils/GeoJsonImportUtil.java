@@ -14,6 +14,7 @@ import com.autogratuity.data.model.Reference;
 import com.autogratuity.data.model.Times;
 import com.autogratuity.data.model.Status;
 import com.autogratuity.data.model.converter.ModelConverters;
+import com.autogratuity.data.model.SyncOperation;
 import com.autogratuity.data.repository.address.AddressRepository;
 import com.autogratuity.data.repository.delivery.DeliveryRepository;
 import com.autogratuity.data.repository.sync.SyncRepository;
@@ -466,7 +467,7 @@ public class GeoJsonImportUtil {
                     deliveryMap.put("status", delivery.getStatus());
                     
                     // Enqueue operation for later sync
-                    syncRepository.createEntity("delivery", null, deliveryMap)
+                    syncRepository.createEntity("delivery", null, deliveryMap, SyncOperation.PRIORITY_BULK)
                             .blockingAwait();
                     
                     warnings.add("Delivery queued for offline sync: " + delivery.getAddress().getFullAddress());
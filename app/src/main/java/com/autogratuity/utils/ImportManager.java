@@ -160,7 +160,7 @@ public class ImportManager {
             metadata.put("importType", "kml");
             
             disposables.add(
-                syncRepository.createEntity("import_request", null, metadata)
+                syncRepository.createEntity("import_request", null, metadata, SyncOperation.PRIORITY_BULK)
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(
@@ -204,7 +204,7 @@ public class ImportManager {
             metadata.put("importType", "csv");
             
             disposables.add(
-                syncRepository.createEntity("import_request", null, metadata)
+                syncRepository.createEntity("import_request", null, metadata, SyncOperation.PRIORITY_BULK)
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(
@@ -326,7 +326,7 @@ public class ImportManager {
                         // Add more fields as needed
                         
                         // Create sync operation
-                        syncRepository.createEntity("delivery", null, deliveryMap)
+                        syncRepository.createEntity("delivery", null, deliveryMap, SyncOperation.PRIORITY_BULK)
                                 .blockingAwait();
                                 
                         savedCount++;
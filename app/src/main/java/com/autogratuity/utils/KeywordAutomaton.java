@@ -0,0 +1,156 @@
+package com.autogratuity.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton that finds which of a set of keywords occur in a text, ignoring
+ * case, in one pass.
+ * <p>
+ * Text can be fed a character at a time with {@link #next}, so callers can match while
+ * they read text from another structure without building a string first. Stepping
+ * allocates nothing; transitions are stored as sorted arrays per state.
+ */
+public final class KeywordAutomaton {
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] failure;
+    private final BitSet[] outputs;
+    private final int keywordCount;
+
+    /**
+     * Build an automaton over keywords. Keyword IDs are their positions in the list.
+     *
+     * @param keywords Keywords; matched ignoring case
+     */
+    public KeywordAutomaton(List<String> keywords) {
+        keywordCount = keywords.size();
+
+        // Trie
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<BitSet> found = new ArrayList<>();
+        trie.add(new HashMap<>());
+        found.add(new BitSet());
+        for (int id = 0; id < keywords.size(); id++) {
+            int state = 0;
+            String keyword = keywords.get(id);
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                Integer child = trie.get(state).get(c);
+                if (child == null) {
+                    child = trie.size();
+                    trie.add(new HashMap<>());
+                    found.add(new BitSet());
+                    trie.get(state).put(c, child);
+                }
+                state = child;
+            }
+            found.get(state).set(id);
+        }
+
+        int states = trie.size();
+        keys = new char[states][];
+        targets = new int[states][];
+        failure = new int[states];
+        outputs = found.toArray(new BitSet[0]);
+        for (int state = 0; state < states; state++) {
+            Map<Character, Integer> edges = trie.get(state);
+            char[] stateKeys = new char[edges.size()];
+            int i = 0;
+            for (char c : edges.keySet()) {
+                stateKeys[i++] = c;
+            }
+            Arrays.sort(stateKeys);
+            int[] stateTargets = new int[stateKeys.length];
+            for (i = 0; i < stateKeys.length; i++) {
+                stateTargets[i] = edges.get(stateKeys[i]);
+            }
+            keys[state] = stateKeys;
+            targets[state] = stateTargets;
+        }
+
+        // Failure links, breadth first
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int fallback = failure[state];
+                while (fallback != 0 && edge(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+                int link = edge(fallback, c);
+                failure[child] = link >= 0 && link != child ? link : 0;
+                outputs[child].or(outputs[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Get the number of keywords
+     *
+     * @return Keyword count
+     */
+    public int size() {
+        return keywordCount;
+    }
+
+    /**
+     * Advance by one character of text. Start from state 0.
+     *
+     * @param state Current state
+     * @param c Next character
+     * @return New state
+     */
+    public int next(int state, char c) {
+        c = Character.toLowerCase(c);
+        int target;
+        while ((target = edge(state, c)) < 0 && state != 0) {
+            state = failure[state];
+        }
+        return target >= 0 ? target : 0;
+    }
+
+    /**
+     * Get the keywords that end at a state. The set is shared; callers must not modify it.
+     *
+     * @param state State from {@link #next}
+     * @return Keyword IDs ending here
+     */
+    public BitSet matches(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * Find which keywords occur in a text.
+     *
+     * @param text Text to scan
+     * @return Keyword IDs found
+     */
+    public BitSet scan(CharSequence text) {
+        BitSet found = new BitSet(keywordCount);
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            found.or(outputs[state]);
+        }
+        return found;
+    }
+
+    private int edge(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+}
@@ -0,0 +1,336 @@
+package com.autogratuity.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts order IDs and tip amounts from notification text with a fixed set of tip and
+ * order ID patterns, compiled together.
+ * <p>
+ * The literal text every pattern requires (for example {@code " tip for order #"}) is
+ * collected into one Aho-Corasick automaton. Each notification is scanned once by the
+ * automaton, and a regex only runs when all of its required literals were seen, so most
+ * patterns are rejected without running. The scan is case-insensitive, so the prefilter
+ * never rejects text its regex would match; results are the same as running every
+ * pattern in order.
+ * <p>
+ * Instances are immutable. Callers rebuild with {@link #compile} when the patterns change
+ * and swap the reference.
+ */
+public final class NotificationPatternMatcher {
+
+    public static final String KEY_ORDER_ID = "orderId";
+    public static final String KEY_TIP_AMOUNT = "tipAmount";
+
+    // Fallback when no tip pattern yields an amount
+    private static final String DOLLAR_PATTERN = "\\$(\\d+\\.\\d+)";
+    private static final Pattern AMOUNT = Pattern.compile("\\d+\\.\\d+");
+
+    private final Rule[] tipRules;
+    private final Rule[] orderIdRules;
+    private final Rule dollarRule;
+    private final KeywordAutomaton keywords;
+
+    private NotificationPatternMatcher(Rule[] tipRules, Rule[] orderIdRules, Rule dollarRule,
+                                       KeywordAutomaton keywords) {
+        this.tipRules = tipRules;
+        this.orderIdRules = orderIdRules;
+        this.dollarRule = dollarRule;
+        this.keywords = keywords;
+    }
+
+    /**
+     * Compile tip and order ID patterns into a matcher.
+     *
+     * @param tipPatterns Tip patterns, tried in order; group 1 is the amount and group 2
+     *                    the order ID, or a single group holding either
+     * @param orderIdPatterns Order ID patterns, tried in order when no tip pattern gave an
+     *                        order ID; group 1 is the order ID
+     * @return New matcher
+     * @throws java.util.regex.PatternSyntaxException if a pattern is invalid
+     */
+    public static NotificationPatternMatcher compile(String[] tipPatterns, String[] orderIdPatterns) {
+        Map<String, Integer> keywordIds = new LinkedHashMap<>();
+        Rule[] tipRules = rules(tipPatterns, keywordIds);
+        Rule[] orderIdRules = rules(orderIdPatterns, keywordIds);
+        Rule dollarRule = rule(DOLLAR_PATTERN, keywordIds);
+        return new NotificationPatternMatcher(tipRules, orderIdRules, dollarRule,
+                new KeywordAutomaton(new ArrayList<>(keywordIds.keySet())));
+    }
+
+    /**
+     * A tip found in a notification
+     */
+    public static final class Tip {
+        public final String orderId;
+        public final double amount;
+
+        Tip(String orderId, double amount) {
+            this.orderId = orderId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Find a tip in notification text.
+     *
+     * @param text Notification title and text
+     * @return The tip; null if no order ID and amount were found or the amount is not a number
+     */
+    public Tip extractTip(String text) {
+        Map<String, String> data = extract(text);
+        String orderId = data.get(KEY_ORDER_ID);
+        String amount = data.get(KEY_TIP_AMOUNT);
+        if (orderId == null || amount == null) {
+            return null;
+        }
+        try {
+            return new Tip(orderId, Double.parseDouble(amount));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Extract the order ID and tip amount from notification text.
+     *
+     * @param text Notification title and text
+     * @return Map with {@link #KEY_ORDER_ID} and/or {@link #KEY_TIP_AMOUNT}; empty if neither was found
+     */
+    public Map<String, String> extract(String text) {
+        Map<String, String> data = new HashMap<>();
+        BitSet present = keywords.scan(text);
+
+        // Try all tip patterns first
+        for (Rule rule : tipRules) {
+            if (!rule.mayMatch(present)) {
+                continue;
+            }
+            Matcher matcher = rule.pattern.matcher(text);
+            if (matcher.find()) {
+                try {
+                    if (matcher.groupCount() >= 2) {
+                        // Most patterns have tipAmount as group 1, orderId as group 2
+                        data.put(KEY_TIP_AMOUNT, matcher.group(1));
+                        data.put(KEY_ORDER_ID, matcher.group(2));
+                    } else if (matcher.groupCount() == 1) {
+                        // Single group: an amount or an order ID
+                        String match = matcher.group(1);
+                        data.put(AMOUNT.matcher(match).matches() ? KEY_TIP_AMOUNT : KEY_ORDER_ID, match);
+                    }
+
+                    if (data.containsKey(KEY_TIP_AMOUNT) && data.containsKey(KEY_ORDER_ID)) {
+                        return data;
+                    }
+                } catch (RuntimeException e) {
+                    // Optional group did not participate; try the next pattern
+                }
+            }
+        }
+
+        // If we still need orderId, try specific patterns
+        if (!data.containsKey(KEY_ORDER_ID)) {
+            for (Rule rule : orderIdRules) {
+                if (!rule.mayMatch(present)) {
+                    continue;
+                }
+                Matcher matcher = rule.pattern.matcher(text);
+                if (matcher.find() && matcher.groupCount() >= 1) {
+                    data.put(KEY_ORDER_ID, matcher.group(1));
+                    break;
+                }
+            }
+        }
+
+        // If we still need tipAmount, try to find any dollar amount
+        if (!data.containsKey(KEY_TIP_AMOUNT) && dollarRule.mayMatch(present)) {
+            Matcher matcher = dollarRule.pattern.matcher(text);
+            if (matcher.find()) {
+                data.put(KEY_TIP_AMOUNT, matcher.group(1));
+            }
+        }
+
+        return data;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Compilation
+    //-----------------------------------------------------------------------------------
+
+    private static Rule[] rules(String[] patterns, Map<String, Integer> keywordIds) {
+        Rule[] rules = new Rule[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            rules[i] = rule(patterns[i], keywordIds);
+        }
+        return rules;
+    }
+
+    private static Rule rule(String regex, Map<String, Integer> keywordIds) {
+        Pattern pattern = Pattern.compile(regex);
+        List<String> literals = requiredLiterals(regex);
+        int[] ids = new int[literals.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = keywordIds.get(literals.get(i));
+            if (id == null) {
+                id = keywordIds.size();
+                keywordIds.put(literals.get(i), id);
+            }
+            ids[i] = id;
+        }
+        return new Rule(pattern, ids);
+    }
+
+    /**
+     * Collect literal runs that every match of a regex must contain, lower-cased.
+     * Only text outside groups and character classes is considered, and anything the
+     * parser is unsure of ends the current run, so the result may be incomplete but
+     * never requires text a match could lack. Returns nothing for top-level alternation,
+     * inline flags and quoting.
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            switch (c) {
+                case '\\':
+                    if (i + 1 >= regex.length()) {
+                        return new ArrayList<>();
+                    }
+                    char escaped = regex.charAt(++i);
+                    if (escaped == 'Q') {
+                        return new ArrayList<>();
+                    }
+                    if (Character.isLetterOrDigit(escaped)) {
+                        // Class, anchor or back reference
+                        flush(run, literals, depth);
+                    } else if (depth == 0) {
+                        run.append(escaped);
+                    }
+                    break;
+                case '[':
+                    flush(run, literals, depth);
+                    i = skipClass(regex, i);
+                    if (i < 0) {
+                        return new ArrayList<>();
+                    }
+                    break;
+                case '(':
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '?'
+                            && i + 2 < regex.length() && regex.charAt(i + 2) != ':') {
+                        // Flags, lookaround or named group
+                        return new ArrayList<>();
+                    }
+                    flush(run, literals, depth);
+                    depth++;
+                    break;
+                case ')':
+                    flush(run, literals, depth);
+                    depth--;
+                    break;
+                case '|':
+                    if (depth == 0) {
+                        return new ArrayList<>();
+                    }
+                    break;
+                case '?':
+                case '*':
+                case '{':
+                    // The preceding atom may be absent
+                    if (run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    flush(run, literals, depth);
+                    if (c == '{') {
+                        int close = regex.indexOf('}', i);
+                        if (close < 0) {
+                            return new ArrayList<>();
+                        }
+                        i = close;
+                    }
+                    break;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                    flush(run, literals, depth);
+                    break;
+                default:
+                    if (depth == 0) {
+                        run.append(c);
+                    }
+                    break;
+            }
+        }
+        flush(run, literals, depth);
+        return literals;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals, int depth) {
+        if (depth == 0 && run.toString().trim().length() > 0) {
+            // Lower-cased per char, exactly as the scan does
+            StringBuilder lower = new StringBuilder(run.length());
+            for (int i = 0; i < run.length(); i++) {
+                lower.append(Character.toLowerCase(run.charAt(i)));
+            }
+            String literal = lower.toString();
+            if (!literals.contains(literal)) {
+                literals.add(literal);
+            }
+        }
+        run.setLength(0);
+    }
+
+    // Index of the ']' closing the class opened at start, or -1
+    private static int skipClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        for (; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                return -1;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Types
+    //-----------------------------------------------------------------------------------
+
+    private static final class Rule {
+        final Pattern pattern;
+        final int[] keywordIds;
+
+        Rule(Pattern pattern, int[] keywordIds) {
+            this.pattern = pattern;
+            this.keywordIds = keywordIds;
+        }
+
+        boolean mayMatch(BitSet present) {
+            for (int id : keywordIds) {
+                if (!present.get(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -3,35 +3,86 @@ package com.autogratuity.utils;
 import android.content.Context;
 import android.util.Log;
 
+import com.autogratuity.data.local.CaptureEntity;
+import com.autogratuity.data.local.LocalDataStore;
 import com.autogratuity.data.model.Address;
 import com.autogratuity.data.model.Delivery;
-import com.autogratuity.data.model.Reference;
-import com.autogratuity.data.model.Status;
-import com.autogratuity.data.model.Times;
-import com.autogratuity.data.model.Metadata;
 import com.autogratuity.data.repository.address.AddressRepository;
 import com.autogratuity.data.repository.delivery.DeliveryRepository;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.autogratuity.data.util.RxSchedulers;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
 import io.reactivex.disposables.CompositeDisposable;
 
 /**
  * Processes captured Shipt data and integrates it with main app database
  * Updated to use domain repositories with RxJava
+ * <p>
+ * Captures are read from the local capture queue ({@link CaptureEntity}) in batches of
+ * {@link #BATCH_SIZE}, in arrival order, and each batch's outcome is recorded in one
+ * transaction. Within a batch, captures are grouped by order: an order's captures run in
+ * arrival order, and up to {@link #MAX_CONCURRENCY} orders run at once. Captures of a
+ * batch that share an address share one address lookup. Only one drain runs at a time;
+ * a request made during a drain runs another pass once it finishes. Requests are counted,
+ * and the drain only ends by resetting the count it started its last pass with, so a
+ * request arriving as a drain finishes is never lost. Each capture's repository calls,
+ * and a batch's tip update, are bounded by {@link #CAPTURE_TIMEOUT_MS} and leave the
+ * capture pending when they run over, so a drain cannot hang on Firestore and hold the
+ * drain forever.
+ * <p>
+ * Tips for orders that are not stored yet are parked as waiting rather than retried.
+ * {@link LocalDataStore} wakes them when a delivery for the order is written, by capture,
+ * import or sync, and the app runs the processor again. The tips matched in a batch are
+ * applied together through {@link DeliveryRepository#updateDeliveryTips}.
  */
 public class ShiptCaptureProcessor {
     private static final String TAG = "ShiptCaptureProcessor";
 
+    // Captures read and committed per batch
+    private static final int BATCH_SIZE = 50;
+
+    // Orders processed at once within a batch, bounding concurrent Firestore writes
+    private static final int MAX_CONCURRENCY = 4;
+
+    // Captures that keep failing are parked as failed after this many drains
+    private static final int MAX_ATTEMPTS = 48;
+
+    // Repository calls for one capture, or a batch's tips, give up after this long
+    private static final long CAPTURE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    // Finished captures are kept this long for troubleshooting
+    private static final long RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+
+    // Drain requests since the running drain started its last pass; 0 when none is running
+    private static final AtomicInteger drainRequests = new AtomicInteger();
+
     private final DeliveryRepository deliveryRepository;
     private final AddressRepository addressRepository;
+    private final LocalDataStore localStore;
     private final Context context;
     private final CompositeDisposable disposables = new CompositeDisposable();
 
+    // Deliveries created or updated during the current drain, by order ID
+    private final Map<String, Delivery> resolvedOrders = new ConcurrentHashMap<>();
+
+    // Address ID lookups of the current batch, by normalized address; shared by its captures
+    private final Map<String, Single<String>> batchAddressIds = new ConcurrentHashMap<>();
+
     /**
      * Create a new ShiptCaptureProcessor
      *
@@ -39,12 +90,57 @@ public class ShiptCaptureProcessor {
      * @param deliveryRepository The repository for delivery operations
      * @param addressRepository The repository for address operations
      */
-    public ShiptCaptureProcessor(Context context, 
+    public ShiptCaptureProcessor(Context context,
                                DeliveryRepository deliveryRepository,
                                AddressRepository addressRepository) {
         this.context = context;
         this.deliveryRepository = deliveryRepository;
         this.addressRepository = addressRepository;
+        this.localStore = LocalDataStore.getInstance(context);
+    }
+
+    /**
+     * Process all unprocessed captures
+     *
+     * @return Single that emits the number of captures applied; 0 if nobody is signed in
+     *         or another drain is running, which then runs another pass
+     */
+    public Single<Integer> process() {
+        return Single.defer(() -> {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                // Captures stay queued until someone signs in
+                return Single.just(0);
+            }
+
+            if (drainRequests.getAndIncrement() > 0) {
+                // The running drain sees the request and runs another pass
+                return Single.just(0);
+            }
+
+            // A drain that completes has already given up ownership
+            return drain(user.getUid())
+                    .doOnError(error -> drainRequests.set(0))
+                    .doOnDispose(() -> drainRequests.set(0));
+        });
+    }
+
+    /**
+     * Pass a drain request to the running drain, if there is one.
+     *
+     * @return true if a drain is running and will run another pass; false if the caller
+     *         has to start a drain
+     */
+    public static boolean requestPass() {
+        while (true) {
+            int requests = drainRequests.get();
+            if (requests == 0) {
+                return false;
+            }
+            if (drainRequests.compareAndSet(requests, requests + 1)) {
+                return true;
+            }
+        }
     }
 
     /**
@@ -53,140 +149,237 @@ public class ShiptCaptureProcessor {
      * @param callback Callback for processing results
      */
     public void processCaptures(ProcessCallback callback) {
-        // Load unprocessed captures using a query to find captures with processed=false
         disposables.add(
-            deliveryRepository.getAllDeliveries()
-                .map(allDeliveries -> {
-                    List<Delivery> unprocessed = new ArrayList<>();
-                    for (Delivery delivery : allDeliveries) {
-                        if (delivery.getMetadata() != null &&
-                            "shipt_capture".equals(delivery.getMetadata().getSource()) &&
-                            (delivery.getStatus() == null || !delivery.getStatus().isProcessed())) {
-                            unprocessed.add(delivery);
-                        }
-                    }
-                    return unprocessed;
-                })
-                .compose(RxSchedulers.applyObservableSchedulers())
+            process()
+                .compose(RxSchedulers.applySingleSchedulers())
                 .subscribe(
-                    unprocessedCaptures -> {
-                        if (unprocessedCaptures.isEmpty()) {
-                            if (callback != null) callback.onComplete(0);
-                            return;
-                        }
-
-                        final AtomicInteger processedCount = new AtomicInteger(0);
-                        final AtomicInteger errorCount = new AtomicInteger(0);
-                        final int totalCount = unprocessedCaptures.size();
-
-                        for (Delivery capture : unprocessedCaptures) {
-                            processSingleCapture(capture, new ProcessCallback() {
-                                @Override
-                                public void onComplete(int count) {
-                                    processedCount.incrementAndGet();
-                                    checkCompletion();
-                                }
-
-                                @Override
-                                public void onError(Exception e) {
-                                    errorCount.incrementAndGet();
-                                    Log.e(TAG, "Error processing capture: " + 
-                                            capture.getDeliveryId(), e);
-                                    checkCompletion();
-                                }
-
-                                private void checkCompletion() {
-                                    if (processedCount.get() + errorCount.get() >= totalCount) {
-                                        if (callback != null) {
-                                            callback.onComplete(processedCount.get());
-                                        }
-                                    }
-                                }
-                            });
-                        }
+                    count -> {
+                        if (callback != null) callback.onComplete(count);
                     },
                     error -> {
-                        Log.e(TAG, "Error getting captures", error);
-                        if (callback != null) callback.onError(error);
+                        Log.e(TAG, "Error draining capture queue", error);
+                        if (callback != null) {
+                            callback.onError(error instanceof Exception ? (Exception) error : new Exception(error));
+                        }
                     }
                 )
         );
     }
 
+    /**
+     * Drain the queue, repeating while further drains were requested. Ownership of the
+     * drain is released by resetting the request count only if no request arrived during
+     * the last pass.
+     *
+     * @param userId Signed-in user
+     * @return Single that emits the number of captures applied
+     */
+    private Single<Integer> drain(String userId) {
+        return Single.defer(() -> {
+            int requests = drainRequests.get();
+            resolvedOrders.clear();
+            return drainFrom(userId, null, 0)
+                    .flatMap(count -> localStore.pruneCaptures(new Date(System.currentTimeMillis() - RETENTION_MS))
+                            .toSingleDefault(count))
+                    .flatMap(count -> drainRequests.compareAndSet(requests, 0)
+                            ? Single.just(count)
+                            : drain(userId).map(more -> count + more));
+        });
+    }
+
+    /**
+     * Process the batches after a cursor. Captures left pending by a batch are not read
+     * again in the same pass.
+     */
+    private Single<Integer> drainFrom(String userId, CaptureEntity after, int applied) {
+        return localStore.getPendingCaptures(userId, after, BATCH_SIZE)
+                .flatMap(batch -> {
+                    if (batch.isEmpty()) {
+                        return Single.just(applied);
+                    }
+                    CaptureEntity last = batch.get(batch.size() - 1);
+                    return processBatch(userId, batch)
+                            .flatMap(count -> batch.size() < BATCH_SIZE
+                                    ? Single.just(applied + count)
+                                    : drainFrom(userId, last, applied + count));
+                });
+    }
+
+    /**
+     * Process a batch and record every outcome in one transaction
+     *
+     * @return Single that emits the number of captures applied
+     */
+    private Single<Integer> processBatch(String userId, List<CaptureEntity> batch) {
+        Map<String, List<CaptureEntity>> byOrder = new LinkedHashMap<>();
+        for (CaptureEntity capture : batch) {
+            List<CaptureEntity> group = byOrder.get(capture.getOrderId());
+            if (group == null) {
+                group = new ArrayList<>();
+                byOrder.put(capture.getOrderId(), group);
+            }
+            group.add(capture);
+        }
+
+        Map<Long, Integer> outcomes = new ConcurrentHashMap<>();
+        Map<String, Double> tips = Collections.synchronizedMap(new LinkedHashMap<>());
+        Set<Long> tipIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        batchAddressIds.clear();
+
+        return Flowable.fromIterable(byOrder.values())
+                .flatMapCompletable(group -> Flowable.fromIterable(group)
+                        .concatMapSingle(capture -> processSingleCapture(userId, capture, tips, tipIds)
+                                .doOnSuccess(outcome -> outcomes.put(capture.getId(), outcome)))
+                        .ignoreElements(), false, MAX_CONCURRENCY)
+                .andThen(Single.defer(() -> applyTips(tips)
+                        .toSingleDefault(true)
+                        .onErrorReturn(error -> {
+                            Log.e(TAG, "Error applying " + tips.size() + " tips", error);
+                            return false;
+                        })))
+                .flatMap(tipsApplied -> {
+                    List<Long> done = new ArrayList<>();
+                    List<Long> failed = new ArrayList<>();
+                    List<CaptureEntity> waiting = new ArrayList<>();
+                    List<Long> retry = new ArrayList<>();
+                    for (CaptureEntity capture : batch) {
+                        Integer outcome = outcomes.get(capture.getId());
+                        if (outcome == null || (!tipsApplied && tipIds.contains(capture.getId()))) {
+                            outcome = CaptureEntity.STATUS_PENDING;
+                        }
+                        switch (outcome) {
+                            case CaptureEntity.STATUS_DONE:
+                                done.add(capture.getId());
+                                break;
+                            case CaptureEntity.STATUS_FAILED:
+                                failed.add(capture.getId());
+                                break;
+                            case CaptureEntity.STATUS_WAITING:
+                                waiting.add(capture);
+                                break;
+                            default:
+                                retry.add(capture.getId());
+                                break;
+                        }
+                    }
+                    return localStore.finishCaptures(done, failed, waiting, retry, MAX_ATTEMPTS)
+                            .toSingleDefault(done.size());
+                });
+    }
+
+    /**
+     * Apply the tips matched in a batch in one pass
+     */
+    private Completable applyTips(Map<String, Double> tips) {
+        if (tips.isEmpty()) {
+            return Completable.complete();
+        }
+        return deliveryRepository.updateDeliveryTips(tips)
+                .timeout(CAPTURE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Process a single capture
      *
+     * @param userId Signed-in user
      * @param capture The capture to process
-     * @param callback Callback for processing result
+     * @param tips Tips matched in the batch, by delivery ID; a tip capture adds to it
+     * @param tipIds IDs of the tip captures in {@code tips}
+     * @return Single that emits the capture's new queue status; pending means retry later,
+     *         including when the repository does not answer within {@link #CAPTURE_TIMEOUT_MS}
      */
-    private void processSingleCapture(Delivery capture, ProcessCallback callback) {
-        // Skip invalid captures
-        if (capture.getMetadata() == null || capture.getMetadata().getOrderId() == null) {
-            markAsProcessed(capture, false);
-            if (callback != null) callback.onError(
-                    new Exception("Missing order ID"));
-            return;
+    private Single<Integer> processSingleCapture(String userId, CaptureEntity capture,
+                                                 Map<String, Double> tips, Set<Long> tipIds) {
+        // Skip invalid captures; batches only hold the signed-in user's captures
+        if (capture.getOrderId() == null) {
+            Log.w(TAG, "Dropping capture " + capture.getId() + ": missing order ID");
+            return Single.just(CaptureEntity.STATUS_FAILED);
         }
 
-        String orderId = capture.getMetadata().getOrderId();
-        String location = "";
+        String orderId = capture.getOrderId();
+        return findDelivery(userId, orderId)
+                .flatMap(found -> {
+                    if (CaptureEntity.KIND_TIP.equals(capture.getKind())) {
+                        return Single.just(matchTip(capture, found, tips, tipIds));
+                    }
+                    if (CaptureEntity.KIND_COMPLETION.equals(capture.getKind())) {
+                        return applyCompletion(capture, found);
+                    }
+                    return applyOrder(capture, found);
+                })
+                .timeout(CAPTURE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .onErrorReturn(error -> {
+                    Log.e(TAG, "Error processing capture: " + capture.getId(), error);
+                    return CaptureEntity.STATUS_PENDING;
+                });
+    }
+
+    /**
+     * Find the delivery for an order, checking deliveries written earlier in this drain
+     * before Room
+     */
+    private Single<List<Delivery>> findDelivery(String userId, String orderId) {
+        Delivery resolved = resolvedOrders.get(orderId);
+        if (resolved != null) {
+            List<Delivery> found = new ArrayList<>();
+            found.add(resolved);
+            return Single.just(found);
+        }
+        return localStore.getDeliveryByOrderId(userId, orderId);
+    }
+
+    /**
+     * Add a captured tip to the batch's tip updates, or park it until its delivery is stored
+     */
+    private int matchTip(CaptureEntity capture, List<Delivery> found,
+                         Map<String, Double> tips, Set<Long> tipIds) {
+        if (found.isEmpty()) {
+            return CaptureEntity.STATUS_WAITING;
+        }
+        tips.put(found.get(0).getDeliveryId(), capture.getTipAmount());
+        tipIds.add(capture.getId());
+        return CaptureEntity.STATUS_DONE;
+    }
 
-        // Determine the location string to use
-        if (capture.getAddress() != null && capture.getAddress().getFullAddress() != null) {
-            location = capture.getAddress().getFullAddress();
-        } else if (capture.getNotes() != null && !capture.getNotes().isEmpty()) {
-            location = capture.getNotes();
-        } else {
+    /**
+     * Create the delivery for a captured order, or update its location
+     */
+    private Single<Integer> applyOrder(CaptureEntity capture, List<Delivery> found) {
+        String location = capture.getLocation();
+        if (location == null) {
             // Skip capture if no location info
-            markAsProcessed(capture, false);
-            if (callback != null) callback.onError(
-                    new Exception("Missing location information"));
-            return;
+            return Single.just(CaptureEntity.STATUS_FAILED);
         }
 
-        // Create or update the delivery
-        addOrUpdateDelivery(orderId, location, capture, callback);
+        if (!found.isEmpty()) {
+            return updateExistingDelivery(found.get(0), location, capture);
+        }
+        return createNewDelivery(location, capture);
     }
 
     /**
-     * Add or update a delivery in the main database
-     *
-     * @param orderId The order ID
-     * @param location The location
-     * @param sourceCapture The source capture
-     * @param callback Callback for processing result
+     * Mark a delivery completed, creating it if the order was never captured
      */
-    private void addOrUpdateDelivery(String orderId, String location, 
-                                   Delivery sourceCapture, ProcessCallback callback) {
-        // Check if delivery already exists by finding one with matching order ID
-        disposables.add(
-            deliveryRepository.getAllDeliveries()
-                .map(allDeliveries -> {
-                    for (Delivery delivery : allDeliveries) {
-                        if (delivery.getMetadata() != null && 
-                            orderId.equals(delivery.getMetadata().getOrderId())) {
-                            return delivery;
-                        }
-                    }
-                    return null; // No matching delivery found
-                })
-                .compose(RxSchedulers.applyObservableSchedulers())
-                .subscribe(
-                    existingDelivery -> {
-                        if (existingDelivery != null) {
-                            // Update existing delivery
-                            updateExistingDelivery(existingDelivery, location, sourceCapture, callback);
-                        } else {
-                            // Create new delivery
-                            createNewDelivery(orderId, location, sourceCapture, callback);
-                        }
-                    },
-                    error -> {
-                        Log.e(TAG, "Error checking for existing delivery", error);
-                        if (callback != null) callback.onError(error);
-                    }
-                )
-        );
+    private Single<Integer> applyCompletion(CaptureEntity capture, List<Delivery> found) {
+        Date completedAt = capture.getCompletedAt() != null ? capture.getCompletedAt() : capture.getCreatedAt();
+
+        if (found.isEmpty()) {
+            return createNewDelivery(capture.getLocation(), capture);
+        }
+
+        Delivery delivery = found.get(0);
+        if (delivery.getTimes() == null) {
+            delivery.setTimes(new Delivery.Times());
+        }
+        if (delivery.getStatus() == null) {
+            delivery.setStatus(new Delivery.Status());
+        }
+        delivery.getTimes().setCompletedAt(completedAt);
+        delivery.getStatus().setCompleted(true);
+
+        return deliveryRepository.updateDelivery(delivery)
+                .doOnComplete(() -> resolvedOrders.put(capture.getOrderId(), delivery))
+                .toSingleDefault(CaptureEntity.STATUS_DONE);
     }
 
     /**
@@ -195,278 +388,143 @@ public class ShiptCaptureProcessor {
      * @param existingDelivery The existing delivery to update
      * @param location The location string
      * @param sourceCapture The source capture
-     * @param callback Callback for processing result
+     * @return Single that emits the capture's new queue status
      */
-    private void updateExistingDelivery(Delivery existingDelivery, String location, 
-                                      Delivery sourceCapture, ProcessCallback callback) {
+    private Single<Integer> updateExistingDelivery(Delivery existingDelivery, String location,
+                                                   CaptureEntity sourceCapture) {
         // Update only if new location is more specific
-        boolean shouldUpdateAddress = false;
-        
-        if (existingDelivery.getAddress() == null || 
-            existingDelivery.getAddress().getFullAddress() == null ||
-            (location.length() > existingDelivery.getAddress().getFullAddress().length())) {
-            shouldUpdateAddress = true;
-        }
-        
-        if (shouldUpdateAddress) {
-            // Update the address with new location
-            if (existingDelivery.getAddress() == null) {
-                // Create new address if none exists
-                Address address = new Address();
-                address.setFullAddress(location);
-                address.setNormalizedAddress(addressRepository.normalizeAddress(location));
-                existingDelivery.setAddress(address);
-            } else {
-                // Update existing address
-                existingDelivery.getAddress().setFullAddress(location);
-                existingDelivery.getAddress().setNormalizedAddress(
-                        addressRepository.normalizeAddress(location));
-            }
+        Address.SimpleAddress current = existingDelivery.getAddress();
+        if (current != null && current.getFullAddress() != null &&
+            location.length() <= current.getFullAddress().length()) {
+            resolvedOrders.put(sourceCapture.getOrderId(), existingDelivery);
+            return Single.just(CaptureEntity.STATUS_DONE);
         }
-        
-        // Update metadata
-        if (existingDelivery.getMetadata() == null) {
-            existingDelivery.setMetadata(new Metadata());
-        }
-        existingDelivery.getMetadata().setUpdatedAt(new Date());
-        
-        // Update the delivery
-        disposables.add(
-            deliveryRepository.updateDelivery(existingDelivery)
-                .compose(RxSchedulers.applyCompletableSchedulers())
-                .subscribe(
-                    () -> {
-                        // Mark source capture as processed
-                        markAsProcessed(sourceCapture, true);
-                        if (callback != null) callback.onComplete(1);
-                    },
-                    error -> {
-                        Log.e(TAG, "Error updating delivery", error);
-                        if (callback != null) callback.onError(error);
-                    }
-                )
-        );
+
+        Address.SimpleAddress address = current != null ? current : new Address.SimpleAddress();
+        address.setFullAddress(location);
+        existingDelivery.setAddress(address);
+
+        return linkAddress(existingDelivery, sourceCapture)
+                .andThen(deliveryRepository.updateDelivery(existingDelivery))
+                .doOnComplete(() -> resolvedOrders.put(sourceCapture.getOrderId(), existingDelivery))
+                .toSingleDefault(CaptureEntity.STATUS_DONE);
     }
 
     /**
      * Create a new delivery
      *
-     * @param orderId The order ID
-     * @param location The location string
+     * @param location The location string, or null if none was captured
      * @param sourceCapture The source capture
-     * @param callback Callback for processing result
+     * @return Single that emits the capture's new queue status
      */
-    private void createNewDelivery(String orderId, String location, 
-                                 Delivery sourceCapture, ProcessCallback callback) {
-        // Create address
-        Address address = new Address();
-        address.setFullAddress(location);
-        address.setNormalizedAddress(addressRepository.normalizeAddress(location));
-        
-        // Create new delivery
+    private Single<Integer> createNewDelivery(String location, CaptureEntity sourceCapture) {
+        Date capturedAt = sourceCapture.getCreatedAt() != null ? sourceCapture.getCreatedAt() : new Date();
+
         Delivery delivery = new Delivery();
-        
+        delivery.setOrderId(sourceCapture.getOrderId());
+
+        // Set address
+        if (location != null) {
+            Address.SimpleAddress address = new Address.SimpleAddress();
+            address.setFullAddress(location);
+            delivery.setAddress(address);
+        }
+
         // Set metadata
-        Metadata metadata = new Metadata();
-        metadata.setOrderId(orderId);
-        metadata.setCreatedAt(new Date());
+        Delivery.Metadata metadata = new Delivery.Metadata();
+        metadata.setCreatedAt(capturedAt);
         metadata.setSource("auto_capture");
+        metadata.setCaptureId(String.valueOf(sourceCapture.getId()));
         delivery.setMetadata(metadata);
-        
-        // Set address
-        delivery.setAddress(address);
-        
-        // Set reference (will be updated with address ID after saving)
-        Reference reference = new Reference();
-        reference.setAddressText(location);
-        delivery.setReference(reference);
-        
+
         // Set times
-        Times times = new Times();
-        times.setCreatedAt(new Date());
-        times.setOrderedAt(new Date());
+        Delivery.Times times = new Delivery.Times();
+        times.setOrderedAt(capturedAt);
+        times.setCompletedAt(sourceCapture.getCompletedAt());
         delivery.setTimes(times);
-        
+
         // Set status
-        Status status = new Status();
-        status.setCompleted(false);
+        Delivery.Status status = new Delivery.Status();
+        status.setCompleted(sourceCapture.getCompletedAt() != null);
         status.setTipped(false);
         delivery.setStatus(status);
-        
-        // Save the delivery
-        disposables.add(
-            deliveryRepository.addDelivery(delivery)
-                .compose(RxSchedulers.applyCompletableSchedulers())
-                .subscribe(
-                    documentReference -> {
-                        // Update address
-                        updateAddress(address, orderId);
-                        
-                        // Mark source capture as processed
-                        markAsProcessed(sourceCapture, true);
-                        
-                        if (callback != null) callback.onComplete(1);
-                    },
-                    error -> {
-                        Log.e(TAG, "Error adding delivery", error);
-                        if (callback != null) callback.onError(error);
-                    }
-                )
-        );
+
+        return linkAddress(delivery, sourceCapture)
+                .andThen(deliveryRepository.addDelivery(delivery))
+                .map(documentReference -> {
+                    resolvedOrders.put(sourceCapture.getOrderId(), delivery);
+                    return CaptureEntity.STATUS_DONE;
+                });
     }
 
     /**
-     * Mark a capture as processed
-     *
-     * @param capture The capture to mark as processed
-     * @param success Whether processing was successful
+     * Point a delivery at the stored address for a captured street address, creating the
+     * address if it is new. Store and zone locations are not addresses and are not linked.
      */
-    private void markAsProcessed(Delivery capture, boolean success) {
-        // Update status
-        if (capture.getStatus() == null) {
-            capture.setStatus(new Status());
-        }
-        capture.getStatus().setProcessed(true);
-        capture.getStatus().setProcessSuccess(success);
-        
-        // Update metadata
-        if (capture.getMetadata() == null) {
-            capture.setMetadata(new Metadata());
+    private Completable linkAddress(Delivery delivery, CaptureEntity capture) {
+        String fullAddress = capture.getAddress();
+        if (fullAddress == null || fullAddress.isEmpty()) {
+            return Completable.complete();
         }
-        capture.getMetadata().setUpdatedAt(new Date());
-        
-        // Update the capture
-        disposables.add(
-            deliveryRepository.updateDelivery(capture)
-                .compose(RxSchedulers.applyCompletableSchedulers())
-                .subscribe(
-                    () -> Log.d(TAG, "Capture marked as processed: " + 
-                            capture.getDeliveryId()),
-                    error -> Log.e(TAG, "Error marking capture as processed", error)
-                )
-        );
-    }
 
-    /**
-     * Update or create an address entry
-     *
-     * @param address The address to update or create
-     * @param orderId The order ID associated with this address
-     */
-    private void updateAddress(Address address, String orderId) {
-        String normalizedAddress = address.getNormalizedAddress();
-        
-        // Check if address exists in repository
-        disposables.add(
-            addressRepository.findAddressByNormalizedAddress(normalizedAddress)
-                .compose(RxSchedulers.applyCompletableSchedulers())
-                .subscribe(
-                    existingAddress -> {
-                        if (existingAddress != null) {
-                            // Address exists, update it
-                            updateExistingAddress(existingAddress, orderId);
-                        } else {
-                            // Address doesn't exist, create it
-                            createNewAddress(address, orderId);
-                        }
-                    },
-                    error -> {
-                        // Address not found, create new one
-                        createNewAddress(address, orderId);
+        return resolveAddressId(fullAddress)
+                .doOnSuccess(addressId -> {
+                    if (delivery.getReference() == null) {
+                        delivery.setReference(new Delivery.Reference());
                     }
-                )
-        );
+                    delivery.getReference().setAddressId(addressId);
+                    delivery.getAddress().setAddressId(addressId);
+                })
+                .ignoreElement()
+                .onErrorComplete();
     }
 
     /**
-     * Update an existing address
-     *
-     * @param address The address to update
-     * @param orderId The order ID to add
+     * Get the stored address ID for a captured address, creating the address if it is new.
+     * The lookup is shared by all captures of the batch with the same address, so each
+     * address is looked up, and created, at most once per batch.
      */
-    private void updateExistingAddress(Address address, String orderId) {
-        // Update order IDs list
-        List<String> orderIds = address.getOrderIds();
-        if (orderIds == null) {
-            orderIds = new ArrayList<>();
-        }
-        
-        if (!orderIds.contains(orderId)) {
-            orderIds.add(orderId);
-            address.setOrderIds(orderIds);
+    private Single<String> resolveAddressId(String fullAddress) {
+        String normalizedAddress = addressRepository.normalizeAddress(fullAddress);
+        if (normalizedAddress == null) {
+            return Single.error(new IllegalArgumentException("Unusable address: " + fullAddress));
         }
-        
-        // Update delivery count
-        if (address.getDeliveryStats() == null) {
-            address.setDeliveryStats(new Address.DeliveryStats());
+        Single<String> lookup = batchAddressIds.get(normalizedAddress);
+        if (lookup == null) {
+            Single<String> created = addressRepository.findAddressByNormalizedAddress(normalizedAddress)
+                    .map(Address::getAddressId)
+                    .onErrorResumeNext(error -> createNewAddress(fullAddress, normalizedAddress))
+                    .cache();
+            lookup = batchAddressIds.putIfAbsent(normalizedAddress, created);
+            if (lookup == null) {
+                lookup = created;
+            }
         }
-        
-        Address.DeliveryStats stats = address.getDeliveryStats();
-        stats.setDeliveryCount(stats.getDeliveryCount() + 1);
-        stats.setLastDeliveryDate(new Date());
-        
-        // Update the address
-        disposables.add(
-            addressRepository.updateAddress(address)
-                .compose(RxSchedulers.applyCompletableSchedulers())
-                .subscribe(
-                    () -> Log.d(TAG, "Address updated: " + address.getAddressId()),
-                    error -> Log.e(TAG, "Error updating address", error)
-                )
-        );
+        return lookup;
     }
 
     /**
      * Create a new address
      *
-     * @param address The address to create
-     * @param orderId The order ID to add
+     * @param fullAddress The captured address
+     * @param normalizedAddress Its normalized form
+     * @return Single that emits the new address ID
      */
-    private void createNewAddress(Address address, String orderId) {
-        // Set up order IDs list
-        List<String> orderIds = new ArrayList<>();
-        orderIds.add(orderId);
-        address.setOrderIds(orderIds);
-        
-        // Set up delivery stats
-        Address.DeliveryStats stats = new Address.DeliveryStats();
-        stats.setDeliveryCount(1);
-        stats.setTipCount(0);
-        stats.setTotalTips(0.0);
-        stats.setAverageTip(0.0);
-        stats.setLastDeliveryDate(new Date());
-        address.setDeliveryStats(stats);
-        
-        // Set up search terms for improved searching
-        List<String> searchTerms = new ArrayList<>();
-        String[] addressParts = address.getNormalizedAddress().split("\\s+");
-        for (String part : addressParts) {
-            if (!part.isEmpty()) {
-                searchTerms.add(part);
-            }
-        }
-        address.setSearchTerms(searchTerms);
-        
+    private Single<String> createNewAddress(String fullAddress, String normalizedAddress) {
+        Address address = new Address();
+        address.setFullAddress(fullAddress);
+        address.setNormalizedAddress(normalizedAddress);
+
         // Set flags
         Address.Flags flags = new Address.Flags();
         flags.setDoNotDeliver(false);
         address.setFlags(flags);
-        
-        // Set metadata
-        address.setMetadata(new Metadata());
-        address.getMetadata().setCreatedAt(new Date());
-        
-        // Save the address
-        disposables.add(
-            addressRepository.addAddress(address)
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    documentReference -> Log.d(TAG, "Address added: " + 
-                            documentReference.getId()),
-                    error -> Log.e(TAG, "Error adding address", error)
-                )
-        );
+
+        return addressRepository.addAddress(address)
+                .map(documentReference -> {
+                    Log.d(TAG, "Address added: " + documentReference.getId());
+                    return documentReference.getId();
+                });
     }
 
     /**
@@ -485,4 +543,4 @@ public class ShiptCaptureProcessor {
         void onComplete(int count);
         void onError(Exception e);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.autogratuity.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.RxWorker;
+import androidx.work.WorkManager;
+import androidx.work.WorkerParameters;
+
+import com.autogratuity.data.repository.core.RepositoryProvider;
+import com.autogratuity.utils.ShiptCaptureProcessor;
+
+import io.reactivex.Single;
+
+/**
+ * Worker that drains the local capture queue through {@link ShiptCaptureProcessor}.
+ * <p>
+ * A drain waits on Firestore for each capture, which can outlast a broadcast receiver's
+ * window, so {@link com.autogratuity.receivers.CaptureProcessReceiver} hands it to this
+ * unique work instead of holding the broadcast open. A request made while a drain is
+ * running is passed to that drain, which runs another pass; otherwise the queued or
+ * finishing run is replaced, so a request is never dropped.
+ */
+public class CaptureDrainWorker extends RxWorker {
+
+    private static final String TAG = "CaptureDrainWorker";
+
+    public static final String UNIQUE_WORK_NAME = "autogratuity_capture_drain";
+
+    public CaptureDrainWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Request a drain of the capture queue.
+     *
+     * @param context Any context
+     */
+    public static void enqueue(@NonNull Context context) {
+        if (ShiptCaptureProcessor.requestPass()) {
+            Log.d(TAG, "Drain running, requested another pass");
+            return;
+        }
+
+        // No drain is running, so replacing never cancels one partway through
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME,
+                ExistingWorkPolicy.REPLACE,
+                new OneTimeWorkRequest.Builder(CaptureDrainWorker.class).build());
+    }
+
+    @NonNull
+    @Override
+    public Single<Result> createWork() {
+        Context context = getApplicationContext();
+
+        // Ensure repositories are initialized
+        if (!RepositoryProvider.isInitialized()) {
+            try {
+                RepositoryProvider.initialize(context);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to initialize repositories", e);
+                return Single.just(Result.retry());
+            }
+        }
+
+        ShiptCaptureProcessor processor = new ShiptCaptureProcessor(context,
+                RepositoryProvider.getDeliveryRepository(), RepositoryProvider.getAddressRepository());
+
+        // Captures that could not be applied stay queued for the next drain
+        return processor.process()
+                .map(count -> {
+                    Log.d(TAG, "Drain completed: " + count + " captures processed");
+                    return Result.success();
+                })
+                .onErrorReturn(error -> {
+                    Log.e(TAG, "Error draining capture queue", error);
+                    return Result.success();
+                });
+    }
+}
@@ -0,0 +1,407 @@
+package com.autogratuity.workers;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive scheduler for background synchronization.
+ * <p>
+ * Instead of a fixed delay, the next {@link SyncWorker} run is chosen from the outbox
+ * depth, the battery level, the charging state and the time since the last local change.
+ * A single unique work chain is kept so bursts of local edits coalesce into one run,
+ * and large backlogs are drained by chaining expedited work until the outbox is empty.
+ * <p>
+ * Operations waiting out a retry backoff are not counted as due; instead a single retry
+ * timer is armed for the earliest persisted due time, so failed work is picked up without
+ * polling the outbox.
+ * <p>
+ * Interactive operations (captured tips and completions) bypass the cadence and request
+ * an immediate run.
+ */
+public class SyncScheduler {
+    private static final String TAG = "SyncScheduler";
+
+    public static final String UNIQUE_WORK_NAME = "autogratuity_background_sync";
+
+    private static final String PREFS_NAME = "com.autogratuity.sync_scheduler";
+    private static final String KEY_LAST_LOCAL_CHANGE = "last_local_change";
+    private static final String KEY_LAST_SYNC_COMPLETED = "last_sync_completed";
+
+    // Backlog thresholds
+    static final int EXPEDITE_BACKLOG_THRESHOLD = 100;
+    static final int LARGE_BACKLOG_THRESHOLD = 20;
+
+    // Battery thresholds
+    static final int LOW_BATTERY_PERCENT = 15;
+
+    // Cadence (seconds)
+    static final long QUIET_PERIOD_MS = 60 * 1000;              // Edits within this window are coalesced
+    static final long COALESCE_DELAY_SECONDS = 30;
+    static final long LARGE_BACKLOG_DELAY_SECONDS = 15;
+    static final long SMALL_BACKLOG_DELAY_SECONDS = 60;
+    static final long LOW_BATTERY_MIN_DELAY_SECONDS = 5 * 60;
+    static final long IDLE_CHARGING_DELAY_SECONDS = 30 * 60;
+    static final long IDLE_DELAY_SECONDS = 2 * 60 * 60;
+
+    /** Returned by {@link #computeDelaySeconds} when no run should be scheduled at all. */
+    static final long NO_RUN = -1;
+
+    private static volatile SyncScheduler instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    // In-process view of the scheduled chain, used to avoid redundant enqueues.
+    // runInProgress is cleared by onRunEnded however the worker ends, including when it is
+    // stopped; a process death clears it with the process.
+    private long scheduledRunAtMs = 0;
+    private boolean runInProgress = false;
+    private long retryTimerAtMs = 0;
+    private boolean interactiveRequested = false;
+    private long backoffUntilMs = 0;
+
+    /**
+     * Snapshot of the battery state used by the cadence policy.
+     */
+    static class BatteryState {
+        final int levelPercent;
+        final boolean charging;
+
+        BatteryState(int levelPercent, boolean charging) {
+            this.levelPercent = levelPercent;
+            this.charging = charging;
+        }
+
+        boolean isLow() {
+            return !charging && levelPercent >= 0 && levelPercent <= LOW_BATTERY_PERCENT;
+        }
+    }
+
+    private SyncScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Get the singleton scheduler instance.
+     *
+     * @param context Any context, the application context is retained
+     * @return SyncScheduler instance
+     */
+    public static SyncScheduler getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (SyncScheduler.class) {
+                if (instance == null) {
+                    instance = new SyncScheduler(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Record a local change that was added to the outbox and schedule a run for it.
+     *
+     * @param pendingCount Current outbox depth
+     */
+    public void onLocalChange(int pendingCount) {
+        prefs.edit().putLong(KEY_LAST_LOCAL_CHANGE, System.currentTimeMillis()).apply();
+        scheduleNext(pendingCount);
+    }
+
+    /**
+     * Record an interactive change and request an immediate run for it. If a run is in
+     * progress it picks the operation up in its next batch, and the follow-up run is
+     * started without delay.
+     *
+     * @param pendingCount Current outbox depth
+     */
+    public void onInteractiveChange(int pendingCount) {
+        prefs.edit().putLong(KEY_LAST_LOCAL_CHANGE, System.currentTimeMillis()).apply();
+        synchronized (this) {
+            interactiveRequested = true;
+        }
+        scheduleNext(pendingCount);
+    }
+
+    /**
+     * Schedule the next run using the adaptive cadence.
+     *
+     * @param pendingCount Current outbox depth
+     */
+    public void scheduleNext(int pendingCount) {
+        schedule(pendingCount, NO_RUN);
+    }
+
+    /**
+     * Schedule the next run using the adaptive cadence, bounded by a caller-requested delay.
+     *
+     * @param pendingCount Number of operations due now
+     * @param maxDelaySeconds Upper bound for the delay, or a negative value for no bound
+     */
+    public synchronized void schedule(int pendingCount, long maxDelaySeconds) {
+        if (runInProgress) {
+            // The running worker chains the next run when it finishes
+            Log.d(TAG, "Sync run in progress, deferring scheduling to the worker");
+            return;
+        }
+        scheduleRun(pendingCount, maxDelaySeconds, false);
+    }
+
+    /**
+     * Pick the delay for the next run and enqueue it.
+     *
+     * @param chained Whether the caller is the running worker; the run is then appended to
+     *                the unique chain instead of replacing it, which would cancel the caller
+     */
+    private synchronized void scheduleRun(int pendingCount, long maxDelaySeconds, boolean chained) {
+        BatteryState battery = readBatteryState();
+        long delaySeconds = interactiveRequested && pendingCount > 0
+                ? 0
+                : computeDelaySeconds(pendingCount, battery, getTimeSinceLastChangeMs());
+        if (maxDelaySeconds >= 0) {
+            delaySeconds = delaySeconds == NO_RUN ? maxDelaySeconds : Math.min(delaySeconds, maxDelaySeconds);
+        }
+
+        // Wake up for the earliest backed-off operation if it comes due sooner
+        boolean retryRun = false;
+        if (pendingCount == 0 && retryTimerAtMs > 0) {
+            long retryDelaySeconds = getRetryDelaySeconds(System.currentTimeMillis());
+            if (delaySeconds == NO_RUN || retryDelaySeconds < delaySeconds) {
+                delaySeconds = retryDelaySeconds;
+                retryRun = true;
+            }
+        }
+
+        if (delaySeconds == NO_RUN) {
+            Log.d(TAG, "No background sync needed (pending=" + pendingCount + ", battery=" +
+                    battery.levelPercent + "%)");
+            return;
+        }
+
+        boolean expedite = (interactiveRequested && pendingCount > 0 && !battery.isLow())
+                || shouldExpedite(pendingCount, battery);
+
+        // Never run before the backend has signalled it can take traffic again
+        long nowMs = System.currentTimeMillis();
+        if (backoffUntilMs > nowMs) {
+            delaySeconds = Math.max(delaySeconds, (backoffUntilMs - nowMs + 999) / 1000);
+            expedite = false;
+        }
+
+        long runAtMs = nowMs + TimeUnit.SECONDS.toMillis(delaySeconds);
+
+        // Keep an earlier run that is already scheduled rather than pushing it back
+        if (!expedite && scheduledRunAtMs > System.currentTimeMillis() && scheduledRunAtMs <= runAtMs) {
+            return;
+        }
+
+        enqueue(delaySeconds, expedite, pendingCount == 0 && !retryRun, chained);
+        scheduledRunAtMs = runAtMs;
+    }
+
+    /**
+     * Arm the retry timer for the earliest due time of a backed-off operation.
+     * Only the earliest time is kept; the timer is consumed when a run starts and
+     * re-armed by the repository at the end of each pass.
+     *
+     * @param dueAtMs Epoch milliseconds at which the operation becomes due
+     */
+    public synchronized void armRetryTimer(long dueAtMs) {
+        if (retryTimerAtMs > 0 && retryTimerAtMs <= dueAtMs) {
+            return;
+        }
+        retryTimerAtMs = dueAtMs;
+
+        if (!runInProgress) {
+            schedule(0, NO_RUN);
+        }
+    }
+
+    /**
+     * Hold off all runs until a point in time, e.g. while the shared circuit breaker is open.
+     *
+     * @param untilMs Epoch milliseconds before which no run should start
+     */
+    public synchronized void deferUntil(long untilMs) {
+        backoffUntilMs = Math.max(backoffUntilMs, untilMs);
+    }
+
+    /**
+     * Cancel the scheduled sync chain.
+     */
+    public synchronized void cancel() {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+        scheduledRunAtMs = 0;
+        retryTimerAtMs = 0;
+        interactiveRequested = false;
+    }
+
+    /**
+     * Called by {@link SyncWorker} when a run starts.
+     */
+    synchronized void onRunStarted() {
+        runInProgress = true;
+        scheduledRunAtMs = 0;
+        retryTimerAtMs = 0;
+        // The run dispatches the interactive lane first
+        interactiveRequested = false;
+    }
+
+    /**
+     * Called by {@link SyncWorker} when a run has done its work. Appends the next run to
+     * the chain, behind the worker that is still running.
+     *
+     * @param remainingCount Number of operations still due after the run
+     * @param succeeded Whether the run completed without error
+     */
+    synchronized void onRunFinished(int remainingCount, boolean succeeded) {
+        if (succeeded) {
+            prefs.edit().putLong(KEY_LAST_SYNC_COMPLETED, System.currentTimeMillis()).apply();
+        }
+        scheduleRun(remainingCount, NO_RUN, true);
+    }
+
+    /**
+     * Called by {@link SyncWorker} when it ends for any reason, including being stopped by
+     * WorkManager. A stopped worker is rescheduled by WorkManager itself.
+     */
+    synchronized void onRunEnded() {
+        runInProgress = false;
+    }
+
+    /**
+     * Check whether an idle run can be skipped because the last sync is recent enough.
+     *
+     * @param pendingCount Number of operations due now
+     * @return true if there is nothing to push and the last sync is within the idle cadence
+     */
+    boolean canSkipIdleRun(int pendingCount) {
+        if (pendingCount > 0) {
+            return false;
+        }
+        long lastSync = prefs.getLong(KEY_LAST_SYNC_COMPLETED, 0);
+        long idleMs = TimeUnit.SECONDS.toMillis(
+                readBatteryState().charging ? IDLE_CHARGING_DELAY_SECONDS : IDLE_DELAY_SECONDS);
+        return lastSync > 0 && System.currentTimeMillis() - lastSync < idleMs / 2;
+    }
+
+    /**
+     * Compute the delay before the next run.
+     *
+     * @param pendingCount Current outbox depth
+     * @param battery Battery state
+     * @param timeSinceLastChangeMs Milliseconds since the last local change
+     * @return Delay in seconds, or {@link #NO_RUN} if no run should be scheduled
+     */
+    static long computeDelaySeconds(int pendingCount, BatteryState battery, long timeSinceLastChangeMs) {
+        if (pendingCount <= 0) {
+            // Nothing to push - only a periodic refresh, and none at all on low battery
+            if (battery.isLow()) {
+                return NO_RUN;
+            }
+            return battery.charging ? IDLE_CHARGING_DELAY_SECONDS : IDLE_DELAY_SECONDS;
+        }
+
+        long delay;
+        if (pendingCount >= EXPEDITE_BACKLOG_THRESHOLD) {
+            delay = 0;
+        } else if (pendingCount >= LARGE_BACKLOG_THRESHOLD) {
+            delay = LARGE_BACKLOG_DELAY_SECONDS;
+        } else {
+            delay = SMALL_BACKLOG_DELAY_SECONDS;
+        }
+
+        // Coalesce bursts of edits into a single run
+        if (delay > 0 && timeSinceLastChangeMs < QUIET_PERIOD_MS) {
+            delay = Math.max(delay, COALESCE_DELAY_SECONDS);
+        }
+
+        if (battery.charging) {
+            delay = delay / 2;
+        } else if (battery.isLow()) {
+            delay = Math.max(delay * 4, LOW_BATTERY_MIN_DELAY_SECONDS);
+        }
+
+        return delay;
+    }
+
+    /**
+     * Decide whether the next run should be expedited.
+     *
+     * @param pendingCount Current outbox depth
+     * @param battery Battery state
+     * @return true if the backlog is large enough to justify expedited work
+     */
+    static boolean shouldExpedite(int pendingCount, BatteryState battery) {
+        return pendingCount >= EXPEDITE_BACKLOG_THRESHOLD && !battery.isLow();
+    }
+
+    private void enqueue(long delaySeconds, boolean expedite, boolean idleRun, boolean chained) {
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED);
+        if (idleRun) {
+            constraints.setRequiresBatteryNotLow(true);
+        }
+
+        OneTimeWorkRequest.Builder builder = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints.build());
+
+        if (expedite) {
+            // Expedited work cannot carry an initial delay
+            builder.setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST);
+        } else if (delaySeconds > 0) {
+            builder.setInitialDelay(delaySeconds, TimeUnit.SECONDS);
+        }
+
+        // A run never replaces the chain it is part of; it would cancel itself
+        ExistingWorkPolicy policy = chained ? ExistingWorkPolicy.APPEND_OR_REPLACE : ExistingWorkPolicy.REPLACE;
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(UNIQUE_WORK_NAME, policy, builder.build());
+
+        Log.d(TAG, "Scheduled background sync in " + delaySeconds + "s" +
+                (expedite ? " (expedited)" : "") + (idleRun ? " (idle refresh)" : ""));
+    }
+
+    private long getRetryDelaySeconds(long nowMs) {
+        long remainingMs = Math.max(0, retryTimerAtMs - nowMs);
+        return (remainingMs + 999) / 1000;
+    }
+
+    private long getTimeSinceLastChangeMs() {
+        long lastChange = prefs.getLong(KEY_LAST_LOCAL_CHANGE, 0);
+        return lastChange > 0 ? System.currentTimeMillis() - lastChange : Long.MAX_VALUE;
+    }
+
+    private BatteryState readBatteryState() {
+        // ACTION_BATTERY_CHANGED is sticky, so this reads the last broadcast without registering
+        Intent batteryStatus = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus == null) {
+            return new BatteryState(-1, false);
+        }
+
+        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+
+        int percent = (level >= 0 && scale > 0) ? (level * 100) / scale : -1;
+        boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING ||
+                status == BatteryManager.BATTERY_STATUS_FULL;
+
+        return new BatteryState(percent, charging);
+    }
+}
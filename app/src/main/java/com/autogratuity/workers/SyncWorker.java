@@ -1,44 +1,114 @@
 package com.autogratuity.workers;
 
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
 import android.content.Context;
+import android.os.Build;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.core.app.NotificationCompat;
+import androidx.work.ForegroundInfo;
 import androidx.work.RxWorker;
 import androidx.work.WorkerParameters;
 import androidx.work.ListenableWorker.Result;
 
+import com.autogratuity.R;
 import com.autogratuity.data.repository.core.RepositoryProvider;
 import com.autogratuity.data.repository.sync.SyncRepository;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import io.reactivex.Single;
 
 /**
  * Worker class for handling background synchronization tasks.
  * Uses RxWorker for reactive programming integration.
+ * <p>
+ * Runs are scheduled by {@link SyncScheduler}; each run appends the next one to the
+ * unique chain based on the remaining outbox depth. A failed pass still ends the run
+ * successfully, since an appended run would be failed along with its parent; the chained
+ * run is the retry.
  */
 public class SyncWorker extends RxWorker {
-    
+
     private static final String TAG = "SyncWorker";
-    
+    private static final int NOTIFICATION_ID = 1006;
+    private static final String CHANNEL_ID = "autogratuity_sync_channel";
+
     public SyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
         super(context, workerParams);
     }
-    
+
     @NonNull
     @Override
     public Single<Result> createWork() {
         Log.d(TAG, "Starting background sync work");
-        
+
+        SyncScheduler scheduler = SyncScheduler.getInstance(getApplicationContext());
+        scheduler.onRunStarted();
+
         // Get the sync repository
         SyncRepository syncRepository = RepositoryProvider.getSyncRepository();
-        
-        // Perform sync operation
-        return syncRepository.syncData()
-            .toSingleDefault(Result.success())
+
+        return syncRepository.getDueOperationCount()
+            .flatMap(dueCount -> {
+                // Skip idle runs when nothing is due and we synced recently
+                if (scheduler.canSkipIdleRun(dueCount)) {
+                    Log.d(TAG, "Outbox empty and last sync is recent, skipping run");
+                    return Single.just(Result.success());
+                }
+
+                // Perform sync operation
+                return syncRepository.syncData()
+                    .toSingleDefault(Result.success());
+            })
+            .flatMap(result -> syncRepository.getDueOperationCount()
+                .doOnSuccess(remaining -> scheduler.onRunFinished(remaining, true))
+                .map(remaining -> result))
             .onErrorReturn(error -> {
                 Log.e(TAG, "Error during background sync", error);
-                return Result.failure();
-            });
+                scheduler.onRunFinished(1, false);
+                return Result.success();
+            })
+            .doFinally(scheduler::onRunEnded);
+    }
+
+    /**
+     * Expedited runs execute as a foreground service before Android 12,
+     * which requires a notification.
+     */
+    @NonNull
+    @Override
+    public ListenableFuture<ForegroundInfo> getForegroundInfoAsync() {
+        return CallbackToFutureAdapter.getFuture(completer ->
+                completer.set(new ForegroundInfo(NOTIFICATION_ID, createNotification())));
+    }
+
+    private Notification createNotification() {
+        Context context = getApplicationContext();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Data Sync",
+                    NotificationManager.IMPORTANCE_MIN);
+            channel.setDescription("Uploads pending changes in the background");
+            channel.setShowBadge(false);
+
+            NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+            if (notificationManager != null) {
+                notificationManager.createNotificationChannel(channel);
+            }
+        }
+
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle("Autogratuity")
+                .setContentText("Syncing your data...")
+                .setSmallIcon(R.drawable.ic_package)
+                .setPriority(NotificationCompat.PRIORITY_MIN)
+                .setOngoing(true)
+                .build();
     }
 }
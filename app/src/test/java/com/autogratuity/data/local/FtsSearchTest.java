@@ -0,0 +1,83 @@
+package com.autogratuity.data.local;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Query building and ranking of {@link FtsSearch}, with {@code matchinfo(..., 'pcx')}
+ * blobs built by hand for a single phrase.
+ */
+public class FtsSearchTest {
+
+    private static final double[] WEIGHTS = {3.0, 1.0};
+
+    @Test
+    public void buildsPrefixQueries() {
+        // Operators and quotes are separators; lowercased words are plain terms
+        assertEquals("123* mai*", FtsSearch.prefixQuery("123 Mai"));
+        assertEquals("o* brien* or*", FtsSearch.prefixQuery("\"O'Brien\" OR"));
+        assertNull(FtsSearch.prefixQuery(" -* "));
+        assertNull(FtsSearch.prefixQuery(null));
+    }
+
+    @Test
+    public void weightsHitsByColumn() {
+        // One hit in the first column beats two in the second
+        assertTrue(FtsSearch.rank(matchInfo(1, 0, 4), WEIGHTS) > FtsSearch.rank(matchInfo(0, 2, 4), WEIGHTS));
+        assertEquals(0, FtsSearch.rank(null, WEIGHTS), 0);
+        assertEquals(0, FtsSearch.rank(new byte[4], WEIGHTS), 0);
+    }
+
+    @Test
+    public void ranksEveryMatchBeforeLimiting() {
+        List<FtsSearch.Match> matches = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            matches.add(match(id, matchInfo(0, 1, 600)));
+        }
+        // The best matches come last, past any fixed candidate window
+        matches.add(match(501, matchInfo(2, 0, 600)));
+        matches.add(match(502, matchInfo(1, 0, 600)));
+
+        assertEquals(Arrays.asList(501L, 502L, 1L), FtsSearch.topIds(matches, WEIGHTS, 3));
+    }
+
+    @Test
+    public void tiesKeepMatchOrder() {
+        List<FtsSearch.Match> matches = Arrays.asList(
+                match(7, matchInfo(0, 1, 3)), match(3, matchInfo(0, 1, 3)), match(5, matchInfo(0, 1, 3)));
+
+        assertEquals(Arrays.asList(7L, 3L), FtsSearch.topIds(matches, WEIGHTS, 2));
+        assertEquals(Collections.emptyList(), FtsSearch.topIds(Collections.emptyList(), WEIGHTS, 2));
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    // One phrase over two columns, with the same total hit count in each column
+    private static byte[] matchInfo(int hitsInFirst, int hitsInSecond, int hitsInAllRows) {
+        int[] values = {1, 2, hitsInFirst, hitsInAllRows, 1, hitsInSecond, hitsInAllRows, 1};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static FtsSearch.Match match(long id, byte[] matchInfo) {
+        FtsSearch.Match match = new FtsSearch.Match();
+        match.id = id;
+        match.matchInfo = matchInfo;
+        return match;
+    }
+}
@@ -0,0 +1,177 @@
+package com.autogratuity.data.local;
+
+import com.autogratuity.data.model.ErrorInfo;
+import com.autogratuity.data.model.SyncOperation;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.GeoPoint;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips through {@link OperationCodec}: the scalar fields, document values keeping
+ * their Firestore types, and the lazily decoded sections.
+ */
+public class OperationCodecTest {
+
+    @Test
+    public void roundTripsScalarFields() {
+        SyncOperation operation = newOperation();
+        operation.setDeviceId("device-1");
+        operation.setStatus(SyncOperation.STATUS_RETRYING);
+        operation.setPriority(SyncOperation.PRIORITY_INTERACTIVE);
+        operation.setError("Backend unavailable");
+        operation.setErrorType("network");
+        operation.setConflictResolution(SyncOperation.CONFLICT_RESOLUTION_SERVER_WINS);
+        operation.setConflictType("update_update");
+        operation.setFailed(true);
+        operation.setRetryable(true);
+        operation.setHasConflict(true);
+        operation.setAttempts(3);
+        operation.setRetryCount(2);
+        operation.setMaxRetries(7);
+        operation.setCreatedAt(new Date(1700000000123L));
+        operation.setUpdatedAt(new Date(1700000001456L));
+        operation.setLastAttemptTime(new Date(1700000002789L));
+        operation.setNextAttemptTime(new Timestamp(1700000060L, 0));
+        Map<String, Object> details = new HashMap<>();
+        details.put("code", 14L);
+        operation.setErrorInfo(new ErrorInfo("unavailable", "Backend unavailable", new Date(1700000001456L),
+                ErrorInfo.SEVERITY_HIGH, ErrorInfo.RECOVERY_RETRY, details));
+
+        SyncOperation decoded = roundTrip(operation);
+
+        assertEquals("op-1", decoded.getOperationId());
+        assertEquals("user-1", decoded.getUserId());
+        assertEquals("device-1", decoded.getDeviceId());
+        assertEquals("update", decoded.getType());
+        assertEquals("delivery", decoded.getEntityType());
+        assertEquals("delivery-1", decoded.getEntityId());
+        assertEquals(SyncOperation.STATUS_RETRYING, decoded.getStatus());
+        assertEquals(SyncOperation.PRIORITY_INTERACTIVE, decoded.getPriority());
+        assertEquals("network", decoded.getErrorType());
+        assertEquals(SyncOperation.CONFLICT_RESOLUTION_SERVER_WINS, decoded.getConflictResolution());
+        assertEquals("update_update", decoded.getConflictType());
+        assertFalse(decoded.isCompleted());
+        assertTrue(decoded.isFailed());
+        assertTrue(decoded.isRetryable());
+        assertTrue(decoded.hasConflict());
+        assertEquals(3, decoded.getAttempts());
+        assertEquals(2, decoded.getRetryCount());
+        assertEquals(7, decoded.getMaxRetries());
+        assertEquals(new Date(1700000000123L), decoded.getCreatedAt());
+        assertEquals(new Date(1700000001456L), decoded.getUpdatedAt());
+        assertNull(decoded.getCompletedAt());
+        assertEquals(new Date(1700000002789L), decoded.getLastAttemptTime());
+        assertEquals(new Timestamp(1700000060L, 0), decoded.getNextAttemptTime());
+
+        ErrorInfo errorInfo = decoded.getErrorInfo();
+        assertEquals("unavailable", errorInfo.getCode());
+        assertEquals("Backend unavailable", errorInfo.getMessage());
+        assertEquals(operation.getErrorInfo().getTimestamp(), errorInfo.getTimestamp());
+        assertEquals(ErrorInfo.SEVERITY_HIGH, errorInfo.getSeverity());
+        assertEquals(ErrorInfo.RECOVERY_RETRY, errorInfo.getRecoveryAction());
+        assertEquals(details, errorInfo.getDetails());
+    }
+
+    @Test
+    public void documentValuesKeepTheirFirestoreTypes() {
+        Map<String, Object> address = new HashMap<>();
+        address.put("fullAddress", "123 Main St");
+        address.put("location", new GeoPoint(41.6, -93.6));
+        Map<String, Object> data = new HashMap<>();
+        data.put("tipAmount", 6.5);
+        data.put("orderCount", 3L);
+        data.put("itemCount", 12);
+        data.put("doNotDeliver", false);
+        data.put("notes", "Leave at the door ✓");
+        data.put("deliveredAt", new Timestamp(1700000000L, 123000000));
+        data.put("lastUpdated", new Date(1700000000456L));
+        data.put("address", address);
+        data.put("tags", Arrays.asList("apartment", 2L, null));
+        data.put("missing", null);
+
+        SyncOperation operation = newOperation();
+        operation.setData(data);
+        Map<String, Object> decoded = roundTrip(operation).getData();
+
+        Map<String, Object> expected = new HashMap<>(data);
+        // Whole numbers all come back as Long
+        expected.put("itemCount", 12L);
+        assertEquals(expected, decoded);
+        assertTrue(decoded.get("deliveredAt") instanceof Timestamp);
+        assertTrue(((Map<?, ?>) decoded.get("address")).get("location") instanceof GeoPoint);
+    }
+
+    @Test
+    public void keepsNullAndEmptySections() {
+        SyncOperation operation = newOperation();
+        operation.setData(Collections.<String, Object>emptyMap());
+        operation.setPreviousVersion(null);
+        operation.setConflictDetails(Collections.<String, Object>singletonMap("field", "tipAmount"));
+
+        SyncOperation decoded = roundTrip(operation);
+
+        assertTrue(decoded.getData().isEmpty());
+        assertNull(decoded.getPreviousVersion());
+        assertEquals(Collections.singletonMap("field", "tipAmount"), decoded.getConflictDetails());
+    }
+
+    @Test
+    public void lazySectionsReEncodeAndAcceptWrites() {
+        SyncOperation operation = newOperation();
+        operation.setData(Collections.<String, Object>singletonMap("tipAmount", 6.5));
+        operation.setPreviousVersion(Collections.<String, Object>singletonMap("tipAmount", 4.0));
+
+        // Encoding a decoded operation reads its sections without touching them first
+        SyncOperation decoded = roundTrip(roundTrip(operation));
+        assertEquals(Collections.singletonMap("tipAmount", 6.5), decoded.getData());
+        assertEquals(Collections.singletonMap("tipAmount", 4.0), decoded.getPreviousVersion());
+
+        decoded.getData().put("tipAmount", 7.0);
+        assertEquals(7.0, roundTrip(decoded).getData().get("tipAmount"));
+    }
+
+    @Test
+    public void readsTheOperationIdAlone() {
+        byte[] payload = OperationCodec.encode(newOperation());
+
+        assertEquals("op-1", OperationCodec.readOperationId(payload));
+    }
+
+    @Test
+    public void rejectsMissingAndUnknownPayloads() {
+        assertNull(OperationCodec.encode(null));
+        assertNull(OperationCodec.decode(null));
+        assertNull(OperationCodec.decode(new byte[0]));
+
+        byte[] payload = OperationCodec.encode(newOperation());
+        payload[0] = 2;
+        assertNull(OperationCodec.decode(payload));
+        assertNull(OperationCodec.readOperationId(payload));
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    private static SyncOperation newOperation() {
+        SyncOperation operation = new SyncOperation("user-1", "update", "delivery", "delivery-1", null);
+        operation.setOperationId("op-1");
+        return operation;
+    }
+
+    private static SyncOperation roundTrip(SyncOperation operation) {
+        return OperationCodec.decode(OperationCodec.encode(operation));
+    }
+}
@@ -0,0 +1,130 @@
+package com.autogratuity.data.repository.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AIMD limits and FIFO waiting of {@link AdaptiveConcurrencyLimiter}, with acquire
+ * timeouts on a {@link TestScheduler}.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final String KEY = "deliveries";
+    private static final long SLOW_CALL_MS = 1000;
+    private static final long ACQUIRE_TIMEOUT_MS = 500;
+
+    private final TestScheduler scheduler = new TestScheduler();
+
+    @Test
+    public void successesRaiseTheLimitByAboutOnePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 3);
+
+        // 2 + 1/2 + 1/2.5 = 2.9, then past 3
+        succeed(limiter, 2);
+        assertEquals(2, limiter.getLimit(KEY));
+        succeed(limiter, 1);
+        assertEquals(3, limiter.getLimit(KEY));
+
+        // Capped at the maximum
+        succeed(limiter, 20);
+        assertEquals(3, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void overloadHalvesTheLimitDownToTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 64);
+
+        int[] expected = {4, 2, 1, 1};
+        for (int limit : expected) {
+            limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_OVERLOAD);
+            assertEquals(limit, limiter.getLimit(KEY));
+        }
+    }
+
+    @Test
+    public void slowCallsTrimTheLimitAndIgnoredOutcomesKeepIt() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 64);
+
+        limiter.release(KEY, SLOW_CALL_MS + 1, AdaptiveConcurrencyLimiter.OUTCOME_SUCCESS);
+        assertEquals(7, limiter.getLimit(KEY));
+
+        limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_IGNORED);
+        assertEquals(7, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void callersBeyondTheLimitWaitInOrder() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 64);
+        AdaptiveConcurrencyLimiter.Permit held = new AdaptiveConcurrencyLimiter.Permit();
+        AdaptiveConcurrencyLimiter.Permit first = new AdaptiveConcurrencyLimiter.Permit();
+        AdaptiveConcurrencyLimiter.Permit second = new AdaptiveConcurrencyLimiter.Permit();
+
+        limiter.acquire(KEY, held).test().assertComplete();
+        TestObserver<Void> firstWaiter = limiter.acquire(KEY, first).test();
+        TestObserver<Void> secondWaiter = limiter.acquire(KEY, second).test();
+        assertTrue(held.isGranted());
+        firstWaiter.assertNotComplete();
+        assertFalse(first.isGranted());
+
+        // Other keys have their own limit
+        limiter.acquire("addresses", new AdaptiveConcurrencyLimiter.Permit()).test().assertComplete();
+
+        limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_IGNORED);
+        firstWaiter.assertComplete();
+        assertTrue(first.isGranted());
+        secondWaiter.assertNotComplete();
+    }
+
+    @Test
+    public void waitersTimeOutWithoutTakingASlot() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 64);
+        limiter.acquire(KEY, new AdaptiveConcurrencyLimiter.Permit()).test().assertComplete();
+        AdaptiveConcurrencyLimiter.Permit permit = new AdaptiveConcurrencyLimiter.Permit();
+        TestObserver<Void> waiter = limiter.acquire(KEY, permit).test();
+
+        scheduler.advanceTimeBy(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        waiter.assertError(AdaptiveConcurrencyLimiter.AcquireTimeoutException.class);
+
+        // The released slot is free for the next caller, not held for the timed-out one
+        limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_IGNORED);
+        assertFalse(permit.isGranted());
+        limiter.acquire(KEY, new AdaptiveConcurrencyLimiter.Permit()).test().assertComplete();
+    }
+
+    @Test
+    public void disposedWaitersAreSkipped() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 64);
+        limiter.acquire(KEY, new AdaptiveConcurrencyLimiter.Permit()).test().assertComplete();
+        AdaptiveConcurrencyLimiter.Permit cancelled = new AdaptiveConcurrencyLimiter.Permit();
+        AdaptiveConcurrencyLimiter.Permit next = new AdaptiveConcurrencyLimiter.Permit();
+        limiter.acquire(KEY, cancelled).test().dispose();
+        TestObserver<Void> nextWaiter = limiter.acquire(KEY, next).test();
+
+        limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_IGNORED);
+        assertFalse(cancelled.isGranted());
+        nextWaiter.assertComplete();
+        assertTrue(next.isGranted());
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    private AdaptiveConcurrencyLimiter limiter(double initial, double min, double max) {
+        return new AdaptiveConcurrencyLimiter(initial, min, max, SLOW_CALL_MS, ACQUIRE_TIMEOUT_MS, scheduler);
+    }
+
+    private static void succeed(AdaptiveConcurrencyLimiter limiter, int calls) {
+        for (int i = 0; i < calls; i++) {
+            limiter.release(KEY, 10, AdaptiveConcurrencyLimiter.OUTCOME_SUCCESS);
+        }
+    }
+}
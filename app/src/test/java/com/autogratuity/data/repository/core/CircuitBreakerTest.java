@@ -0,0 +1,134 @@
+package com.autogratuity.data.repository.core;
+
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * State transitions of {@link CircuitBreaker} on a {@link TestScheduler} clock: tripping
+ * on consecutive backend failures, the single half-open probe and the doubling open period.
+ */
+public class CircuitBreakerTest {
+
+    private static final int THRESHOLD = 3;
+    private static final long INITIAL_OPEN_MS = 1000;
+    private static final long MAX_OPEN_MS = 4000;
+
+    private final TestScheduler clock = new TestScheduler();
+    private final CircuitBreaker breaker = new CircuitBreaker(THRESHOLD, INITIAL_OPEN_MS, MAX_OPEN_MS, clock);
+
+    @Test
+    public void opensAfterConsecutiveBackendFailures() {
+        breaker.onError(new TimeoutException());
+        breaker.onError(new SocketTimeoutException());
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onError(new TimeoutException());
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(INITIAL_OPEN_MS, breaker.getRetryAtMs());
+    }
+
+    @Test
+    public void successOrClientErrorsResetTheFailureRun() {
+        breaker.onError(new TimeoutException());
+        breaker.onError(new TimeoutException());
+        breaker.onSuccess();
+        breaker.onError(new TimeoutException());
+        breaker.onError(new TimeoutException());
+        breaker.onError(new IllegalArgumentException());
+        breaker.onError(new AdaptiveConcurrencyLimiter.AcquireTimeoutException("deliveries", 10));
+        breaker.onError(new TimeoutException());
+
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAdmitsOneProbe() {
+        trip();
+        clock.advanceTimeBy(INITIAL_OPEN_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // A cancelled probe frees the slot for the next one
+        breaker.onCancelled();
+        assertTrue(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+        assertEquals(0, breaker.getRetryAtMs());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbesDoubleTheOpenPeriodUpToTheMaximum() {
+        trip();
+        assertEquals(INITIAL_OPEN_MS, failProbe());
+        assertEquals(2 * INITIAL_OPEN_MS, failProbe());
+        assertEquals(MAX_OPEN_MS, failProbe());
+        assertEquals(MAX_OPEN_MS, failProbe());
+    }
+
+    @Test
+    public void successfulProbeResetsTheOpenPeriod() {
+        trip();
+        failProbe();
+        clock.advanceTimeBy(2 * INITIAL_OPEN_MS, TimeUnit.MILLISECONDS);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+
+        long trippedAt = trip();
+        assertEquals(trippedAt + INITIAL_OPEN_MS, breaker.getRetryAtMs());
+    }
+
+    @Test
+    public void publishesStateChanges() {
+        TestObserver<String> states = breaker.observeState().test();
+
+        trip();
+        clock.advanceTimeBy(INITIAL_OPEN_MS, TimeUnit.MILLISECONDS);
+        breaker.allowRequest();
+        breaker.onSuccess();
+
+        states.assertValues(CircuitBreaker.STATE_CLOSED, CircuitBreaker.STATE_OPEN,
+                CircuitBreaker.STATE_HALF_OPEN, CircuitBreaker.STATE_CLOSED);
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    // Open the breaker; returns the time it tripped at
+    private long trip() {
+        for (int i = 0; i < THRESHOLD; i++) {
+            breaker.onError(new TimeoutException());
+        }
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState());
+        return clock.now(TimeUnit.MILLISECONDS);
+    }
+
+    // Wait out the open period, fail the probe; returns how long the breaker was open
+    private long failProbe() {
+        long openedAt = clock.now(TimeUnit.MILLISECONDS);
+        long openMs = breaker.getRetryAtMs() - openedAt;
+        clock.advanceTimeBy(openMs - 1, TimeUnit.MILLISECONDS);
+        assertFalse(breaker.allowRequest());
+        clock.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertTrue(breaker.allowRequest());
+        breaker.onError(new TimeoutException());
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState());
+        return openMs;
+    }
+}
@@ -0,0 +1,112 @@
+package com.autogratuity.data.repository.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batch selection of {@link PriorityLaneScheduler}: shares in proportion to the lane
+ * weights, interactive work first, bulk never starved and spare capacity handed on.
+ */
+public class PriorityLaneSchedulerTest {
+
+    @Test
+    public void splitsBatchByLaneWeights() {
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler();
+
+        List<String> batch = scheduler.selectBatch(lanes(20, 20, 20), 12);
+
+        // Default weights 8:3:1 over a batch of 12
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), indicesOf(batch, "interactive"));
+        assertEquals(3, countOf(batch, "normal"));
+        assertEquals(1, countOf(batch, "bulk"));
+    }
+
+    @Test
+    public void placesInteractiveWorkFirst() {
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(new int[]{1, 1, 1});
+
+        List<String> batch = scheduler.selectBatch(lanes(2, 2, 2), 6);
+
+        assertEquals(Arrays.asList("interactive-0", "interactive-1", "normal-0", "normal-1",
+                "bulk-0", "bulk-1"), batch);
+    }
+
+    @Test
+    public void bulkIsNotStarvedByInteractiveFlood() {
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler();
+        List<List<String>> due = lanes(1000, 0, 1000);
+
+        // Bulk's proportional share of a batch of 8 rounds down to nothing
+        for (int round = 0; round < 50; round++) {
+            List<String> batch = scheduler.selectBatch(due, 8);
+            assertEquals(8, batch.size());
+            assertTrue("round " + round + ": " + batch, countOf(batch, "bulk") >= 1);
+        }
+    }
+
+    @Test
+    public void handsUnusedCapacityToOtherLanes() {
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler();
+
+        // Interactive has one operation, its share is 8; the rest goes to normal and bulk
+        List<String> batch = scheduler.selectBatch(lanes(1, 20, 20), 12);
+        assertEquals(12, batch.size());
+        assertEquals(1, countOf(batch, "interactive"));
+
+        // Only bulk has work
+        assertEquals(10, scheduler.selectBatch(lanes(0, 0, 20), 10).size());
+    }
+
+    @Test
+    public void emptyLanesSelectNothing() {
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler();
+
+        assertTrue(scheduler.selectBatch(lanes(0, 0, 0), 10).isEmpty());
+        assertTrue(scheduler.selectBatch(lanes(5, 5, 5), 0).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveWeights() {
+        new PriorityLaneScheduler(new int[]{8, 0, 1});
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Helpers
+    //-----------------------------------------------------------------------------------
+
+    // Due operations named "<lane>-<n>", parallel to PriorityLaneScheduler.LANES
+    private static List<List<String>> lanes(int interactive, int normal, int bulk) {
+        int[] sizes = {interactive, normal, bulk};
+
+        List<List<String>> due = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            List<String> lane = new ArrayList<>();
+            for (int n = 0; n < sizes[i]; n++) {
+                lane.add(PriorityLaneScheduler.LANES[i] + "-" + n);
+            }
+            due.add(sizes[i] == 0 ? Collections.<String>emptyList() : lane);
+        }
+        return due;
+    }
+
+    private static int countOf(List<String> batch, String lane) {
+        return indicesOf(batch, lane).size();
+    }
+
+    private static List<Integer> indicesOf(List<String> batch, String lane) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).startsWith(lane + "-")) {
+                indices.add(i);
+            }
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,329 @@
+package com.autogratuity.services;
+
+import com.autogratuity.utils.NotificationPatternMatcher;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Replays recorded Shipt screens and notifications through the capture code the services
+ * run, without Android: screens through {@link ScreenCapture} on a {@link TestScheduler},
+ * so recorded delays drive the delivery flow's timers, and notifications through
+ * {@link NotificationPatternMatcher#extractTip} with the listener's default patterns.
+ * <p>
+ * The accuracy tests always run. They compare what is captured with the expected captures
+ * in the corpora and fail, reporting precision and recall, if either drops below the level
+ * recorded here. The throughput run is skipped unless the build is started with
+ * {@code -DrunBenchmarks=true}, e.g.
+ * {@code ./gradlew :app:testDebugUnitTest --tests '*CaptureReplayTest' -DrunBenchmarks=true};
+ * it reports events per second and bytes allocated per event on the test thread.
+ */
+public class CaptureReplayTest {
+
+    private static final String SCREENS = "/screens/shipt-screens.txt";
+    private static final String NOTIFICATIONS = "/notifications/shipt-notifications.txt";
+    private static final String TIPS = "/notifications/shipt-tips.txt";
+
+    // Just below the accuracy measured on the corpora when the replay was added, so any
+    // regression fails; raise these as extraction improves
+    private static final double MIN_SCREEN_PRECISION = 0.09; // 1 of 10
+    private static final double MIN_SCREEN_RECALL = 0.11; // 1 of 9
+    private static final double MIN_ORDER_PRECISION = 0.79; // 8 of 10
+    private static final double MIN_ORDER_RECALL = 0.88; // 8 of 9
+    private static final double MIN_TIP_PRECISION = 0.74; // 12 of 16
+    private static final double MIN_TIP_RECALL = 0.66; // 12 of 18
+
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 20000;
+
+    // Defaults of ShiptNotificationListenerService
+    private static final String[] TIP_PATTERNS = {
+            "You got a \\$(\\d+\\.\\d+) tip for an order delivered on .+ \\(#([A-Z0-9]+)\\)",
+            "You received a \\$(\\d+\\.\\d+) tip for order #([A-Z0-9]+)",
+            "Order #([A-Z0-9]+).*tipped \\$(\\d+\\.\\d+)",
+            "([A-Z0-9]+).*tipped you \\$(\\d+\\.\\d+)",
+            "Your customer left a \\$(\\d+\\.\\d+) tip.*#([A-Z0-9]+)",
+            "You've received a \\$(\\d+\\.\\d+) tip.*([A-Z0-9]+)",
+            "\\$(\\d+\\.\\d+) tip.*order.*([A-Z0-9]+)",
+            "New tip.*\\$(\\d+\\.\\d+).*#([A-Z0-9]+)"
+    };
+    private static final String[] ORDER_ID_PATTERNS = {
+            "#([A-Z0-9]+)",
+            "Order ([A-Z0-9]+)",
+            "order ([A-Z0-9]+)",
+            "\\(#([A-Z0-9]+)\\)",
+            "ID\\s*[:#]?\\s*([A-Z0-9]+)",
+            "([A-Z0-9]{8,12})"
+    };
+
+    @Test
+    public void screenCaptureAccuracy() throws IOException {
+        List<RecordedScreen> screens = loadScreens();
+        List<String> expected = new ArrayList<>();
+        for (RecordedScreen screen : screens) {
+            expected.addAll(screen.expected);
+        }
+
+        List<String> captured = new ArrayList<>();
+        new ScreenReplay(captured).run(screens);
+
+        // Whole captures, then only which orders were captured and completed
+        Accuracy accuracy = new Accuracy(expected, captured);
+        Accuracy orders = new Accuracy(orderKeys(expected), orderKeys(captured));
+        assertTrue(accuracy.toString(), accuracy.precision() >= MIN_SCREEN_PRECISION);
+        assertTrue(accuracy.toString(), accuracy.recall() >= MIN_SCREEN_RECALL);
+        assertTrue(orders.toString(), orders.precision() >= MIN_ORDER_PRECISION);
+        assertTrue(orders.toString(), orders.recall() >= MIN_ORDER_RECALL);
+    }
+
+    @Test
+    public void tipAccuracy() throws IOException {
+        List<String> captured = new ArrayList<>();
+        new TipReplay(captured).run(loadLines(NOTIFICATIONS));
+
+        Accuracy accuracy = new Accuracy(loadLines(TIPS), captured);
+        assertTrue(accuracy.toString(), accuracy.precision() >= MIN_TIP_PRECISION);
+        assertTrue(accuracy.toString(), accuracy.recall() >= MIN_TIP_RECALL);
+    }
+
+    @Test
+    public void replayThroughput() throws IOException {
+        assumeTrue(Boolean.getBoolean("runBenchmarks"));
+
+        List<RecordedScreen> screens = loadScreens();
+        ScreenReplay screenReplay = new ScreenReplay(null);
+        measure("Screens", screens.size(), () -> screenReplay.run(screens));
+
+        List<String> notifications = loadLines(NOTIFICATIONS);
+        TipReplay tipReplay = new TipReplay(null);
+        measure("Notifications", notifications.size(), () -> tipReplay.run(notifications));
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Replay
+    //-----------------------------------------------------------------------------------
+
+    /**
+     * Feeds screens to a fresh {@link ScreenCapture}, as the accessibility service does
+     * once a screen has been read
+     */
+    private static final class ScreenReplay implements ScreenCapture.Listener {
+        private final ScreenText screen = ShiptScreen.newScreenText();
+        private final List<String> captured;
+
+        /**
+         * @param captured Receives each capture; null to drop them
+         */
+        ScreenReplay(List<String> captured) {
+            this.captured = captured;
+        }
+
+        void run(List<RecordedScreen> screens) {
+            TestScheduler scheduler = new TestScheduler();
+            ScreenCapture capture = new ScreenCapture(scheduler, this);
+            for (RecordedScreen recorded : screens) {
+                scheduler.advanceTimeBy(recorded.delayMs, TimeUnit.MILLISECONDS);
+                screen.begin();
+                for (String line : recorded.lines) {
+                    screen.appendLine(line);
+                }
+                capture.onScreen(screen);
+            }
+            capture.dispose();
+        }
+
+        @Override
+        public void onOrderCaptured(String orderId, String zone, String store, String address) {
+            record("order", orderId, zone, store, address);
+        }
+
+        @Override
+        public void onDeliveryCompleted(String orderId, String zone, String store, String address) {
+            record("completion", orderId, zone, store, address);
+        }
+
+        private void record(String kind, String orderId, String zone, String store, String address) {
+            if (captured != null) {
+                captured.add(kind + " " + orderId + " | " + orDash(zone) + " | " + orDash(store)
+                        + " | " + orDash(address));
+            }
+        }
+
+        private static String orDash(String value) {
+            return value != null ? value : "-";
+        }
+    }
+
+    /**
+     * Runs notification texts through the tip extraction of the listener service
+     */
+    private static final class TipReplay {
+        private final NotificationPatternMatcher matcher =
+                NotificationPatternMatcher.compile(TIP_PATTERNS, ORDER_ID_PATTERNS);
+        private final List<String> captured;
+
+        /**
+         * @param captured Receives each tip; null to drop them
+         */
+        TipReplay(List<String> captured) {
+            this.captured = captured;
+        }
+
+        void run(List<String> notifications) {
+            for (String notification : notifications) {
+                NotificationPatternMatcher.Tip tip = matcher.extractTip(notification);
+                if (tip != null && captured != null) {
+                    captured.add(tip.orderId + " " + String.format(Locale.US, "%.2f", tip.amount));
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a replay repeatedly and print events per second and bytes allocated per event
+     */
+    private static void measure(String name, int eventsPerRound, Runnable replay) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            replay.run();
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            replay.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long events = (long) eventsPerRound * MEASURED_ROUNDS;
+        String allocation = allocatedBefore < 0 ? "n/a" : String.valueOf(allocated / events);
+        System.out.println(String.format(Locale.US, "%s: %,.0f events/s, %s bytes/event",
+                name, events * 1e9 / elapsed, allocation));
+    }
+
+    // Bytes allocated so far by this thread; -1 if the JVM does not report it
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Corpora
+    //-----------------------------------------------------------------------------------
+
+    private static final class RecordedScreen {
+        final long delayMs;
+        final List<String> lines = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+
+        RecordedScreen(long delayMs) {
+            this.delayMs = delayMs;
+        }
+    }
+
+    /**
+     * Expected against captured items, compared as multisets
+     */
+    private static final class Accuracy {
+        private final int expected;
+        private final int captured;
+        private final int correct;
+
+        Accuracy(List<String> expected, List<String> captured) {
+            Map<String, Integer> remaining = new HashMap<>();
+            for (String item : expected) {
+                remaining.merge(item, 1, Integer::sum);
+            }
+            int correct = 0;
+            for (String item : captured) {
+                Integer count = remaining.get(item);
+                if (count != null && count > 0) {
+                    remaining.put(item, count - 1);
+                    correct++;
+                }
+            }
+            this.expected = expected.size();
+            this.captured = captured.size();
+            this.correct = correct;
+        }
+
+        double precision() {
+            return captured == 0 ? 1 : (double) correct / captured;
+        }
+
+        double recall() {
+            return expected == 0 ? 1 : (double) correct / expected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d of %d captured correct, %d expected; precision %.2f, recall %.2f",
+                    correct, captured, expected, precision(), recall());
+        }
+    }
+
+    // "order 48213577 | zone | store | address" -> "order 48213577"
+    private static List<String> orderKeys(List<String> captures) {
+        List<String> keys = new ArrayList<>(captures.size());
+        for (String capture : captures) {
+            int end = capture.indexOf(" | ");
+            keys.add(end < 0 ? capture : capture.substring(0, end));
+        }
+        return keys;
+    }
+
+    private static List<RecordedScreen> loadScreens() throws IOException {
+        List<RecordedScreen> screens = new ArrayList<>();
+        RecordedScreen current = null;
+        for (String line : loadLines(SCREENS)) {
+            if (line.startsWith("@ ")) {
+                current = new RecordedScreen(Long.parseLong(line.substring(2).trim()));
+                screens.add(current);
+            } else if (current == null) {
+                throw new IOException("Screen text before the first screen: " + line);
+            } else if (line.startsWith("> ")) {
+                current.expected.add(line.substring(2).trim());
+            } else {
+                current.lines.add(line);
+            }
+        }
+        return screens;
+    }
+
+    private static List<String> loadLines(String resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = CaptureReplayTest.class.getResourceAsStream(resource);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,92 @@
+package com.autogratuity.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Transitions of {@link DeliveryFlow}, with its reset timer on a {@link TestScheduler}.
+ */
+public class DeliveryFlowTest {
+
+    private static final long RESET_MS = 10000;
+    private static final String ORDER_ID = "48213577";
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final List<String> completed = new ArrayList<>();
+    private final DeliveryFlow flow = new DeliveryFlow(scheduler, RESET_MS, completed::add);
+
+    @Test
+    public void staysIdleUntilADeliveryScreen() {
+        flow.onScreen(ShiptScreen.ORDER_RELATED | ShiptScreen.STORE);
+        flow.onScreen(ShiptScreen.CONFIRMATION);
+        assertEquals(DeliveryFlow.State.IDLE, flow.getState());
+
+        flow.onScreen(ShiptScreen.DELIVERY | ShiptScreen.SLIDE_ACTION);
+        assertEquals(DeliveryFlow.State.DELIVERING, flow.getState());
+        assertEquals(Collections.emptyList(), completed);
+    }
+
+    @Test
+    public void confirmationCompletesTheDeliveryOnce() {
+        flow.setOrderId(ORDER_ID);
+        flow.onScreen(ShiptScreen.DELIVERY | ShiptScreen.SLIDE_ACTION);
+        flow.onScreen(ShiptScreen.CONFIRMATION);
+        flow.onScreen(ShiptScreen.CONFIRMATION);
+
+        assertEquals(DeliveryFlow.State.COMPLETED, flow.getState());
+        assertEquals(Collections.singletonList(ORDER_ID), completed);
+    }
+
+    @Test
+    public void completionWordingWithoutASlideCompletesAtOnce() {
+        flow.setOrderId(ORDER_ID);
+        flow.onScreen(ShiptScreen.DELIVERY);
+
+        assertEquals(DeliveryFlow.State.COMPLETED, flow.getState());
+        assertEquals(Collections.singletonList(ORDER_ID), completed);
+    }
+
+    @Test
+    public void completionWithoutAnOrderIdIsNotReported() {
+        flow.onScreen(ShiptScreen.DELIVERY);
+
+        assertEquals(DeliveryFlow.State.COMPLETED, flow.getState());
+        assertEquals(Collections.emptyList(), completed);
+    }
+
+    @Test
+    public void returnsToIdleAfterTheResetDelay() {
+        flow.setOrderId(ORDER_ID);
+        flow.onScreen(ShiptScreen.DELIVERY);
+
+        scheduler.advanceTimeBy(RESET_MS - 1, TimeUnit.MILLISECONDS);
+        assertEquals(DeliveryFlow.State.COMPLETED, flow.getState());
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(DeliveryFlow.State.IDLE, flow.getState());
+        assertNull(flow.getOrderId());
+
+        // The next delivery is reported on its own
+        flow.setOrderId("48213578");
+        flow.onScreen(ShiptScreen.DELIVERY);
+        assertEquals(Arrays.asList(ORDER_ID, "48213578"), completed);
+    }
+
+    @Test
+    public void disposeCancelsTheReset() {
+        flow.onScreen(ShiptScreen.DELIVERY);
+        flow.dispose();
+
+        scheduler.advanceTimeBy(RESET_MS, TimeUnit.MILLISECONDS);
+        assertEquals(DeliveryFlow.State.COMPLETED, flow.getState());
+    }
+}
@@ -0,0 +1,193 @@
+package com.autogratuity.utils;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Notification matching over a corpus of Shipt notification texts: the compiled matcher
+ * against running every pattern in turn, as the listener service did before.
+ * <p>
+ * The equivalence test always runs. The JMH run is skipped unless the build is started
+ * with {@code -DrunBenchmarks=true}, e.g.
+ * {@code ./gradlew :app:testDebugUnitTest --tests '*NotificationPatternMatcherBenchmark' -DrunBenchmarks=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationPatternMatcherBenchmark {
+
+    private static final String CORPUS = "/notifications/shipt-notifications.txt";
+
+    // Defaults of ShiptNotificationListenerService
+    private static final String[] TIP_PATTERNS = {
+            "You got a \\$(\\d+\\.\\d+) tip for an order delivered on .+ \\(#([A-Z0-9]+)\\)",
+            "You received a \\$(\\d+\\.\\d+) tip for order #([A-Z0-9]+)",
+            "Order #([A-Z0-9]+).*tipped \\$(\\d+\\.\\d+)",
+            "([A-Z0-9]+).*tipped you \\$(\\d+\\.\\d+)",
+            "Your customer left a \\$(\\d+\\.\\d+) tip.*#([A-Z0-9]+)",
+            "You've received a \\$(\\d+\\.\\d+) tip.*([A-Z0-9]+)",
+            "\\$(\\d+\\.\\d+) tip.*order.*([A-Z0-9]+)",
+            "New tip.*\\$(\\d+\\.\\d+).*#([A-Z0-9]+)"
+    };
+    private static final String[] ORDER_ID_PATTERNS = {
+            "#([A-Z0-9]+)",
+            "Order ([A-Z0-9]+)",
+            "order ([A-Z0-9]+)",
+            "\\(#([A-Z0-9]+)\\)",
+            "ID\\s*[:#]?\\s*([A-Z0-9]+)",
+            "([A-Z0-9]{8,12})"
+    };
+
+    private List<String> corpus;
+    private NotificationPatternMatcher matcher;
+    private SequentialMatcher sequential;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = loadCorpus();
+        matcher = NotificationPatternMatcher.compile(TIP_PATTERNS, ORDER_ID_PATTERNS);
+        sequential = new SequentialMatcher(TIP_PATTERNS, ORDER_ID_PATTERNS);
+    }
+
+    @Benchmark
+    public void compiledMatcher(Blackhole blackhole) {
+        for (String text : corpus) {
+            blackhole.consume(matcher.extract(text));
+        }
+    }
+
+    @Benchmark
+    public void sequentialPatterns(Blackhole blackhole) {
+        for (String text : corpus) {
+            blackhole.consume(sequential.extract(text));
+        }
+    }
+
+    @Test
+    public void compiledMatcherExtractsSameAsSequentialPatterns() throws IOException {
+        setUp();
+        for (String text : corpus) {
+            assertEquals(text, sequential.extract(text), matcher.extract(text));
+        }
+    }
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        assumeTrue(Boolean.getBoolean("runBenchmarks"));
+        new Runner(new OptionsBuilder()
+                .include(NotificationPatternMatcherBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static List<String> loadCorpus() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = NotificationPatternMatcherBenchmark.class.getResourceAsStream(CORPUS);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * The previous extraction: every tip pattern, then every order ID pattern, then the
+     * dollar pattern, each compiled once.
+     */
+    private static final class SequentialMatcher {
+        private final List<Pattern> tipPatterns = new ArrayList<>();
+        private final List<Pattern> orderIdPatterns = new ArrayList<>();
+        private final Pattern dollarPattern = Pattern.compile("\\$(\\d+\\.\\d+)");
+
+        SequentialMatcher(String[] tipPatterns, String[] orderIdPatterns) {
+            for (String pattern : tipPatterns) {
+                this.tipPatterns.add(Pattern.compile(pattern));
+            }
+            for (String pattern : orderIdPatterns) {
+                this.orderIdPatterns.add(Pattern.compile(pattern));
+            }
+        }
+
+        Map<String, String> extract(String fullText) {
+            Map<String, String> data = new HashMap<>();
+
+            for (Pattern pattern : tipPatterns) {
+                Matcher matcher = pattern.matcher(fullText);
+                if (matcher.find()) {
+                    try {
+                        if (matcher.groupCount() >= 2) {
+                            data.put("tipAmount", matcher.group(1));
+                            data.put("orderId", matcher.group(2));
+                        } else if (matcher.groupCount() == 1) {
+                            String match = matcher.group(1);
+                            if (match.matches("\\d+\\.\\d+")) {
+                                data.put("tipAmount", match);
+                            } else {
+                                data.put("orderId", match);
+                            }
+                        }
+                        if (data.containsKey("tipAmount") && data.containsKey("orderId")) {
+                            return data;
+                        }
+                    } catch (Exception e) {
+                        // Skip the pattern
+                    }
+                }
+            }
+
+            if (!data.containsKey("orderId")) {
+                for (Pattern pattern : orderIdPatterns) {
+                    Matcher matcher = pattern.matcher(fullText);
+                    if (matcher.find() && matcher.groupCount() >= 1) {
+                        data.put("orderId", matcher.group(1));
+                        break;
+                    }
+                }
+            }
+
+            if (!data.containsKey("tipAmount")) {
+                Matcher matcher = dollarPattern.matcher(fullText);
+                if (matcher.find() && matcher.groupCount() >= 1) {
+                    data.put("tipAmount", matcher.group(1));
+                }
+            }
+
+            return data;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.autogratuity.workers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The cadence policy of {@link SyncScheduler}: delay by outbox depth, coalescing of edit
+ * bursts, battery adjustments and when a run is expedited.
+ */
+public class SyncSchedulerTest {
+
+    private static final SyncScheduler.BatteryState ON_BATTERY = new SyncScheduler.BatteryState(80, false);
+    private static final SyncScheduler.BatteryState CHARGING = new SyncScheduler.BatteryState(50, true);
+    private static final SyncScheduler.BatteryState LOW = new SyncScheduler.BatteryState(10, false);
+    private static final SyncScheduler.BatteryState UNKNOWN = new SyncScheduler.BatteryState(-1, false);
+
+    // Long enough ago that the burst window has passed
+    private static final long QUIET = Long.MAX_VALUE;
+    private static final long IN_BURST = 1000;
+
+    @Test
+    public void emptyOutboxOnlyRefreshesWhenIdle() {
+        assertEquals(SyncScheduler.IDLE_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(0, ON_BATTERY, QUIET));
+        assertEquals(SyncScheduler.IDLE_CHARGING_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(0, CHARGING, QUIET));
+        assertEquals(SyncScheduler.NO_RUN, SyncScheduler.computeDelaySeconds(0, LOW, QUIET));
+    }
+
+    @Test
+    public void delayShrinksAsTheBacklogGrows() {
+        assertEquals(SyncScheduler.SMALL_BACKLOG_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(1, ON_BATTERY, QUIET));
+        assertEquals(SyncScheduler.LARGE_BACKLOG_DELAY_SECONDS, SyncScheduler.computeDelaySeconds(
+                SyncScheduler.LARGE_BACKLOG_THRESHOLD, ON_BATTERY, QUIET));
+        assertEquals(0, SyncScheduler.computeDelaySeconds(
+                SyncScheduler.EXPEDITE_BACKLOG_THRESHOLD, ON_BATTERY, QUIET));
+    }
+
+    @Test
+    public void burstsOfEditsAreCoalesced() {
+        assertEquals(SyncScheduler.COALESCE_DELAY_SECONDS, SyncScheduler.computeDelaySeconds(
+                SyncScheduler.LARGE_BACKLOG_THRESHOLD, ON_BATTERY, IN_BURST));
+        // Longer delays are kept, and an expedited backlog is never held back
+        assertEquals(SyncScheduler.SMALL_BACKLOG_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(1, ON_BATTERY, IN_BURST));
+        assertEquals(0, SyncScheduler.computeDelaySeconds(
+                SyncScheduler.EXPEDITE_BACKLOG_THRESHOLD, ON_BATTERY, IN_BURST));
+    }
+
+    @Test
+    public void batteryAdjustsTheDelay() {
+        assertEquals(SyncScheduler.SMALL_BACKLOG_DELAY_SECONDS / 2,
+                SyncScheduler.computeDelaySeconds(1, CHARGING, QUIET));
+        assertEquals(SyncScheduler.LOW_BATTERY_MIN_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(1, LOW, QUIET));
+        assertEquals(SyncScheduler.LOW_BATTERY_MIN_DELAY_SECONDS, SyncScheduler.computeDelaySeconds(
+                SyncScheduler.EXPEDITE_BACKLOG_THRESHOLD, LOW, QUIET));
+        // An unknown level is not treated as low
+        assertEquals(SyncScheduler.SMALL_BACKLOG_DELAY_SECONDS,
+                SyncScheduler.computeDelaySeconds(1, UNKNOWN, QUIET));
+    }
+
+    @Test
+    public void expeditesLargeBacklogsUnlessBatteryIsLow() {
+        int threshold = SyncScheduler.EXPEDITE_BACKLOG_THRESHOLD;
+
+        assertTrue(SyncScheduler.shouldExpedite(threshold, ON_BATTERY));
+        assertFalse(SyncScheduler.shouldExpedite(threshold - 1, ON_BATTERY));
+        assertFalse(SyncScheduler.shouldExpedite(threshold, LOW));
+        // A low level while charging does not hold work back
+        assertTrue(SyncScheduler.shouldExpedite(threshold, new SyncScheduler.BatteryState(10, true)));
+    }
+}
@@ -0,0 +1,50 @@
+#!/bin/sh
+# Regenerate the exported Room schema of every AppDatabase version with the real Room
+# processor. Each commit that changed the database version is checked out into a
+# temporary worktree, built with schema export on, and its bundle copied into
+# app/schemas. Versions that fail to build keep their committed bundle and are listed
+# at the end.
+#
+# Run MigrationTest afterwards:
+#   ./gradlew :app:connectedDebugAndroidTest \
+#       -Pandroid.testInstrumentationRunnerArguments.class=com.autogratuity.data.local.MigrationTest
+
+set -e
+
+ROOT=$(git rev-parse --show-toplevel)
+DB=app/src/main/java/com/autogratuity/data/local/AppDatabase.java
+SCHEMA_DIR=com.autogratuity.data.local.AppDatabase
+WORK=$(mktemp -d)
+failed=""
+
+for commit in $(git -C "$ROOT" log --reverse --format=%h -G 'version *= *[0-9]+' -- "$DB"); do
+    version=$(git -C "$ROOT" show "$commit:$DB" | sed -n 's/.*version *= *\([0-9][0-9]*\).*/\1/p' | head -n 1)
+    tree="$WORK/v$version"
+    git -C "$ROOT" worktree add --detach "$tree" "$commit" > /dev/null 2>&1
+
+    # Older versions did not export their schema
+    sed -i.orig 's/exportSchema *= *false/exportSchema = true/' "$tree/$DB"
+    echo "android.defaultConfig.javaCompileOptions.annotationProcessorOptions.arguments.put('room.schemaLocation', '$WORK/out')" \
+        >> "$tree/app/build.gradle"
+    if [ -f "$ROOT/local.properties" ]; then
+        cp "$ROOT/local.properties" "$tree/"
+    fi
+
+    if (cd "$tree" && ./gradlew -q :app:compileDebugJavaWithJavac) \
+            && [ -f "$WORK/out/$SCHEMA_DIR/$version.json" ]; then
+        cp "$WORK/out/$SCHEMA_DIR/$version.json" "$ROOT/app/schemas/$SCHEMA_DIR/$version.json"
+        echo "v$version: regenerated from $commit"
+    else
+        echo "v$version: build of $commit failed, bundle left as committed"
+        failed="$failed $version"
+    fi
+
+    git -C "$ROOT" worktree remove --force "$tree"
+done
+
+rm -rf "$WORK"
+
+if [ -n "$failed" ]; then
+    echo "Not regenerated:$failed"
+    exit 1
+fi